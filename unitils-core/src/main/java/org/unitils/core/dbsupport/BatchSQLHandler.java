@@ -0,0 +1,93 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import java.util.List;
+
+/**
+ * Extension of the {@link SQLHandler} for executing batches of statements, executing statements in a transaction and
+ * retrieving more than one column. This is a separate interface, so that existing implementations of the
+ * {@link SQLHandler} keep working: use {@link BatchSQLHandlerAdapter#getBatchSQLHandler} to get a batch sql handler
+ * for any sql handler. The {@link DefaultSQLHandler} implements this interface.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public interface BatchSQLHandler extends SQLHandler {
+
+    /**
+     * Executes the given statements as a single batch, i.e. in one round trip to the database. The statements
+     * are executed in the given order. If a statement fails, the exception message contains the failed statement.
+     *
+     * @param sqlStatements The sql statements, not null
+     */
+    void executeUpdates(List<String> sqlStatements);
+
+    /**
+     * Executes the given statements as a single batch and commits. As for {@link #executeUpdateAndCommit}, the
+     * auto-commit setting of the connection is not changed: on a connection in auto-commit mode every statement is
+     * committed on its own. If a statement fails, the exception message contains the failed statement.
+     *
+     * @param sqlStatements The sql statements, not null
+     */
+    void executeUpdatesAndCommit(List<String> sqlStatements);
+
+    /**
+     * Executes the given parameterized statement with every given set of parameter values as a single batch of a
+     * prepared statement, and commits. The values are set in the order of the ? placeholders in the statement.
+     *
+     * @param sql             The sql statement, not null
+     * @param parameterValues The parameter values for each execution, not null
+     */
+    void executePreparedUpdatesAndCommit(String sql, List<Object[]> parameterValues);
+
+    /**
+     * Starts a transaction: auto-commit is switched off and all statements of the current thread are executed on the
+     * same connection until {@link #commitTransaction} or {@link #rollbackTransaction} is called. Nothing happens if
+     * updates are not executed.
+     */
+    void startTransaction();
+
+    /**
+     * Commits the transaction that was started by {@link #startTransaction}, and restores the auto-commit setting
+     * of the connection. Nothing happens if there is no transaction.
+     */
+    void commitTransaction();
+
+    /**
+     * Rolls back the transaction that was started by {@link #startTransaction}, and restores the auto-commit setting
+     * of the connection. Nothing happens if there is no transaction. Failures are only logged, so that they do not
+     * hide the error that caused the roll back.
+     */
+    void rollbackTransaction();
+
+    /**
+     * Returns the values of the first two columns of all records returned by the given query.
+     *
+     * @param sql The sql string for retrieving the items
+     * @return The value pairs, not null
+     */
+    List<String[]> getItemPairs(String sql);
+
+    /**
+     * Returns the values of all columns of all records returned by the given query.
+     *
+     * @param sql The sql string for retrieving the items
+     * @return The values per record, in the order of the columns, not null
+     */
+    List<String[]> getItemRows(String sql);
+
+}
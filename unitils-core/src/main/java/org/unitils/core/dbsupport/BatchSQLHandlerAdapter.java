@@ -0,0 +1,237 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
+import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Batch sql handler for an sql handler that only implements the {@link SQLHandler} interface. All statements are
+ * passed to the wrapped handler one by one: batches are executed as separate statements and transactions are not
+ * supported, every statement is executed the way the wrapped handler executes it. The statements that the
+ * {@link SQLHandler} interface does not offer, i.e. prepared updates and queries for more than one column, are
+ * executed on a connection of the data source of the wrapped handler.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class BatchSQLHandlerAdapter implements BatchSQLHandler {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(BatchSQLHandlerAdapter.class);
+
+    /* The wrapped sql handler */
+    private SQLHandler sqlHandler;
+
+
+    /**
+     * Gets a batch sql handler for the given sql handler: the handler itself if it implements the
+     * {@link BatchSQLHandler} interface, an adapter for the handler otherwise.
+     *
+     * @param sqlHandler The sql handler, not null
+     * @return The batch sql handler, not null
+     */
+    public static BatchSQLHandler getBatchSQLHandler(SQLHandler sqlHandler) {
+        if (sqlHandler instanceof BatchSQLHandler) {
+            return (BatchSQLHandler) sqlHandler;
+        }
+        return new BatchSQLHandlerAdapter(sqlHandler);
+    }
+
+
+    /**
+     * Creates an adapter for the given sql handler.
+     *
+     * @param sqlHandler The sql handler, not null
+     */
+    public BatchSQLHandlerAdapter(SQLHandler sqlHandler) {
+        this.sqlHandler = sqlHandler;
+    }
+
+
+    public void executeUpdates(List<String> sqlStatements) {
+        for (String sql : sqlStatements) {
+            sqlHandler.executeUpdate(sql);
+        }
+    }
+
+
+    public void executeUpdatesAndCommit(List<String> sqlStatements) {
+        for (String sql : sqlStatements) {
+            sqlHandler.executeUpdateAndCommit(sql);
+        }
+    }
+
+
+    public void executePreparedUpdatesAndCommit(String sql, List<Object[]> parameterValues) {
+        if (parameterValues.isEmpty() || !sqlHandler.isDoExecuteUpdates()) {
+            return;
+        }
+        logger.debug(sql);
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = sqlHandler.getDataSource().getConnection();
+            preparedStatement = connection.prepareStatement(sql);
+            for (Object[] values : parameterValues) {
+                for (int i = 0; i < values.length; i++) {
+                    preparedStatement.setObject(i + 1, values[i]);
+                }
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while performing database update: " + sql, e);
+        } finally {
+            closeQuietly(connection, preparedStatement, null);
+        }
+    }
+
+
+    /**
+     * Transactions are not supported, nothing is done.
+     */
+    public void startTransaction() {
+    }
+
+
+    /**
+     * Transactions are not supported, nothing is done.
+     */
+    public void commitTransaction() {
+    }
+
+
+    /**
+     * Transactions are not supported, nothing is done.
+     */
+    public void rollbackTransaction() {
+    }
+
+
+    public List<String[]> getItemPairs(String sql) {
+        logger.debug(sql);
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = sqlHandler.getDataSource().getConnection();
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(sql);
+            List<String[]> result = new ArrayList<String[]>();
+            while (resultSet.next()) {
+                result.add(new String[]{resultSet.getString(1), resultSet.getString(2)});
+            }
+            return result;
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(connection, statement, resultSet);
+        }
+    }
+
+
+    public List<String[]> getItemRows(String sql) {
+        logger.debug(sql);
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = sqlHandler.getDataSource().getConnection();
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(sql);
+            int columnCount = resultSet.getMetaData().getColumnCount();
+            List<String[]> result = new ArrayList<String[]>();
+            while (resultSet.next()) {
+                String[] row = new String[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    row[i] = resultSet.getString(i + 1);
+                }
+                result.add(row);
+            }
+            return result;
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(connection, statement, resultSet);
+        }
+    }
+
+
+    public int executeUpdate(String sql) {
+        return sqlHandler.executeUpdate(sql);
+    }
+
+
+    public void executeQuery(String sql) {
+        sqlHandler.executeQuery(sql);
+    }
+
+
+    public int executeUpdateAndCommit(String sql) {
+        return sqlHandler.executeUpdateAndCommit(sql);
+    }
+
+
+    public long getItemAsLong(String sql) {
+        return sqlHandler.getItemAsLong(sql);
+    }
+
+
+    public String getItemAsString(String sql) {
+        return sqlHandler.getItemAsString(sql);
+    }
+
+
+    public Set<String> getItemsAsStringSet(String sql) {
+        return sqlHandler.getItemsAsStringSet(sql);
+    }
+
+
+    public boolean exists(String sql) {
+        return sqlHandler.exists(sql);
+    }
+
+
+    public DataSource getDataSource() {
+        return sqlHandler.getDataSource();
+    }
+
+
+    public boolean isDoExecuteUpdates() {
+        return sqlHandler.isDoExecuteUpdates();
+    }
+}
@@ -106,6 +106,23 @@ public class Db2DbSupport extends DbSupport {
     }
 
 
+    /**
+     * Gets the query that retrieves the names of all tables, views, sequences, triggers and types in the database schema
+     * in one round trip, see {@link #getItemNames()}.
+     *
+     * @return The query, not null
+     */
+    @Override
+    protected String getItemNamesQuery() {
+        String schemaName = getSchemaName();
+        return "select 'TABLE,' || TABNAME from SYSCAT.TABLES where TABSCHEMA = '" + schemaName + "' and TYPE = 'T'" +
+                " union all select 'VIEW,' || TABNAME from SYSCAT.TABLES where TABSCHEMA = '" + schemaName + "' and TYPE = 'V'" +
+                " union all select 'SEQUENCE,' || SEQNAME from SYSCAT.SEQUENCES where SEQTYPE = 'S' AND SEQSCHEMA = '" + schemaName + "'" +
+                " union all select 'TRIGGER,' || TRIGNAME from SYSCAT.TRIGGERS where TRIGSCHEMA = '" + schemaName + "'" +
+                " union all select 'TYPE,' || TYPENAME from SYSCAT.DATATYPES where TYPESCHEMA = '" + schemaName + "'";
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all table in the schema
      */
@@ -180,14 +197,16 @@ public class Db2DbSupport extends DbSupport {
 
 
     /**
-     * Sets the next value of the sequence with the given sequence name to the given sequence value.
+     * Gets the statement that sets the next value of the sequence with the given sequence name to the given
+     * sequence value.
      *
      * @param sequenceName     The sequence, not null
      * @param newSequenceValue The value to set
+     * @return The statement, not null
      */
     @Override
-    public void incrementSequenceToValue(String sequenceName, long newSequenceValue) {
-        getSQLHandler().executeUpdate("alter sequence " + qualified(sequenceName) + " restart with " + newSequenceValue);
+    protected String getIncrementSequenceToValueStatement(String sequenceName, long newSequenceValue) {
+        return "alter sequence " + qualified(sequenceName) + " restart with " + newSequenceValue;
     }
 
 
@@ -206,16 +225,17 @@ public class Db2DbSupport extends DbSupport {
 
 
     /**
-     * Increments the identity value for the specified identity column on the specified table to the given value. If
-     * there is no identity specified on the given primary key, the method silently finishes without effect.
+     * Gets the statement that increments the identity value for the specified identity column on the specified table to
+     * the given value.
      *
      * @param tableName          The table with the identity column, not null
      * @param identityColumnName The column, not null
      * @param identityValue      The new value
+     * @return The statement, not null
      */
     @Override
-    public void incrementIdentityColumnToValue(String tableName, String identityColumnName, long identityValue) {
-        getSQLHandler().executeUpdate("alter table " + qualified(tableName) + " alter column " + quoted(identityColumnName) + " restart with " + identityValue);
+    protected String getIncrementIdentityColumnToValueStatement(String tableName, String identityColumnName, long identityValue) {
+        return "alter table " + qualified(tableName) + " alter column " + quoted(identityColumnName) + " restart with " + identityValue;
     }
 
 
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+/**
+ * The kinds of database items that are retrieved and dropped by a {@link DbSupport}.
+ * <p/>
+ * The names of these values are also used by the queries that retrieve the names of all items of a schema in one go,
+ * see {@link DbSupport#getItemNames()}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public enum DbItemType {
+
+    /**
+     * A table, not including the tables of materialized views
+     */
+    TABLE,
+
+    /**
+     * A view
+     */
+    VIEW,
+
+    /**
+     * A materialized view
+     */
+    MATERIALIZED_VIEW,
+
+    /**
+     * A synonym
+     */
+    SYNONYM,
+
+    /**
+     * A sequence
+     */
+    SEQUENCE,
+
+    /**
+     * A trigger
+     */
+    TRIGGER,
+
+    /**
+     * A user-defined type
+     */
+    TYPE
+}
@@ -15,15 +15,24 @@
  */
 package org.unitils.core.dbsupport;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.unitils.core.UnitilsException;
 import org.unitils.core.util.StoredIdentifierCase;
 import static org.unitils.core.util.StoredIdentifierCase.*;
 import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
+import static org.unitils.util.PropertyUtils.getBoolean;
 import static org.unitils.util.PropertyUtils.getString;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import org.apache.commons.lang.StringUtils;
@@ -49,6 +58,13 @@ abstract public class DbSupport {
      */
     public static final String PROPKEY_IDENTIFIER_QUOTE_STRING = "database.identifierQuoteString";
 
+    /**
+     * Property key for enabling the cache of the schema metadata, disabled by default
+     */
+    public static final String PROPKEY_METADATA_CACHE_ENABLED = "database.metadataCache.enabled";
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(DbSupport.class);
 
     /* The name of the DBMS implementation that is supported by this implementation */
     private String databaseDialect;
@@ -65,6 +81,9 @@ abstract public class DbSupport {
     /* The string that is used to quote identifiers to make them case sensitive, e.g. ", null means quoting not supported*/
     private String identifierQuoteString;
 
+    /* The cache for the names of tables, columns and sequences, null if caching is disabled */
+    private SchemaMetadataCache schemaMetadataCache;
+
 
     /**
      * Creates a new, unconfigured instance. To have a instance that can be used, the {@link #init} method must be
@@ -96,6 +115,10 @@ abstract public class DbSupport {
         this.storedIdentifierCase = determineStoredIdentifierCase(storedIdentifierCaseValue);
 
         this.schemaName = toCorrectCaseIdentifier(schemaName);
+
+        if (getBoolean(PROPKEY_METADATA_CACHE_ENABLED, false, configuration)) {
+            this.schemaMetadataCache = SchemaMetadataCache.getInstance(sqlHandler.getDataSource());
+        }
     }
 
 
@@ -149,6 +172,27 @@ abstract public class DbSupport {
     }
 
 
+    /**
+     * Gets the sql handler for executing batches and transactions. If the sql handler does not support these, an
+     * adapter is returned that executes the statements one by one, see {@link BatchSQLHandlerAdapter}.
+     *
+     * @return the batch sql handler, not null
+     */
+    public BatchSQLHandler getBatchSQLHandler() {
+        return BatchSQLHandlerAdapter.getBatchSQLHandler(sqlHandler);
+    }
+
+
+    /**
+     * Gets the cache for the schema metadata of the data source.
+     *
+     * @return the cache, null if caching is disabled
+     */
+    public SchemaMetadataCache getSchemaMetadataCache() {
+        return schemaMetadataCache;
+    }
+
+
     /**
      * Returns the names of all tables in the database.
      *
@@ -224,6 +268,86 @@ abstract public class DbSupport {
     }
 
 
+    /**
+     * Retrieves the names of all tables, views, materialized views, synonyms, sequences, triggers and types in the
+     * database schema. Only the types of items that are supported by the DBMS are returned.
+     * <p/>
+     * If the DBMS specific subclass provides a query for this (see {@link #getItemNamesQuery()}), all names are
+     * retrieved in one round trip instead of one query per type of item.
+     *
+     * @return The names per type of item, an empty set for a supported type without items, not null
+     */
+    public Map<DbItemType, Set<String>> getItemNames() {
+        Map<DbItemType, Set<String>> itemNames = new EnumMap<DbItemType, Set<String>>(DbItemType.class);
+        String itemNamesQuery = getItemNamesQuery();
+        if (itemNamesQuery == null) {
+            for (DbItemType itemType : DbItemType.values()) {
+                if (supports(itemType)) {
+                    itemNames.put(itemType, getItemNames(itemType));
+                }
+            }
+            return itemNames;
+        }
+
+        for (DbItemType itemType : DbItemType.values()) {
+            if (supports(itemType)) {
+                itemNames.put(itemType, new HashSet<String>());
+            }
+        }
+        for (String typeAndName : getSQLHandler().getItemsAsStringSet(itemNamesQuery)) {
+            int separatorIndex = typeAndName.indexOf(',');
+            Set<String> names = separatorIndex == -1 ? null : itemNames.get(DbItemType.valueOf(typeAndName.substring(0, separatorIndex)));
+            if (names == null) {
+                throw new UnitilsException("Unexpected value " + typeAndName + " returned by item names query: " + itemNamesQuery);
+            }
+            names.add(typeAndName.substring(separatorIndex + 1));
+        }
+        return itemNames;
+    }
+
+
+    /**
+     * Retrieves the names of all items of the given type in the database schema.
+     *
+     * @param itemType The type of item, not null
+     * @return The names, not null
+     */
+    public Set<String> getItemNames(DbItemType itemType) {
+        switch (itemType) {
+            case TABLE:
+                return getTableNames();
+            case VIEW:
+                return getViewNames();
+            case MATERIALIZED_VIEW:
+                return getMaterializedViewNames();
+            case SYNONYM:
+                return getSynonymNames();
+            case SEQUENCE:
+                return getSequenceNames();
+            case TRIGGER:
+                return getTriggerNames();
+            default:
+                return getTypeNames();
+        }
+    }
+
+
+    /**
+     * Gets the query that retrieves the names of all items in the database schema, see {@link #getItemNames()}.
+     * Every record of the query is a single string containing the name of the {@link DbItemType}, a comma and the
+     * name of the item, e.g. TABLE,PERSON. This way the items of all types can be retrieved using a union of the
+     * queries of the separate types.
+     * <p/>
+     * The query should return the same names as the separate methods, e.g. {@link #getTableNames()}. By default,
+     * null is returned, meaning that the separate methods are used.
+     *
+     * @return The query, null if not supported
+     */
+    protected String getItemNamesQuery() {
+        return null;
+    }
+
+
     /**
      * Removes the table with the given name from the database.
      * Note: the table name is surrounded with quotes, making it case-sensitive.
@@ -231,7 +355,7 @@ abstract public class DbSupport {
      * @param tableName The table to drop (case-sensitive), not null
      */
     public void dropTable(String tableName) {
-        getSQLHandler().executeUpdate("drop table " + qualified(tableName) + (supportsCascade() ? " cascade" : ""));
+        getSQLHandler().executeUpdate(getDropStatement(DbItemType.TABLE, tableName));
     }
 
 
@@ -242,7 +366,7 @@ abstract public class DbSupport {
      * @param viewName The view to drop (case-sensitive), not null
      */
     public void dropView(String viewName) {
-        getSQLHandler().executeUpdate("drop view " + qualified(viewName) + (supportsCascade() ? " cascade" : ""));
+        getSQLHandler().executeUpdate(getDropStatement(DbItemType.VIEW, viewName));
     }
 
 
@@ -253,7 +377,7 @@ abstract public class DbSupport {
      * @param viewName The view to drop (case-sensitive), not null
      */
     public void dropMaterializedView(String viewName) {
-        throw new UnsupportedOperationException("Materialized views are not supported for " + getDatabaseDialect());
+        getSQLHandler().executeUpdate(getDropStatement(DbItemType.MATERIALIZED_VIEW, viewName));
     }
 
 
@@ -264,7 +388,7 @@ abstract public class DbSupport {
      * @param synonymName The synonym to drop (case-sensitive), not null
      */
     public void dropSynonym(String synonymName) {
-        getSQLHandler().executeUpdate("drop synonym " + qualified(synonymName));
+        getSQLHandler().executeUpdate(getDropStatement(DbItemType.SYNONYM, synonymName));
     }
 
 
@@ -275,7 +399,7 @@ abstract public class DbSupport {
      * @param sequenceName The sequence to drop (case-sensitive), not null
      */
     public void dropSequence(String sequenceName) {
-        getSQLHandler().executeUpdate("drop sequence " + qualified(sequenceName));
+        getSQLHandler().executeUpdate(getDropStatement(DbItemType.SEQUENCE, sequenceName));
     }
 
 
@@ -286,7 +410,7 @@ abstract public class DbSupport {
      * @param triggerName The trigger to drop (case-sensitive), not null
      */
     public void dropTrigger(String triggerName) {
-        getSQLHandler().executeUpdate("drop trigger " + qualified(triggerName));
+        getSQLHandler().executeUpdate(getDropStatement(DbItemType.TRIGGER, triggerName));
     }
 
 
@@ -297,7 +421,95 @@ abstract public class DbSupport {
      * @param typeName The type to drop (case-sensitive), not null
      */
     public void dropType(String typeName) {
-        getSQLHandler().executeUpdate("drop type " + qualified(typeName) + (supportsCascade() ? " cascade" : ""));
+        getSQLHandler().executeUpdate(getDropStatement(DbItemType.TYPE, typeName));
+    }
+
+
+    /**
+     * Drops all the given items using a single batch of drop statements. The items are dropped in the iteration order
+     * of the map, e.g. a linked hash map with the views before the tables.
+     * Note: the item names are surrounded with quotes, making them case-sensitive.
+     *
+     * @param itemNames The names of the items to drop per type of item (case-sensitive), not null
+     */
+    public void dropItems(Map<DbItemType, Set<String>> itemNames) {
+        List<String> dropStatements = new ArrayList<String>();
+        for (Map.Entry<DbItemType, Set<String>> entry : itemNames.entrySet()) {
+            for (String itemName : entry.getValue()) {
+                dropStatements.add(getDropStatement(entry.getKey(), itemName));
+            }
+        }
+        getBatchSQLHandler().executeUpdates(dropStatements);
+    }
+
+
+    /**
+     * Gets the statement that drops the item of the given type with the given name.
+     * Note: the item name is surrounded with quotes, making it case-sensitive.
+     *
+     * @param itemType The type of the item, not null
+     * @param itemName The item to drop (case-sensitive), not null
+     * @return The drop statement, not null
+     */
+    protected String getDropStatement(DbItemType itemType, String itemName) {
+        switch (itemType) {
+            case TABLE:
+                return "drop table " + qualified(itemName) + (supportsCascade() ? " cascade" : "");
+            case VIEW:
+                return "drop view " + qualified(itemName) + (supportsCascade() ? " cascade" : "");
+            case MATERIALIZED_VIEW:
+                throw new UnsupportedOperationException("Materialized views are not supported for " + getDatabaseDialect());
+            case SYNONYM:
+                return "drop synonym " + qualified(itemName);
+            case SEQUENCE:
+                return "drop sequence " + qualified(itemName);
+            case TRIGGER:
+                return "drop trigger " + qualified(itemName);
+            default:
+                return "drop type " + qualified(itemName) + (supportsCascade() ? " cascade" : "");
+        }
+    }
+
+
+    /**
+     * Removes all data from the tables with the given names, using the fastest statement the DBMS offers, e.g.
+     * truncate table. Referential constraints between the given tables do not have to be disabled first.
+     * Note: the table names are surrounded with quotes, making them case-sensitive.
+     * <p/>
+     * Only supported if {@link #supportsTruncate()} returns true.
+     *
+     * @param tableNames The tables to empty (case-sensitive), not null
+     */
+    public void truncateTables(Set<String> tableNames) {
+        throw new UnsupportedOperationException("Truncating tables is not supported for " + getDatabaseDialect());
+    }
+
+
+    /**
+     * Writes a snapshot of the structure and data of the given schemas to the given file, using the native
+     * mechanism of the DBMS. Other schemas are not part of the snapshot. The snapshot can be restored with
+     * {@link #restoreSnapshot}.
+     * <p/>
+     * Only supported if {@link #supportsSnapshots()} returns true.
+     *
+     * @param fileName    The absolute name of the file to write, not null
+     * @param schemaNames The names of the schemas in the correct case, not null
+     */
+    public void createSnapshot(String fileName, Set<String> schemaNames) {
+        throw new UnsupportedOperationException("Snapshots are not supported for " + getDatabaseDialect());
+    }
+
+
+    /**
+     * Restores a snapshot that was written by {@link #createSnapshot}. The database objects of the snapshot should
+     * have been dropped first, e.g. by clearing the database.
+     * <p/>
+     * Only supported if {@link #supportsSnapshots()} returns true.
+     *
+     * @param fileName The absolute name of the snapshot file, not null
+     */
+    public void restoreSnapshot(String fileName) {
+        throw new UnsupportedOperationException("Snapshots are not supported for " + getDatabaseDialect());
     }
 
 
@@ -313,6 +525,42 @@ abstract public class DbSupport {
     public abstract void disableValueConstraints();
 
 
+    /**
+     * Switches the referential constraints that were disabled by {@link #disableReferentialConstraints} back on and
+     * validates the existing data against them. This is only possible if the DBMS specific subclass disables the
+     * constraints without dropping them, see {@link #supportsRestoringReferentialConstraints}.
+     *
+     * @throws UnitilsException If the existing data violates one of the constraints
+     */
+    public void restoreReferentialConstraints() {
+        throw new UnsupportedOperationException("Restoring referential constraints not supported for " + getDatabaseDialect());
+    }
+
+
+    /**
+     * Indicates whether the referential constraints can be switched back on after they were disabled. By default,
+     * this is not supported.
+     *
+     * @return True if {@link #restoreReferentialConstraints} is supported
+     */
+    public boolean supportsRestoringReferentialConstraints() {
+        return false;
+    }
+
+
+    /**
+     * Executes the given query and returns the values of the first two columns of all records, e.g. the table and
+     * constraint names of all constraints in the schema. This way, all constraints can be retrieved with a single
+     * query and be dropped in one batch.
+     *
+     * @param sql The query, not null
+     * @return The value pairs, not null
+     */
+    protected List<String[]> getItemPairs(String sql) {
+        return getBatchSQLHandler().getItemPairs(sql);
+    }
+
+
     /**
      * Returns the value of the sequence with the given name.
      * <p/>
@@ -333,7 +581,80 @@ abstract public class DbSupport {
      * @param newSequenceValue The value to set
      */
     public void incrementSequenceToValue(String sequenceName, long newSequenceValue) {
-        throw new UnsupportedOperationException("Sequences not supported for " + getDatabaseDialect());
+        String statement = getIncrementSequenceToValueStatement(sequenceName, newSequenceValue);
+        if (statement == null) {
+            throw new UnsupportedOperationException("Sequences not supported for " + getDatabaseDialect());
+        }
+        getSQLHandler().executeUpdate(statement);
+    }
+
+
+    /**
+     * Sets the next value of the given sequences to the given value. If the DBMS specific subclass provides a
+     * statement for this (see {@link #getIncrementSequenceToValueStatement}), all sequences are updated in a single
+     * batch.
+     *
+     * @param sequenceNames    The sequences, not null
+     * @param newSequenceValue The value to set
+     */
+    public void incrementSequencesToValue(Set<String> sequenceNames, long newSequenceValue) {
+        List<String> statements = new ArrayList<String>();
+        for (String sequenceName : sequenceNames) {
+            String statement = getIncrementSequenceToValueStatement(sequenceName, newSequenceValue);
+            if (statement == null) {
+                incrementSequenceToValue(sequenceName, newSequenceValue);
+            } else {
+                statements.add(statement);
+            }
+        }
+        getBatchSQLHandler().executeUpdates(statements);
+    }
+
+
+    /**
+     * Gets the statement that sets the next value of the sequence with the given sequence name to the given sequence
+     * value.
+     *
+     * @param sequenceName     The sequence, not null
+     * @param newSequenceValue The value to set
+     * @return The statement, null if this cannot be done with a single statement
+     */
+    protected String getIncrementSequenceToValueStatement(String sequenceName, long newSequenceValue) {
+        return null;
+    }
+
+
+    /**
+     * Retrieves the names of the sequences whose current value is lower than the given value. If the DBMS specific
+     * subclass provides a query for this (see {@link #getSequenceNamesBelowValueQuery}), the names are retrieved in
+     * one round trip, otherwise the value of every sequence is retrieved separately.
+     *
+     * @param value The value
+     * @return The names of the sequences, not null
+     */
+    public Set<String> getSequenceNamesBelowValue(long value) {
+        String query = getSequenceNamesBelowValueQuery(value);
+        if (query != null) {
+            return getSQLHandler().getItemsAsStringSet(query);
+        }
+        Set<String> sequenceNames = new HashSet<String>();
+        for (String sequenceName : getCachedSequenceNames()) {
+            if (getSequenceValue(sequenceName) < value) {
+                sequenceNames.add(sequenceName);
+            }
+        }
+        return sequenceNames;
+    }
+
+
+    /**
+     * Gets the query that retrieves the names of the sequences whose current value is lower than the given value.
+     *
+     * @param value The value
+     * @return The query, null if the values have to be retrieved per sequence
+     */
+    protected String getSequenceNamesBelowValueQuery(long value) {
+        return null;
     }
 
 
@@ -348,6 +669,64 @@ abstract public class DbSupport {
     }
 
 
+    /**
+     * Same as {@link #getTableNames}, but the names are taken from the schema metadata cache if caching is enabled.
+     * The returned set cannot be modified.
+     *
+     * @return The names of all tables in the database, not null
+     */
+    public Set<String> getCachedTableNames() {
+        if (schemaMetadataCache == null) {
+            return getTableNames();
+        }
+        return schemaMetadataCache.getTableNames(this);
+    }
+
+
+    /**
+     * Same as {@link #getColumnNames}, but the names are taken from the schema metadata cache if caching is enabled.
+     * The returned set cannot be modified.
+     *
+     * @param tableName The table, not null
+     * @return The names of the columns of the table with the given name, not null
+     */
+    public Set<String> getCachedColumnNames(String tableName) {
+        if (schemaMetadataCache == null) {
+            return getColumnNames(tableName);
+        }
+        return schemaMetadataCache.getColumnNames(this, tableName);
+    }
+
+
+    /**
+     * Same as {@link #getIdentityColumnNames}, but the names are taken from the schema metadata cache if caching is
+     * enabled. The returned set cannot be modified.
+     *
+     * @param tableName The table, not null
+     * @return The names of the identity columns of the table with the given name, not null
+     */
+    public Set<String> getCachedIdentityColumnNames(String tableName) {
+        if (schemaMetadataCache == null) {
+            return getIdentityColumnNames(tableName);
+        }
+        return schemaMetadataCache.getIdentityColumnNames(this, tableName);
+    }
+
+
+    /**
+     * Same as {@link #getSequenceNames}, but the names are taken from the schema metadata cache if caching is
+     * enabled. The returned set cannot be modified.
+     *
+     * @return The names of all sequences in the database, not null
+     */
+    public Set<String> getCachedSequenceNames() {
+        if (schemaMetadataCache == null) {
+            return getSequenceNames();
+        }
+        return schemaMetadataCache.getSequenceNames(this);
+    }
+
+
     /**
      * Increments the identity value for the specified identity column on the specified table to the given value. If there
      * is no identity specified on the given primary key, the method silently finishes without effect.
@@ -357,7 +736,92 @@ abstract public class DbSupport {
      * @param identityValue      The new value
      */
     public void incrementIdentityColumnToValue(String tableName, String identityColumnName, long identityValue) {
-        throw new UnsupportedOperationException("Identity columns not supported for " + getDatabaseDialect());
+        String statement = getIncrementIdentityColumnToValueStatement(tableName, identityColumnName, identityValue);
+        if (statement == null) {
+            throw new UnsupportedOperationException("Identity columns not supported for " + getDatabaseDialect());
+        }
+        getSQLHandler().executeUpdate(statement);
+    }
+
+
+    /**
+     * Increments the identity value of the given identity columns to the given value. If the DBMS specific subclass
+     * provides a statement for this (see {@link #getIncrementIdentityColumnToValueStatement}), all columns are
+     * updated in a single batch.
+     *
+     * @param identityColumnNames The identity column names per table, not null
+     * @param identityValue       The new value
+     */
+    public void incrementIdentityColumnsToValue(Map<String, Set<String>> identityColumnNames, long identityValue) {
+        List<String> statements = new ArrayList<String>();
+        for (Map.Entry<String, Set<String>> entry : identityColumnNames.entrySet()) {
+            for (String identityColumnName : entry.getValue()) {
+                String statement = getIncrementIdentityColumnToValueStatement(entry.getKey(), identityColumnName, identityValue);
+                if (statement == null) {
+                    incrementIdentityColumnToValue(entry.getKey(), identityColumnName, identityValue);
+                } else {
+                    statements.add(statement);
+                }
+            }
+        }
+        getBatchSQLHandler().executeUpdates(statements);
+    }
+
+
+    /**
+     * Gets the statement that increments the identity value for the specified identity column on the specified table
+     * to the given value.
+     *
+     * @param tableName          The table with the identity column, not null
+     * @param identityColumnName The column, not null
+     * @param identityValue      The new value
+     * @return The statement, null if this cannot be done with a single statement
+     */
+    protected String getIncrementIdentityColumnToValueStatement(String tableName, String identityColumnName, long identityValue) {
+        return null;
+    }
+
+
+    /**
+     * Retrieves the identity columns whose current value is lower than the given value, using a single query. Only
+     * real identity columns are returned, not the primary key columns that {@link #getIdentityColumnNames} can
+     * return for some DBMSs.
+     *
+     * @param value The value
+     * @return The identity column names per table, null if the DBMS specific subclass provides no query for this
+     */
+    public Map<String, Set<String>> getIdentityColumnNamesBelowValue(long value) {
+        String query = getIdentityColumnNamesBelowValueQuery(value);
+        if (query == null) {
+            return null;
+        }
+        Map<String, Set<String>> identityColumnNames = new HashMap<String, Set<String>>();
+        for (String tableAndColumnName : getSQLHandler().getItemsAsStringSet(query)) {
+            int separatorIndex = tableAndColumnName.indexOf(',');
+            if (separatorIndex == -1) {
+                throw new UnitilsException("Unexpected value " + tableAndColumnName + " returned by identity columns query: " + query);
+            }
+            String tableName = tableAndColumnName.substring(0, separatorIndex);
+            Set<String> columnNames = identityColumnNames.get(tableName);
+            if (columnNames == null) {
+                columnNames = new HashSet<String>();
+                identityColumnNames.put(tableName, columnNames);
+            }
+            columnNames.add(tableAndColumnName.substring(separatorIndex + 1));
+        }
+        return identityColumnNames;
+    }
+
+
+    /**
+     * Gets the query that retrieves the identity columns whose current value is lower than the given value. Each
+     * record contains the table name, a comma and the column name.
+     *
+     * @param value The value
+     * @return The query, null if this is not supported
+     */
+    protected String getIdentityColumnNamesBelowValueQuery(long value) {
+        return null;
     }
 
 
@@ -453,6 +917,37 @@ abstract public class DbSupport {
     }
 
 
+    /**
+     * Executes the given statements one after the other in a transaction of the sql handler, so that they are all
+     * executed on the same connection. This is needed for statements that change a setting of the session, e.g. to
+     * switch off foreign key checks. The restore statements are always executed at the end, also when one of the
+     * statements failed, so that the connection is never handed back with a changed setting. If a statement failed,
+     * the transaction is rolled back, so that the connection can still be used afterwards.
+     *
+     * @param sqlStatements        The statements to execute, not null
+     * @param restoreSqlStatements The statements to execute afterwards, not null
+     */
+    protected void executeUpdatesOnSameConnection(List<String> sqlStatements, List<String> restoreSqlStatements) {
+        BatchSQLHandler sqlHandler = getBatchSQLHandler();
+        sqlHandler.startTransaction();
+        try {
+            try {
+                for (String sqlStatement : sqlStatements) {
+                    sqlHandler.executeUpdate(sqlStatement);
+                }
+            } finally {
+                for (String restoreSqlStatement : restoreSqlStatements) {
+                    sqlHandler.executeUpdate(restoreSqlStatement);
+                }
+            }
+        } catch (RuntimeException e) {
+            sqlHandler.rollbackTransaction();
+            throw e;
+        }
+        sqlHandler.commitTransaction();
+    }
+
+
     /**
      * Determines the case the database uses to store non-quoted identifiers. This will use the connections
      * database metadata to determine the correct case.
@@ -524,6 +1019,30 @@ abstract public class DbSupport {
     }
 
 
+    /**
+     * Indicates whether the underlying DBMS supports the given type of items. Tables and views are always supported.
+     *
+     * @param itemType The type of item, not null
+     * @return True if supported, false otherwise
+     */
+    public boolean supports(DbItemType itemType) {
+        switch (itemType) {
+            case MATERIALIZED_VIEW:
+                return supportsMaterializedViews();
+            case SYNONYM:
+                return supportsSynonyms();
+            case SEQUENCE:
+                return supportsSequences();
+            case TRIGGER:
+                return supportsTriggers();
+            case TYPE:
+                return supportsTypes();
+            default:
+                return true;
+        }
+    }
+
+
     /**
      * Indicates whether the underlying DBMS supports synonyms
      *
@@ -593,4 +1112,24 @@ abstract public class DbSupport {
         return false;
     }
 
+
+    /**
+     * Indicates whether the underlying DBMS supports emptying tables with {@link #truncateTables}.
+     *
+     * @return True if truncating tables is supported, false otherwise
+     */
+    public boolean supportsTruncate() {
+        return false;
+    }
+
+
+    /**
+     * Indicates whether the underlying DBMS supports {@link #createSnapshot} and {@link #restoreSnapshot}.
+     *
+     * @return True if snapshots are supported, false otherwise
+     */
+    public boolean supportsSnapshots() {
+        return false;
+    }
+
 }
\ No newline at end of file
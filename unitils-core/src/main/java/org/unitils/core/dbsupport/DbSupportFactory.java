@@ -38,7 +38,7 @@ public class DbSupportFactory {
     /** Property key for the database schema names */
     public static final String PROPKEY_DATABASE_SCHEMA_NAMES = "database.schemaNames";
 
-    /* Cache of created db support instance, per schema name */
+    /* Cache of created db support instance, per schema name. Only contains instances for shared sql handlers */
     private static Map<String, DbSupport> dbSupportCache = new HashMap<String, DbSupport>();
 
 
@@ -59,6 +59,10 @@ public class DbSupportFactory {
 
     /**
      * Returns the dbms specific {@link DbSupport} as configured in the given <code>Configuration</code>.
+     * <p/>
+     * A {@link PinnedConnectionSQLHandler} belongs to a single run, so for such a handler a new instance is created
+     * that is not cached. Otherwise a cached instance would keep using the pinned connection after the run, or the
+     * pinned connection would not be used at all because an instance was already cached for another handler.
      *
      * @param configuration The config, not null
      * @param sqlHandler    The sql handler, not null
@@ -66,6 +70,9 @@ public class DbSupportFactory {
      * @return The dbms specific instance of {@link DbSupport}, not null
      */
     public static DbSupport getDbSupport(Properties configuration, SQLHandler sqlHandler, String schemaName, String dialect) {
+        if (sqlHandler instanceof PinnedConnectionSQLHandler) {
+            return createDbSupport(configuration, sqlHandler, schemaName, dialect);
+        }
         // try to retrieve from cache
         DbSupport dbSupport = dbSupportCache.get(schemaName);
         if (dbSupport != null) {
@@ -73,14 +80,30 @@ public class DbSupportFactory {
         }
         // create new instance
         //String databaseDialect = getString(PROPKEY_DATABASE_DIALECT, configuration);
-        dbSupport = getInstanceOf(DbSupport.class, configuration, dialect);
-        dbSupport.init(configuration, sqlHandler, schemaName);
+        dbSupport = createDbSupport(configuration, sqlHandler, schemaName, dialect);
         // add to cache
         dbSupportCache.put(schemaName, dbSupport);
         return dbSupport;
     }
 
 
+    /**
+     * Creates a new dbms specific {@link DbSupport} that uses the given sql handler. The instance is not cached,
+     * so it can be used by another thread than the cached instances.
+     *
+     * @param configuration The config, not null
+     * @param sqlHandler    The sql handler, not null
+     * @param schemaName    The schema name, not null
+     * @param dialect       The database dialect, not null
+     * @return The dbms specific instance of {@link DbSupport}, not null
+     */
+    public static DbSupport createDbSupport(Properties configuration, SQLHandler sqlHandler, String schemaName, String dialect) {
+        DbSupport dbSupport = getInstanceOf(DbSupport.class, configuration, dialect);
+        dbSupport.init(configuration, sqlHandler, schemaName);
+        return dbSupport;
+    }
+
+
     /**
      * Returns the dbms specific {@link DbSupport} instances for all configured schemas.
      *
@@ -21,21 +21,33 @@ import org.unitils.core.UnitilsException;
 import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
 
 import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Class to which database updates and queries are passed. Is in fact a utility class, but is a concrete instance to
  * enable decorating it or switching it with another implementation, allowing things like a dry run, creating a script
  * file or logging updates to a log file or database table.
+ * <p/>
+ * When a statement changes the structure of the database, the {@link SchemaMetadataCache} of the data source is
+ * invalidated.
+ * <p/>
+ * An instance can be shared by different threads. A transaction only applies to the thread that started it: the
+ * connection of the transaction is kept per thread.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
  */
-public class DefaultSQLHandler implements SQLHandler {
+public class DefaultSQLHandler implements BatchSQLHandler {
 
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(DefaultSQLHandler.class);
@@ -49,6 +61,12 @@ public class DefaultSQLHandler implements SQLHandler {
      */
     private boolean doExecuteUpdates;
 
+    /* The connection of the transaction in progress of the current thread, null if there is no transaction */
+    private ThreadLocal<Connection> transactionConnection = new ThreadLocal<Connection>();
+
+    /* The auto-commit setting of the transaction connection before the transaction was started */
+    private ThreadLocal<Boolean> transactionAutoCommit = new ThreadLocal<Boolean>();
+
 
     /**
      * Constructs a new instance that connects to the given DataSource
@@ -86,14 +104,68 @@ public class DefaultSQLHandler implements SQLHandler {
         Connection connection = null;
         Statement statement = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            return statement.executeUpdate(sql);
+            connection = getConnection();
+            statement = createStatement(connection);
+            return doExecuteUpdate(statement, sql);
 
         } catch (Exception e) {
             throw new UnitilsException("Error while performing database update: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, null);
+            releaseResources(connection, statement, null);
+        }
+    }
+
+
+    /* (non-Javadoc)
+	 * @see org.unitils.core.dbsupport.BatchSQLHandler#executeUpdates(java.util.List)
+	 */
+    public void executeUpdates(List<String> sqlStatements) {
+        executeUpdates(sqlStatements, false);
+    }
+
+
+    /* (non-Javadoc)
+     * @see org.unitils.core.dbsupport.BatchSQLHandler#executeUpdatesAndCommit(java.util.List)
+     */
+    public void executeUpdatesAndCommit(List<String> sqlStatements) {
+        executeUpdates(sqlStatements, true);
+    }
+
+
+    /**
+     * Executes the given statements as a single batch.
+     *
+     * @param sqlStatements The sql statements, not null
+     * @param commit        True to commit afterwards if the connection is not in auto-commit mode
+     */
+    protected void executeUpdates(List<String> sqlStatements, boolean commit) {
+        if (sqlStatements.isEmpty()) {
+            return;
+        }
+        for (String sql : sqlStatements) {
+            logger.debug(sql);
+        }
+
+        if (!doExecuteUpdates) {
+            // skip updates
+            return;
+        }
+        Connection connection = null;
+        Statement statement = null;
+        try {
+            connection = getConnection();
+            statement = createStatement(connection);
+            doExecuteBatch(statement, sqlStatements);
+            if (commit && !connection.getAutoCommit()) {
+                connection.commit();
+            }
+
+        } catch (BatchUpdateException e) {
+            throw new UnitilsException("Error while performing database update: " + getFailedStatement(e, sqlStatements), e);
+        } catch (Exception e) {
+            throw new UnitilsException("Error while performing database updates: " + sqlStatements, e);
+        } finally {
+            releaseResources(connection, statement, null);
         }
     }
 
@@ -112,14 +184,14 @@ public class DefaultSQLHandler implements SQLHandler {
         Statement statement = null;
         ResultSet resultSet = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery(sql);
+            connection = getConnection();
+            statement = createStatement(connection);
+            resultSet = doExecuteQuery(statement, sql);
 
         } catch (Exception e) {
             throw new UnitilsException("Error while performing database update: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, resultSet);
+            releaseResources(connection, statement, resultSet);
         }
     }
 
@@ -137,9 +209,9 @@ public class DefaultSQLHandler implements SQLHandler {
         Connection connection = null;
         Statement statement = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            int nbChanges = statement.executeUpdate(sql);
+            connection = getConnection();
+            statement = createStatement(connection);
+            int nbChanges = doExecuteUpdate(statement, sql);
             if (!connection.getAutoCommit()) {
                 connection.commit();
             }
@@ -148,8 +220,128 @@ public class DefaultSQLHandler implements SQLHandler {
         } catch (Exception e) {
             throw new UnitilsException("Error while performing database update: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, null);
+            releaseResources(connection, statement, null);
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see org.unitils.core.dbsupport.BatchSQLHandler#executePreparedUpdatesAndCommit(java.lang.String, java.util.List)
+     */
+    public void executePreparedUpdatesAndCommit(String sql, List<Object[]> parameterValues) {
+        if (parameterValues.isEmpty()) {
+            return;
+        }
+        for (Object[] values : parameterValues) {
+            logger.debug(sql + " " + Arrays.asList(values));
+        }
+
+        if (!doExecuteUpdates) {
+            // skip updates
+            return;
+        }
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = getConnection();
+            preparedStatement = connection.prepareStatement(sql);
+            for (Object[] values : parameterValues) {
+                for (int i = 0; i < values.length; i++) {
+                    preparedStatement.setObject(i + 1, values[i]);
+                }
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while performing database update: " + sql, e);
+        } finally {
+            closeQuietly(preparedStatement);
+            releaseResources(connection, null, null);
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see org.unitils.core.dbsupport.BatchSQLHandler#startTransaction()
+     */
+    public void startTransaction() {
+        if (!doExecuteUpdates) {
+            // skip transaction
+            return;
+        }
+        if (transactionConnection.get() != null) {
+            throw new UnitilsException("Unable to start transaction. A transaction is already in progress.");
+        }
+        Connection connection = null;
+        try {
+            connection = getConnection();
+            transactionAutoCommit.set(connection.getAutoCommit());
+            connection.setAutoCommit(false);
+            transactionConnection.set(connection);
+
+        } catch (Exception e) {
+            releaseResources(connection, null, null);
+            throw new UnitilsException("Unable to start transaction.", e);
+        }
+    }
+
+
+    /* (non-Javadoc)
+     * @see org.unitils.core.dbsupport.BatchSQLHandler#commitTransaction()
+     */
+    public void commitTransaction() {
+        Connection connection = transactionConnection.get();
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.commit();
+
+        } catch (Exception e) {
+            rollbackTransaction();
+            throw new UnitilsException("Unable to commit transaction.", e);
+        }
+        endTransaction();
+    }
+
+
+    /* (non-Javadoc)
+     * @see org.unitils.core.dbsupport.BatchSQLHandler#rollbackTransaction()
+     */
+    public void rollbackTransaction() {
+        Connection connection = transactionConnection.get();
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.rollback();
+
+        } catch (Exception e) {
+            logger.warn("Unable to roll back transaction.", e);
         }
+        endTransaction();
+    }
+
+
+    /**
+     * Restores the auto-commit setting of the transaction connection and releases it.
+     */
+    protected void endTransaction() {
+        Connection connection = transactionConnection.get();
+        boolean autoCommit = transactionAutoCommit.get();
+        transactionConnection.remove();
+        transactionAutoCommit.remove();
+        try {
+            connection.setAutoCommit(autoCommit);
+
+        } catch (Exception e) {
+            logger.warn("Unable to restore auto-commit setting of connection.", e);
+        }
+        releaseResources(connection, null, null);
     }
 
 
@@ -163,16 +355,16 @@ public class DefaultSQLHandler implements SQLHandler {
         Statement statement = null;
         ResultSet resultSet = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery(sql);
+            connection = getConnection();
+            statement = createStatement(connection);
+            resultSet = doExecuteQuery(statement, sql);
             if (resultSet.next()) {
                 return resultSet.getLong(1);
             }
         } catch (Exception e) {
             throw new UnitilsException("Error while executing statement: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, resultSet);
+            releaseResources(connection, statement, resultSet);
         }
 
         // in case no value was found, throw an exception
@@ -190,16 +382,16 @@ public class DefaultSQLHandler implements SQLHandler {
         Statement statement = null;
         ResultSet resultSet = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery(sql);
+            connection = getConnection();
+            statement = createStatement(connection);
+            resultSet = doExecuteQuery(statement, sql);
             if (resultSet.next()) {
                 return resultSet.getString(1);
             }
         } catch (Exception e) {
             throw new UnitilsException("Error while executing statement: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, resultSet);
+            releaseResources(connection, statement, resultSet);
         }
 
         // in case no value was found, throw an exception
@@ -217,9 +409,9 @@ public class DefaultSQLHandler implements SQLHandler {
         Statement statement = null;
         ResultSet resultSet = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery(sql);
+            connection = getConnection();
+            statement = createStatement(connection);
+            resultSet = doExecuteQuery(statement, sql);
             Set<String> result = new HashSet<String>();
             while (resultSet.next()) {
                 result.add(resultSet.getString(1));
@@ -229,7 +421,66 @@ public class DefaultSQLHandler implements SQLHandler {
         } catch (Exception e) {
             throw new UnitilsException("Error while executing statement: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, resultSet);
+            releaseResources(connection, statement, resultSet);
+        }
+    }
+
+
+    /* (non-Javadoc)
+	 * @see org.unitils.core.dbsupport.BatchSQLHandler#getItemPairs(java.lang.String)
+	 */
+    public List<String[]> getItemPairs(String sql) {
+        logger.debug(sql);
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = getConnection();
+            statement = createStatement(connection);
+            resultSet = doExecuteQuery(statement, sql);
+            List<String[]> result = new ArrayList<String[]>();
+            while (resultSet.next()) {
+                result.add(new String[]{resultSet.getString(1), resultSet.getString(2)});
+            }
+            return result;
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            releaseResources(connection, statement, resultSet);
+        }
+    }
+
+
+    /* (non-Javadoc)
+	 * @see org.unitils.core.dbsupport.BatchSQLHandler#getItemRows(java.lang.String)
+	 */
+    public List<String[]> getItemRows(String sql) {
+        logger.debug(sql);
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = getConnection();
+            statement = createStatement(connection);
+            resultSet = doExecuteQuery(statement, sql);
+            int columnCount = resultSet.getMetaData().getColumnCount();
+            List<String[]> result = new ArrayList<String[]>();
+            while (resultSet.next()) {
+                String[] row = new String[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    row[i] = resultSet.getString(i + 1);
+                }
+                result.add(row);
+            }
+            return result;
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            releaseResources(connection, statement, resultSet);
         }
     }
 
@@ -244,16 +495,150 @@ public class DefaultSQLHandler implements SQLHandler {
         Statement statement = null;
         ResultSet resultSet = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery(sql);
+            connection = getConnection();
+            statement = createStatement(connection);
+            resultSet = doExecuteQuery(statement, sql);
             return resultSet.next();
 
         } catch (Exception e) {
             throw new UnitilsException("Error while executing statement: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, resultSet);
+            releaseResources(connection, statement, resultSet);
+        }
+    }
+
+
+    /**
+     * Gets a connection for executing a statement. By default, a new connection is requested from the data source
+     * for every statement. During a transaction of the current thread, the connection of the transaction is returned.
+     *
+     * @return The connection, not null
+     */
+    protected Connection getConnection() throws SQLException {
+        Connection connection = transactionConnection.get();
+        if (connection != null) {
+            return connection;
+        }
+        return dataSource.getConnection();
+    }
+
+
+    /**
+     * Creates a statement on the given connection.
+     *
+     * @param connection The connection, not null
+     * @return The statement, not null
+     */
+    protected Statement createStatement(Connection connection) throws SQLException {
+        return connection.createStatement();
+    }
+
+
+    /**
+     * Executes the given query.
+     *
+     * @param statement The statement created by {@link #createStatement}, not null
+     * @param sql       The query, not null
+     * @return The result set, not null
+     */
+    protected ResultSet doExecuteQuery(Statement statement, String sql) throws SQLException {
+        return statement.executeQuery(sql);
+    }
+
+
+    /**
+     * Executes the given update.
+     *
+     * @param statement The statement created by {@link #createStatement}, not null
+     * @param sql       The update statement, not null
+     * @return The nr of updates
+     */
+    protected int doExecuteUpdate(Statement statement, String sql) throws SQLException {
+        try {
+            return statement.executeUpdate(sql);
+        } finally {
+            if (SchemaMetadataCache.isStructureChange(sql)) {
+                SchemaMetadataCache.invalidate(dataSource);
+            }
+        }
+    }
+
+
+    /**
+     * Executes the given statements as a single batch. The batch of the statement is always cleared afterwards, so
+     * that the statement can be reused.
+     *
+     * @param statement     The statement created by {@link #createStatement}, not null
+     * @param sqlStatements The update statements, not null
+     * @return The nr of updates per statement
+     */
+    protected int[] doExecuteBatch(Statement statement, List<String> sqlStatements) throws SQLException {
+        try {
+            for (String sql : sqlStatements) {
+                statement.addBatch(sql);
+            }
+            return statement.executeBatch();
+        } finally {
+            statement.clearBatch();
+            if (containsStructureChange(sqlStatements)) {
+                SchemaMetadataCache.invalidate(dataSource);
+            }
+        }
+    }
+
+
+    /**
+     * Checks whether one of the given statements changes the structure of the database.
+     *
+     * @param sqlStatements The statements, not null
+     * @return True if the structure is changed
+     */
+    protected boolean containsStructureChange(List<String> sqlStatements) {
+        for (String sql : sqlStatements) {
+            if (SchemaMetadataCache.isStructureChange(sql)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Gets the statement of a batch that caused the batch to fail. Drivers either stop at the first failure or mark
+     * the failed statements in the update counts.
+     *
+     * @param e             The exception of the batch, not null
+     * @param sqlStatements The statements of the batch, not empty
+     * @return The failed statement, not null
+     */
+    protected String getFailedStatement(BatchUpdateException e, List<String> sqlStatements) {
+        int[] updateCounts = e.getUpdateCounts();
+        if (updateCounts == null) {
+            return sqlStatements.get(0);
+        }
+        for (int i = 0; i < updateCounts.length && i < sqlStatements.size(); i++) {
+            if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                return sqlStatements.get(i);
+            }
+        }
+        return sqlStatements.get(Math.min(updateCounts.length, sqlStatements.size() - 1));
+    }
+
+
+    /**
+     * Releases the resources that were used for executing a statement. By default, all of them are closed, except
+     * for the connection of a transaction in progress.
+     *
+     * @param connection The connection, null if not yet created
+     * @param statement  The statement, null if not yet created
+     * @param resultSet  The result set, null if there is none
+     */
+    protected void releaseResources(Connection connection, Statement statement, ResultSet resultSet) {
+        if (connection != null && connection == transactionConnection.get()) {
+            closeQuietly(null, statement, resultSet);
+            return;
         }
+        closeQuietly(connection, statement, resultSet);
     }
 
 
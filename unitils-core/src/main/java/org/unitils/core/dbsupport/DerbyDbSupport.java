@@ -101,6 +101,22 @@ public class DerbyDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Gets the query that retrieves the names of all tables, views, synonyms and triggers in the database schema
+     * in one round trip, see {@link #getItemNames()}.
+     *
+     * @return The query, not null
+     */
+    @Override
+    protected String getItemNamesQuery() {
+        String schemaName = getSchemaName();
+        return "select 'TABLE,' || t.TABLENAME from SYS.SYSTABLES t, SYS.SYSSCHEMAS s where t.TABLETYPE = 'T' AND t.SCHEMAID = s.SCHEMAID AND s.SCHEMANAME = '" + schemaName + "'" +
+                " union all select 'VIEW,' || t.TABLENAME from SYS.SYSTABLES t, SYS.SYSSCHEMAS s where t.TABLETYPE = 'V' AND t.SCHEMAID = s.SCHEMAID AND s.SCHEMANAME = '" + schemaName + "'" +
+                " union all select 'SYNONYM,' || t.TABLENAME from SYS.SYSTABLES t, SYS.SYSSCHEMAS s where t.TABLETYPE = 'A' AND t.SCHEMAID = s.SCHEMAID AND s.SCHEMANAME = '" + schemaName + "'" +
+                " union all select 'TRIGGER,' || t.TRIGGERNAME from SYS.SYSTRIGGERS t, SYS.SYSSCHEMAS s where t.SCHEMAID = s.SCHEMAID AND s.SCHEMANAME = '" + schemaName + "'";
+    }
+
+
     /**
      * Gets the names of all identity columns of the given table.
      * <p/>
@@ -116,15 +132,30 @@ public class DerbyDbSupport extends DbSupport {
 
 
     /**
-     * Increments the identity value for the specified identity column on the specified table to the given value.
+     * Gets the query that retrieves the identity columns whose next value is lower than the given value.
+     *
+     * @param value The value
+     * @return The query, not null
+     */
+    @Override
+    protected String getIdentityColumnNamesBelowValueQuery(long value) {
+        return "select t.TABLENAME || ',' || c.COLUMNNAME from SYS.SYSCOLUMNS c, SYS.SYSTABLES t, SYS.SYSSCHEMAS s " +
+                "where c.REFERENCEID = t.TABLEID and t.SCHEMAID = s.SCHEMAID and s.SCHEMANAME = '" + getSchemaName() + "' and c.AUTOINCREMENTVALUE < " + value;
+    }
+
+
+    /**
+     * Gets the statement that increments the identity value for the specified identity column on the specified table to
+     * the given value.
      *
      * @param tableName          The table with the identity column, not null
      * @param identityColumnName The column, not null
      * @param identityValue      The new value
+     * @return The statement, not null
      */
     @Override
-    public void incrementIdentityColumnToValue(String tableName, String identityColumnName, long identityValue) {
-        getSQLHandler().executeUpdate("alter table " + qualified(tableName) + " alter column " + quoted(identityColumnName) + " RESTART WITH " + identityValue);
+    protected String getIncrementIdentityColumnToValueStatement(String tableName, String identityColumnName, long identityValue) {
+        return "alter table " + qualified(tableName) + " alter column " + quoted(identityColumnName) + " RESTART WITH " + identityValue;
     }
 
 
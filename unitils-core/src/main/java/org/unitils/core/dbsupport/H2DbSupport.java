@@ -15,16 +15,16 @@
  */
 package org.unitils.core.dbsupport;
 
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.unitils.core.UnitilsException;
 import org.unitils.core.dbsupport.DbSupport;
 
-import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
-
 /**
  * Implementation of {@link org.unitils.core.dbsupport.DbSupport} for a H2
  * database
@@ -33,6 +33,10 @@ import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQui
  */
 public class H2DbSupport extends DbSupport {
 
+    /* Error code of H2 when truncating a table that is referenced by a
+       foreign key while its referential integrity checks are switched on */
+    private static final int CANNOT_TRUNCATE_ERROR_CODE = 90106;
+
     /**
      * Creates support for H2 databases.
      */
@@ -116,6 +120,21 @@ public class H2DbSupport extends DbSupport {
           + getSchemaName() + "'");
     }
 
+    /**
+     * Gets the query that retrieves the names of all tables, views, sequences and triggers in the database schema
+     * in one round trip, see {@link #getItemNames()}.
+     *
+     * @return The query, not null
+     */
+    @Override
+    protected String getItemNamesQuery() {
+        String schemaName = getSchemaName();
+        return "select 'TABLE,' || TABLE_NAME from INFORMATION_SCHEMA.TABLES where TABLE_TYPE = 'TABLE' AND TABLE_SCHEMA = '" + schemaName + "'"
+          + " union all select 'VIEW,' || TABLE_NAME from INFORMATION_SCHEMA.VIEWS where TABLE_SCHEMA = '" + schemaName + "'"
+          + " union all select 'SEQUENCE,' || SEQUENCE_NAME from INFORMATION_SCHEMA.SEQUENCES where SEQUENCE_SCHEMA = '" + schemaName + "'"
+          + " union all select 'TRIGGER,' || TRIGGER_NAME from INFORMATION_SCHEMA.TRIGGERS where TRIGGER_SCHEMA = '" + schemaName + "'";
+    }
+
     /**
      * Returns the value of the sequence with the given name.
      * <p/>
@@ -132,43 +151,217 @@ public class H2DbSupport extends DbSupport {
     }
 
     /**
-     * Sets the next value of the sequence with the given sequence name to the
-     * given sequence value.
+     * Gets the query that retrieves the names of the sequences whose current
+     * value is lower than the given value.
+     *
+     * @param value The value
+     * @return The query, not null
+     */
+    @Override
+    protected String getSequenceNamesBelowValueQuery(long value) {
+        return "select SEQUENCE_NAME from INFORMATION_SCHEMA.SEQUENCES where "
+          + "SEQUENCE_SCHEMA = '" + getSchemaName() + "' and CURRENT_VALUE < "
+          + value;
+    }
+
+    /**
+     * Gets the statement that sets the next value of the sequence with the
+     * given sequence name to the given sequence value.
      *
      * @param sequenceName     The sequence, not null
      * @param newSequenceValue The value to set
+     * @return The statement, not null
      */
     @Override
-    public void incrementSequenceToValue(String sequenceName,
+    protected String getIncrementSequenceToValueStatement(String sequenceName,
       long newSequenceValue) {
-        getSQLHandler().executeUpdate("alter sequence "
-          + qualified(sequenceName) + " restart with " + newSequenceValue);
+        return "alter sequence " + qualified(sequenceName) + " restart with "
+          + newSequenceValue;
+    }
+
+    /**
+     * Gets the query that retrieves the identity columns whose current value
+     * is lower than the given value. Identity columns use a sequence that is
+     * named in the COLUMNS view.
+     *
+     * @param value The value
+     * @return The query, not null
+     */
+    @Override
+    protected String getIdentityColumnNamesBelowValueQuery(long value) {
+        return "select c.TABLE_NAME || ',' || c.COLUMN_NAME from "
+          + "INFORMATION_SCHEMA.COLUMNS c, INFORMATION_SCHEMA.SEQUENCES s "
+          + "where c.TABLE_SCHEMA = '" + getSchemaName() + "' and "
+          + "s.SEQUENCE_SCHEMA = c.TABLE_SCHEMA and "
+          + "s.SEQUENCE_NAME = c.SEQUENCE_NAME and s.CURRENT_VALUE < " + value;
     }
 
     /**
-     * Increments the identity value for the specified identity column on the
-     * specified table to the given value.
+     * Gets the statement that increments the identity value for the specified
+     * identity column on the specified table to the given value.
      *
      * @param tableName          The table with the identity column, not null
      * @param identityColumnName The column, not null
      * @param identityValue      The new value
+     * @return The statement, not null
+     */
+    @Override
+    protected String getIncrementIdentityColumnToValueStatement(
+      String tableName, String identityColumnName, long identityValue) {
+        return "alter table " + qualified(tableName) + " alter column "
+          + quoted(identityColumnName) + " RESTART WITH " + identityValue;
+    }
+
+    /**
+     * Removes all data from the given tables using truncate table. H2 does not
+     * allow truncating a table that is referenced by a foreign key while the
+     * referential integrity checks of that table are switched on. If truncating
+     * a table fails for that reason, its checks are switched off while it is
+     * truncated and switched back on afterwards. The checks of the tables that
+     * could be truncated directly, e.g. because they were switched off by
+     * {@link #disableReferentialConstraints}, are left untouched.
+     *
+     * @param tableNames The tables to empty (case-sensitive), not null
+     */
+    @Override
+    public void truncateTables(Set<String> tableNames) {
+        Set<String> referencedTableNames = new LinkedHashSet<String>();
+        for (String tableName : tableNames) {
+            try {
+                getSQLHandler().executeUpdate("truncate table " + qualified(tableName));
+            } catch (UnitilsException e) {
+                if (!isCannotTruncateError(e)) {
+                    throw e;
+                }
+                referencedTableNames.add(tableName);
+            }
+        }
+        if (referencedTableNames.isEmpty()) {
+            return;
+        }
+        List<String> sqlStatements =
+          getReferentialIntegrityStatements(referencedTableNames, "false");
+        List<String> restoreSqlStatements =
+          getReferentialIntegrityStatements(referencedTableNames, "true nocheck");
+        for (String tableName : referencedTableNames) {
+            sqlStatements.add("truncate table " + qualified(tableName));
+        }
+        executeUpdatesOnSameConnection(sqlStatements, restoreSqlStatements);
+    }
+
+    /**
+     * Checks whether the given exception was caused by truncating a table that
+     * is referenced by a foreign key while its referential integrity checks
+     * are switched on.
+     *
+     * @param e The exception, not null
+     * @return True if the table could not be truncated because of its checks
+     */
+    protected boolean isCannotTruncateError(UnitilsException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException
+              && ((SQLException) cause).getErrorCode() == CANNOT_TRUNCATE_ERROR_CODE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes a snapshot of the given schemas to the given file using the
+     * script to command. Drop statements are added, so that objects that were
+     * preserved when clearing the database, e.g. the executed scripts table,
+     * are replaced when the snapshot is restored. The file is written by the
+     * database itself, so for a server database it is a file on the server.
+     *
+     * @param fileName    The absolute name of the file to write, not null
+     * @param schemaNames The names of the schemas in the correct case, not null
      */
     @Override
-    public void incrementIdentityColumnToValue(String tableName,
-      String identityColumnName, long identityValue) {
-        getSQLHandler().executeUpdate("alter table " + qualified(tableName)
-          + " alter column " + quoted(identityColumnName) + " RESTART WITH "
-          + identityValue);
+    public void createSnapshot(String fileName, Set<String> schemaNames) {
+        StringBuilder sql = new StringBuilder("script drop to ");
+        sql.append(toStringLiteral(fileName)).append(" schema ");
+        for (Iterator<String> iterator = schemaNames.iterator(); iterator.hasNext();) {
+            sql.append(quoted(iterator.next()));
+            if (iterator.hasNext()) {
+                sql.append(", ");
+            }
+        }
+        // script returns a result set, it cannot be executed as an update
+        getSQLHandler().executeQuery(sql.toString());
+    }
+
+    /**
+     * Restores a snapshot that was written by {@link #createSnapshot} using
+     * the runscript command.
+     *
+     * @param fileName The absolute name of the snapshot file, not null
+     */
+    @Override
+    public void restoreSnapshot(String fileName) {
+        getSQLHandler().executeUpdate("runscript from " + toStringLiteral(fileName));
     }
 
     /**
      * Disables all referential constraints (e.g. foreign keys) on all tables
-     * in the schema
+     * in the schema. The referential integrity checks are switched off for
+     * the tables of the schema only, the same way as when truncating. The
+     * constraints themselves are not dropped, so that they can be switched
+     * back on using {@link #restoreReferentialConstraints}.
      */
     @Override
     public void disableReferentialConstraints() {
-        getSQLHandler().executeUpdate(
-          "SET REFERENTIAL_INTEGRITY FALSE");
+        getBatchSQLHandler().executeUpdates(
+          getReferentialIntegrityStatements(getTableNames(), "false"));
+    }
+
+    /**
+     * Switches the referential integrity checks of the tables of the schema
+     * back on and validates their existing data. If the data of a table
+     * violates a constraint, the checks are switched off again for all tables
+     * of the schema, so that the schema is never left half restored.
+     */
+    @Override
+    public void restoreReferentialConstraints() {
+        Set<String> tableNames = getTableNames();
+        try {
+            getBatchSQLHandler().executeUpdates(
+              getReferentialIntegrityStatements(tableNames, "true check"));
+        } catch (UnitilsException e) {
+            getBatchSQLHandler().executeUpdates(
+              getReferentialIntegrityStatements(tableNames, "false"));
+            throw new UnitilsException("Unable to restore the referential "
+              + "constraints of schema " + getSchemaName() + ", they are "
+              + "left disabled.", e);
+        }
+    }
+
+    /**
+     * Gets the statements that switch the referential integrity checks of the
+     * given tables on or off.
+     *
+     * @param tableNames The tables (case-sensitive), not null
+     * @param setting    The setting, e.g. false or true check, not null
+     * @return The statements, not null
+     */
+    protected List<String> getReferentialIntegrityStatements(
+      Set<String> tableNames, String setting) {
+        List<String> sqlStatements = new ArrayList<String>();
+        for (String tableName : tableNames) {
+            sqlStatements.add("alter table " + qualified(tableName)
+              + " set referential_integrity " + setting);
+        }
+        return sqlStatements;
+    }
+
+    /**
+     * Referential constraints can be switched back on.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsRestoringReferentialConstraints() {
+        return true;
     }
 
 
@@ -182,53 +375,36 @@ public class H2DbSupport extends DbSupport {
     }
 
     /**
-     * Disables all check and unique constraints on all tables in the schema
+     * Disables all check and unique constraints on all tables in the schema.
+     * The constraints are retrieved with a single query and dropped in one
+     * batch.
      */
     protected void disableCheckAndUniqueConstraints() {
-        Connection connection = null;
-        Statement queryStatement = null;
-        Statement alterStatement = null;
-        ResultSet resultSet = null;
         try {
-            connection = getSQLHandler().getDataSource().getConnection();
-            queryStatement = connection.createStatement();
-            alterStatement = connection.createStatement();
-
-            resultSet = queryStatement.executeQuery("select TABLE_NAME, "
+            List<String[]> constraints = getItemPairs("select TABLE_NAME, "
               + "CONSTRAINT_NAME from INFORMATION_SCHEMA.CONSTRAINTS where "
               + "CONSTRAINT_TYPE IN ('CHECK', 'UNIQUE') AND CONSTRAINT_SCHEMA "
               + "= '" + getSchemaName() + "'");
-            while (resultSet.next()) {
-                String tableName = resultSet.getString("TABLE_NAME");
-                String constraintName = resultSet.getString("CONSTRAINT_NAME");
-                alterStatement.executeUpdate("alter table "
-                  + qualified(tableName) + " drop constraint "
-                  + quoted(constraintName));
+            List<String> sqlStatements = new ArrayList<String>();
+            for (String[] constraint : constraints) {
+                sqlStatements.add("alter table " + qualified(constraint[0])
+                  + " drop constraint " + quoted(constraint[1]));
             }
-        } catch (Exception e) {
+            getBatchSQLHandler().executeUpdates(sqlStatements);
+        } catch (UnitilsException e) {
             throw new UnitilsException("Error while disabling check and unique "
               + "constraints on schema " + getSchemaName(), e);
-        } finally {
-            closeQuietly(queryStatement);
-            closeQuietly(connection, alterStatement, resultSet);
         }
     }
 
     /**
-     * Disables all not null constraints on all tables in the schema
+     * Disables all not null constraints on all tables in the schema. The
+     * columns are retrieved with a single query and altered in one batch.
      */
     protected void disableNotNullConstraints() {
-        Connection connection = null;
-        Statement queryStatement = null;
-        Statement alterStatement = null;
-        ResultSet resultSet = null;
         try {
-            connection = getSQLHandler().getDataSource().getConnection();
-            queryStatement = connection.createStatement();
-            alterStatement = connection.createStatement();
-
             // Do not remove PK constraints
-            resultSet = queryStatement.executeQuery("select col.TABLE_NAME, "
+            List<String[]> columns = getItemPairs("select col.TABLE_NAME, "
               + "col.COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS col where "
               + "col.IS_NULLABLE = 'NO' and col.TABLE_SCHEMA = '"
               + getSchemaName() + "' " + "AND NOT EXISTS (select COLUMN_NAME "
@@ -236,19 +412,15 @@ public class H2DbSupport extends DbSupport {
               + "col.TABLE_NAME and pk.COLUMN_NAME = col.COLUMN_NAME and "
               + "pk.TABLE_SCHEMA = '" + getSchemaName()
               + "' AND pk.PRIMARY_KEY = TRUE)");
-            while (resultSet.next()) {
-                String tableName = resultSet.getString("TABLE_NAME");
-                String columnName = resultSet.getString("COLUMN_NAME");
-                alterStatement.executeUpdate("alter table "
-                  + qualified(tableName) + " alter column " + quoted(columnName)
-                  + " set null");
+            List<String> sqlStatements = new ArrayList<String>();
+            for (String[] column : columns) {
+                sqlStatements.add("alter table " + qualified(column[0])
+                  + " alter column " + quoted(column[1]) + " set null");
             }
-        } catch (Exception e) {
+            getBatchSQLHandler().executeUpdates(sqlStatements);
+        } catch (UnitilsException e) {
             throw new UnitilsException("Error while disabling not null "
               + "constraints on schema " + getSchemaName(), e);
-        } finally {
-            closeQuietly(queryStatement);
-            closeQuietly(connection, alterStatement, resultSet);
         }
     }
 
@@ -291,4 +463,35 @@ public class H2DbSupport extends DbSupport {
     public boolean supportsCascade() {
         return true;
     }
+
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
+
+    /**
+     * Snapshots are supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsSnapshots() {
+        return true;
+    }
+
+    /**
+     * Puts the given value between single quotes, escaping the quotes it
+     * contains.
+     *
+     * @param value The value, not null
+     * @return The string literal, not null
+     */
+    private String toStringLiteral(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
 }
@@ -19,6 +19,9 @@ import org.unitils.core.UnitilsException;
 import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
 
 import java.sql.*;
+import java.util.ArrayList;
+import static java.util.Arrays.asList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -112,36 +115,43 @@ public class HsqldbDbSupport extends DbSupport {
 
 
     /**
-     * Disables all referential constraints (e.g. foreign keys) on all table in the schema
+     * Gets the query that retrieves the names of all tables, views, sequences and triggers in the database schema
+     * in one round trip, see {@link #getItemNames()}.
+     *
+     * @return The query, not null
      */
     @Override
-    public void disableReferentialConstraints() {
-        int hsqlMajorVersionNumber = getHsqldbMajorVersionNumber();
+    protected String getItemNamesQuery() {
+        String schemaName = getSchemaName();
+        if (getHsqldbMajorVersionNumber() >= 2) {
+            return "select 'TABLE,' || TABLE_NAME from INFORMATION_SCHEMA.TABLES where TABLE_TYPE = 'BASE TABLE' AND TABLE_SCHEMA = '" + schemaName + "'" +
+                    " union all select 'VIEW,' || TABLE_NAME from INFORMATION_SCHEMA.TABLES where TABLE_TYPE = 'VIEW' AND TABLE_SCHEMA = '" + schemaName + "'" +
+                    " union all select 'SEQUENCE,' || SEQUENCE_NAME from INFORMATION_SCHEMA.SEQUENCES where SEQUENCE_SCHEMA = '" + schemaName + "'" +
+                    " union all select 'TRIGGER,' || TRIGGER_NAME from INFORMATION_SCHEMA.TRIGGERS where TRIGGER_SCHEMA = '" + schemaName + "'";
+        }
+        return "select 'TABLE,' || TABLE_NAME from INFORMATION_SCHEMA.SYSTEM_TABLES where TABLE_TYPE = 'TABLE' AND TABLE_SCHEM = '" + schemaName + "'" +
+                " union all select 'VIEW,' || TABLE_NAME from INFORMATION_SCHEMA.SYSTEM_TABLES where TABLE_TYPE = 'VIEW' AND TABLE_SCHEM = '" + schemaName + "'" +
+                " union all select 'SEQUENCE,' || SEQUENCE_NAME from INFORMATION_SCHEMA.SYSTEM_SEQUENCES where SEQUENCE_SCHEMA = '" + schemaName + "'" +
+                " union all select 'TRIGGER,' || TRIGGER_NAME from INFORMATION_SCHEMA.SYSTEM_TRIGGERS where TRIGGER_SCHEM = '" + schemaName + "'";
+    }
+
 
-        Connection connection = null;
-        Statement queryStatement = null;
-        Statement alterStatement = null;
-        ResultSet resultSet = null;
+    /**
+     * Disables all referential constraints (e.g. foreign keys) on all table in the schema. The constraints are
+     * retrieved with a single query and dropped in one batch.
+     */
+    @Override
+    public void disableReferentialConstraints() {
+        String query;
+        if (getHsqldbMajorVersionNumber() >= 2) {
+            query = "select TABLE_NAME, CONSTRAINT_NAME from INFORMATION_SCHEMA.TABLE_CONSTRAINTS where CONSTRAINT_TYPE = 'FOREIGN KEY' AND CONSTRAINT_SCHEMA = '" + getSchemaName() + "'";
+        } else {
+            query = "select TABLE_NAME, CONSTRAINT_NAME from INFORMATION_SCHEMA.SYSTEM_TABLE_CONSTRAINTS where CONSTRAINT_TYPE = 'FOREIGN KEY' AND CONSTRAINT_SCHEMA = '" + getSchemaName() + "'";
+        }
         try {
-            connection = getSQLHandler().getDataSource().getConnection();
-            queryStatement = connection.createStatement();
-            alterStatement = connection.createStatement();
-
-            if (hsqlMajorVersionNumber >= 2) {
-                resultSet = queryStatement.executeQuery("select TABLE_NAME, CONSTRAINT_NAME from INFORMATION_SCHEMA.TABLE_CONSTRAINTS where CONSTRAINT_TYPE = 'FOREIGN KEY' AND CONSTRAINT_SCHEMA = '" + getSchemaName() + "'");
-            } else {
-                resultSet = queryStatement.executeQuery("select TABLE_NAME, CONSTRAINT_NAME from INFORMATION_SCHEMA.SYSTEM_TABLE_CONSTRAINTS where CONSTRAINT_TYPE = 'FOREIGN KEY' AND CONSTRAINT_SCHEMA = '" + getSchemaName() + "'");
-            }
-            while (resultSet.next()) {
-                String tableName = resultSet.getString("TABLE_NAME");
-                String constraintName = resultSet.getString("CONSTRAINT_NAME");
-                alterStatement.executeUpdate("alter table " + qualified(tableName) + " drop constraint " + quoted(constraintName));
-            }
-        } catch (Exception e) {
+            dropConstraints(getItemPairs(query));
+        } catch (UnitilsException e) {
             throw new UnitilsException("Error while disabling not referential constraints on schema " + getSchemaName(), e);
-        } finally {
-            closeQuietly(queryStatement);
-            closeQuietly(connection, alterStatement, resultSet);
         }
     }
 
@@ -157,77 +167,64 @@ public class HsqldbDbSupport extends DbSupport {
 
 
     /**
-     * Disables all check and unique constraints on all tables in the schema
+     * Disables all check and unique constraints on all tables in the schema. The constraints are retrieved with a
+     * single query and dropped in one batch.
      */
     protected void disableCheckAndUniqueConstraints() {
-        int hsqlMajorVersionNumber = getHsqldbMajorVersionNumber();
-
-        Connection connection = null;
-        Statement queryStatement = null;
-        Statement alterStatement = null;
-        ResultSet resultSet = null;
+        String query;
+        if (getHsqldbMajorVersionNumber() >= 2) {
+            query = "select TABLE_NAME, CONSTRAINT_NAME from INFORMATION_SCHEMA.TABLE_CONSTRAINTS where CONSTRAINT_TYPE IN ('CHECK', 'UNIQUE') AND CONSTRAINT_SCHEMA = '" + getSchemaName() + "'";
+        } else {
+            query = "select TABLE_NAME, CONSTRAINT_NAME from INFORMATION_SCHEMA.SYSTEM_TABLE_CONSTRAINTS where CONSTRAINT_TYPE IN ('CHECK', 'UNIQUE') AND CONSTRAINT_SCHEMA = '" + getSchemaName() + "'";
+        }
         try {
-            connection = getSQLHandler().getDataSource().getConnection();
-            queryStatement = connection.createStatement();
-            alterStatement = connection.createStatement();
-
-            if (hsqlMajorVersionNumber >= 2) {
-                resultSet = queryStatement.executeQuery("select TABLE_NAME, CONSTRAINT_NAME from INFORMATION_SCHEMA.TABLE_CONSTRAINTS where CONSTRAINT_TYPE IN ('CHECK', 'UNIQUE') AND CONSTRAINT_SCHEMA = '" + getSchemaName() + "'");
-            } else {
-                resultSet = queryStatement.executeQuery("select TABLE_NAME, CONSTRAINT_NAME from INFORMATION_SCHEMA.SYSTEM_TABLE_CONSTRAINTS where CONSTRAINT_TYPE IN ('CHECK', 'UNIQUE') AND CONSTRAINT_SCHEMA = '" + getSchemaName() + "'");
-            }
-            while (resultSet.next()) {
-                String tableName = resultSet.getString("TABLE_NAME");
-                String constraintName = resultSet.getString("CONSTRAINT_NAME");
-                alterStatement.executeUpdate("alter table " + qualified(tableName) + " drop constraint " + quoted(constraintName));
-            }
-        } catch (Exception e) {
+            dropConstraints(getItemPairs(query));
+        } catch (UnitilsException e) {
             throw new UnitilsException("Error while disabling check and unique constraints on schema " + getSchemaName(), e);
-        } finally {
-            closeQuietly(queryStatement);
-            closeQuietly(connection, alterStatement, resultSet);
         }
     }
 
 
     /**
-     * Disables all not null constraints on all tables in the schema
+     * Disables all not null constraints on all tables in the schema. The columns are retrieved with a single query and
+     * altered in one batch.
      */
     protected void disableNotNullConstraints() {
-        int hsqlMajorVersionNumber = getHsqldbMajorVersionNumber();
-
-        Connection connection = null;
-        Statement queryStatement = null;
-        Statement alterStatement = null;
-        ResultSet resultSet = null;
+        // Do not remove PK constraints
+        String query;
+        if (getHsqldbMajorVersionNumber() >= 2) {
+            query = "select col.TABLE_NAME, col.COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS col where col.IS_NULLABLE = 'NO' and col.TABLE_SCHEMA = '" + getSchemaName() + "' " +
+                    "AND NOT EXISTS ( select COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_PRIMARYKEYS pk where pk.TABLE_NAME = col.TABLE_NAME and pk.COLUMN_NAME = col.COLUMN_NAME and pk.TABLE_SCHEM = '" + getSchemaName() + "' )";
+        } else {
+            query = "select col.TABLE_NAME, col.COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_COLUMNS col where col.IS_NULLABLE = 'NO' and col.TABLE_SCHEM = '" + getSchemaName() + "' " +
+                    "AND NOT EXISTS ( select COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_PRIMARYKEYS pk where pk.TABLE_NAME = col.TABLE_NAME and pk.COLUMN_NAME = col.COLUMN_NAME and pk.TABLE_SCHEM = '" + getSchemaName() + "' )";
+        }
         try {
-            connection = getSQLHandler().getDataSource().getConnection();
-            queryStatement = connection.createStatement();
-            alterStatement = connection.createStatement();
-
-            // Do not remove PK constraints
-            if(hsqlMajorVersionNumber >= 2){
-                resultSet = queryStatement.executeQuery("select col.TABLE_NAME, col.COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS col where col.IS_NULLABLE = 'NO' and col.TABLE_SCHEMA = '" + getSchemaName() + "' " +
-                        "AND NOT EXISTS ( select COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_PRIMARYKEYS pk where pk.TABLE_NAME = col.TABLE_NAME and pk.COLUMN_NAME = col.COLUMN_NAME and pk.TABLE_SCHEM = '" + getSchemaName() + "' )");
-            }   else {
-                resultSet = queryStatement.executeQuery("select col.TABLE_NAME, col.COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_COLUMNS col where col.IS_NULLABLE = 'NO' and col.TABLE_SCHEM = '" + getSchemaName() + "' " +
-                        "AND NOT EXISTS ( select COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_PRIMARYKEYS pk where pk.TABLE_NAME = col.TABLE_NAME and pk.COLUMN_NAME = col.COLUMN_NAME and pk.TABLE_SCHEM = '" + getSchemaName() + "' )");
+            List<String> sqlStatements = new ArrayList<String>();
+            for (String[] column : getItemPairs(query)) {
+                sqlStatements.add("alter table " + qualified(column[0]) + " alter column " + quoted(column[1]) + " set null");
             }
-
-            while (resultSet.next()) {
-                String tableName = resultSet.getString("TABLE_NAME");
-                String columnName = resultSet.getString("COLUMN_NAME");
-                alterStatement.executeUpdate("alter table " + qualified(tableName) + " alter column " + quoted(columnName) + " set null");
-            }
-        } catch (Exception e) {
+            getBatchSQLHandler().executeUpdates(sqlStatements);
+        } catch (UnitilsException e) {
             throw new UnitilsException("Error while disabling not null constraints on schema " + getSchemaName(), e);
-        } finally {
-            closeQuietly(queryStatement);
-            closeQuietly(connection, alterStatement, resultSet);
         }
     }
 
 
+    /**
+     * Drops the given constraints in one batch.
+     *
+     * @param constraints The table and constraint name of the constraints, not null
+     */
+    protected void dropConstraints(List<String[]> constraints) {
+        List<String> sqlStatements = new ArrayList<String>();
+        for (String[] constraint : constraints) {
+            sqlStatements.add("alter table " + qualified(constraint[0]) + " drop constraint " + quoted(constraint[1]));
+        }
+        getBatchSQLHandler().executeUpdates(sqlStatements);
+    }
+
+
     /**
      * Returns the value of the sequence with the given name.
      * <p/>
@@ -246,14 +243,31 @@ public class HsqldbDbSupport extends DbSupport {
 
 
     /**
-     * Sets the next value of the sequence with the given sequence name to the given sequence value.
+     * Gets the query that retrieves the names of the sequences whose current value is lower than the given value.
+     *
+     * @param value The value
+     * @return The query, not null
+     */
+    @Override
+    protected String getSequenceNamesBelowValueQuery(long value) {
+        if (getHsqldbMajorVersionNumber() >= 2) {
+            return "select SEQUENCE_NAME from INFORMATION_SCHEMA.SEQUENCES where SEQUENCE_SCHEMA = '" + getSchemaName() + "' and cast(NEXT_VALUE as bigint) < " + value;
+        }
+        return "select SEQUENCE_NAME from INFORMATION_SCHEMA.SYSTEM_SEQUENCES where SEQUENCE_SCHEMA = '" + getSchemaName() + "' and cast(START_WITH as bigint) < " + value;
+    }
+
+
+    /**
+     * Gets the statement that sets the next value of the sequence with the given sequence name to the given
+     * sequence value.
      *
      * @param sequenceName     The sequence, not null
      * @param newSequenceValue The value to set
+     * @return The statement, not null
      */
     @Override
-    public void incrementSequenceToValue(String sequenceName, long newSequenceValue) {
-        getSQLHandler().executeUpdate("alter sequence " + qualified(sequenceName) + " restart with " + newSequenceValue);
+    protected String getIncrementSequenceToValueStatement(String sequenceName, long newSequenceValue) {
+        return "alter sequence " + qualified(sequenceName) + " restart with " + newSequenceValue;
     }
 
 
@@ -272,15 +286,37 @@ public class HsqldbDbSupport extends DbSupport {
 
 
     /**
-     * Increments the identity value for the specified identity column on the specified table to the given value.
+     * Gets the statement that increments the identity value for the specified identity column on the specified table to
+     * the given value.
      *
      * @param tableName          The table with the identity column, not null
      * @param identityColumnName The column, not null
      * @param identityValue      The new value
+     * @return The statement, not null
      */
     @Override
-    public void incrementIdentityColumnToValue(String tableName, String identityColumnName, long identityValue) {
-        getSQLHandler().executeUpdate("alter table " + qualified(tableName) + " alter column " + quoted(identityColumnName) + " RESTART WITH " + identityValue);
+    protected String getIncrementIdentityColumnToValueStatement(String tableName, String identityColumnName, long identityValue) {
+        return "alter table " + qualified(tableName) + " alter column " + quoted(identityColumnName) + " RESTART WITH " + identityValue;
+    }
+
+
+    /**
+     * Removes all data from the given tables using truncate table. The referential integrity checks are switched
+     * off while truncating and are switched on again afterwards. This does not interfere with
+     * {@link #disableReferentialConstraints}, which drops the foreign keys instead.
+     *
+     * @param tableNames The tables to empty (case-sensitive), not null
+     */
+    @Override
+    public void truncateTables(Set<String> tableNames) {
+        String referentialIntegrityStatement = getHsqldbMajorVersionNumber() >= 2 ? "set database referential integrity " : "set referential_integrity ";
+
+        List<String> sqlStatements = new ArrayList<String>();
+        sqlStatements.add(referentialIntegrityStatement + "false");
+        for (String tableName : tableNames) {
+            sqlStatements.add("truncate table " + qualified(tableName));
+        }
+        executeUpdatesOnSameConnection(sqlStatements, asList(referentialIntegrityStatement + "true"));
     }
 
     /**
@@ -345,4 +381,16 @@ public class HsqldbDbSupport extends DbSupport {
     public boolean supportsCascade() {
         return true;
     }
+
+
+
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
 }
\ No newline at end of file
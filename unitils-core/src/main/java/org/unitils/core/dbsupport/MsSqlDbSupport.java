@@ -109,6 +109,23 @@ public class MsSqlDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Gets the query that retrieves the names of all tables, views, synonyms, triggers and types in the database schema
+     * in one round trip, see {@link #getItemNames()}.
+     *
+     * @return The query, not null
+     */
+    @Override
+    protected String getItemNamesQuery() {
+        String schemaName = getSchemaName();
+        return "select 'TABLE,' + t.name from sys.tables t, sys.schemas s where t.schema_id = s.schema_id and s.name = '" + schemaName + "'" +
+                " union all select 'VIEW,' + v.name from sys.views v, sys.schemas s where v.schema_id = s.schema_id and s.name = '" + schemaName + "'" +
+                " union all select 'SYNONYM,' + o.name from sys.synonyms o, sys.schemas s where o.schema_id = s.schema_id and s.name = '" + schemaName + "'" +
+                " union all select 'TRIGGER,' + t.name from sys.triggers t, sys.all_objects o, sys.schemas s where t.parent_id = o.object_id and o.schema_id = s.schema_id and s.name = '" + schemaName + "'" +
+                " union all select 'TYPE,' + t.name from sys.types t, sys.schemas s where t.schema_id = s.schema_id and s.name = '" + schemaName + "'";
+    }
+
+
     /**
      * Gets the names of all identity columns of the given table.
      *
@@ -121,6 +138,21 @@ public class MsSqlDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Gets the query that retrieves the identity columns whose last value, or seed value if no value was generated
+     * yet, is lower than the given value.
+     *
+     * @param value The value
+     * @return The query, not null
+     */
+    @Override
+    protected String getIdentityColumnNamesBelowValueQuery(long value) {
+        return "select t.name + ',' + i.name from sys.identity_columns i, sys.tables t, sys.schemas s where i.object_id = t.object_id " +
+                "and t.schema_id = s.schema_id and s.name = '" + getSchemaName() + "' " +
+                "and coalesce(cast(i.last_value as bigint), cast(i.seed_value as bigint)) < " + value;
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all table in the schema
      */
@@ -177,17 +209,18 @@ public class MsSqlDbSupport extends DbSupport {
 
 
     /**
-     * Increments the identity value for the specified identity column on the specified table to the given value. If
-     * there is no identity specified on the given primary key, the method silently finishes without effect.
+     * Gets the statement that increments the identity value for the specified identity column on the specified table to
+     * the given value.
      *
      * @param tableName          The table with the identity column, not null
      * @param identityColumnName The column, not null
      * @param identityValue      The new value
+     * @return The statement, not null
      */
     @Override
-    public void incrementIdentityColumnToValue(String tableName, String identityColumnName, long identityValue) {
+    protected String getIncrementIdentityColumnToValueStatement(String tableName, String identityColumnName, long identityValue) {
         // there can only be 1 identity column per table 
-        getSQLHandler().executeUpdate("DBCC CHECKIDENT ('" + qualified(tableName) + "', reseed, " + identityValue + ")");
+        return "DBCC CHECKIDENT ('" + qualified(tableName) + "', reseed, " + identityValue + ")";
     }
 
 
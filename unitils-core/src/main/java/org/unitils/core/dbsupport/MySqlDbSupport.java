@@ -19,6 +19,9 @@ import org.unitils.core.util.StoredIdentifierCase;
 import static org.unitils.core.util.StoredIdentifierCase.LOWER_CASE;
 import static org.unitils.core.util.StoredIdentifierCase.UPPER_CASE;
 
+import java.util.ArrayList;
+import static java.util.Arrays.asList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -92,24 +95,35 @@ public class MySqlDbSupport extends DbSupport {
 
 
     /**
-     * Disables all referential constraints (e.g. foreign keys) on all table in the schema
+     * Gets the query that retrieves the names of all tables, views and triggers in the database schema
+     * in one round trip, see {@link #getItemNames()}.
+     *
+     * @return The query, not null
      */
     @Override
-    public void disableReferentialConstraints() {
-        Set<String> tableNames = getTableNames();
-        for (String tableName : tableNames) {
-            disableReferentialConstraints(tableName);
-        }
+    protected String getItemNamesQuery() {
+        String schemaName = getSchemaName();
+        return "select concat('TABLE,', table_name) from information_schema.tables where table_schema = '" + schemaName + "' and table_type = 'BASE TABLE'" +
+                " union all select concat('VIEW,', table_name) from information_schema.tables where table_schema = '" + schemaName + "' and table_type = 'VIEW'" +
+                " union all select concat('TRIGGER,', trigger_name) from information_schema.triggers where trigger_schema = '" + schemaName + "'";
     }
 
 
-    // todo refactor (see oracle)
-    protected void disableReferentialConstraints(String tableName) {
-        SQLHandler sqlHandler = getSQLHandler();
-        Set<String> constraintNames = sqlHandler.getItemsAsStringSet("select constraint_name from information_schema.table_constraints where constraint_type = 'FOREIGN KEY' AND table_name = '" + tableName + "' and constraint_schema = '" + getSchemaName() + "'");
-        for (String constraintName : constraintNames) {
-            sqlHandler.executeUpdate("alter table " + qualified(tableName) + " drop foreign key " + quoted(constraintName));
+    /**
+     * Disables all referential constraints (e.g. foreign keys) on all table in the schema. The foreign keys of all
+     * tables are retrieved with a single query and dropped in one batch.
+     * <p/>
+     * Note: switching off foreign_key_checks is not used here, since that setting only applies to the session that
+     * changes it and not to the connections that are used afterwards to insert data.
+     */
+    @Override
+    public void disableReferentialConstraints() {
+        List<String[]> constraints = getItemPairs("select table_name, constraint_name from information_schema.table_constraints where constraint_type = 'FOREIGN KEY' and constraint_schema = '" + getSchemaName() + "'");
+        List<String> sqlStatements = new ArrayList<String>();
+        for (String[] constraint : constraints) {
+            sqlStatements.add("alter table " + qualified(constraint[0]) + " drop foreign key " + quoted(constraint[1]));
         }
+        getBatchSQLHandler().executeUpdates(sqlStatements);
     }
 
 
@@ -159,15 +173,51 @@ public class MySqlDbSupport extends DbSupport {
 
 
     /**
-     * Increments the identity value for the specified primary key on the specified table to the given value.
+     * Gets the query that retrieves the auto increment columns whose next value is lower than the given value.
+     *
+     * @param value The value
+     * @return The query, not null
+     */
+    @Override
+    protected String getIdentityColumnNamesBelowValueQuery(long value) {
+        return "select concat(c.table_name, ',', c.column_name) from information_schema.columns c, information_schema.tables t " +
+                "where c.table_schema = '" + getSchemaName() + "' and c.extra like '%auto_increment%' and t.table_schema = c.table_schema " +
+                "and t.table_name = c.table_name and t.auto_increment < " + value;
+    }
+
+
+    /**
+     * Gets the statement that increments the identity value for the specified primary key on the specified table to
+     * the given value.
      *
      * @param tableName            The table with the identity column, not null
      * @param primaryKeyColumnName The column, not null
      * @param identityValue        The new value
+     * @return The statement, not null
      */
     @Override
-    public void incrementIdentityColumnToValue(String tableName, String primaryKeyColumnName, long identityValue) {
-        getSQLHandler().executeUpdate("alter table " + qualified(tableName) + " AUTO_INCREMENT = " + identityValue);
+    protected String getIncrementIdentityColumnToValueStatement(String tableName, String primaryKeyColumnName, long identityValue) {
+        return "alter table " + qualified(tableName) + " AUTO_INCREMENT = " + identityValue;
+    }
+
+
+    /**
+     * Removes all data from the given tables using truncate table. The foreign key checks are switched off for the
+     * session while truncating and are afterwards set back to their previous value.
+     * <p/>
+     * Note: truncating a table also resets its auto increment value.
+     *
+     * @param tableNames The tables to empty (case-sensitive), not null
+     */
+    @Override
+    public void truncateTables(Set<String> tableNames) {
+        List<String> sqlStatements = new ArrayList<String>();
+        sqlStatements.add("set @unitils_foreign_key_checks = @@foreign_key_checks");
+        sqlStatements.add("set foreign_key_checks = 0");
+        for (String tableName : tableNames) {
+            sqlStatements.add("truncate table " + qualified(tableName));
+        }
+        executeUpdatesOnSameConnection(sqlStatements, asList("set foreign_key_checks = ifnull(@unitils_foreign_key_checks, 1)"));
     }
 
 
@@ -233,4 +283,15 @@ public class MySqlDbSupport extends DbSupport {
         return true;
     }
 
+
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
+
 }
\ No newline at end of file
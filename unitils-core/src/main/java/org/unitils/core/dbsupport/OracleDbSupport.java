@@ -134,52 +134,50 @@ public class OracleDbSupport extends DbSupport {
 
 
     /**
-     * Removes the table with the given name from the database.
-     * Note: the table name is surrounded with quotes, making it case-sensitive.
+     * Gets the query that retrieves the names of all tables, views, materialized views, synonyms, sequences, triggers
+     * and types in the database schema in one round trip, see {@link #getItemNames()}.
      *
-     * @param tableName The table to drop (case-sensitive), not null
+     * @return The query, not null
      */
     @Override
-    public void dropTable(String tableName) {
-        getSQLHandler().executeUpdate("drop table " + qualified(tableName) + " cascade constraints" + (supportsPurge() ? " purge" : ""));
+    protected String getItemNamesQuery() {
+        String schemaName = getSchemaName();
+        return "select 'TABLE,' || TABLE_NAME from ALL_TABLES where OWNER = '" + schemaName + "' and TABLE_NAME not like 'BIN$%' and TABLE_NAME not in (select MVIEW_NAME from ALL_MVIEWS where OWNER = '" + schemaName + "')" +
+                " union all select 'VIEW,' || VIEW_NAME from ALL_VIEWS where OWNER = '" + schemaName + "'" +
+                " union all select 'MATERIALIZED_VIEW,' || MVIEW_NAME from ALL_MVIEWS where OWNER = '" + schemaName + "'" +
+                " union all select 'SYNONYM,' || SYNONYM_NAME from ALL_SYNONYMS where OWNER = '" + schemaName + "'" +
+                " union all select 'SEQUENCE,' || SEQUENCE_NAME from ALL_SEQUENCES where SEQUENCE_OWNER = '" + schemaName + "'" +
+                " union all select 'TRIGGER,' || TRIGGER_NAME from ALL_TRIGGERS where OWNER = '" + schemaName + "' and TRIGGER_NAME not like 'BIN$%'" +
+                " union all select 'TYPE,' || TYPE_NAME from ALL_TYPES where OWNER = '" + schemaName + "'";
     }
 
 
     /**
-     * Removes the view with the given name from the database
-     * Note: the view name is surrounded with quotes, making it case-sensitive.
-     *
-     * @param viewName The view to drop (case-sensitive), not null
-     */
-    @Override
-    public void dropView(String viewName) {
-        getSQLHandler().executeUpdate("drop view " + qualified(viewName) + " cascade constraints");
-    }
-
-
-    /**
-     * Removes the materialized view with the given name from the database
-     * Note: the view name is surrounded with quotes, making it case-sensitive.
-     *
-     * @param materializedViewName The view to drop (case-sensitive), not null
-     */
-    @Override
-    public void dropMaterializedView(String materializedViewName) {
-        getSQLHandler().executeUpdate("drop materialized view " + qualified(materializedViewName));
-    }
-
-
-    /**
-     * Drops the type with the given name from the database
-     * Note: the type name is surrounded with quotes, making it case-sensitive.
+     * Gets the statement that drops the item of the given type with the given name.
+     * Note: the item name is surrounded with quotes, making it case-sensitive.
      * <p/>
-     * Overriden to add the force option. This will make sure that super-types can also be dropped.
+     * Overriden to add the cascade constraints option for tables and views, the purge option for tables (if
+     * supported) and the force option for types. The force option will make sure that super-types can also be
+     * dropped.
      *
-     * @param typeName The type to drop (case-sensitive), not null
+     * @param itemType The type of the item, not null
+     * @param itemName The item to drop (case-sensitive), not null
+     * @return The drop statement, not null
      */
     @Override
-    public void dropType(String typeName) {
-        getSQLHandler().executeUpdate("drop type " + qualified(typeName) + " force");
+    protected String getDropStatement(DbItemType itemType, String itemName) {
+        switch (itemType) {
+            case TABLE:
+                return "drop table " + qualified(itemName) + " cascade constraints" + (supportsPurge() ? " purge" : "");
+            case VIEW:
+                return "drop view " + qualified(itemName) + " cascade constraints";
+            case MATERIALIZED_VIEW:
+                return "drop materialized view " + qualified(itemName);
+            case TYPE:
+                return "drop type " + qualified(itemName) + " force";
+            default:
+                return super.getDropStatement(itemType, itemName);
+        }
     }
 
 
@@ -259,6 +257,18 @@ public class OracleDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Gets the query that retrieves the names of the sequences whose current value is lower than the given value.
+     *
+     * @param value The value
+     * @return The query, not null
+     */
+    @Override
+    protected String getSequenceNamesBelowValueQuery(long value) {
+        return "select SEQUENCE_NAME from ALL_SEQUENCES where SEQUENCE_OWNER = '" + getSchemaName() + "' and LAST_NUMBER < " + value;
+    }
+
+
     /**
      * Sets the next value of the sequence with the given sequence name to the given sequence value.
      *
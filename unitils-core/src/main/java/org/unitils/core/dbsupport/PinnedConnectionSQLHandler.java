@@ -0,0 +1,263 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * SQL handler that executes all statements on the same connection, instead of requesting a connection from the
+ * data source for every statement. Queries are executed as prepared statements that are kept for reuse when the
+ * same query is executed again. This can be used to speed up runs that execute a lot of small statements, such as
+ * updating or clearing the database.
+ * <p/>
+ * The connection is requested when the first statement is executed, and is kept until {@link #close} is called. The
+ * prepared statements are closed when the structure of the database is changed, so that they are never used for
+ * tables that no longer exist.
+ * <p/>
+ * The nr of connection requests and statement preparations that were saved are counted. These are logged when the
+ * handler is closed.
+ * <p/>
+ * An instance should only be used by one thread at a time.
+ *
+ * @author Filip Neven
+ * @author Tim Ducheyne
+ */
+public class PinnedConnectionSQLHandler extends DefaultSQLHandler {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(PinnedConnectionSQLHandler.class);
+
+    /* The max nr of prepared statements to keep */
+    private static final int MAX_NR_OF_PREPARED_STATEMENTS = 100;
+
+    /* Pattern for statements that change the structure of the database */
+    private static final Pattern DDL_STATEMENT_PATTERN = Pattern.compile("\\s*(create|drop|alter|rename|truncate)\\s.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /* The pinned connection, null if not yet requested */
+    private Connection connection;
+
+    /* The statement for updates, null if not yet created */
+    private Statement updateStatement;
+
+    /* The prepared statements per query, the least recently used one is closed first */
+    private Map<String, PreparedStatement> preparedStatements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() <= MAX_NR_OF_PREPARED_STATEMENTS) {
+                return false;
+            }
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+
+    /* The nr of statements that used the pinned connection instead of requesting a new one */
+    private int nrOfSavedConnectionRequests;
+
+    /* The nr of queries that reused a prepared statement */
+    private int nrOfSavedStatementPreparations;
+
+
+    /**
+     * Constructs a new instance that connects to the given DataSource
+     *
+     * @param dataSource The data source, not null
+     */
+    public PinnedConnectionSQLHandler(DataSource dataSource) {
+        super(dataSource);
+    }
+
+
+    /**
+     * Constructs a new instance that connects to the given DataSource
+     *
+     * @param dataSource       The data source, not null
+     * @param doExecuteUpdates Boolean indicating whether updates should effectively be executed on the underlying
+     *                         database
+     */
+    public PinnedConnectionSQLHandler(DataSource dataSource, boolean doExecuteUpdates) {
+        super(dataSource, doExecuteUpdates);
+    }
+
+
+    /**
+     * Closes the prepared statements and releases the connection. The handler can still be used afterwards: a new
+     * connection is then requested.
+     */
+    public void close() {
+        if (connection == null) {
+            return;
+        }
+        logger.debug("Executed statements on a single connection. Saved " + nrOfSavedConnectionRequests + " connection requests and " + nrOfSavedStatementPreparations + " statement preparations.");
+        closePreparedStatements();
+        closeQuietly(connection, updateStatement, null);
+        connection = null;
+        updateStatement = null;
+    }
+
+
+    /**
+     * @return The nr of connection requests and statement preparations that were saved
+     */
+    public int getNrOfSavedRoundTrips() {
+        return nrOfSavedConnectionRequests + nrOfSavedStatementPreparations;
+    }
+
+
+    /**
+     * @return The nr of statements that used the pinned connection instead of requesting a new one
+     */
+    public int getNrOfSavedConnectionRequests() {
+        return nrOfSavedConnectionRequests;
+    }
+
+
+    /**
+     * @return The nr of queries that reused a prepared statement
+     */
+    public int getNrOfSavedStatementPreparations() {
+        return nrOfSavedStatementPreparations;
+    }
+
+
+    /**
+     * Gets the pinned connection. It is requested from the data source the first time.
+     *
+     * @return The connection, not null
+     */
+    @Override
+    protected Connection getConnection() throws SQLException {
+        if (connection == null) {
+            connection = super.getConnection();
+        } else {
+            nrOfSavedConnectionRequests++;
+        }
+        return connection;
+    }
+
+
+    /**
+     * Gets the statement for executing updates. The same statement is used for all updates.
+     *
+     * @param connection The pinned connection, not null
+     * @return The statement, not null
+     */
+    @Override
+    protected Statement createStatement(Connection connection) throws SQLException {
+        if (updateStatement == null) {
+            updateStatement = super.createStatement(connection);
+        }
+        return updateStatement;
+    }
+
+
+    /**
+     * Executes the given query using a prepared statement. If the same query was executed before, its prepared
+     * statement is reused.
+     *
+     * @param statement The statement for updates, not used
+     * @param sql       The query, not null
+     * @return The result set, not null
+     */
+    @Override
+    protected ResultSet doExecuteQuery(Statement statement, String sql) throws SQLException {
+        PreparedStatement preparedStatement = preparedStatements.get(sql);
+        if (preparedStatement == null) {
+            preparedStatement = connection.prepareStatement(sql);
+            preparedStatements.put(sql, preparedStatement);
+        } else {
+            nrOfSavedStatementPreparations++;
+        }
+        return preparedStatement.executeQuery();
+    }
+
+
+    /**
+     * Executes the given update. If the update changes the structure of the database, the prepared statements
+     * are closed.
+     *
+     * @param statement The statement for updates, not null
+     * @param sql       The update statement, not null
+     * @return The nr of updates
+     */
+    @Override
+    protected int doExecuteUpdate(Statement statement, String sql) throws SQLException {
+        if (DDL_STATEMENT_PATTERN.matcher(sql).matches()) {
+            closePreparedStatements();
+        }
+        return super.doExecuteUpdate(statement, sql);
+    }
+
+
+    /**
+     * Executes the given statements as a single batch. If one of the statements changes the structure of the
+     * database, the prepared statements are closed.
+     *
+     * @param statement     The statement for updates, not null
+     * @param sqlStatements The update statements, not null
+     * @return The nr of updates per statement
+     */
+    @Override
+    protected int[] doExecuteBatch(Statement statement, List<String> sqlStatements) throws SQLException {
+        for (String sql : sqlStatements) {
+            if (DDL_STATEMENT_PATTERN.matcher(sql).matches()) {
+                closePreparedStatements();
+                break;
+            }
+        }
+        return super.doExecuteBatch(statement, sqlStatements);
+    }
+
+
+    /**
+     * Only closes the result set, the connection and statements are kept for the next statement.
+     *
+     * @param connection The connection, not used
+     * @param statement  The statement, not used
+     * @param resultSet  The result set, null if there is none
+     */
+    @Override
+    protected void releaseResources(Connection connection, Statement statement, ResultSet resultSet) {
+        closeQuietly(resultSet);
+    }
+
+
+    /**
+     * Closes all prepared statements.
+     */
+    protected void closePreparedStatements() {
+        Iterator<PreparedStatement> iterator = preparedStatements.values().iterator();
+        while (iterator.hasNext()) {
+            closeQuietly(iterator.next());
+            iterator.remove();
+        }
+    }
+}
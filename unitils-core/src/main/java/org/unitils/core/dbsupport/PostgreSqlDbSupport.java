@@ -8,7 +8,15 @@
  */
 package org.unitils.core.dbsupport;
 
+import static java.util.Collections.singletonList;
+import static org.unitils.core.dbsupport.DbItemType.TRIGGER;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -90,9 +98,51 @@ public class PostgreSqlDbSupport extends DbSupport {
      */
     @Override
     public Set<String> getTriggerNames() {
-        Set<String> result = new HashSet<String>();
-
         Set<String> triggerAndTableNames = getSQLHandler().getItemsAsStringSet("select trigger_name || ',' || event_object_table from information_schema.triggers where trigger_schema = '" + getSchemaName() + "'");
+        return getTriggerNames(triggerAndTableNames);
+    }
+
+
+    /**
+     * Retrieves the names of all tables, views, sequences, triggers and types in the database schema in one round
+     * trip. The trigger names are returned as 'trigger-name' ON 'table name', as for {@link #getTriggerNames()}.
+     *
+     * @return The names per type of item, not null
+     */
+    @Override
+    public Map<DbItemType, Set<String>> getItemNames() {
+        Map<DbItemType, Set<String>> itemNames = super.getItemNames();
+        itemNames.put(TRIGGER, getTriggerNames(itemNames.get(TRIGGER)));
+        return itemNames;
+    }
+
+
+    /**
+     * Gets the query that retrieves the names of all tables, views, sequences, triggers and types in the database
+     * schema in one round trip, see {@link #getItemNames()}. The trigger names are followed by a comma and the name
+     * of their table.
+     *
+     * @return The query, not null
+     */
+    @Override
+    protected String getItemNamesQuery() {
+        String schemaName = getSchemaName();
+        return "select 'TABLE,' || table_name from information_schema.tables where table_type = 'BASE TABLE' and table_schema = '" + schemaName + "'" +
+                " union all select 'VIEW,' || table_name from information_schema.tables where table_type = 'VIEW' and table_schema = '" + schemaName + "'" +
+                " union all select 'SEQUENCE,' || c.relname from pg_class c join pg_namespace n on (c.relnamespace = n.oid) where c.relkind = 'S' and n.nspname = '" + schemaName + "'" +
+                " union all select 'TRIGGER,' || trigger_name || ',' || event_object_table from information_schema.triggers where trigger_schema = '" + schemaName + "'" +
+                " union all select 'TYPE,' || object_name from information_schema.data_type_privileges where object_type = 'USER-DEFINED TYPE' and object_schema = '" + schemaName + "'";
+    }
+
+
+    /**
+     * Converts the given trigger and table names to trigger names as follows: 'trigger-name' ON 'table name'
+     *
+     * @param triggerAndTableNames The trigger names followed by a comma and the name of their table, not null
+     * @return The trigger names, not null
+     */
+    protected Set<String> getTriggerNames(Set<String> triggerAndTableNames) {
+        Set<String> result = new HashSet<String>();
         for (String triggerAndTableName : triggerAndTableNames) {
             String[] parts = triggerAndTableName.split(",");
             String triggerName = quoted(parts[0]);
@@ -104,33 +154,53 @@ public class PostgreSqlDbSupport extends DbSupport {
 
 
     /**
-     * Drops the sequence with the given name from the database
-     * Note: the sequence name is surrounded with quotes, making it case-sensitive.
+     * Gets the statement that drops the item of the given type with the given name.
+     * Note: the item name is surrounded with quotes, making it case-sensitive.
+     * <p/>
+     * Overriden to handle columns of type serial. For these columns, the sequence should be dropped using cascade.
+     * Thanks to Peter Oxenham for reporting this issue (UNI-28).
      * <p/>
-     * The method is overriden to handle columns of type serial. For these columns, the sequence should be
-     * dropped using cascade. Thanks to Peter Oxenham for reporting this issue (UNI-28).
+     * The drop trigger statement is not compatible with standard SQL in Postgresql.
+     * You have to do drop trigger 'trigger-name' ON 'table name' instead of drop trigger 'trigger-name'.
+     * To circumvent this, trigger names are expected as follows: 'trigger-name' ON 'table name'
      *
-     * @param sequenceName The sequence to drop (case-sensitive), not null
+     * @param itemType The type of the item, not null
+     * @param itemName The item to drop (case-sensitive), not null
+     * @return The drop statement, not null
      */
-    public void dropSequence(String sequenceName) {
-        getSQLHandler().executeUpdate("drop sequence " + qualified(sequenceName) + " cascade");
+    @Override
+    protected String getDropStatement(DbItemType itemType, String itemName) {
+        switch (itemType) {
+            case SEQUENCE:
+                return "drop sequence " + qualified(itemName) + " cascade";
+            case TRIGGER:
+                return "drop trigger " + itemName + " cascade";
+            default:
+                return super.getDropStatement(itemType, itemName);
+        }
     }
 
 
     /**
-     * Drops the trigger with the given name from the database.
-     * <p/>
-     * The drop trigger statement is not compatible with standard SQL in Postgresql.
-     * You have to do drop trigger 'trigger-name' ON 'table name' instead of drop trigger 'trigger-name'.
+     * Removes all data from the given tables using a single truncate table statement. Foreign keys between the
+     * given tables are allowed because they are all truncated at once.
      * <p/>
-     * To circumvent this, this method expects trigger names as follows:
-     * 'trigger-name' ON 'table name'
+     * Cascade is not used on purpose: it would also empty tables that are not in the list, e.g. a preserved table
+     * that refers to one of the given tables. In that case the statement fails instead. The statement is executed in
+     * a transaction that is rolled back when it fails, so that the records can still be deleted afterwards.
      *
-     * @param triggerName The trigger to drop as 'trigger-name' ON 'table name', not null
+     * @param tableNames The tables to empty (case-sensitive), not null
      */
     @Override
-    public void dropTrigger(String triggerName) {
-        getSQLHandler().executeUpdate("drop trigger " + triggerName + " cascade");
+    public void truncateTables(Set<String> tableNames) {
+        StringBuilder sql = new StringBuilder("truncate table ");
+        for (Iterator<String> iterator = tableNames.iterator(); iterator.hasNext();) {
+            sql.append(qualified(iterator.next()));
+            if (iterator.hasNext()) {
+                sql.append(", ");
+            }
+        }
+        executeUpdatesOnSameConnection(singletonList(sql.toString()), Collections.<String>emptyList());
     }
 
 
@@ -146,24 +216,20 @@ public class PostgreSqlDbSupport extends DbSupport {
 
 
     /**
-     * Disables all referential constraints (e.g. foreign keys) on all table in the schema
+     * Disables all referential constraints (e.g. foreign keys) on all table in the schema. The foreign keys of all
+     * tables are retrieved with a single query and dropped in one batch.
+     * <p/>
+     * Note: setting session_replication_role to replica is not used here, since that setting only applies to the
+     * session that changes it and requires superuser privileges.
      */
     @Override
     public void disableReferentialConstraints() {
-        Set<String> tableNames = getTableNames();
-        for (String tableName : tableNames) {
-            disableReferentialConstraints(tableName);
-        }
-    }
-
-
-    // todo refactor (see oracle)
-    protected void disableReferentialConstraints(String tableName) {
-        SQLHandler sqlHandler = getSQLHandler();
-        Set<String> constraintNames = sqlHandler.getItemsAsStringSet("select constraint_name from information_schema.table_constraints con where con.table_name = '" + tableName + "' and constraint_type = 'FOREIGN KEY' and constraint_schema = '" + getSchemaName() + "'");
-        for (String constraintName : constraintNames) {
-            sqlHandler.executeUpdate("alter table " + qualified(tableName) + " drop constraint " + quoted(constraintName));
+        List<String[]> constraints = getItemPairs("select table_name, constraint_name from information_schema.table_constraints where constraint_type = 'FOREIGN KEY' and constraint_schema = '" + getSchemaName() + "'");
+        List<String> sqlStatements = new ArrayList<String>();
+        for (String[] constraint : constraints) {
+            sqlStatements.add("alter table " + qualified(constraint[0]) + " drop constraint " + quoted(constraint[1]));
         }
+        getBatchSQLHandler().executeUpdates(sqlStatements);
     }
 
 
@@ -271,4 +337,15 @@ public class PostgreSqlDbSupport extends DbSupport {
         return true;
     }
 
+
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
+
 }
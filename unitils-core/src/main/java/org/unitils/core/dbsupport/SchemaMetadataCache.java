@@ -0,0 +1,335 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.sql.DataSource;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import static java.util.Collections.unmodifiableSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Cache for the metadata of the database schemas of a data source: the names of the tables, columns, identity columns
+ * and sequences. Reading this metadata from the database catalog is slow, and the same names are needed by a lot of
+ * operations, such as cleaning the database, updating sequences and loading data sets. The names are therefore only
+ * retrieved once and are kept until the structure of the database changes.
+ * <p/>
+ * There is one cache per data source, see {@link #getInstance}. The cache has to be invalidated when the structure of
+ * the database is changed. The {@link DefaultSQLHandler} does this for all DDL statements it executes, the DBMaintainer
+ * does it after executing scripts. If it is not known which cache belongs to a data source, e.g. because the data
+ * source is a proxy for another data source, {@link #invalidate(DataSource)} invalidates all caches. Changes that are
+ * made outside of unitils are not noticed, that's why the cache is disabled by default, see
+ * {@link DbSupport#PROPKEY_METADATA_CACHE_ENABLED}.
+ * <p/>
+ * The data sources are only weakly referenced: the cache of a data source that is no longer used is removed
+ * automatically. It can also be removed explicitly using {@link #remove(DataSource)}.
+ * <p/>
+ * The nr of hits and misses is counted, so that it can be checked whether the cache is effective. The nr of
+ * invalidations can be used to find out whether other data that depends on the metadata has become outdated.
+ * <p/>
+ * A cache can be shared by different threads.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class SchemaMetadataCache {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(SchemaMetadataCache.class);
+
+    /* Pattern for statements that change the structure of the database, truncate only removes data */
+    private static final Pattern STRUCTURE_CHANGE_PATTERN = Pattern.compile("\\s*(create|drop|alter|rename)\\s.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /* The caches per data source, the data sources are compared by identity since proxies can delegate equals */
+    private static Map<DataSourceReference, SchemaMetadataCache> instances = new HashMap<DataSourceReference, SchemaMetadataCache>();
+
+    /* The references to the data sources that were garbage collected */
+    private static ReferenceQueue<DataSource> discardedDataSources = new ReferenceQueue<DataSource>();
+
+    /* The cached names per kind of metadata, schema and table */
+    private Map<String, Set<String>> cachedNames = new ConcurrentHashMap<String, Set<String>>();
+
+    /* The nr of times the names were found in the cache */
+    private AtomicInteger nrOfHits = new AtomicInteger();
+
+    /* The nr of times the names had to be retrieved from the database */
+    private AtomicInteger nrOfMisses = new AtomicInteger();
+
+    /* The nr of times the cache was invalidated */
+    private volatile int nrOfInvalidations;
+
+
+    /**
+     * Gets the cache for the given data source. The cache is created the first time.
+     *
+     * @param dataSource The data source, not null
+     * @return The cache, not null
+     */
+    public static synchronized SchemaMetadataCache getInstance(DataSource dataSource) {
+        removeDiscardedDataSources();
+        SchemaMetadataCache schemaMetadataCache = instances.get(new DataSourceReference(dataSource, null));
+        if (schemaMetadataCache == null) {
+            schemaMetadataCache = new SchemaMetadataCache();
+            instances.put(new DataSourceReference(dataSource, discardedDataSources), schemaMetadataCache);
+        }
+        return schemaMetadataCache;
+    }
+
+
+    /**
+     * Removes the cache of the given data source, e.g. because the data source is no longer used. Nothing is done if
+     * there is no cache for the data source.
+     *
+     * @param dataSource The data source, not null
+     */
+    public static synchronized void remove(DataSource dataSource) {
+        removeDiscardedDataSources();
+        instances.remove(new DataSourceReference(dataSource, null));
+    }
+
+
+    /**
+     * Invalidates the cache of the given data source. If there is no cache for this data source, all caches are
+     * invalidated: the data source could be a proxy for a data source that has a cache.
+     *
+     * @param dataSource The data source whose database structure has changed, not null
+     */
+    public static synchronized void invalidate(DataSource dataSource) {
+        removeDiscardedDataSources();
+        SchemaMetadataCache schemaMetadataCache = instances.get(new DataSourceReference(dataSource, null));
+        if (schemaMetadataCache != null) {
+            schemaMetadataCache.invalidate();
+            return;
+        }
+        for (SchemaMetadataCache instance : instances.values()) {
+            instance.invalidate();
+        }
+    }
+
+
+    /**
+     * Removes the caches of the data sources that were garbage collected.
+     */
+    private static void removeDiscardedDataSources() {
+        Reference<? extends DataSource> reference;
+        while ((reference = discardedDataSources.poll()) != null) {
+            instances.remove(reference);
+        }
+    }
+
+
+    /**
+     * Checks whether the given statement changes the structure of the database, e.g. a create or drop statement.
+     *
+     * @param sql The statement, not null
+     * @return True if the cache should be invalidated after executing the statement
+     */
+    public static boolean isStructureChange(String sql) {
+        return STRUCTURE_CHANGE_PATTERN.matcher(sql).matches();
+    }
+
+
+    /**
+     * Gets the names of all tables in the schema of the given db support.
+     *
+     * @param dbSupport The db support for the schema, not null
+     * @return The table names, not null
+     */
+    public Set<String> getTableNames(DbSupport dbSupport) {
+        return getNames(MetadataType.TABLES, dbSupport, null);
+    }
+
+
+    /**
+     * Gets the names of all columns of the given table.
+     *
+     * @param dbSupport The db support for the schema, not null
+     * @param tableName The table, not null
+     * @return The column names, not null
+     */
+    public Set<String> getColumnNames(DbSupport dbSupport, String tableName) {
+        return getNames(MetadataType.COLUMNS, dbSupport, tableName);
+    }
+
+
+    /**
+     * Gets the names of the identity columns of the given table.
+     *
+     * @param dbSupport The db support for the schema, not null
+     * @param tableName The table, not null
+     * @return The identity column names, not null
+     */
+    public Set<String> getIdentityColumnNames(DbSupport dbSupport, String tableName) {
+        return getNames(MetadataType.IDENTITY_COLUMNS, dbSupport, tableName);
+    }
+
+
+    /**
+     * Gets the names of all sequences in the schema of the given db support.
+     *
+     * @param dbSupport The db support for the schema, not null
+     * @return The sequence names, not null
+     */
+    public Set<String> getSequenceNames(DbSupport dbSupport) {
+        return getNames(MetadataType.SEQUENCES, dbSupport, null);
+    }
+
+
+    /**
+     * Removes all names from the cache. They will be retrieved again from the database when they are needed.
+     */
+    public synchronized void invalidate() {
+        cachedNames.clear();
+        nrOfInvalidations++;
+        logger.debug("Schema metadata cache invalidated.");
+    }
+
+
+    /**
+     * @return The nr of times names were found in the cache
+     */
+    public int getNrOfHits() {
+        return nrOfHits.get();
+    }
+
+
+    /**
+     * @return The nr of times names had to be retrieved from the database
+     */
+    public int getNrOfMisses() {
+        return nrOfMisses.get();
+    }
+
+
+    /**
+     * @return The nr of times the cache was invalidated, increases every time the structure of the database changes
+     */
+    public int getNrOfInvalidations() {
+        return nrOfInvalidations;
+    }
+
+
+    /**
+     * Gets the names from the cache, or retrieves them from the database if they are not cached yet. The database
+     * is queried outside of the lock. The result is only cached if the cache was not invalidated in the meantime,
+     * since the result could then already be outdated.
+     *
+     * @param metadataType The kind of names, not null
+     * @param dbSupport    The db support for the schema, not null
+     * @param tableName    The table, null for names that do not belong to a table
+     * @return The names, not null
+     */
+    protected Set<String> getNames(MetadataType metadataType, DbSupport dbSupport, String tableName) {
+        String key = metadataType + ":" + dbSupport.getSchemaName() + (tableName == null ? "" : ":" + tableName);
+        Set<String> names = cachedNames.get(key);
+        if (names != null) {
+            nrOfHits.incrementAndGet();
+            return names;
+        }
+        nrOfMisses.incrementAndGet();
+
+        int nrOfInvalidationsBeforeLoading = nrOfInvalidations;
+        names = unmodifiableSet(retrieveNames(metadataType, dbSupport, tableName));
+        synchronized (this) {
+            if (nrOfInvalidations == nrOfInvalidationsBeforeLoading) {
+                cachedNames.put(key, names);
+            }
+        }
+        return names;
+    }
+
+
+    /**
+     * Retrieves the names from the database.
+     *
+     * @param metadataType The kind of names, not null
+     * @param dbSupport    The db support for the schema, not null
+     * @param tableName    The table, null for names that do not belong to a table
+     * @return The names, not null
+     */
+    protected Set<String> retrieveNames(MetadataType metadataType, DbSupport dbSupport, String tableName) {
+        switch (metadataType) {
+            case TABLES:
+                return dbSupport.getTableNames();
+            case COLUMNS:
+                return dbSupport.getColumnNames(tableName);
+            case IDENTITY_COLUMNS:
+                return dbSupport.getIdentityColumnNames(tableName);
+            default:
+                return dbSupport.getSequenceNames();
+        }
+    }
+
+
+    /**
+     * The kinds of names that are cached.
+     */
+    protected enum MetadataType {
+        TABLES, COLUMNS, IDENTITY_COLUMNS, SEQUENCES
+    }
+
+
+    /**
+     * Weak reference to a data source that is used as key for the caches. Two references are equal if they refer to
+     * the same data source instance. A reference whose data source was garbage collected is only equal to itself.
+     */
+    protected static class DataSourceReference extends WeakReference<DataSource> {
+
+        /* The identity hash code of the data source, it is kept since the data source can be garbage collected */
+        private int hashCode;
+
+
+        /**
+         * Creates a reference to the given data source.
+         *
+         * @param dataSource The data source, not null
+         * @param queue      The queue to which the reference is added when the data source is garbage collected, null
+         *                   for a reference that is only used for a lookup
+         */
+        public DataSourceReference(DataSource dataSource, ReferenceQueue<DataSource> queue) {
+            super(dataSource, queue);
+            this.hashCode = System.identityHashCode(dataSource);
+        }
+
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof DataSourceReference)) {
+                return false;
+            }
+            DataSource dataSource = get();
+            return dataSource != null && dataSource == ((DataSourceReference) object).get();
+        }
+    }
+}
@@ -20,10 +20,6 @@ package org.unitils.reflectionassert;
 
 import junit.framework.Assert;
 import junit.framework.AssertionFailedError;
-import ognl.DefaultMemberAccess;
-import ognl.Ognl;
-import ognl.OgnlContext;
-import ognl.OgnlException;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Transformer;
@@ -32,6 +28,7 @@ import org.apache.commons.lang.StringUtils;
 import org.unitils.core.UnitilsException;
 import org.unitils.reflectionassert.difference.Difference;
 import org.unitils.reflectionassert.report.impl.DefaultDifferenceReport;
+import org.unitils.reflectionassert.util.PropertyExpressionEvaluator;
 import org.unitils.util.ReflectionUtils;
 
 import java.lang.reflect.Field;
@@ -70,7 +67,6 @@ import static org.unitils.reflectionassert.ReflectionComparatorMode.LENIENT_ORDE
  */
 public class ReflectionAssert {
 
-
     /**
      * Asserts that two objects are equal. Reflection is used to compare all fields of these values.
      * If they are not equal an AssertionFailedError is thrown.
@@ -125,6 +121,9 @@ public class ReflectionAssert {
      * If they are not equal an AssertionFailedError is thrown.
      * <p/>
      * The comparator modes determine how strict to compare the values.
+     * <p/>
+     * The values are first only checked for equality, which is cheaper. The differences are only determined
+     * when the assertion fails, to create the failure message.
      *
      * @param message  a message for when the assertion fails
      * @param expected the expected object
@@ -134,6 +133,9 @@ public class ReflectionAssert {
      */
     public static void assertReflectionEquals(String message, Object expected, Object actual, ReflectionComparatorMode... modes) throws AssertionFailedError {
         ReflectionComparator reflectionComparator = createRefectionComparator(modes);
+        if (reflectionComparator.isEqual(expected, actual)) {
+            return;
+        }
         Difference difference = reflectionComparator.getDifference(expected, actual);
         if (difference != null) {
             Assert.fail(getFailureMessage(message, difference));
@@ -370,14 +372,7 @@ public class ReflectionAssert {
      * @return The value for the given OGNL expression
      */
     protected static Object getProperty(Object object, String ognlExpression) {
-        try {
-            OgnlContext ognlContext = new OgnlContext();
-            ognlContext.setMemberAccess(new DefaultMemberAccess(true));
-            Object ognlExprObj = Ognl.parseExpression(ognlExpression);
-            return Ognl.getValue(ognlExprObj, ognlContext, object);
-        } catch (OgnlException e) {
-            throw new UnitilsException("Failed to get property value using OGNL expression " + ognlExpression, e);
-        }
+        return new PropertyExpressionEvaluator().getValue(object, ognlExpression);
     }
 
     /**
@@ -409,13 +404,17 @@ public class ReflectionAssert {
 
     /**
      * A commons collections transformer that takes an object and returns the value of the property that is
-     * specified by the given ognl expression.
+     * specified by the given ognl expression. The parsed expression and the property accessors are cached by the
+     * transformer, so evaluating the expression for all objects of a collection is cheap.
      */
     protected static class OgnlTransformer implements Transformer {
 
         /* The ognl expression */
         private String ognlExpression;
 
+        /* The evaluator for the expression */
+        private PropertyExpressionEvaluator propertyExpressionEvaluator = new PropertyExpressionEvaluator();
+
         /**
          * Creates  a transformer with the given ognl expression.
          *
@@ -435,7 +434,7 @@ public class ReflectionAssert {
             if (object == null) {
                 return null;
             }
-            return getProperty(object, ognlExpression);
+            return propertyExpressionEvaluator.getValue(object, ognlExpression);
         }
     }
 
@@ -17,11 +17,16 @@ package org.unitils.reflectionassert;
 
 import org.unitils.core.UnitilsException;
 import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
+import org.unitils.reflectionassert.comparator.impl.SimpleCasesComparator;
 import org.unitils.reflectionassert.difference.Difference;
+import org.unitils.reflectionassert.util.ComparatorDispatchTable;
+import org.unitils.reflectionassert.util.ComparedFieldsCache;
+import org.unitils.reflectionassert.util.DifferenceCache;
+import org.unitils.reflectionassert.util.ParallelDifferenceCalculator;
 
-import java.util.IdentityHashMap;
+import java.lang.reflect.Field;
 import java.util.List;
-import java.util.Map;
 
 
 /**
@@ -37,6 +42,15 @@ import java.util.Map;
  * sure that a correct comparator chain is assembled.
  * <p/>
  * A readable report differences can be created using the DifferenceReport.
+ * <p/>
+ * To find the comparator of the chain for a pair of values, a {@link ComparatorDispatchTable} is used. This way the
+ * chain does not have to be walked for every pair of values of classes that were already compared.
+ * <p/>
+ * When only the outcome of a comparison is needed, {@link #isEqual} should be used. Comparators that implement
+ * {@link ProbingComparator} then check the values without creating any differences, stopping at the first mismatch.
+ * <p/>
+ * The state of a comparison is kept per thread, separated from the comparator chain. A comparator instance can
+ * therefore be reused, also by different threads at the same time.
  *
  * @author Tim Ducheyne
  * @author Filip Neven
@@ -44,17 +58,71 @@ import java.util.Map;
 public class ReflectionComparator {
 
     /**
-     * The comparator chain.
+     * The default max nr of cached results per cache.
+     */
+    public static final int DEFAULT_MAX_CACHE_SIZE = 100000;
+
+    /**
+     * The system property for the min size of collections of which the elements are compared in parallel, when
+     * all differences are needed. Not set, or 0, disables parallel comparison.
+     */
+    public static final String PROPERTY_PARALLEL_THRESHOLD = "unitils.reflectionassert.parallelThreshold";
+
+    /**
+     * Comparator that is used to determine whether values are leaf values.
+     */
+    protected static final Comparator LEAF_VALUES_COMPARATOR = new SimpleCasesComparator();
+
+    /**
+     * Marker that is stored in the cache of equality checks for values that are not equal.
+     */
+    protected static final Difference NOT_EQUAL = new Difference("Not equal", null, null);
+
+    /**
+     * The comparator chain. This chain is shared and should not be modified.
      */
     protected List<Comparator> comparators;
 
     /**
-     * A cache of results, so that comparisons are only performed once and infinite loops because of cycles are avoided
-     * A different cache is used dependent on whether only the first difference is required or whether we need all
-     * differences, since the resulting {@link Difference} objects differ. 
+     * The table for finding the comparator of the chain that should compare 2 values.
+     */
+    protected ComparatorDispatchTable comparatorDispatchTable;
+
+    /**
+     * The max nr of results to cache before finished results are evicted.
+     */
+    protected int maxCacheSize;
+
+    /**
+     * True if also the results of leaf values, values that are compared without inner comparisons, should be cached.
+     */
+    protected boolean cacheLeafValues = false;
+
+    /**
+     * The min size of collections of which the elements are compared in parallel, 0 to disable.
+     */
+    protected int parallelThreshold = Integer.getInteger(PROPERTY_PARALLEL_THRESHOLD, 0);
+
+    /**
+     * The strict comparator for comparing map keys, lazily created and shared by all map comparisons of this comparator.
+     */
+    protected volatile ReflectionComparator keyReflectionComparator;
+
+    /**
+     * The fields that take part in the comparison per class, looked up once for all comparisons of this comparator.
      */
-    protected Map<Object, Map<Object, Difference>> firstDifferenceCachedResults = new IdentityHashMap<Object, Map<Object, Difference>>();
-    protected Map<Object, Map<Object, Difference>> allDifferencesCachedResults = new IdentityHashMap<Object, Map<Object, Difference>>();
+    protected ComparedFieldsCache comparedFieldsCache = new ComparedFieldsCache();
+
+    /**
+     * The state of the comparison that is in progress, per thread. This way a comparator can be used by different
+     * threads at the same time.
+     */
+    protected ThreadLocal<ComparisonState> comparisonStates = new ThreadLocal<ComparisonState>() {
+        @Override
+        protected ComparisonState initialValue() {
+            return new ComparisonState(maxCacheSize);
+        }
+    };
 
 
     /**
@@ -63,20 +131,96 @@ public class ReflectionComparator {
      * @param comparators The comparator chain, not null
      */
     public ReflectionComparator(List<Comparator> comparators) {
-        this.comparators = comparators;
+        this(comparators, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+
+    /**
+     * Creates a comparator that will use the given chain.
+     *
+     * @param comparators  The comparator chain, not null
+     * @param maxCacheSize The max nr of results to cache before finished results are evicted
+     */
+    public ReflectionComparator(List<Comparator> comparators, int maxCacheSize) {
+        this(new ComparatorDispatchTable(comparators), maxCacheSize);
+    }
+
+
+    /**
+     * Creates a comparator that will use the chain of the given dispatch table. The table can be shared by
+     * different comparators.
+     *
+     * @param comparatorDispatchTable The dispatch table for the comparator chain, not null
+     * @param maxCacheSize            The max nr of results to cache before finished results are evicted
+     */
+    public ReflectionComparator(ComparatorDispatchTable comparatorDispatchTable, int maxCacheSize) {
+        this.comparatorDispatchTable = comparatorDispatchTable;
+        this.comparators = comparatorDispatchTable.getComparators();
+        this.maxCacheSize = maxCacheSize;
     }
 
 
     /**
      * Checks whether there is no difference between the left and right objects.
+     * <p/>
+     * The outcome is the same as for {@link #getDifference}, but no differences are created: the comparison stops
+     * at the first values that do not match. Results are cached in the same way as for getDifference.
      *
      * @param left  the left instance
      * @param right the right instance
      * @return true if there is no difference, false otherwise
      */
     public boolean isEqual(Object left, Object right) {
-        Difference difference = getDifference(left, right, true);
-        return difference == null;
+        ComparisonState comparisonState = comparisonStates.get();
+        comparisonState.depth++;
+        try {
+            return isEqual(left, right, comparisonState);
+        } finally {
+            if (--comparisonState.depth == 0) {
+                comparisonState.clear();
+            }
+        }
+    }
+
+
+    /**
+     * Performs the actual equality check, see {@link #isEqual(Object, Object)}.
+     * <p/>
+     * Comparators that do not implement {@link ProbingComparator} are asked for the first difference instead.
+     *
+     * @param left            the left instance
+     * @param right           the right instance
+     * @param comparisonState the state of the current comparison, not null
+     * @return true if there is no difference, false otherwise
+     */
+    protected boolean isEqual(Object left, Object right, ComparisonState comparisonState) {
+        boolean cacheResult = cacheLeafValues || !isLeafValue(left, right);
+
+        // check whether outcome is available in cache, pairs in progress are considered equal
+        DifferenceCache cachedResults = comparisonState.equalityCachedResults;
+        if (cacheResult) {
+            if (cachedResults.contains(left, right)) {
+                return cachedResults.get(left, right) == null;
+            }
+            cachedResults.putInProgress(left, right);
+        }
+
+        Comparator comparator = comparatorDispatchTable.getComparator(left, right);
+        if (comparator == null) {
+            throw new UnitilsException("Could not determine differences. No comparator found that is able to compare the values. Left: " + left + ", right " + right);
+        }
+        boolean result;
+        if (comparator instanceof ProbingComparator) {
+            result = ((ProbingComparator) comparator).isEqual(left, right, this);
+        } else {
+            result = comparator.compare(left, right, true, this) == null;
+        }
+
+        // register outcome in cache
+        if (cacheResult) {
+            cachedResults.put(left, right, result ? null : NOT_EQUAL);
+        }
+        return result;
     }
 
 
@@ -95,6 +239,10 @@ public class ReflectionComparator {
     /**
      * Checks whether there are differences between the left and right objects. This will return the root difference
      * of the whole difference tree containing all the differences between the objects.
+     * <p/>
+     * The results of inner comparisons are cached for the duration of the outermost call. Once that call returns,
+     * the cache is cleared, so that the next call does not return results for instances that may have changed in
+     * the meantime.
      *
      * @param left                the left instance
      * @param right               the right instance
@@ -102,53 +250,235 @@ public class ReflectionComparator {
      * @return the root difference, null if there is no difference
      */
     public Difference getDifference(Object left, Object right, boolean onlyFirstDifference) {
+        ComparisonState comparisonState = comparisonStates.get();
+        comparisonState.depth++;
+        try {
+            return getDifference(left, right, onlyFirstDifference, comparisonState);
+        } finally {
+            if (--comparisonState.depth == 0) {
+                comparisonState.clear();
+            }
+        }
+    }
+
+
+    /**
+     * Performs the actual comparison, see {@link #getDifference(Object, Object, boolean)}.
+     *
+     * @param left                the left instance
+     * @param right               the right instance
+     * @param onlyFirstDifference True if the comparison should stop at the first differnece
+     * @param comparisonState     the state of the current comparison, not null
+     * @return the root difference, null if there is no difference
+     */
+    protected Difference getDifference(Object left, Object right, boolean onlyFirstDifference, ComparisonState comparisonState) {
+        // leaf values are cheap to compare, caching them would only cost memory
+        boolean cacheResult = cacheLeafValues || !isLeafValue(left, right);
+
         // check whether difference is available in cache
-        Map<Object, Difference> cachedResult = getCachedDifference(left, onlyFirstDifference);
-        if (cachedResult != null) {
-            if (cachedResult.containsKey(right)) {
+        DifferenceCache cachedResults = comparisonState.getCachedResults(onlyFirstDifference);
+        if (cacheResult) {
+            if (cachedResults.contains(left, right)) {
                 // found difference in cache, return cached value
-                return cachedResult.get(right);
-            }
-        } else {
-            cachedResult = new IdentityHashMap<Object, Difference>();
-            saveResultInCache(left, cachedResult, onlyFirstDifference);
-        }
-        cachedResult.put(right, null);
-
-        // perform actual comparison by iterating over the comparators
-        boolean compared = false;
-        Difference result = null;
-        for (Comparator comparator : comparators) {
-            if (comparator.canCompare(left, right)) {
-                result = comparator.compare(left, right, onlyFirstDifference, this);
-                compared = true;
-                break;
+                return cachedResults.get(left, right);
             }
+            cachedResults.putInProgress(left, right);
         }
 
-        // check whether a suitable comparator was found
-        if (!compared) {
+        // find the comparator of the chain and perform actual comparison
+        Comparator comparator = comparatorDispatchTable.getComparator(left, right);
+        if (comparator == null) {
             throw new UnitilsException("Could not determine differences. No comparator found that is able to compare the values. Left: " + left + ", right " + right);
         }
+        Difference result = comparator.compare(left, right, onlyFirstDifference, this);
 
         // register outcome in cache
-        cachedResult.put(right, result);
+        if (cacheResult) {
+            cachedResults.put(left, right, result);
+        }
         return result;
     }
 
-    protected void saveResultInCache(Object left, Map<Object, Difference> cachedResult, boolean onlyFirstDifference) {
-        if (onlyFirstDifference) {
-            firstDifferenceCachedResults.put(left, cachedResult);
-        } else {
-            allDifferencesCachedResults.put(left, cachedResult);
+
+    /**
+     * Checks whether there are differences between the left and right objects, as part of a comparison that is in
+     * progress on another thread. This is used to compare the elements of collections in parallel.
+     * <p/>
+     * The pairs that are in progress on the other thread are also considered equal on this thread, as they would be
+     * if the values were compared on the other thread itself. This way, values that refer back to the objects that
+     * contain them, e.g. children referring to their parent, give the same differences.
+     *
+     * @param left            the left instance
+     * @param right           the right instance
+     * @param pairsInProgress the pairs in progress on the other thread, see {@link #copyPairsInProgress}, not null
+     * @return the root difference, null if there is no difference
+     */
+    public Difference getDifference(Object left, Object right, ComparisonState pairsInProgress) {
+        ComparisonState comparisonState = comparisonStates.get();
+        if (comparisonState.depth == 0) {
+            comparisonState.putInProgress(pairsInProgress);
+        }
+        comparisonState.depth++;
+        try {
+            return getDifference(left, right, false, comparisonState);
+        } finally {
+            if (--comparisonState.depth == 0) {
+                comparisonState.clear();
+            }
         }
     }
 
-    protected Map<Object, Difference> getCachedDifference(Object left, boolean onlyFirstDifference) {
-        if (onlyFirstDifference) {
-            return firstDifferenceCachedResults.get(left);
-        } else {
-            return allDifferencesCachedResults.get(left);
+
+    /**
+     * Creates a copy of the pairs of which the comparison is in progress on the current thread, so that
+     * comparisons can be continued on other threads, see {@link #getDifference(Object, Object, ComparisonState)}.
+     *
+     * @return The pairs in progress, not null
+     */
+    public ComparisonState copyPairsInProgress() {
+        ComparisonState pairsInProgress = new ComparisonState(maxCacheSize);
+        pairsInProgress.putInProgress(comparisonStates.get());
+        return pairsInProgress;
+    }
+
+
+    /**
+     * Removes all cached results of the current thread. Normally this is not needed: the cache is cleared
+     * automatically when the outermost comparison returns.
+     */
+    public void clearCache() {
+        comparisonStates.get().clear();
+    }
+
+
+    /**
+     * Enables or disables caching of leaf values, values that are compared without inner comparisons such as
+     * numbers, strings, dates or nulls. By default these are not cached.
+     *
+     * @param cacheLeafValues True to also cache the results of leaf values
+     */
+    public void setCacheLeafValues(boolean cacheLeafValues) {
+        this.cacheLeafValues = cacheLeafValues;
+    }
+
+
+    /**
+     * Enables parallel comparison of the elements of large collections and arrays. This is only used when all
+     * differences are needed, e.g. to build the report of a failing assertion. The pairs that are being compared
+     * when the elements are handed to the pool threads are considered equal on these threads as well, so the outcome
+     * is the same as for a sequential comparison, also when the elements refer back to the objects that contain them.
+     * By default, the value of the {@link #PROPERTY_PARALLEL_THRESHOLD} system property
+     * is used.
+     *
+     * @param parallelThreshold The min size of collections to compare in parallel, 0 to disable
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+
+    /**
+     * Checks whether the elements of collections of the given size should be compared in parallel. Comparisons
+     * that are already running in parallel are not split up any further.
+     *
+     * @param size The size of the largest collection
+     * @return True to compare in parallel
+     */
+    public boolean isParallelComparison(int size) {
+        return parallelThreshold > 0 && size >= parallelThreshold && !ParallelDifferenceCalculator.isPoolThread();
+    }
+
+
+    /**
+     * Gets the comparator to use for comparing the keys of maps. Keys are always compared strictly. The same
+     * instance is returned for all map comparisons.
+     *
+     * @return The strict comparator, not null
+     */
+    public ReflectionComparator getKeyReflectionComparator() {
+        if (keyReflectionComparator == null) {
+            keyReflectionComparator = ReflectionComparatorFactory.createRefectionComparator();
+        }
+        return keyReflectionComparator;
+    }
+
+
+    /**
+     * Gets the fields of the given class that should be compared, see {@link ComparedFieldsCache#getComparedFields}.
+     * The fields are looked up only once per class.
+     *
+     * @param clazz The class, not null
+     * @return The fields, not null
+     */
+    public Field[] getComparedFields(Class<?> clazz) {
+        return comparedFieldsCache.getComparedFields(clazz);
+    }
+
+
+    /**
+     * Checks whether the given values are leaf values: values that are compared as a whole by the
+     * {@link SimpleCasesComparator} or one of the leniency comparators, without performing inner comparisons.
+     *
+     * @param left  The left value
+     * @param right The right value
+     * @return True for leaf values
+     */
+    protected boolean isLeafValue(Object left, Object right) {
+        return LEAF_VALUES_COMPARATOR.canCompare(left, right);
+    }
+
+
+    /**
+     * The state of a comparison: the cached results and the depth of the nested comparisons.
+     */
+    public static class ComparisonState {
+
+        /**
+         * A cache of results, so that comparisons are only performed once and infinite loops because of cycles are avoided
+         * A different cache is used dependent on whether only the first difference is required or whether we need all
+         * differences, since the resulting {@link Difference} objects differ.
+         */
+        protected DifferenceCache firstDifferenceCachedResults;
+        protected DifferenceCache allDifferencesCachedResults;
+
+        /**
+         * A cache of the outcomes of equality checks, containing the NOT_EQUAL marker for values that are not equal.
+         */
+        protected DifferenceCache equalityCachedResults;
+
+        /**
+         * The nr of nested getDifference and isEqual calls in progress, 0 if no comparison is in progress.
+         */
+        protected int depth;
+
+
+        public ComparisonState(int maxCacheSize) {
+            this.firstDifferenceCachedResults = new DifferenceCache(maxCacheSize);
+            this.allDifferencesCachedResults = new DifferenceCache(maxCacheSize);
+            this.equalityCachedResults = new DifferenceCache(maxCacheSize);
+        }
+
+
+        public DifferenceCache getCachedResults(boolean onlyFirstDifference) {
+            if (onlyFirstDifference) {
+                return firstDifferenceCachedResults;
+            } else {
+                return allDifferencesCachedResults;
+            }
+        }
+
+
+        public void putInProgress(ComparisonState comparisonState) {
+            firstDifferenceCachedResults.putInProgress(comparisonState.firstDifferenceCachedResults);
+            allDifferencesCachedResults.putInProgress(comparisonState.allDifferencesCachedResults);
+            equalityCachedResults.putInProgress(comparisonState.equalityCachedResults);
+        }
+
+
+        public void clear() {
+            firstDifferenceCachedResults.clear();
+            allDifferencesCachedResults.clear();
+            equalityCachedResults.clear();
         }
     }
 }
@@ -18,9 +18,11 @@ package org.unitils.reflectionassert;
 import static org.unitils.reflectionassert.ReflectionComparatorMode.*;
 import org.unitils.reflectionassert.comparator.Comparator;
 import org.unitils.reflectionassert.comparator.impl.*;
-import static org.unitils.util.CollectionUtils.asSet;
+import org.unitils.reflectionassert.util.ComparatorDispatchTable;
 
+import static java.util.Collections.unmodifiableList;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 
@@ -69,6 +71,16 @@ public class ReflectionComparatorFactory {
      */
     protected static final Comparator LENIENT_ORDER_COMPARATOR = new LenientOrderCollectionComparator();
 
+    /**
+     * The LenientOrderPrimitiveArrayComparator singleton insance
+     */
+    protected static final Comparator LENIENT_ORDER_PRIMITIVE_ARRAY_COMPARATOR = new LenientOrderPrimitiveArrayComparator();
+
+    /**
+     * The PrimitiveArrayComparator singleton insance
+     */
+    protected static final Comparator PRIMITIVE_ARRAY_COMPARATOR = new PrimitiveArrayComparator();
+
     /**
      * The CollectionComparator singleton insance
      */
@@ -89,17 +101,63 @@ public class ReflectionComparatorFactory {
      */
     protected static final Comparator OBJECT_COMPARATOR = new ObjectComparator();
 
+    /**
+     * The dispatch tables of the unmodifiable comparator chains for all combinations of modes. The index of a chain
+     * is the combination of the modes as bit flags, the ordinal of the mode being the bit index.
+     */
+    protected static final List<ComparatorDispatchTable> COMPARATOR_CHAINS = createComparatorChains();
+
 
     /**
      * Creates a reflection comparator for the given modes.
      * If no mode is given, a strict comparator will be created.
+     * <p/>
+     * The comparator chains and their dispatch tables are created only once and shared by all reflection comparators.
      *
      * @param modes The modes, null for strict comparison
      * @return The reflection comparator, not null
      */
     public static ReflectionComparator createRefectionComparator(ReflectionComparatorMode... modes) {
-        List<Comparator> comparators = getComparatorChain(asSet(modes));
-        return new ReflectionComparator(comparators);
+        ComparatorDispatchTable comparatorDispatchTable = COMPARATOR_CHAINS.get(getChainIndex(modes));
+        return new ReflectionComparator(comparatorDispatchTable, ReflectionComparator.DEFAULT_MAX_CACHE_SIZE);
+    }
+
+
+    /**
+     * Gets the index of the comparator chain for the given modes.
+     *
+     * @param modes The modes, null for strict comparison
+     * @return The index in the chains
+     */
+    protected static int getChainIndex(ReflectionComparatorMode... modes) {
+        int index = 0;
+        if (modes != null) {
+            for (ReflectionComparatorMode mode : modes) {
+                index |= 1 << mode.ordinal();
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * Creates the comparator chains for all combinations of modes.
+     *
+     * @return The dispatch tables of the unmodifiable chains, not null
+     */
+    protected static List<ComparatorDispatchTable> createComparatorChains() {
+        ReflectionComparatorMode[] allModes = ReflectionComparatorMode.values();
+        List<ComparatorDispatchTable> comparatorChains = new ArrayList<ComparatorDispatchTable>();
+        for (int index = 0; index < 1 << allModes.length; index++) {
+            Set<ReflectionComparatorMode> modes = EnumSet.noneOf(ReflectionComparatorMode.class);
+            for (ReflectionComparatorMode mode : allModes) {
+                if ((index & 1 << mode.ordinal()) != 0) {
+                    modes.add(mode);
+                }
+            }
+            comparatorChains.add(new ComparatorDispatchTable(unmodifiableList(getComparatorChain(modes))));
+        }
+        return comparatorChains;
     }
 
 
@@ -121,8 +179,10 @@ public class ReflectionComparatorFactory {
         comparatorChain.add(LENIENT_NUMBER_COMPARATOR);
         comparatorChain.add(SIMPLE_CASES_COMPARATOR);
         if (modes.contains(LENIENT_ORDER)) {
+            comparatorChain.add(LENIENT_ORDER_PRIMITIVE_ARRAY_COMPARATOR);
             comparatorChain.add(LENIENT_ORDER_COMPARATOR);
         } else {
+            comparatorChain.add(PRIMITIVE_ARRAY_COMPARATOR);
             comparatorChain.add(COLLECTION_COMPARATOR);
         }
         comparatorChain.add(MAP_COMPARATOR);
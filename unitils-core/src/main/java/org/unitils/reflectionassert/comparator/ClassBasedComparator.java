@@ -0,0 +1,31 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.comparator;
+
+/**
+ * Marker interface for comparators of which the outcome of canCompare only depends on the classes of the values,
+ * if both values are not null and not the same instance.
+ * <p/>
+ * For these comparators, the reflection comparator remembers which comparator of the chain handles a pair of classes,
+ * so that the chain does not have to be walked again for every pair of values. Comparators that also look at the
+ * values themselves, such as the IgnoreDefaultsComparator, should not implement this interface: these are asked
+ * every time.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public interface ClassBasedComparator extends Comparator {
+}
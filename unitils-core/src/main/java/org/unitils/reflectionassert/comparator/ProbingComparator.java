@@ -0,0 +1,47 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.comparator;
+
+import org.unitils.reflectionassert.ReflectionComparator;
+
+/**
+ * Interface for comparators that can also check whether 2 objects are equal without determining the difference.
+ * <p/>
+ * This is used when only the outcome of the comparison is needed, e.g. for argument matching or for an assertion
+ * that succeeds. No difference objects are created and the comparison stops at the first element or field that
+ * does not match. The outcome should always be the same as the outcome of the compare method.
+ * <p/>
+ * Comparators that do not implement this interface are asked for their first difference instead.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public interface ProbingComparator extends Comparator {
+
+
+    /**
+     * Checks whether the given objects are equal. This should only be called if canCompare returned true.
+     * <p/>
+     * Inner comparisons should be performed using the isEqual method of the given reflection comparator.
+     *
+     * @param left                 The left object
+     * @param right                The right object
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if there is no difference, false otherwise
+     */
+    boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator);
+
+}
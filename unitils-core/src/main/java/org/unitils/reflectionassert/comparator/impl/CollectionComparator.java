@@ -16,11 +16,14 @@
 package org.unitils.reflectionassert.comparator.impl;
 
 import org.unitils.reflectionassert.ReflectionComparator;
-import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
 import org.unitils.reflectionassert.difference.CollectionDifference;
 import org.unitils.reflectionassert.difference.Difference;
+import org.unitils.reflectionassert.util.ParallelDifferenceCalculator;
 import static org.unitils.util.CollectionUtils.convertToCollection;
 
+import static java.lang.Math.max;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -30,11 +33,14 @@ import java.util.List;
  * Comparator for collections and arrays.
  * All elements are compared in the same order, i.e. element 1 of the left collection with element 1 of the
  * right collection and so on.
+ * <p/>
+ * When all differences are needed, the elements of large collections can be compared in parallel, see
+ * {@link ReflectionComparator#setParallelThreshold}.
  *
  * @author Tim Ducheyne
  * @author Filip Neven
  */
-public class CollectionComparator implements Comparator {
+public class CollectionComparator implements ClassBasedComparator, ProbingComparator {
 
 
     /**
@@ -72,6 +78,10 @@ public class CollectionComparator implements Comparator {
         int elementIndex = -1;
         CollectionDifference difference = new CollectionDifference("Different elements", left, right, leftList, rightList);
 
+        if (!onlyFirstDifference && reflectionComparator.isParallelComparison(max(leftList.size(), rightList.size()))) {
+            return compareInParallel(leftList, rightList, reflectionComparator, difference);
+        }
+
         Iterator<?> leftIterator = leftList.iterator();
         Iterator<?> rightIterator = rightList.iterator();
         while (leftIterator.hasNext() && rightIterator.hasNext()) {
@@ -87,21 +97,95 @@ public class CollectionComparator implements Comparator {
         }
 
         // check for missing elements 
-        int leftElementIndex = elementIndex;
-        while (leftIterator.hasNext()) {
-            leftIterator.next();
-            difference.addLeftMissingIndex(++leftElementIndex);
+        addMissingIndexes(leftList, rightList, elementIndex, difference);
+        return getDifference(difference);
+    }
+
+
+    /**
+     * Checks whether the given collections/arrays have the same size and contain equal elements in the same order.
+     * The elements are not copied and the check stops at the first element that differs.
+     *
+     * @param left                 The left collection/array, not null
+     * @param right                The right collection/array, not null
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if both collections are equal
+     */
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        Collection<?> leftCollection = convertToCollection(left);
+        Collection<?> rightCollection = convertToCollection(right);
+        if (leftCollection.size() != rightCollection.size()) {
+            return false;
         }
-        int rightElementIndex = elementIndex;
-        while (rightIterator.hasNext()) {
-            rightIterator.next();
-            difference.addRightMissingIndex(++rightElementIndex);
+        Iterator<?> leftIterator = leftCollection.iterator();
+        Iterator<?> rightIterator = rightCollection.iterator();
+        while (leftIterator.hasNext() && rightIterator.hasNext()) {
+            if (!reflectionComparator.isEqual(leftIterator.next(), rightIterator.next())) {
+                return false;
+            }
         }
+        return true;
+    }
+
 
+    /**
+     * Compares all elements of the given lists in parallel.
+     *
+     * @param leftList             The left list, not null
+     * @param rightList            The right list, not null
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @param difference           The difference to add the element differences to, not null
+     * @return The given difference, null if both collections are equal
+     */
+    protected Difference compareInParallel(List<Object> leftList, List<Object> rightList, ReflectionComparator reflectionComparator, CollectionDifference difference) {
+        Difference[] elementDifferences = createParallelDifferenceCalculator().calculateElementDifferences(leftList, rightList, reflectionComparator);
+        for (int elementIndex = 0; elementIndex < elementDifferences.length; elementIndex++) {
+            if (elementDifferences[elementIndex] != null) {
+                difference.addElementDifference(elementIndex, elementDifferences[elementIndex]);
+            }
+        }
+        addMissingIndexes(leftList, rightList, elementDifferences.length - 1, difference);
+        return getDifference(difference);
+    }
+
+
+    /**
+     * Adds the indexes of the elements that are missing in the other collection.
+     *
+     * @param leftList        The left list, not null
+     * @param rightList       The right list, not null
+     * @param lastCommonIndex The index of the last element that is present in both lists, -1 if none
+     * @param difference      The difference to add the indexes to, not null
+     */
+    protected void addMissingIndexes(List<Object> leftList, List<Object> rightList, int lastCommonIndex, CollectionDifference difference) {
+        for (int leftIndex = lastCommonIndex + 1; leftIndex < leftList.size(); leftIndex++) {
+            difference.addLeftMissingIndex(leftIndex);
+        }
+        for (int rightIndex = lastCommonIndex + 1; rightIndex < rightList.size(); rightIndex++) {
+            difference.addRightMissingIndex(rightIndex);
+        }
+    }
+
+
+    /**
+     * @param difference The collection difference, not null
+     * @return The given difference, null if it does not contain any element differences or missing elements
+     */
+    protected Difference getDifference(CollectionDifference difference) {
         if (difference.getElementDifferences().isEmpty() && difference.getLeftMissingIndexes().isEmpty() && difference.getRightMissingIndexes().isEmpty()) {
             return null;
         }
         return difference;
     }
 
+
+    /**
+     * Creates the calculator for comparing the elements in parallel.
+     *
+     * @return The instance, not null
+     */
+    protected ParallelDifferenceCalculator createParallelDifferenceCalculator() {
+        return new ParallelDifferenceCalculator();
+    }
+
 }
@@ -16,7 +16,8 @@
 package org.unitils.reflectionassert.comparator.impl;
 
 import org.unitils.reflectionassert.ReflectionComparator;
-import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
 import org.unitils.reflectionassert.difference.Difference;
 import org.unitils.reflectionassert.difference.ObjectDifference;
 import static org.unitils.reflectionassert.util.HibernateUtil.*;
@@ -30,7 +31,7 @@ import static org.unitils.reflectionassert.util.HibernateUtil.*;
  * @author Filip Neven
  * @author Tim Peeters
  */
-public class HibernateProxyComparator implements Comparator {
+public class HibernateProxyComparator implements ClassBasedComparator, ProbingComparator {
 
 
     /**
@@ -84,4 +85,26 @@ public class HibernateProxyComparator implements Comparator {
     }
 
 
+    /**
+     * Checks whether the given objects are equal. Just as for the compare method, only the identifiers are compared
+     * if both objects are proxies that are not yet loaded.
+     *
+     * @param left                 The left object, not null
+     * @param right                The right object, not null
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if both objects are equal
+     */
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        if (isUninitialized(left) && isUninitialized(right)) {
+            String leftType = getEntitiyName(left);
+            String rightType = getEntitiyName(right);
+            if (leftType == null || !leftType.equals(rightType)) {
+                return false;
+            }
+            return reflectionComparator.isEqual(getIdentifier(left), getIdentifier(right));
+        }
+        return reflectionComparator.isEqual(getUnproxiedValue(left), getUnproxiedValue(right));
+    }
+
+
 }
\ No newline at end of file
@@ -16,7 +16,8 @@
 package org.unitils.reflectionassert.comparator.impl;
 
 import org.unitils.reflectionassert.ReflectionComparator;
-import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
 import org.unitils.reflectionassert.difference.Difference;
 
 import java.util.Date;
@@ -29,7 +30,7 @@ import java.util.Date;
  * @author Tim Ducheyne
  * @author Filip Neven
  */
-public class LenientDatesComparator implements Comparator {
+public class LenientDatesComparator implements ClassBasedComparator, ProbingComparator {
 
 
     /**
@@ -68,4 +69,17 @@ public class LenientDatesComparator implements Comparator {
         }
         return null;
     }
+
+
+    /**
+     * Checks whether the given dates are both instantiated or both null.
+     *
+     * @param left                 The left date
+     * @param right                The right date
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return False if one of the dates is null and the other one not, else true
+     */
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        return !((right == null && left instanceof Date) || (left == null && right instanceof Date));
+    }
 }
@@ -18,7 +18,8 @@
 package org.unitils.reflectionassert.comparator.impl;
 
 import org.unitils.reflectionassert.ReflectionComparator;
-import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
 import org.unitils.reflectionassert.difference.Difference;
 
 /**
@@ -28,7 +29,7 @@ import org.unitils.reflectionassert.difference.Difference;
  * @author Tim Ducheyne
  * @author Filip Neven
  */
-public class LenientNumberComparator implements Comparator {
+public class LenientNumberComparator implements ClassBasedComparator, ProbingComparator {
 
 
     /**
@@ -74,6 +75,22 @@ public class LenientNumberComparator implements Comparator {
     }
 
 
+    /**
+     * Checks whether the two values are equal by converting them to a double and comparing these double values.
+     *
+     * @param left                 The left Number or Character, not null
+     * @param right                The right Number or Character, not null
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if both values are equal
+     */
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        if (left instanceof Long && right instanceof Long) {
+            return left.equals(right);
+        }
+        return getDoubleValue(left).equals(getDoubleValue(right));
+    }
+
+
     /**
      * Gets the double value for the given left Character or Number instance.
      *
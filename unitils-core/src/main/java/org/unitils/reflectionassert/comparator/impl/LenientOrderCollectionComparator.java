@@ -16,16 +16,29 @@
 package org.unitils.reflectionassert.comparator.impl;
 
 import org.unitils.reflectionassert.ReflectionComparator;
-import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
 import org.unitils.reflectionassert.difference.Difference;
 import org.unitils.reflectionassert.difference.UnorderedCollectionDifference;
 import org.unitils.reflectionassert.util.MatchingScoreCalculator;
+import org.unitils.reflectionassert.util.MaximumMatchingCalculator;
+import org.unitils.reflectionassert.util.ParallelDifferenceCalculator;
 import static org.unitils.util.CollectionUtils.convertToCollection;
 
+import static java.lang.Math.max;
+import static java.lang.System.identityHashCode;
+import java.lang.reflect.Field;
+import static java.lang.reflect.Array.getLength;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
 
 /**
@@ -36,8 +49,10 @@ import java.util.Map;
  * @author Tim Ducheyne
  * @author Filip Neven
  */
-public class LenientOrderCollectionComparator implements Comparator {
+public class LenientOrderCollectionComparator implements ClassBasedComparator, ProbingComparator {
 
+    /* The key for null elements */
+    private static final Object NULL_KEY = new Object();
 
     /**
      * Returns true if both objects are not null and are both Arrays or Collections.
@@ -59,7 +74,7 @@ public class LenientOrderCollectionComparator implements Comparator {
 
     /**
      * Compares the given collections/arrays but ignoring the actual order of the elements.
-     * This will first try to find a sequence that is an exact match. If no such sequence can be found,
+     * This will first try to find a pairing of all elements that is an exact match. If no such pairing can be found,
      * the difference of all elements with all other elements are calculated one by one.
      *
      * @param left                 The left array/collection, not null
@@ -74,7 +89,7 @@ public class LenientOrderCollectionComparator implements Comparator {
         ArrayList<Object> rightList = new ArrayList<Object>(convertToCollection(right));
 
         // check whether a combination exists
-        boolean isEqual = isEqual(leftList, rightList, 0, reflectionComparator);
+        boolean isEqual = isEqual(leftList, rightList, reflectionComparator);
         if (isEqual) {
             // found a match
             return null;
@@ -92,48 +107,268 @@ public class LenientOrderCollectionComparator implements Comparator {
 
 
     /**
-     * Recursively checks whether there is a sequence so that both collections have matching elements.
-     * This will loop over the elements of the left list and then try to find a match for these elements in the right
-     * list. If a match is found, the element is removed from the right collection and the comparison is recursively
-     * performed again on the remaining elements.
+     * Checks whether the given collections/arrays contain matching elements, ignoring the order. Collections that
+     * support fast random access are not copied.
+     *
+     * @param left                 The left array/collection, not null
+     * @param right                The right array/collection, not null
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if both collections are equal
+     */
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        return isEqual(toList(left), toList(right), reflectionComparator);
+    }
+
+
+    /**
+     * Checks whether there is a sequence so that both collections have matching elements.
+     * <p/>
+     * First, elements that are the same instance or equal immutable values (strings, enums, boxed integral
+     * primitives...) are paired off using a hash lookup. Such elements are interchangeable, so pairing them never
+     * prevents a complete match. The remaining elements are then paired greedily, trying the elements with the
+     * same {@link #getMatchingHint hint} first. If that does not pair all elements, a bipartite graph of matching
+     * elements is built and a maximum matching is calculated, starting from the greedy pairing. Both collections
+     * match if all elements could be paired.
      * <p/>
      * NOTE: because difference are cached in the reflection comparator, comparing two elements that were already
      * compared should be very fast.
      *
      * @param leftList             The left list, not null
      * @param rightList            The right list, not null
-     * @param leftIndex            The current index in the left collection
      * @param reflectionComparator reflectionComparator The comparator for the element comparisons, not null
      * @return True if a match is found
      */
-    @SuppressWarnings({"unchecked"})
-    protected boolean isEqual(ArrayList<Object> leftList, ArrayList<Object> rightList, int leftIndex, ReflectionComparator reflectionComparator) {
-        if (leftIndex >= leftList.size()) {
-            // end of the recursion
-            // if there are no more elements left in the right and left collections, a match is found
-            return (rightList.isEmpty());
+    protected boolean isEqual(List<Object> leftList, List<Object> rightList, ReflectionComparator reflectionComparator) {
+        if (leftList.size() != rightList.size()) {
+            return false;
         }
 
-        Object leftValue = leftList.get(leftIndex);
+        // pair off identical and equal value elements
+        Map<Object, LinkedList<Integer>> rightIndexesPerKey = new HashMap<Object, LinkedList<Integer>>();
+        for (int rightIndex = 0; rightIndex < rightList.size(); rightIndex++) {
+            Object key = getMatchingKey(rightList.get(rightIndex));
+            LinkedList<Integer> rightIndexes = rightIndexesPerKey.get(key);
+            if (rightIndexes == null) {
+                rightIndexes = new LinkedList<Integer>();
+                rightIndexesPerKey.put(key, rightIndexes);
+            }
+            rightIndexes.add(rightIndex);
+        }
+        boolean[] matchedRightIndexes = new boolean[rightList.size()];
+        List<Object> remainingLeftValues = new ArrayList<Object>();
+        for (Object leftValue : leftList) {
+            LinkedList<Integer> rightIndexes = rightIndexesPerKey.get(getMatchingKey(leftValue));
+            if (rightIndexes == null || rightIndexes.isEmpty()) {
+                remainingLeftValues.add(leftValue);
+                continue;
+            }
+            matchedRightIndexes[rightIndexes.removeFirst()] = true;
+        }
+        if (remainingLeftValues.isEmpty()) {
+            return true;
+        }
+        List<Object> remainingRightValues = new ArrayList<Object>(remainingLeftValues.size());
         for (int rightIndex = 0; rightIndex < rightList.size(); rightIndex++) {
-            Object rightValue = rightList.get(rightIndex);
+            if (!matchedRightIndexes[rightIndex]) {
+                remainingRightValues.add(rightList.get(rightIndex));
+            }
+        }
 
-            Difference elementDifference = reflectionComparator.getDifference(leftValue, rightValue, true);
-            if (elementDifference != null) {
-                // elements are not matching
+        // greedily pair the remaining elements, trying the elements with the same hint first
+        int size = remainingLeftValues.size();
+        Map<Integer, LinkedList<Integer>> rightIndexesPerHint = new HashMap<Integer, LinkedList<Integer>>();
+        for (int rightIndex = 0; rightIndex < size; rightIndex++) {
+            Integer hint = getMatchingHint(remainingRightValues.get(rightIndex), reflectionComparator);
+            LinkedList<Integer> rightIndexes = rightIndexesPerHint.get(hint);
+            if (rightIndexes == null) {
+                rightIndexes = new LinkedList<Integer>();
+                rightIndexesPerHint.put(hint, rightIndexes);
+            }
+            rightIndexes.add(rightIndex);
+        }
+        int[] leftPairs = new int[size];
+        int[] rightPairs = new int[size];
+        fill(leftPairs, -1);
+        fill(rightPairs, -1);
+        boolean allPaired = true;
+        for (int leftIndex = 0; leftIndex < size; leftIndex++) {
+            Object leftValue = remainingLeftValues.get(leftIndex);
+            LinkedList<Integer> rightIndexes = rightIndexesPerHint.get(getMatchingHint(leftValue, reflectionComparator));
+            if (rightIndexes != null) {
+                Iterator<Integer> rightIterator = rightIndexes.iterator();
+                while (rightIterator.hasNext()) {
+                    int rightIndex = rightIterator.next();
+                    if (rightPairs[rightIndex] != -1) {
+                        rightIterator.remove();
+                    } else if (reflectionComparator.isEqual(leftValue, remainingRightValues.get(rightIndex))) {
+                        leftPairs[leftIndex] = rightIndex;
+                        rightPairs[rightIndex] = leftIndex;
+                        rightIterator.remove();
+                        break;
+                    }
+                }
+            }
+            if (leftPairs[leftIndex] != -1) {
                 continue;
             }
+            // no match with the same hint, try all elements starting at the same position
+            boolean matchFound = false;
+            for (int i = 0; i < size; i++) {
+                int rightIndex = (leftIndex + i) % size;
+                if (!reflectionComparator.isEqual(leftValue, remainingRightValues.get(rightIndex))) {
+                    continue;
+                }
+                matchFound = true;
+                if (rightPairs[rightIndex] == -1) {
+                    leftPairs[leftIndex] = rightIndex;
+                    rightPairs[rightIndex] = leftIndex;
+                    break;
+                }
+            }
+            if (!matchFound) {
+                // element without any match
+                return false;
+            }
+            allPaired &= leftPairs[leftIndex] != -1;
+        }
+        if (allPaired) {
+            return true;
+        }
+
+        // build the graph of matching elements and try to improve the greedy pairing
+        int[][] adjacency = new int[size][];
+        int[] matchingRightIndexes = new int[size];
+        for (int leftIndex = 0; leftIndex < size; leftIndex++) {
+            Object leftValue = remainingLeftValues.get(leftIndex);
+            int count = 0;
+            for (int rightIndex = 0; rightIndex < size; rightIndex++) {
+                if (reflectionComparator.isEqual(leftValue, remainingRightValues.get(rightIndex))) {
+                    matchingRightIndexes[count++] = rightIndex;
+                }
+            }
+            adjacency[leftIndex] = copyOf(matchingRightIndexes, count);
+        }
+        int matchingSize = createMaximumMatchingCalculator().calculateMaximumMatchingSize(adjacency, leftPairs, rightPairs);
+        return matchingSize == size;
+    }
+
+
+    /**
+     * Checks whether there is a sequence so that the elements of the left list, starting from the given index, match
+     * the elements of the right list.
+     *
+     * @param leftList             The left list, not null
+     * @param rightList            The right list, not null
+     * @param leftIndex            The index of the first left element to match
+     * @param reflectionComparator reflectionComparator The comparator for the element comparisons, not null
+     * @return True if a match is found
+     * @deprecated Use {@link #isEqual(List, List, ReflectionComparator)} instead
+     */
+    @Deprecated
+    protected boolean isEqual(ArrayList<Object> leftList, ArrayList<Object> rightList, int leftIndex, ReflectionComparator reflectionComparator) {
+        return isEqual(leftList.subList(leftIndex, leftList.size()), rightList, reflectionComparator);
+    }
 
-            // match found, try to find a match for the remaining elements
-            ArrayList<Object> rightListClone = (ArrayList<Object>) rightList.clone();
-            rightListClone.remove(rightIndex);
 
-            boolean isEqual = isEqual(leftList, rightListClone, leftIndex + 1, reflectionComparator);
-            if (isEqual) {
-                return true;
+    /**
+     * Converts the given collection/array to a list with fast random access. Lists that already support this are
+     * returned as is.
+     *
+     * @param object The array/collection, not null
+     * @return The list, not null
+     */
+    @SuppressWarnings("unchecked")
+    protected List<Object> toList(Object object) {
+        Collection<?> collection = convertToCollection(object);
+        if (collection instanceof List && collection instanceof RandomAccess) {
+            return (List<Object>) collection;
+        }
+        return new ArrayList<Object>(collection);
+    }
+
+
+    /**
+     * Gets the key used for pairing off elements before the actual matching is done. Elements with the same key
+     * are guaranteed to match: for immutable java.lang values (strings, booleans, characters, integral numbers and
+     * enums) the value itself is used, for all other elements the instance identity.
+     *
+     * @param value The element, can be null
+     * @return The key, not null
+     */
+    protected Object getMatchingKey(Object value) {
+        if (value == null) {
+            return NULL_KEY;
+        }
+        if (value instanceof String || value instanceof Boolean || value instanceof Character || value instanceof Byte ||
+                value instanceof Short || value instanceof Integer || value instanceof Long || value instanceof Enum) {
+            return value;
+        }
+        return new IdentityKey(value);
+    }
+
+
+    /**
+     * Gets a hint for pairing off elements: elements with the same hint are tried first when looking for a matching
+     * element. The hint only influences the order in which elements are compared, so it does not need to be exact.
+     * It is calculated out of the simple values of the element itself and, for other objects, out of the simple
+     * values of its fields. Numbers are hashed as doubles, so that lenient number comparison gets the same hints.
+     *
+     * @param value                The element, can be null
+     * @param reflectionComparator The root comparator, used to look up the fields, not null
+     * @return The hint
+     */
+    protected int getMatchingHint(Object value, ReflectionComparator reflectionComparator) {
+        if (value == null || isSimpleValue(value)) {
+            return getSimpleValueHint(value);
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size();
+        }
+        if (value.getClass().isArray()) {
+            return getLength(value);
+        }
+        int hint = 0;
+        for (Field field : reflectionComparator.getComparedFields(value.getClass())) {
+            try {
+                Object fieldValue = field.get(value);
+                if (isSimpleValue(fieldValue)) {
+                    hint = 31 * hint + getSimpleValueHint(fieldValue);
+                }
+            } catch (IllegalAccessException e) {
+                // field was made accessible, only influences the hint
             }
         }
-        return false;
+        return hint;
+    }
+
+
+    /**
+     * @param value The value, can be null
+     * @return True if the value is a number, character, java.lang type or enum
+     */
+    protected boolean isSimpleValue(Object value) {
+        return value instanceof Number || value instanceof Character || value instanceof Enum || (value != null && value.getClass().getName().startsWith("java.lang"));
+    }
+
+
+    /**
+     * @param value The simple value, can be null
+     * @return The hash code of the value, numbers and characters are hashed as doubles
+     */
+    protected int getSimpleValueHint(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return Double.valueOf(((Number) value).doubleValue()).hashCode();
+        }
+        if (value instanceof Character) {
+            return Double.valueOf((Character) value).hashCode();
+        }
+        return value.hashCode();
     }
 
 
@@ -143,6 +378,9 @@ public class LenientOrderCollectionComparator implements Comparator {
      * <p/>
      * NOTE: because difference are cached in the reflection comparator, comparing two elements that were already
      * compared should be very fast.
+     * <p/>
+     * For large collections, the differences can be calculated in parallel, see
+     * {@link ReflectionComparator#setParallelThreshold}. The differences are added in the same order.
      *
      * @param leftList             The left list, not null
      * @param rightList            The right list, not null
@@ -150,6 +388,15 @@ public class LenientOrderCollectionComparator implements Comparator {
      * @param difference           The root difference to which all differences will be added, not null
      */
     protected void fillAllDifferences(ArrayList<Object> leftList, ArrayList<Object> rightList, ReflectionComparator reflectionComparator, UnorderedCollectionDifference difference) {
+        if (reflectionComparator.isParallelComparison(max(leftList.size(), rightList.size()))) {
+            Difference[][] elementDifferences = createParallelDifferenceCalculator().calculateAllDifferences(leftList, rightList, reflectionComparator);
+            for (int leftIndex = 0; leftIndex < leftList.size(); leftIndex++) {
+                for (int rightIndex = 0; rightIndex < rightList.size(); rightIndex++) {
+                    difference.addElementDifference(leftIndex, rightIndex, elementDifferences[leftIndex][rightIndex]);
+                }
+            }
+            return;
+        }
         // loops over all left and right elements to calculate the differences
         for (int leftIndex = 0; leftIndex < leftList.size(); leftIndex++) {
             Object leftValue = leftList.get(leftIndex);
@@ -226,6 +473,7 @@ public class LenientOrderCollectionComparator implements Comparator {
                 if (elementDifference == null) {
                     rightIterator.remove();
                     leftIterator.remove();
+                    break;
                 }
             }
         }
@@ -254,4 +502,51 @@ public class LenientOrderCollectionComparator implements Comparator {
     protected MatchingScoreCalculator createMatchingScoreCalculator() {
         return new MatchingScoreCalculator();
     }
+
+
+    /**
+     * Creates the calculator for determining whether all elements can be paired with a matching element.
+     *
+     * @return The instance, not null
+     */
+    protected MaximumMatchingCalculator createMaximumMatchingCalculator() {
+        return new MaximumMatchingCalculator();
+    }
+
+
+    /**
+     * Creates the calculator for calculating the differences in parallel.
+     *
+     * @return The instance, not null
+     */
+    protected ParallelDifferenceCalculator createParallelDifferenceCalculator() {
+        return new ParallelDifferenceCalculator();
+    }
+
+
+    /**
+     * Key that compares the wrapped instance by identity.
+     */
+    protected static class IdentityKey {
+
+        /* The wrapped instance */
+        private Object value;
+
+
+        public IdentityKey(Object value) {
+            this.value = value;
+        }
+
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof IdentityKey && ((IdentityKey) object).value == value;
+        }
+
+
+        @Override
+        public int hashCode() {
+            return identityHashCode(value);
+        }
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.comparator.impl;
+
+import org.unitils.reflectionassert.ReflectionComparator;
+import org.unitils.reflectionassert.difference.Difference;
+import static org.unitils.reflectionassert.util.PrimitiveArrayUtils.isPrimitiveArray;
+import static org.unitils.reflectionassert.util.PrimitiveArrayUtils.sortedArrayEquals;
+
+/**
+ * A comparator for arrays of primitive values of the same type that ignores the order of both arrays.
+ * Sorted copies of both arrays are compared, so there is no need to box the elements and to search for matching
+ * elements. Only if the sorted arrays are not equal, the arrays are compared as by the
+ * {@link LenientOrderCollectionComparator}: the elements can still match, e.g. when defaults are ignored, and else
+ * all differences are determined.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class LenientOrderPrimitiveArrayComparator extends LenientOrderCollectionComparator {
+
+
+    /**
+     * Returns true when both objects are primitive arrays of the same type.
+     *
+     * @param left  The left object
+     * @param right The right object
+     * @return True in case of primitive arrays of the same type
+     */
+    @Override
+    public boolean canCompare(Object left, Object right) {
+        if (left == null || right == null) {
+            return false;
+        }
+        return isPrimitiveArray(left) && left.getClass() == right.getClass();
+    }
+
+
+    /**
+     * Compares the given arrays but ignoring the actual order of the elements.
+     *
+     * @param left                 The left array, not null
+     * @param right                The right array, not null
+     * @param onlyFirstDifference  True if only the first difference should be returned
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return An UnorderedCollectionDifference or null if both arrays are equal
+     */
+    @Override
+    public Difference compare(Object left, Object right, boolean onlyFirstDifference, ReflectionComparator reflectionComparator) {
+        if (sortedArrayEquals(left, right)) {
+            return null;
+        }
+        return super.compare(left, right, onlyFirstDifference, reflectionComparator);
+    }
+
+
+    /**
+     * Checks whether the given arrays contain the same elements, ignoring the order.
+     *
+     * @param left                 The left array, not null
+     * @param right                The right array, not null
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if both arrays are equal
+     */
+    @Override
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        return sortedArrayEquals(left, right) || super.isEqual(left, right, reflectionComparator);
+    }
+
+}
@@ -16,13 +16,15 @@
 package org.unitils.reflectionassert.comparator.impl;
 
 import org.unitils.reflectionassert.ReflectionComparator;
-import static org.unitils.reflectionassert.ReflectionComparatorFactory.createRefectionComparator;
-import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
 import org.unitils.reflectionassert.difference.Difference;
 import org.unitils.reflectionassert.difference.MapDifference;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,8 +33,13 @@ import java.util.Map;
  * @author Tim Ducheyne
  * @author Filip Neven
  */
-public class MapComparator implements Comparator {
+public class MapComparator implements ClassBasedComparator, ProbingComparator {
 
+    /* The index key for null keys */
+    private static final Object NULL_KEY = new Object();
+
+    /* Returned when no matching key was found, since null is a valid key */
+    private static final Object NOT_FOUND = new Object();
 
     /**
      * Returns true when both values are not null and instance of Map
@@ -55,6 +62,9 @@ public class MapComparator implements Comparator {
     /**
      * Compares the given maps by looping over the keys and comparing their values.
      * The key values are compared using a strict reflection comparison.
+     * <p/>
+     * Keys that are strings, booleans, enums, numbers or characters are looked up directly using a hash index of the
+     * right keys. Only the remaining keys are matched by comparing them with all remaining right keys.
      *
      * @param left                 The left map, not null
      * @param right                The right map, not null
@@ -68,41 +78,29 @@ public class MapComparator implements Comparator {
 
         // Create copy from which we can remove elements.
         Map<Object, Object> rightCopy = new HashMap<Object, Object>(rightMap);
+        Map<Object, List<Object>> rightKeysPerIndexKey = createRightKeysPerIndexKey(rightCopy);
 
-        ReflectionComparator keyReflectionComparator = createRefectionComparator();
+        ReflectionComparator keyReflectionComparator = reflectionComparator.getKeyReflectionComparator();
         MapDifference difference = new MapDifference("Different elements", left, right, leftMap, rightMap);
 
         for (Map.Entry<?, ?> leftEntry : leftMap.entrySet()) {
             Object leftKey = leftEntry.getKey();
             Object leftValue = leftEntry.getValue();
 
-            boolean found = false;
-            Iterator<Map.Entry<Object, Object>> rightIterator = rightCopy.entrySet().iterator();
-            while (rightIterator.hasNext()) {
-                Map.Entry<Object, Object> rightEntry = rightIterator.next();
-                Object rightKey = rightEntry.getKey();
-                Object rightValue = rightEntry.getValue();
-
-                // compare keys using strict reflection compare
-                boolean isKeyEqual = keyReflectionComparator.isEqual(leftKey, rightKey);
-                if (isKeyEqual) {
-                    found = true;
-                    rightIterator.remove();
-
-                    // compare values
-                    Difference elementDifference = reflectionComparator.getDifference(leftValue, rightValue, onlyFirstDifference);
-                    if (elementDifference != null) {
-                        difference.addValueDifference(leftKey, elementDifference);
-                        if (onlyFirstDifference) {
-                            return difference;
-                        }
-                    }
-                    break;
-                }
+            Object rightKey = findRightKey(leftKey, rightCopy, rightKeysPerIndexKey, keyReflectionComparator);
+            if (rightKey == NOT_FOUND) {
+                difference.addLeftMissingKey(leftKey);
+                continue;
             }
+            Object rightValue = rightCopy.remove(rightKey);
 
-            if (!found) {
-                difference.addLeftMissingKey(leftKey);
+            // compare values
+            Difference elementDifference = reflectionComparator.getDifference(leftValue, rightValue, onlyFirstDifference);
+            if (elementDifference != null) {
+                difference.addValueDifference(leftKey, elementDifference);
+                if (onlyFirstDifference) {
+                    return difference;
+                }
             }
         }
 
@@ -115,4 +113,150 @@ public class MapComparator implements Comparator {
         }
         return difference;
     }
+
+
+    /**
+     * Checks whether the given maps contain the same keys with equal values. The keys are matched in the same way
+     * as by the compare method, the check stops at the first key or value that does not match.
+     *
+     * @param left                 The left map, not null
+     * @param right                The right map, not null
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if both maps are equal
+     */
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        Map<?, ?> leftMap = (Map<?, ?>) left;
+        Map<Object, Object> rightCopy = new HashMap<Object, Object>((Map<?, ?>) right);
+        // every left key needs its own right key
+        if (leftMap.size() != rightCopy.size()) {
+            return false;
+        }
+        Map<Object, List<Object>> rightKeysPerIndexKey = createRightKeysPerIndexKey(rightCopy);
+        ReflectionComparator keyReflectionComparator = reflectionComparator.getKeyReflectionComparator();
+
+        for (Map.Entry<?, ?> leftEntry : leftMap.entrySet()) {
+            Object rightKey = findRightKey(leftEntry.getKey(), rightCopy, rightKeysPerIndexKey, keyReflectionComparator);
+            if (rightKey == NOT_FOUND) {
+                return false;
+            }
+            if (!reflectionComparator.isEqual(leftEntry.getValue(), rightCopy.remove(rightKey))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Finds the key in the remaining right keys that is equal to the given left key using a strict reflection
+     * comparison. The found key is removed from the index.
+     * <p/>
+     * If the left key can be indexed, only the right keys with the same index key are compared. Other keys are
+     * compared with all remaining right keys.
+     *
+     * @param leftKey                 The left key, can be null
+     * @param rightCopy               The remaining right entries, not null
+     * @param rightKeysPerIndexKey    The index of the remaining right keys, not null
+     * @param keyReflectionComparator The strict comparator for the keys, not null
+     * @return The right key, NOT_FOUND if there is no matching key
+     */
+    protected Object findRightKey(Object leftKey, Map<Object, Object> rightCopy, Map<Object, List<Object>> rightKeysPerIndexKey, ReflectionComparator keyReflectionComparator) {
+        Object indexKey = getIndexKey(leftKey);
+        if (indexKey != null) {
+            List<Object> rightKeys = rightKeysPerIndexKey.get(indexKey);
+            if (rightKeys == null) {
+                return NOT_FOUND;
+            }
+            Iterator<Object> rightKeyIterator = rightKeys.iterator();
+            while (rightKeyIterator.hasNext()) {
+                Object rightKey = rightKeyIterator.next();
+                if (keyReflectionComparator.isEqual(leftKey, rightKey)) {
+                    rightKeyIterator.remove();
+                    return rightKey;
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        for (Object rightKey : rightCopy.keySet()) {
+            // compare keys using strict reflection compare
+            if (keyReflectionComparator.isEqual(leftKey, rightKey)) {
+                removeFromIndex(rightKey, rightKeysPerIndexKey);
+                return rightKey;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+
+    /**
+     * Creates an index of all keys that have an index key, see {@link #getIndexKey}.
+     *
+     * @param rightMap The map to index, not null
+     * @return The keys per index key, not null
+     */
+    protected Map<Object, List<Object>> createRightKeysPerIndexKey(Map<Object, Object> rightMap) {
+        Map<Object, List<Object>> result = new HashMap<Object, List<Object>>();
+        for (Object rightKey : rightMap.keySet()) {
+            Object indexKey = getIndexKey(rightKey);
+            if (indexKey == null) {
+                continue;
+            }
+            List<Object> rightKeys = result.get(indexKey);
+            if (rightKeys == null) {
+                rightKeys = new LinkedList<Object>();
+                result.put(indexKey, rightKeys);
+            }
+            rightKeys.add(rightKey);
+        }
+        return result;
+    }
+
+
+    /**
+     * Removes the given key from the index.
+     *
+     * @param rightKey             The key, can be null
+     * @param rightKeysPerIndexKey The index, not null
+     */
+    protected void removeFromIndex(Object rightKey, Map<Object, List<Object>> rightKeysPerIndexKey) {
+        Object indexKey = getIndexKey(rightKey);
+        if (indexKey == null) {
+            return;
+        }
+        Iterator<Object> rightKeyIterator = rightKeysPerIndexKey.get(indexKey).iterator();
+        while (rightKeyIterator.hasNext()) {
+            if (rightKeyIterator.next() == rightKey) {
+                rightKeyIterator.remove();
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Gets the key to use in the hash index for the given map key.
+     * <p/>
+     * Only keys for which a strict reflection comparison can only succeed with a key that has the same index key,
+     * are indexed: strings, booleans and enums are indexed by their own value. Numbers and characters are indexed
+     * by their double value, since for example an Integer and a Long with the same value are considered equal.
+     *
+     * @param key The map key, can be null
+     * @return The index key, null if the key cannot be indexed
+     */
+    protected Object getIndexKey(Object key) {
+        if (key == null) {
+            return NULL_KEY;
+        }
+        if (key instanceof String || key instanceof Boolean || key instanceof Enum) {
+            return key;
+        }
+        if (key instanceof Number) {
+            return ((Number) key).doubleValue();
+        }
+        if (key instanceof Character) {
+            return (double) (Character) key;
+        }
+        return null;
+    }
 }
@@ -16,15 +16,13 @@
 package org.unitils.reflectionassert.comparator.impl;
 
 import org.unitils.reflectionassert.ReflectionComparator;
-import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
 import org.unitils.reflectionassert.difference.Difference;
 import org.unitils.reflectionassert.difference.ObjectDifference;
 import org.unitils.reflectionassert.difference.ClassDifference;
 
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
-import static java.lang.reflect.Modifier.isStatic;
-import static java.lang.reflect.Modifier.isTransient;
 
 /**
  * Comparator for objects. This will compare all corresponding field values.
@@ -32,7 +30,7 @@ import static java.lang.reflect.Modifier.isTransient;
  * @author Tim Ducheyne
  * @author Filip Neven
  */
-public class ObjectComparator implements Comparator {
+public class ObjectComparator implements ClassBasedComparator, ProbingComparator {
 
 
     /**
@@ -79,8 +77,39 @@ public class ObjectComparator implements Comparator {
     }
 
 
+    /**
+     * Checks whether the given objects are of the same type and all their fields are equal. The fields are
+     * compared in the same order as by the compare method and the check stops at the first field that differs.
+     *
+     * @param left                 The left object, not null
+     * @param right                The right object, not null
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if both objects are equal
+     */
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        Class<?> clazz = left.getClass();
+        if (!clazz.isAssignableFrom(right.getClass())) {
+            return false;
+        }
+        try {
+            for (Field field : reflectionComparator.getComparedFields(clazz)) {
+                if (!reflectionComparator.isEqual(field.get(left), field.get(right))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IllegalAccessException e) {
+            // this can't happen. Would get a Security exception instead
+            // throw a runtime exception in case the impossible happens.
+            throw new InternalError("Unexpected IllegalAccessException");
+        }
+    }
+
+
     /**
      * Compares the values of all fields in the given objects by use of reflection.
+     * The fields of the superclasses are also compared. The fields per class are looked up only once by the
+     * reflection comparator, see {@link ReflectionComparator#getComparedFields}.
      *
      * @param left                 the left object for the comparison, not null
      * @param right                the right object for the comparison, not null
@@ -90,14 +119,7 @@ public class ObjectComparator implements Comparator {
      * @param reflectionComparator the reflection comparator, not null
      */
     protected void compareFields(Object left, Object right, Class<?> clazz, ObjectDifference difference, boolean onlyFirstDifference, ReflectionComparator reflectionComparator) {
-        Field[] fields = clazz.getDeclaredFields();
-        AccessibleObject.setAccessible(fields, true);
-
-        for (Field field : fields) {
-            // skip transient and static fields
-            if (isTransient(field.getModifiers()) || isStatic(field.getModifiers()) || field.isSynthetic()) {
-                continue;
-            }
+        for (Field field : reflectionComparator.getComparedFields(clazz)) {
             try {
                 // recursively check the value of the fields
                 Difference innerDifference = reflectionComparator.getDifference(field.get(left), field.get(right), onlyFirstDifference);
@@ -113,13 +135,6 @@ public class ObjectComparator implements Comparator {
                 throw new InternalError("Unexpected IllegalAccessException");
             }
         }
-
-        // compare fields declared in superclass
-        Class<?> superclazz = clazz.getSuperclass();
-        while (superclazz != null && !superclazz.getName().startsWith("java.lang")) {
-            compareFields(left, right, superclazz, difference, onlyFirstDifference, reflectionComparator);
-            superclazz = superclazz.getSuperclass();
-        }
     }
 
 
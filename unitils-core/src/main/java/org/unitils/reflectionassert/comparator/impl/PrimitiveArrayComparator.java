@@ -0,0 +1,121 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.comparator.impl;
+
+import org.unitils.reflectionassert.ReflectionComparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
+import org.unitils.reflectionassert.difference.CollectionDifference;
+import org.unitils.reflectionassert.difference.Difference;
+import static org.unitils.reflectionassert.util.PrimitiveArrayUtils.*;
+
+import static java.lang.Math.min;
+import java.lang.reflect.Array;
+import static java.lang.reflect.Array.getLength;
+
+/**
+ * Comparator for arrays of primitive values of the same type, e.g. 2 int[] or 2 byte[] arrays.
+ * All elements are compared in the same order, just as the {@link CollectionComparator} would do, but without
+ * boxing the elements first. Only elements that are not exactly the same are passed to the reflection comparator:
+ * these can still be equal, e.g. when defaults are ignored. Differences are only created for these elements.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class PrimitiveArrayComparator implements ClassBasedComparator, ProbingComparator {
+
+
+    /**
+     * Returns true when both objects are primitive arrays of the same type.
+     *
+     * @param left  The left object
+     * @param right The right object
+     * @return True in case of primitive arrays of the same type
+     */
+    public boolean canCompare(Object left, Object right) {
+        if (left == null || right == null) {
+            return false;
+        }
+        return isPrimitiveArray(left) && left.getClass() == right.getClass();
+    }
+
+
+    /**
+     * Compares the given arrays.
+     *
+     * @param left                 The left array, not null
+     * @param right                The right array, not null
+     * @param onlyFirstDifference  True if only the first difference should be returned
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return A CollectionDifference or null if both arrays are equal
+     */
+    public Difference compare(Object left, Object right, boolean onlyFirstDifference, ReflectionComparator reflectionComparator) {
+        int leftLength = getLength(left);
+        int rightLength = getLength(right);
+        if (leftLength == rightLength && arrayEquals(left, right)) {
+            return null;
+        }
+
+        CollectionDifference difference = new CollectionDifference("Different elements", left, right, asList(left), asList(right));
+        int length = min(leftLength, rightLength);
+        for (int index = mismatch(left, right, 0, length); index < length; index = mismatch(left, right, index + 1, length)) {
+            Difference elementDifference = reflectionComparator.getDifference(Array.get(left, index), Array.get(right, index), onlyFirstDifference);
+            if (elementDifference != null) {
+                difference.addElementDifference(index, elementDifference);
+                if (onlyFirstDifference) {
+                    return difference;
+                }
+            }
+        }
+
+        // check for missing elements
+        for (int index = length; index < leftLength; index++) {
+            difference.addLeftMissingIndex(index);
+        }
+        for (int index = length; index < rightLength; index++) {
+            difference.addRightMissingIndex(index);
+        }
+
+        if (difference.getElementDifferences().isEmpty() && difference.getLeftMissingIndexes().isEmpty() && difference.getRightMissingIndexes().isEmpty()) {
+            return null;
+        }
+        return difference;
+    }
+
+
+    /**
+     * Checks whether the given arrays have the same length and contain equal elements in the same order. Only
+     * elements that are not exactly the same are boxed and passed to the reflection comparator.
+     *
+     * @param left                 The left array, not null
+     * @param right                The right array, not null
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if both arrays are equal
+     */
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        int length = getLength(left);
+        if (length != getLength(right)) {
+            return false;
+        }
+        for (int index = mismatch(left, right, 0, length); index < length; index = mismatch(left, right, index + 1, length)) {
+            if (!reflectionComparator.isEqual(Array.get(left, index), Array.get(right, index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -18,7 +18,8 @@
 package org.unitils.reflectionassert.comparator.impl;
 
 import org.unitils.reflectionassert.ReflectionComparator;
-import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.ProbingComparator;
 import org.unitils.reflectionassert.difference.Difference;
 
 import java.util.Calendar;
@@ -33,7 +34,7 @@ import java.util.Date;
  * @author Tim Ducheyne
  * @author Filip Neven
  */
-public class SimpleCasesComparator implements Comparator {
+public class SimpleCasesComparator implements ClassBasedComparator, ProbingComparator {
 
 
     /**
@@ -133,6 +134,34 @@ public class SimpleCasesComparator implements Comparator {
     }
 
 
+    /**
+     * Checks whether the given values are equal, using the same rules as the compare method.
+     *
+     * @param left                 The left value
+     * @param right                The right value
+     * @param reflectionComparator The root comparator for inner comparisons, not null
+     * @return True if both values are equal
+     */
+    public boolean isEqual(Object left, Object right, ReflectionComparator reflectionComparator) {
+        if (left == right) {
+            return true;
+        }
+        if (left == null || right == null) {
+            return false;
+        }
+        if ((left instanceof Character || left instanceof Number) && (right instanceof Character || right instanceof Number)) {
+            return getDoubleValue(left).equals(getDoubleValue(right));
+        }
+        if (left.getClass().getName().startsWith("java.lang") || right.getClass().getName().startsWith("java.lang")) {
+            return left.equals(right);
+        }
+        if ((left instanceof Date && right instanceof Date) || (left instanceof Calendar && right instanceof Calendar) || (left instanceof Enum && right instanceof Enum)) {
+            return left.equals(right);
+        }
+        return true;
+    }
+
+
     /**
      * Gets the double value for the given left Character or Number instance.
      *
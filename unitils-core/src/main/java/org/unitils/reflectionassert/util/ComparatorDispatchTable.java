@@ -0,0 +1,168 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.Comparator;
+
+import java.util.ArrayList;
+import static java.util.Collections.synchronizedMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Finds the comparator of a comparator chain that should compare 2 values: the first comparator of the chain that
+ * can compare them.
+ * <p/>
+ * For each pair of classes, the index of the first {@link ClassBasedComparator} that can compare the values is
+ * remembered. Next time, only the comparators before that index that are not class based, e.g. the
+ * IgnoreDefaultsComparator, are still asked. The class based ones in between are known to answer false and are skipped.
+ * Nulls and identical instances are always handled by walking the chain.
+ * <p/>
+ * A table can be shared by different threads. The chain should not be modified after the table is created. The
+ * classes are weakly referenced, so that a shared table does not keep classes and their class loaders from being
+ * garbage collected.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ComparatorDispatchTable {
+
+    /* The comparator chain, not null */
+    private List<Comparator> comparators;
+
+    /* The indexes of the comparators that are not class based, in chain order */
+    private int[] valueBasedIndexes;
+
+    /* The index of the first class based comparator per right class per left class, chain size if there is none */
+    private Map<Class<?>, Map<Class<?>, Integer>> indexesPerLeftClass = synchronizedMap(new WeakHashMap<Class<?>, Map<Class<?>, Integer>>());
+
+
+    /**
+     * Creates a table for the given chain.
+     *
+     * @param comparators The comparator chain, not null
+     */
+    public ComparatorDispatchTable(List<Comparator> comparators) {
+        this.comparators = comparators;
+
+        List<Integer> indexes = new ArrayList<Integer>();
+        for (int i = 0; i < comparators.size(); i++) {
+            if (!(comparators.get(i) instanceof ClassBasedComparator)) {
+                indexes.add(i);
+            }
+        }
+        valueBasedIndexes = new int[indexes.size()];
+        for (int i = 0; i < valueBasedIndexes.length; i++) {
+            valueBasedIndexes[i] = indexes.get(i);
+        }
+    }
+
+
+    /**
+     * @return The comparator chain, not null
+     */
+    public List<Comparator> getComparators() {
+        return comparators;
+    }
+
+
+    /**
+     * Gets the first comparator of the chain that can compare the given values.
+     *
+     * @param left  The left value
+     * @param right The right value
+     * @return The comparator, null if none of the comparators can compare the values
+     */
+    public Comparator getComparator(Object left, Object right) {
+        if (left == null || right == null || left == right) {
+            return findComparator(left, right);
+        }
+        int classBasedIndex = getClassBasedIndex(left, right);
+        for (int valueBasedIndex : valueBasedIndexes) {
+            if (valueBasedIndex > classBasedIndex) {
+                break;
+            }
+            Comparator comparator = comparators.get(valueBasedIndex);
+            if (comparator.canCompare(left, right)) {
+                return comparator;
+            }
+        }
+        if (classBasedIndex < comparators.size()) {
+            return comparators.get(classBasedIndex);
+        }
+        return null;
+    }
+
+
+    /**
+     * Walks the whole chain to find the comparator for the given values.
+     *
+     * @param left  The left value
+     * @param right The right value
+     * @return The comparator, null if none of the comparators can compare the values
+     */
+    protected Comparator findComparator(Object left, Object right) {
+        for (Comparator comparator : comparators) {
+            if (comparator.canCompare(left, right)) {
+                return comparator;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Gets the index of the first class based comparator that can compare the given values. The index is
+     * determined once per pair of classes.
+     *
+     * @param left  The left value, not null
+     * @param right The right value, not null
+     * @return The index, the size of the chain if there is no such comparator
+     */
+    protected int getClassBasedIndex(Object left, Object right) {
+        Map<Class<?>, Integer> indexesPerRightClass = indexesPerLeftClass.get(left.getClass());
+        if (indexesPerRightClass == null) {
+            indexesPerRightClass = synchronizedMap(new WeakHashMap<Class<?>, Integer>());
+            indexesPerLeftClass.put(left.getClass(), indexesPerRightClass);
+        }
+        Integer index = indexesPerRightClass.get(right.getClass());
+        if (index == null) {
+            index = findClassBasedIndex(left, right);
+            indexesPerRightClass.put(right.getClass(), index);
+        }
+        return index;
+    }
+
+
+    /**
+     * Walks the chain to find the index of the first class based comparator that can compare the given values.
+     *
+     * @param left  The left value, not null
+     * @param right The right value, not null
+     * @return The index, the size of the chain if there is no such comparator
+     */
+    protected int findClassBasedIndex(Object left, Object right) {
+        for (int i = 0; i < comparators.size(); i++) {
+            Comparator comparator = comparators.get(i);
+            if (comparator instanceof ClassBasedComparator && comparator.canCompare(left, right)) {
+                return i;
+            }
+        }
+        return comparators.size();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import static java.lang.reflect.Modifier.isStatic;
+import static java.lang.reflect.Modifier.isTransient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A utility class that caches the fields that take part in a reflection comparison per class.
+ * <p/>
+ * Looking up the declared fields and making them accessible is expensive compared to the actual comparison of
+ * the field values. Since the comparison of large object graphs compares the same classes over and over again,
+ * the fields are looked up only once per class.
+ * <p/>
+ * Every {@link org.unitils.reflectionassert.ReflectionComparator} has its own cache, which can be shared by different
+ * threads. The cache is not static: the fields refer to their classes, so a static cache would keep the classes and
+ * their class loaders from being garbage collected.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ComparedFieldsCache {
+
+    /* The accessible compared fields per class */
+    private Map<Class<?>, Field[]> comparedFields = new ConcurrentHashMap<Class<?>, Field[]>();
+
+
+    /**
+     * Gets the fields of the given class that should be compared: the declared fields of the class and of all its
+     * superclasses up to the first java.lang class. Static, transient and synthetic fields are skipped. The fields
+     * of the class itself come first, followed by the fields of the superclasses.
+     * <p/>
+     * The returned fields are made accessible and should not be modified.
+     *
+     * @param clazz The class, not null
+     * @return The fields, not null
+     */
+    public Field[] getComparedFields(Class<?> clazz) {
+        Field[] result = comparedFields.get(clazz);
+        if (result == null) {
+            result = findComparedFields(clazz);
+            comparedFields.put(clazz, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * Looks up the compared fields, see {@link #getComparedFields}.
+     *
+     * @param clazz The class, not null
+     * @return The fields, not null
+     */
+    protected Field[] findComparedFields(Class<?> clazz) {
+        List<Field> result = new ArrayList<Field>();
+        addComparedFields(clazz, result);
+
+        Class<?> superclazz = clazz.getSuperclass();
+        while (superclazz != null && !superclazz.getName().startsWith("java.lang")) {
+            addComparedFields(superclazz, result);
+            superclazz = superclazz.getSuperclass();
+        }
+        return result.toArray(new Field[result.size()]);
+    }
+
+
+    /**
+     * Adds the non-static, non-transient and non-synthetic declared fields of the given class.
+     *
+     * @param clazz  The class, not null
+     * @param result The list to add the fields to, not null
+     */
+    protected void addComparedFields(Class<?> clazz, List<Field> result) {
+        Field[] fields = clazz.getDeclaredFields();
+        AccessibleObject.setAccessible(fields, true);
+
+        for (Field field : fields) {
+            if (isTransient(field.getModifiers()) || isStatic(field.getModifiers()) || field.isSynthetic()) {
+                continue;
+            }
+            result.add(field);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import org.unitils.reflectionassert.difference.Difference;
+
+import static java.lang.System.identityHashCode;
+import static java.util.Arrays.fill;
+
+/**
+ * A cache of differences keyed by the identity of the (left, right) pair of compared instances.
+ * <p/>
+ * All pairs are stored in a single open-addressing table, so no objects are allocated per cached pair. The number
+ * of cached results is bounded: when the maximum size is reached, all finished comparisons are evicted and the
+ * table is reused. Pairs of which the comparison is still in progress are never evicted: these are needed to avoid
+ * infinite loops when comparing object graphs with cycles.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DifferenceCache {
+
+    /* Key used for null values */
+    private static final Object NULL_KEY = new Object();
+
+    /* The initial capacity of the table, must be a power of 2 */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /* The max nr of cached pairs before finished results are evicted */
+    private int maxSize;
+
+    /* The left instances, null for an empty slot */
+    private Object[] lefts = new Object[INITIAL_CAPACITY];
+
+    /* The right instances */
+    private Object[] rights = new Object[INITIAL_CAPACITY];
+
+    /* The cached differences */
+    private Difference[] differences = new Difference[INITIAL_CAPACITY];
+
+    /* True if the comparison of the pair is still in progress */
+    private boolean[] inProgress = new boolean[INITIAL_CAPACITY];
+
+    /* The nr of cached pairs */
+    private int size;
+
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize The max nr of cached pairs before finished results are evicted, should be larger than 0
+     */
+    public DifferenceCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+
+    /**
+     * @param left  The left instance, can be null
+     * @param right The right instance, can be null
+     * @return True if a result, or a comparison in progress, is cached for the given pair
+     */
+    public boolean contains(Object left, Object right) {
+        return indexOf(maskNull(left), maskNull(right)) >= 0;
+    }
+
+
+    /**
+     * @param left  The left instance, can be null
+     * @param right The right instance, can be null
+     * @return The cached difference, null if there is no difference, the comparison is in progress or nothing is cached
+     */
+    public Difference get(Object left, Object right) {
+        int index = indexOf(maskNull(left), maskNull(right));
+        if (index < 0) {
+            return null;
+        }
+        return differences[index];
+    }
+
+
+    /**
+     * Registers that the comparison of the given pair has started. Until the result is stored, the pair will be
+     * reported as cached without a difference.
+     *
+     * @param left  The left instance, can be null
+     * @param right The right instance, can be null
+     */
+    public void putInProgress(Object left, Object right) {
+        put(maskNull(left), maskNull(right), null, true);
+    }
+
+
+    /**
+     * Registers the pairs of which the comparison is in progress in the given cache as in progress in this cache.
+     *
+     * @param differenceCache The cache to copy the pairs in progress from, not null
+     */
+    public void putInProgress(DifferenceCache differenceCache) {
+        for (int i = 0; i < differenceCache.lefts.length; i++) {
+            if (differenceCache.lefts[i] != null && differenceCache.inProgress[i]) {
+                put(differenceCache.lefts[i], differenceCache.rights[i], null, true);
+            }
+        }
+    }
+
+
+    /**
+     * Stores the result of the comparison of the given pair.
+     *
+     * @param left       The left instance, can be null
+     * @param right      The right instance, can be null
+     * @param difference The difference, null if there is no difference
+     */
+    public void put(Object left, Object right, Difference difference) {
+        put(maskNull(left), maskNull(right), difference, false);
+    }
+
+
+    /**
+     * Removes all cached pairs. The allocated table is kept so that the cache can be reused.
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        fill(lefts, null);
+        fill(rights, null);
+        fill(differences, null);
+        fill(inProgress, false);
+        size = 0;
+    }
+
+
+    /**
+     * @return The nr of cached pairs
+     */
+    public int size() {
+        return size;
+    }
+
+
+    private void put(Object left, Object right, Difference difference, boolean pairInProgress) {
+        int index = indexOf(left, right);
+        if (index >= 0) {
+            differences[index] = difference;
+            inProgress[index] = pairInProgress;
+            return;
+        }
+        if (size >= maxSize) {
+            evictFinishedResults();
+        }
+        if (2 * (size + 1) > lefts.length) {
+            resize(2 * lefts.length);
+        }
+        insert(left, right, difference, pairInProgress);
+    }
+
+
+    private void insert(Object left, Object right, Difference difference, boolean pairInProgress) {
+        int mask = lefts.length - 1;
+        int index = hash(left, right) & mask;
+        while (lefts[index] != null) {
+            index = (index + 1) & mask;
+        }
+        lefts[index] = left;
+        rights[index] = right;
+        differences[index] = difference;
+        inProgress[index] = pairInProgress;
+        size++;
+    }
+
+
+    private int indexOf(Object left, Object right) {
+        int mask = lefts.length - 1;
+        int index = hash(left, right) & mask;
+        while (lefts[index] != null) {
+            if (lefts[index] == left && rights[index] == right) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    private void evictFinishedResults() {
+        // only the pairs on the current comparison path are in progress, so these are few
+        int count = 0;
+        for (boolean pairInProgress : inProgress) {
+            if (pairInProgress) {
+                count += 2;
+            }
+        }
+        Object[] inProgressPairs = new Object[count];
+        count = 0;
+        for (int i = 0; i < lefts.length; i++) {
+            if (lefts[i] != null && inProgress[i]) {
+                inProgressPairs[count++] = lefts[i];
+                inProgressPairs[count++] = rights[i];
+            }
+        }
+        clear();
+        for (int i = 0; i < count; i += 2) {
+            insert(inProgressPairs[i], inProgressPairs[i + 1], null, true);
+        }
+    }
+
+
+    private void resize(int capacity) {
+        Object[] oldLefts = lefts;
+        Object[] oldRights = rights;
+        Difference[] oldDifferences = differences;
+        boolean[] oldInProgress = inProgress;
+
+        lefts = new Object[capacity];
+        rights = new Object[capacity];
+        differences = new Difference[capacity];
+        inProgress = new boolean[capacity];
+        size = 0;
+        for (int i = 0; i < oldLefts.length; i++) {
+            if (oldLefts[i] != null) {
+                insert(oldLefts[i], oldRights[i], oldDifferences[i], oldInProgress[i]);
+            }
+        }
+    }
+
+
+    private int hash(Object left, Object right) {
+        int hash = 31 * identityHashCode(left) + identityHashCode(right);
+        // spread the bits, the table uses the low bits only
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        return hash ^ (hash >>> 7) ^ (hash >>> 4);
+    }
+
+
+    private Object maskNull(Object value) {
+        return value == null ? NULL_KEY : value;
+    }
+}
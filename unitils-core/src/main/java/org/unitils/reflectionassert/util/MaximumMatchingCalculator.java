@@ -0,0 +1,175 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import static java.lang.Integer.MAX_VALUE;
+import static java.util.Arrays.fill;
+
+/**
+ * A utility class for calculating a maximum matching in a bipartite graph using the Hopcroft-Karp algorithm.
+ * <p/>
+ * The left vertices are numbered 0..leftSize-1 and the right vertices 0..rightSize-1. The edges are given as an
+ * adjacency array: for each left vertex, the indexes of the right vertices it is connected to. The algorithm runs in
+ * O(E * sqrt(V)), so it stays polynomial where a naive backtracking search would explode.
+ * <p/>
+ * The augmenting paths are searched iteratively so that large graphs cannot overflow the stack.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class MaximumMatchingCalculator {
+
+    /* Value for unmatched vertices */
+    private static final int NONE = -1;
+
+
+    /**
+     * Calculates the size of a maximum matching for the given bipartite graph.
+     *
+     * @param adjacency The right vertex indexes per left vertex, not null
+     * @param rightSize The number of right vertices
+     * @return The nr of matched pairs
+     */
+    public int calculateMaximumMatchingSize(int[][] adjacency, int rightSize) {
+        int[] leftPairs = new int[adjacency.length];
+        int[] rightPairs = new int[rightSize];
+        fill(leftPairs, NONE);
+        fill(rightPairs, NONE);
+        return calculateMaximumMatchingSize(adjacency, leftPairs, rightPairs);
+    }
+
+
+    /**
+     * Calculates the size of a maximum matching for the given bipartite graph, starting from the given (partial)
+     * matching. This avoids redoing work when a good initial matching, e.g. a greedy one, is already known.
+     * The given pair arrays are updated to contain the maximum matching.
+     *
+     * @param adjacency  The right vertex indexes per left vertex, not null
+     * @param leftPairs  The right partner per left vertex, -1 if unmatched, not null
+     * @param rightPairs The left partner per right vertex, -1 if unmatched, not null
+     * @return The nr of matched pairs
+     */
+    public int calculateMaximumMatchingSize(int[][] adjacency, int[] leftPairs, int[] rightPairs) {
+        int leftSize = adjacency.length;
+        int matchingSize = 0;
+        for (int leftPair : leftPairs) {
+            if (leftPair != NONE) {
+                matchingSize++;
+            }
+        }
+
+        int[] distances = new int[leftSize];
+        int[] queue = new int[leftSize];
+        int[] edgeIndexes = new int[leftSize];
+        int[] stack = new int[leftSize];
+
+        while (buildLayers(adjacency, leftPairs, rightPairs, distances, queue)) {
+            fill(edgeIndexes, 0);
+            for (int left = 0; left < leftSize; left++) {
+                if (leftPairs[left] == NONE && augment(left, adjacency, leftPairs, rightPairs, distances, edgeIndexes, stack)) {
+                    matchingSize++;
+                }
+            }
+        }
+        return matchingSize;
+    }
+
+
+    /**
+     * Breadth-first search that layers the left vertices by their distance to a free left vertex.
+     *
+     * @param adjacency  The graph, not null
+     * @param leftPairs  The current right partner per left vertex, not null
+     * @param rightPairs The current left partner per right vertex, not null
+     * @param distances  The array to store the layer per left vertex in, not null
+     * @param queue      Work array of the size of the left vertices, not null
+     * @return True if an augmenting path exists
+     */
+    protected boolean buildLayers(int[][] adjacency, int[] leftPairs, int[] rightPairs, int[] distances, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        for (int left = 0; left < adjacency.length; left++) {
+            if (leftPairs[left] == NONE) {
+                distances[left] = 0;
+                queue[tail++] = left;
+            } else {
+                distances[left] = MAX_VALUE;
+            }
+        }
+
+        boolean found = false;
+        while (head < tail) {
+            int left = queue[head++];
+            for (int right : adjacency[left]) {
+                int next = rightPairs[right];
+                if (next == NONE) {
+                    found = true;
+                } else if (distances[next] == MAX_VALUE) {
+                    distances[next] = distances[left] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return found;
+    }
+
+
+    /**
+     * Depth-first search for an augmenting path starting at the given free left vertex, following the layers.
+     * If a path is found, the matching is flipped along it.
+     *
+     * @param root        The free left vertex
+     * @param adjacency   The graph, not null
+     * @param leftPairs   The current right partner per left vertex, not null
+     * @param rightPairs  The current left partner per right vertex, not null
+     * @param distances   The layer per left vertex, not null
+     * @param edgeIndexes The next edge to try per left vertex, not null
+     * @param stack       Work array of the size of the left vertices, not null
+     * @return True if the matching was augmented
+     */
+    protected boolean augment(int root, int[][] adjacency, int[] leftPairs, int[] rightPairs, int[] distances, int[] edgeIndexes, int[] stack) {
+        int top = 0;
+        stack[0] = root;
+        while (top >= 0) {
+            int left = stack[top];
+            if (edgeIndexes[left] >= adjacency[left].length) {
+                // dead end, remove vertex from this phase
+                distances[left] = MAX_VALUE;
+                top--;
+                continue;
+            }
+            int right = adjacency[left][edgeIndexes[left]];
+            int next = rightPairs[right];
+            if (next == NONE) {
+                // free right vertex reached: flip the path on the stack
+                for (int i = top; i >= 0; i--) {
+                    int pathLeft = stack[i];
+                    int pathRight = adjacency[pathLeft][edgeIndexes[pathLeft]];
+                    leftPairs[pathLeft] = pathRight;
+                    rightPairs[pathRight] = pathLeft;
+                }
+                return true;
+            }
+            if (distances[next] != MAX_VALUE && distances[next] == distances[left] + 1) {
+                // descend, the edge index of the current vertex is advanced when the descent fails
+                stack[++top] = next;
+                continue;
+            }
+            edgeIndexes[left]++;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import org.unitils.core.UnitilsException;
+import org.unitils.reflectionassert.ReflectionComparator;
+import org.unitils.reflectionassert.ReflectionComparator.ComparisonState;
+import org.unitils.reflectionassert.difference.Difference;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calculates the differences between the elements of 2 lists using a shared pool of threads.
+ * <p/>
+ * The work is split in chunks of left elements. Every element comparison is a separate call to the reflection
+ * comparator on a pool thread, so it has its own cache. The pairs that the calling thread is comparing are copied
+ * into that cache as pairs in progress, so that cycles back to these pairs are not traversed again. The results are
+ * stored by index, so they do not depend on the order in which the chunks are executed.
+ * <p/>
+ * Comparisons that are performed by the pool threads are never split up again: nested collections are compared on
+ * the same pool thread. This way the pool threads never wait for each other.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ParallelDifferenceCalculator {
+
+    /* The nr of chunks per thread, more chunks give a better balance when some elements are more expensive */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /* The nr of threads in the pool */
+    private static final int NR_OF_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /* The shared pool, lazily created */
+    private static ExecutorService executorService;
+
+
+    /**
+     * Checks whether the current thread is one of the pool threads.
+     *
+     * @return True if called during a parallel comparison
+     */
+    public static boolean isPoolThread() {
+        return Thread.currentThread() instanceof PoolThread;
+    }
+
+
+    /**
+     * Calculates the difference of every left element with the right element at the same index.
+     *
+     * @param leftList             The left list, not null
+     * @param rightList            The right list, not null
+     * @param reflectionComparator The comparator for the element comparisons, not null
+     * @return The differences per index, the size of the shortest list, null for equal elements
+     */
+    public Difference[] calculateElementDifferences(final List<?> leftList, final List<?> rightList, final ReflectionComparator reflectionComparator) {
+        final Difference[] differences = new Difference[min(leftList.size(), rightList.size())];
+        final ComparisonState pairsInProgress = reflectionComparator.copyPairsInProgress();
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final int[] chunk : createChunks(differences.length)) {
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    for (int index = chunk[0]; index < chunk[1]; index++) {
+                        differences[index] = reflectionComparator.getDifference(leftList.get(index), rightList.get(index), pairsInProgress);
+                    }
+                    return null;
+                }
+            });
+        }
+        execute(tasks);
+        return differences;
+    }
+
+
+    /**
+     * Calculates the difference of every left element with every right element.
+     *
+     * @param leftList             The left list, not null
+     * @param rightList            The right list, not null
+     * @param reflectionComparator The comparator for the element comparisons, not null
+     * @return The differences per right index per left index, null for equal elements
+     */
+    public Difference[][] calculateAllDifferences(final List<?> leftList, final List<?> rightList, final ReflectionComparator reflectionComparator) {
+        final Difference[][] differences = new Difference[leftList.size()][rightList.size()];
+        final ComparisonState pairsInProgress = reflectionComparator.copyPairsInProgress();
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final int[] chunk : createChunks(differences.length)) {
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    for (int leftIndex = chunk[0]; leftIndex < chunk[1]; leftIndex++) {
+                        Object leftValue = leftList.get(leftIndex);
+                        for (int rightIndex = 0; rightIndex < rightList.size(); rightIndex++) {
+                            differences[leftIndex][rightIndex] = reflectionComparator.getDifference(leftValue, rightList.get(rightIndex), pairsInProgress);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        execute(tasks);
+        return differences;
+    }
+
+
+    /**
+     * Splits the given nr of elements in chunks.
+     *
+     * @param size The nr of elements
+     * @return The chunks, each an array with the start (inclusive) and end index (exclusive), not null
+     */
+    protected List<int[]> createChunks(int size) {
+        int chunkSize = max(1, (size + NR_OF_THREADS * CHUNKS_PER_THREAD - 1) / (NR_OF_THREADS * CHUNKS_PER_THREAD));
+        List<int[]> chunks = new ArrayList<int[]>();
+        for (int start = 0; start < size; start += chunkSize) {
+            chunks.add(new int[]{start, min(start + chunkSize, size)});
+        }
+        return chunks;
+    }
+
+
+    /**
+     * Executes the given tasks on the pool and waits until all are finished. If a task failed, its exception is
+     * thrown again.
+     *
+     * @param tasks The tasks, not null
+     */
+    protected void execute(List<Callable<Void>> tasks) {
+        try {
+            List<Future<Void>> futures = getExecutorService().invokeAll(tasks);
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UnitilsException("Unable to compare elements in parallel.", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnitilsException("Interrupted while comparing elements in parallel.", e);
+        }
+    }
+
+
+    /**
+     * Gets the shared pool. The pool uses daemon threads, so it does not prevent the JVM from exiting.
+     *
+     * @return The pool, not null
+     */
+    protected static synchronized ExecutorService getExecutorService() {
+        if (executorService == null) {
+            executorService = Executors.newFixedThreadPool(NR_OF_THREADS, new ThreadFactory() {
+
+                private AtomicInteger threadNr = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    return new PoolThread(runnable, "unitils-reflection-comparator-" + threadNr.incrementAndGet());
+                }
+            });
+        }
+        return executorService;
+    }
+
+
+    /**
+     * Daemon thread of the pool.
+     */
+    protected static class PoolThread extends Thread {
+
+        public PoolThread(Runnable runnable, String name) {
+            super(runnable, name);
+            setDaemon(true);
+        }
+    }
+}
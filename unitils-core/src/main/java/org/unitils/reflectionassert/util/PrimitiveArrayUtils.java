@@ -0,0 +1,227 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import org.unitils.core.UnitilsException;
+
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Float.floatToIntBits;
+import java.lang.reflect.Array;
+import static java.lang.reflect.Array.getLength;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Utility methods for working with arrays of primitive values without boxing all elements.
+ * <p/>
+ * Elements are considered equal as by {@link Arrays#equals}: float and double values are compared by their bits, so
+ * NaN equals NaN and 0.0 is different from -0.0. This is the same as comparing the boxed values with equals.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class PrimitiveArrayUtils {
+
+
+    /**
+     * Checks whether the given object is an array of primitive values.
+     *
+     * @param object The object, can be null
+     * @return True for primitive arrays
+     */
+    public static boolean isPrimitiveArray(Object object) {
+        return object != null && object.getClass().isArray() && object.getClass().getComponentType().isPrimitive();
+    }
+
+
+    /**
+     * Checks whether the given primitive arrays of the same type contain the same elements in the same order.
+     *
+     * @param left  The left array, not null
+     * @param right The right array of the same type, not null
+     * @return True if equal
+     */
+    public static boolean arrayEquals(Object left, Object right) {
+        if (left instanceof byte[]) {
+            return Arrays.equals((byte[]) left, (byte[]) right);
+        }
+        if (left instanceof short[]) {
+            return Arrays.equals((short[]) left, (short[]) right);
+        }
+        if (left instanceof int[]) {
+            return Arrays.equals((int[]) left, (int[]) right);
+        }
+        if (left instanceof long[]) {
+            return Arrays.equals((long[]) left, (long[]) right);
+        }
+        if (left instanceof char[]) {
+            return Arrays.equals((char[]) left, (char[]) right);
+        }
+        if (left instanceof float[]) {
+            return Arrays.equals((float[]) left, (float[]) right);
+        }
+        if (left instanceof double[]) {
+            return Arrays.equals((double[]) left, (double[]) right);
+        }
+        if (left instanceof boolean[]) {
+            return Arrays.equals((boolean[]) left, (boolean[]) right);
+        }
+        throw new UnitilsException("Not a primitive array: " + left);
+    }
+
+
+    /**
+     * Checks whether the given primitive arrays of the same type contain the same elements, ignoring the order.
+     * Sorted copies of both arrays are compared.
+     *
+     * @param left  The left array, not null
+     * @param right The right array of the same type, not null
+     * @return True if equal
+     */
+    public static boolean sortedArrayEquals(Object left, Object right) {
+        if (getLength(left) != getLength(right)) {
+            return false;
+        }
+        if (left instanceof boolean[]) {
+            return countTrueValues((boolean[]) left) == countTrueValues((boolean[]) right);
+        }
+        return arrayEquals(sortedCopy(left), sortedCopy(right));
+    }
+
+
+    /**
+     * Finds the first index, starting from the given index, at which the given primitive arrays of the same type
+     * contain a different element.
+     *
+     * @param left      The left array, not null
+     * @param right     The right array of the same type, not null
+     * @param fromIndex The index to start from
+     * @param toIndex   The index to stop at (exclusive), not larger than the length of both arrays
+     * @return The index of the mismatch, toIndex if there is none
+     */
+    public static int mismatch(Object left, Object right, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        if (left instanceof byte[]) {
+            byte[] leftArray = (byte[]) left;
+            byte[] rightArray = (byte[]) right;
+            while (index < toIndex && leftArray[index] == rightArray[index]) {
+                index++;
+            }
+        } else if (left instanceof short[]) {
+            short[] leftArray = (short[]) left;
+            short[] rightArray = (short[]) right;
+            while (index < toIndex && leftArray[index] == rightArray[index]) {
+                index++;
+            }
+        } else if (left instanceof int[]) {
+            int[] leftArray = (int[]) left;
+            int[] rightArray = (int[]) right;
+            while (index < toIndex && leftArray[index] == rightArray[index]) {
+                index++;
+            }
+        } else if (left instanceof long[]) {
+            long[] leftArray = (long[]) left;
+            long[] rightArray = (long[]) right;
+            while (index < toIndex && leftArray[index] == rightArray[index]) {
+                index++;
+            }
+        } else if (left instanceof char[]) {
+            char[] leftArray = (char[]) left;
+            char[] rightArray = (char[]) right;
+            while (index < toIndex && leftArray[index] == rightArray[index]) {
+                index++;
+            }
+        } else if (left instanceof float[]) {
+            float[] leftArray = (float[]) left;
+            float[] rightArray = (float[]) right;
+            while (index < toIndex && floatToIntBits(leftArray[index]) == floatToIntBits(rightArray[index])) {
+                index++;
+            }
+        } else if (left instanceof double[]) {
+            double[] leftArray = (double[]) left;
+            double[] rightArray = (double[]) right;
+            while (index < toIndex && doubleToLongBits(leftArray[index]) == doubleToLongBits(rightArray[index])) {
+                index++;
+            }
+        } else if (left instanceof boolean[]) {
+            boolean[] leftArray = (boolean[]) left;
+            boolean[] rightArray = (boolean[]) right;
+            while (index < toIndex && leftArray[index] == rightArray[index]) {
+                index++;
+            }
+        } else {
+            throw new UnitilsException("Not a primitive array: " + left);
+        }
+        return index;
+    }
+
+
+    /**
+     * Gets a read-only list view of the given array. The elements are only boxed when they are accessed.
+     *
+     * @param array The primitive array, not null
+     * @return The list, not null
+     */
+    public static List<Object> asList(final Object array) {
+        return new AbstractList<Object>() {
+
+            @Override
+            public Object get(int index) {
+                return Array.get(array, index);
+            }
+
+            @Override
+            public int size() {
+                return getLength(array);
+            }
+        };
+    }
+
+
+    private static Object sortedCopy(Object array) {
+        int length = getLength(array);
+        Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+        System.arraycopy(array, 0, copy, 0, length);
+        if (copy instanceof byte[]) {
+            Arrays.sort((byte[]) copy);
+        } else if (copy instanceof short[]) {
+            Arrays.sort((short[]) copy);
+        } else if (copy instanceof int[]) {
+            Arrays.sort((int[]) copy);
+        } else if (copy instanceof long[]) {
+            Arrays.sort((long[]) copy);
+        } else if (copy instanceof char[]) {
+            Arrays.sort((char[]) copy);
+        } else if (copy instanceof float[]) {
+            Arrays.sort((float[]) copy);
+        } else if (copy instanceof double[]) {
+            Arrays.sort((double[]) copy);
+        }
+        return copy;
+    }
+
+
+    private static int countTrueValues(boolean[] array) {
+        int count = 0;
+        for (boolean value : array) {
+            if (value) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
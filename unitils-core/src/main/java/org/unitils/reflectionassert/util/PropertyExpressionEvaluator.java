@@ -0,0 +1,244 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import ognl.DefaultMemberAccess;
+import ognl.Ognl;
+import ognl.OgnlContext;
+import ognl.OgnlException;
+import org.unitils.core.UnitilsException;
+import static org.unitils.util.CollectionUtils.asSet;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import static java.lang.reflect.Modifier.isStatic;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates OGNL expressions to get property values of objects.
+ * <p/>
+ * Parsed expressions are cached by all evaluators, so every expression is only parsed once. Simple property paths,
+ * such as address.street, are not evaluated by OGNL at all: the public getter or, if there is no such getter, the
+ * field of each property is looked up once per class and is then invoked directly. This mimics the way OGNL looks up
+ * the properties of ordinary objects, but it is not a full reimplementation of the OGNL rules. The cases in which
+ * OGNL is known to behave differently, e.g. maps or null values in the path, are left to OGNL.
+ * <p/>
+ * An evaluator can be shared by different threads. The cached getters and fields refer to their classes, so an
+ * evaluator should not be kept longer than needed, e.g. only for the duration of an assertion. The cached expressions
+ * do not refer to any class and are kept for all evaluators.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class PropertyExpressionEvaluator {
+
+    /* Pattern for property paths that can be evaluated without OGNL */
+    private static final Pattern SIMPLE_PROPERTY_PATH = Pattern.compile("[a-zA-Z_$][a-zA-Z0-9_$]*(\\.[a-zA-Z_$][a-zA-Z0-9_$]*)*");
+
+    /* The names that have a special meaning in OGNL */
+    private static final Set<String> OGNL_KEYWORDS = asSet("and", "band", "bor", "eq", "false", "gt", "gte", "in", "instanceof", "lt", "lte", "neq", "new", "not", "null", "or", "shl", "shr", "true", "ushr", "xor");
+
+    /* Marker for expressions that are not simple property paths */
+    private static final String[] NOT_A_PROPERTY_PATH = new String[0];
+
+    /* Marker for properties that cannot be accessed without OGNL */
+    private static final Object NO_ACCESSOR = new Object();
+
+    /* The parsed OGNL expressions per expression, shared by all evaluators */
+    private static Map<String, Object> ognlExpressions = new ConcurrentHashMap<String, Object>();
+
+    /* The property names per expression, NOT_A_PROPERTY_PATH if the expression is not a simple path */
+    private static Map<String, String[]> propertyPaths = new ConcurrentHashMap<String, String[]>();
+
+    /* The getter, field or NO_ACCESSOR per property name per class */
+    private Map<Class<?>, Map<String, Object>> accessorsPerClass = new ConcurrentHashMap<Class<?>, Map<String, Object>>();
+
+
+    /**
+     * Evaluates the given OGNL expression, and returns the corresponding property value from the given object.
+     *
+     * @param object         The object on which the expression is evaluated
+     * @param ognlExpression The OGNL expression that is evaluated, not null
+     * @return The value for the given OGNL expression
+     */
+    public Object getValue(Object object, String ognlExpression) {
+        String[] propertyNames = getPropertyPath(ognlExpression);
+        if (propertyNames == NOT_A_PROPERTY_PATH) {
+            return getOgnlValue(object, ognlExpression);
+        }
+        Object value = object;
+        for (String propertyName : propertyNames) {
+            if (value == null) {
+                return getOgnlValue(object, ognlExpression);
+            }
+            Object accessor = getAccessor(value.getClass(), propertyName);
+            if (accessor == NO_ACCESSOR) {
+                return getOgnlValue(object, ognlExpression);
+            }
+            value = getPropertyValue(value, accessor, ognlExpression);
+        }
+        return value;
+    }
+
+
+    /**
+     * Evaluates the given expression using OGNL. The expression is only parsed the first time.
+     *
+     * @param object         The object on which the expression is evaluated
+     * @param ognlExpression The OGNL expression that is evaluated, not null
+     * @return The value for the given OGNL expression
+     */
+    protected Object getOgnlValue(Object object, String ognlExpression) {
+        try {
+            Object ognlExprObj = ognlExpressions.get(ognlExpression);
+            if (ognlExprObj == null) {
+                ognlExprObj = Ognl.parseExpression(ognlExpression);
+                ognlExpressions.put(ognlExpression, ognlExprObj);
+            }
+            OgnlContext ognlContext = new OgnlContext();
+            ognlContext.setMemberAccess(new DefaultMemberAccess(true));
+            return Ognl.getValue(ognlExprObj, ognlContext, object);
+        } catch (OgnlException e) {
+            throw new UnitilsException("Failed to get property value using OGNL expression " + ognlExpression, e);
+        }
+    }
+
+
+    /**
+     * Gets the property names of the given expression if it is a simple property path.
+     *
+     * @param ognlExpression The expression, not null
+     * @return The property names, NOT_A_PROPERTY_PATH if it is not a simple path
+     */
+    protected String[] getPropertyPath(String ognlExpression) {
+        String[] propertyNames = propertyPaths.get(ognlExpression);
+        if (propertyNames == null) {
+            propertyNames = NOT_A_PROPERTY_PATH;
+            if (SIMPLE_PROPERTY_PATH.matcher(ognlExpression).matches()) {
+                propertyNames = ognlExpression.split("\\.");
+                for (String propertyName : propertyNames) {
+                    if (OGNL_KEYWORDS.contains(propertyName)) {
+                        propertyNames = NOT_A_PROPERTY_PATH;
+                        break;
+                    }
+                }
+            }
+            propertyPaths.put(ognlExpression, propertyNames);
+        }
+        return propertyNames;
+    }
+
+
+    /**
+     * Gets the getter or field for the given property of the given class. The accessor is looked up only once.
+     *
+     * @param clazz        The class, not null
+     * @param propertyName The property, not null
+     * @return The getter or field, NO_ACCESSOR if the property should be evaluated by OGNL
+     */
+    protected Object getAccessor(Class<?> clazz, String propertyName) {
+        Map<String, Object> accessors = accessorsPerClass.get(clazz);
+        if (accessors == null) {
+            accessors = new ConcurrentHashMap<String, Object>();
+            accessorsPerClass.put(clazz, accessors);
+        }
+        Object accessor = accessors.get(propertyName);
+        if (accessor == null) {
+            accessor = findAccessor(clazz, propertyName);
+            accessors.put(propertyName, accessor);
+        }
+        return accessor;
+    }
+
+
+    /**
+     * Looks up the getter or, if there is no getter, the field for the given property of the given class. Only
+     * public, non-static getters without parameters are used: get-getters that do not return void and is-getters
+     * that return a boolean. As for OGNL, other methods with these names are ignored.
+     * Maps, collections, iterators and arrays have special property rules in OGNL, these are left to OGNL.
+     *
+     * @param clazz        The class, not null
+     * @param propertyName The property, not null
+     * @return The getter or field, NO_ACCESSOR if the property should be evaluated by OGNL
+     */
+    protected Object findAccessor(Class<?> clazz, String propertyName) {
+        if (clazz.isArray() || Map.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz) || Iterator.class.isAssignableFrom(clazz) || Enumeration.class.isAssignableFrom(clazz)) {
+            return NO_ACCESSOR;
+        }
+        if (propertyName.length() > 1 && Character.isUpperCase(propertyName.charAt(1))) {
+            // bean naming rules differ for these names, e.g. URL
+            return NO_ACCESSOR;
+        }
+        String capitalizedName = Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
+        Method getter = null;
+        for (Method method : clazz.getMethods()) {
+            if (isStatic(method.getModifiers()) || method.getParameterTypes().length != 0) {
+                continue;
+            }
+            if (method.getName().equals("is" + capitalizedName) && method.getReturnType() == Boolean.TYPE) {
+                // an is-getter takes precedence over a get-getter
+                getter = method;
+                break;
+            }
+            if (method.getName().equals("get" + capitalizedName) && method.getReturnType() != Void.TYPE) {
+                getter = method;
+            }
+        }
+        if (getter != null) {
+            // the getter can be declared by a class that is not public
+            getter.setAccessible(true);
+            return getter;
+        }
+        for (Class<?> currentClass = clazz; currentClass != null; currentClass = currentClass.getSuperclass()) {
+            for (Field field : currentClass.getDeclaredFields()) {
+                if (!isStatic(field.getModifiers()) && field.getName().equals(propertyName)) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+        }
+        return NO_ACCESSOR;
+    }
+
+
+    /**
+     * Gets the value of a property using the given getter or field.
+     *
+     * @param object         The object, not null
+     * @param accessor       The getter or field, not null
+     * @param ognlExpression The evaluated expression, for the error message
+     * @return The value
+     */
+    protected Object getPropertyValue(Object object, Object accessor, String ognlExpression) {
+        try {
+            if (accessor instanceof Method) {
+                return ((Method) accessor).invoke(object);
+            }
+            return ((Field) accessor).get(object);
+        } catch (InvocationTargetException e) {
+            throw new UnitilsException("Failed to get property value using OGNL expression " + ognlExpression, e.getCause());
+        } catch (Exception e) {
+            throw new UnitilsException("Failed to get property value using OGNL expression " + ognlExpression, e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.comparator.impl;
+
+import org.unitils.reflectionassert.ReflectionComparator;
+import static org.unitils.reflectionassert.ReflectionComparatorFactory.createRefectionComparator;
+import static org.unitils.reflectionassert.ReflectionComparatorMode.LENIENT_ORDER;
+
+import static java.util.Collections.shuffle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro benchmark for the lenient order comparison of large collections.
+ * <p/>
+ * This is not a unit test: run the main method to print the average time per comparison for growing collection
+ * sizes. Each scenario is first run a number of times to warm up the JVM, after which the measured iterations are
+ * averaged. A fresh reflection comparator is used for every iteration so that no cached results are reused.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class LenientOrderCollectionComparatorBenchmark {
+
+    /* The nr of warm up iterations per scenario */
+    private static final int WARMUP_ITERATIONS = 5;
+
+    /* The nr of measured iterations per scenario */
+    private static final int MEASURED_ITERATIONS = 10;
+
+
+    public static void main(String[] args) {
+        int[] sizes = {100, 1000, 10000};
+        for (int size : sizes) {
+            run("shuffled strings", createStrings(size), shuffled(createStrings(size)));
+            run("shuffled beans", createBeans(size), shuffled(createBeans(size)));
+            run("equal beans, one different", createEqualBeans(size, "a", "b"), createEqualBeans(size, "a", "c"));
+        }
+    }
+
+
+    private static void run(String scenario, List<?> left, List<?> right) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            compare(left, right);
+        }
+        long start = System.nanoTime();
+        boolean result = false;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            result = compare(left, right);
+        }
+        long averageMicros = (System.nanoTime() - start) / MEASURED_ITERATIONS / 1000;
+        System.out.println(scenario + ", size " + left.size() + ": " + averageMicros + " us/op (equal: " + result + ")");
+    }
+
+
+    private static boolean compare(List<?> left, List<?> right) {
+        ReflectionComparator reflectionComparator = createRefectionComparator(LENIENT_ORDER);
+        return reflectionComparator.isEqual(left, right);
+    }
+
+
+    private static List<String> createStrings(int size) {
+        List<String> result = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            result.add("value" + i);
+        }
+        return result;
+    }
+
+
+    private static List<Bean> createBeans(int size) {
+        List<Bean> result = new ArrayList<Bean>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new Bean("value" + i, i));
+        }
+        return result;
+    }
+
+
+    private static List<Bean> createEqualBeans(int size, String value, String lastValue) {
+        List<Bean> result = new ArrayList<Bean>(size);
+        for (int i = 0; i < size - 1; i++) {
+            result.add(new Bean(value, 0));
+        }
+        result.add(new Bean(lastValue, 0));
+        return result;
+    }
+
+
+    private static <T> List<T> shuffled(List<T> list) {
+        shuffle(list, new Random(0));
+        return list;
+    }
+
+
+    /**
+     * Bean without equals, so that all elements have to be compared field by field.
+     */
+    private static class Bean {
+
+        private String name;
+
+        private int number;
+
+        public Bean(String name, int number) {
+            this.name = name;
+            this.number = number;
+        }
+    }
+}
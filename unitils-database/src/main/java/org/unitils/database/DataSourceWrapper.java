@@ -2,6 +2,7 @@ package org.unitils.database;
 
 import java.sql.Connection;
 import java.util.Properties;
+import java.util.Set;
 
 import javax.sql.DataSource;
 
@@ -11,11 +12,13 @@ import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.unitils.core.Unitils;
 import org.unitils.core.UnitilsException;
 import org.unitils.core.dbsupport.DefaultSQLHandler;
+import org.unitils.core.dbsupport.PinnedConnectionSQLHandler;
 import org.unitils.core.dbsupport.SQLHandler;
 import org.unitils.core.util.ConfigUtils;
 import org.unitils.database.config.DataSourceFactory;
 import org.unitils.database.config.DatabaseConfiguration;
 import org.unitils.database.transaction.UnitilsTransactionManager;
+import org.unitils.database.util.ModifiedTablesTracker;
 import org.unitils.dbmaintainer.DBMaintainer;
 import org.unitils.dbmaintainer.clean.DBCleaner;
 import org.unitils.dbmaintainer.clean.DBClearer;
@@ -53,6 +56,12 @@ public class DataSourceWrapper {
 
     private boolean wrapDataSourceInTransactionalProxy;
 
+    /* Records the tables that are modified, null if tracking is disabled */
+    private ModifiedTablesTracker modifiedTablesTracker;
+
+    /* The data source without tracking of the modified tables, used for the database tasks of unitils itself */
+    private DataSource untrackedDataSource;
+
     public DataSourceWrapper(DatabaseConfiguration databaseConfiguration, UnitilsTransactionManager transactionManager) {
         this(databaseConfiguration, Unitils.getInstance().getConfiguration(), transactionManager);
     }
@@ -64,6 +73,9 @@ public class DataSourceWrapper {
         dataSourceFactory.init(databaseConfiguration);
         updateDatabaseSchemaEnabled = PropertyUtils.getBoolean(DatabaseModule.PROPERTY_UPDATEDATABASESCHEMA_ENABLED, configuration);
         wrapDataSourceInTransactionalProxy = PropertyUtils.getBoolean(DatabaseModule.PROPERTY_WRAP_DATASOURCE_IN_TRANSACTIONAL_PROXY, configuration);
+        if (PropertyUtils.getBoolean(DatabaseModule.PROPERTY_TRACK_MODIFIED_TABLES, false, configuration)) {
+            modifiedTablesTracker = new ModifiedTablesTracker();
+        }
         databaseName = databaseConfiguration.getDatabaseName();
         this.databaseConfiguration = databaseConfiguration;
         this.transactionManager = transactionmanager;
@@ -116,7 +128,12 @@ public class DataSourceWrapper {
 
         // Call the database maintainer if enabled
         if (updateDatabaseSchemaEnabled) {
-            updateDatabase(new DefaultSQLHandler(dataSource));
+            updateDatabase(dataSource);
+        }
+        // only track the modifications that are made after the update
+        untrackedDataSource = dataSource;
+        if (modifiedTablesTracker != null) {
+            dataSource = modifiedTablesTracker.getTrackingDataSource(dataSource);
         }
         return dataSource;
     }
@@ -126,7 +143,22 @@ public class DataSourceWrapper {
      * latest changes. See {@link DBMaintainer} for more information.
      */
     public void updateDatabase() {
-        updateDatabase(getDefaultSqlHandler());
+        updateDatabase(getUntrackedDataSource());
+    }
+
+
+    /**
+     * Updates the database using an SQLHandler that executes all statements of the update on the same connection.
+     *
+     * @param dataSource The data source of the database, not null
+     */
+    protected void updateDatabase(DataSource dataSource) {
+        PinnedConnectionSQLHandler sqlHandler = createPinnedConnectionSqlHandler(dataSource);
+        try {
+            updateDatabase(sqlHandler);
+        } finally {
+            sqlHandler.close();
+        }
     }
 
 
@@ -148,7 +180,32 @@ public class DataSourceWrapper {
      *         test database
      */
     protected SQLHandler getDefaultSqlHandler() {
-        return new DefaultSQLHandler(getDataSourceAndActivateTransactionIfNeeded());
+        return new DefaultSQLHandler(getUntrackedDataSource());
+    }
+
+
+    /**
+     * Gets the data source for the database tasks of unitils itself, e.g. cleaning or updating the database. The
+     * statements of these tasks are not recorded as modifications of the tables, otherwise the tables cleaned by
+     * {@link #cleanModifiedTables} would be cleaned again the next time.
+     *
+     * @return The data source without tracking of the modified tables, not null
+     */
+    protected DataSource getUntrackedDataSource() {
+        DataSource dataSource = getDataSourceAndActivateTransactionIfNeeded();
+        if (untrackedDataSource == null) {
+            return dataSource;
+        }
+        return untrackedDataSource;
+    }
+
+
+    /**
+     * @param dataSource The data source, not null
+     * @return An SQLHandler that executes all statements on the same connection until it is closed, not null
+     */
+    protected PinnedConnectionSQLHandler createPinnedConnectionSqlHandler(DataSource dataSource) {
+        return new PinnedConnectionSQLHandler(dataSource);
     }
 
     /**
@@ -187,7 +244,12 @@ public class DataSourceWrapper {
      * Clears all configured schema's. I.e. drops all tables, views and other database objects.
      */
     public void clearSchemas() {
-        getConfiguredDatabaseTaskInstance(DBClearer.class).clearSchemas();
+        PinnedConnectionSQLHandler sqlHandler = createPinnedConnectionSqlHandler(getUntrackedDataSource());
+        try {
+            getConfiguredDatabaseTaskInstance(DBClearer.class, sqlHandler).clearSchemas();
+        } finally {
+            sqlHandler.close();
+        }
     }
 
 
@@ -199,6 +261,26 @@ public class DataSourceWrapper {
     }
 
 
+    /**
+     * Removes all data from the tables that were modified using the data source since the previous call. If tracking
+     * modified tables is disabled or if it is not known which tables were modified, e.g. because a stored procedure
+     * was called, all schemas are cleaned. The cleaning itself is not tracked, see {@link #getUntrackedDataSource}.
+     */
+    public void cleanModifiedTables() {
+        Set<String> modifiedTableNames = null;
+        if (modifiedTablesTracker != null) {
+            modifiedTableNames = modifiedTablesTracker.getAndResetModifiedTableNames();
+        }
+        if (modifiedTableNames == null) {
+            cleanSchemas();
+            return;
+        }
+        if (!modifiedTableNames.isEmpty()) {
+            getConfiguredDatabaseTaskInstance(DBCleaner.class).cleanTables(modifiedTableNames);
+        }
+    }
+
+
     /**
      * Disables all foreigh key and not-null constraints on the configured schema's.
      */
@@ -207,6 +289,15 @@ public class DataSourceWrapper {
     }
 
 
+    /**
+     * Switches the foreign key constraints that were disabled back on and validates the existing data, if this is
+     * supported by the database.
+     */
+    public void restoreConstraints() {
+        getConfiguredDatabaseTaskInstance(ConstraintsDisabler.class).restoreConstraints();
+    }
+
+
     /**
      * Updates all sequences that have a value below a certain configurable treshold to become equal
      * to this treshold
@@ -221,7 +312,17 @@ public class DataSourceWrapper {
      * @param databaseTaskType The type of database task, not null
      */
     protected <T extends DatabaseAccessing> T getConfiguredDatabaseTaskInstance(Class<T> databaseTaskType) {
-        return DatabaseModuleConfigUtils.getConfiguredDatabaseTaskInstance(databaseTaskType, configuration, getDefaultSqlHandler(), databaseConfiguration.getDialect(), databaseConfiguration.getSchemaNames());
+        return getConfiguredDatabaseTaskInstance(databaseTaskType, getDefaultSqlHandler());
+    }
+
+    /**
+     * @return A configured instance of {@link DatabaseAccessing} of the given type
+     *
+     * @param databaseTaskType The type of database task, not null
+     * @param sqlHandler The SQLHandler that the task should use, not null
+     */
+    protected <T extends DatabaseAccessing> T getConfiguredDatabaseTaskInstance(Class<T> databaseTaskType, SQLHandler sqlHandler) {
+        return DatabaseModuleConfigUtils.getConfiguredDatabaseTaskInstance(databaseTaskType, configuration, sqlHandler, databaseConfiguration.getDialect(), databaseConfiguration.getSchemaNames());
     }
 
     /**
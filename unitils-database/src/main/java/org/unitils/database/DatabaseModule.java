@@ -113,6 +113,12 @@ public class DatabaseModule implements Module {
      */
     public static final String PROPERTY_WRAP_DATASOURCE_IN_TRANSACTIONAL_PROXY = "dataSource.wrapInTransactionalProxy";
 
+    /**
+     * Property indicating whether the tables that are modified using the data source should be tracked, so that
+     * only these tables are cleaned by {@link DatabaseUnitils#cleanModifiedTables()}
+     */
+    public static final String PROPERTY_TRACK_MODIFIED_TABLES = "dataSource.trackModifiedTables";
+
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(DatabaseModule.class);
 
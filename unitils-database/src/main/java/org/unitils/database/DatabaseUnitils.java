@@ -163,6 +163,23 @@ public class DatabaseUnitils {
     }
 
 
+    /**
+     * Removes all data from the tables that were modified since the previous call. This requires the property
+     * dataSource.trackModifiedTables to be set to true, otherwise all schemas are cleaned.
+     */
+    public static void cleanModifiedTables() {
+        cleanModifiedTables("");
+    }
+
+    /**
+     * Removes all data from the tables that were modified since the previous call. This requires the property
+     * dataSource.trackModifiedTables to be set to true, otherwise all schemas are cleaned.
+     */
+    public static void cleanModifiedTables(String databaseName) {
+        getDatabaseModule().getWrapper(databaseName).cleanModifiedTables();
+    }
+
+
     /**
      * Disables all foreign key and not-null constraints on the configured schema's.
      */
@@ -178,6 +195,23 @@ public class DatabaseUnitils {
     }
 
 
+    /**
+     * Switches the foreign key constraints that were disabled back on and validates the existing data, if this is
+     * supported by the database.
+     */
+    public static void restoreConstraints() {
+        restoreConstraints("");
+    }
+
+    /**
+     * Switches the foreign key constraints that were disabled back on and validates the existing data, if this is
+     * supported by the database.
+     */
+    public static void restoreConstraints(String databaseName) {
+        getDatabaseModule().getWrapper(databaseName).restoreConstraints();
+    }
+
+
     /**
      * Updates all sequences that have a value below a certain configurable treshold to become equal
      * to this treshold
@@ -18,6 +18,7 @@ package org.unitils.database;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.SchemaMetadataCache;
 import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
 
 import javax.sql.DataSource;
@@ -41,7 +42,8 @@ public class SQLUnitils {
 
 
     /**
-     * Executes the given update statement.
+     * Executes the given update statement. If the statement changes the structure of the database, the
+     * {@link SchemaMetadataCache} of the data source is invalidated.
      *
      * @param sql        The sql string for retrieving the items
      * @param dataSource The data source, not null
@@ -61,6 +63,9 @@ public class SQLUnitils {
             throw new UnitilsException("Error while executing statement: " + sql, e);
         } finally {
             closeQuietly(connection, statement, null);
+            if (SchemaMetadataCache.isStructureChange(sql)) {
+                SchemaMetadataCache.invalidate(dataSource);
+            }
         }
     }
 
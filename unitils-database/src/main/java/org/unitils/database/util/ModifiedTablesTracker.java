@@ -0,0 +1,280 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.core.dbsupport.SchemaMetadataCache;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps track of the tables that are modified through a data source, so that only these tables have to be cleaned
+ * afterwards.
+ * <p/>
+ * The data source is wrapped in a proxy that inspects every SQL statement that is executed, prepared or added to a
+ * batch. The target table of insert, update, delete, merge, replace and truncate statements is recorded. Queries and
+ * session statements, such as commit, are ignored. For all other statements, e.g. DDL, procedure calls or statements
+ * that cannot be parsed, it is impossible to tell which tables were modified. These mark all tables as modified.
+ * <p/>
+ * Prepared statements are recorded when they are prepared, even if they are never executed. This can only cause
+ * an extra table to be cleaned.
+ * <p/>
+ * Statements that change the structure of the database invalidate the {@link SchemaMetadataCache} of the tracked data
+ * source.
+ * <p/>
+ * The recorded table names are returned as they were written in the statement, e.g. my_schema.my_table. Quoted
+ * parts are always returned between double quotes, also when they were quoted using back-quotes or brackets.
+ * <p/>
+ * A tracker can be used by different threads.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ModifiedTablesTracker {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(ModifiedTablesTracker.class);
+
+    /* Pattern for a possibly qualified and quoted table name */
+    private static final String TABLE_NAME = "((?:\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\]|[\\w$#]+)(?:\\s*\\.\\s*(?:\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\]|[\\w$#]+))*)";
+
+    /* Patterns for statements that modify the data of a table, the first group is the table name */
+    private static final Pattern[] MODIFYING_STATEMENT_PATTERNS = {
+            Pattern.compile("insert\\s+(?:ignore\\s+)?into\\s+" + TABLE_NAME + ".*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL),
+            Pattern.compile("replace\\s+(?:into\\s+)?" + TABLE_NAME + ".*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL),
+            Pattern.compile("update\\s+(?:only\\s+)?" + TABLE_NAME + ".*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL),
+            Pattern.compile("delete\\s+(?:from\\s+)?(?:only\\s+)?" + TABLE_NAME + ".*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL),
+            Pattern.compile("merge\\s+into\\s+" + TABLE_NAME + ".*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL),
+            Pattern.compile("truncate\\s+(?:table\\s+)?" + TABLE_NAME + ".*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL)};
+
+    /* Pattern for statements that do not modify data */
+    private static final Pattern READ_ONLY_STATEMENT_PATTERN = Pattern.compile("(select|show|explain|describe|values|set|commit|rollback|savepoint|release)\\b.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /* Pattern for leading white space and comments */
+    private static final Pattern LEADING_COMMENTS_PATTERN = Pattern.compile("(\\s+|--[^\\n]*(\\n|$)|/\\*.*?\\*/)*", Pattern.DOTALL);
+
+    /* The data source that is tracked, null if not known */
+    private DataSource dataSource;
+
+    /* The names of the tables that were modified */
+    private Set<String> modifiedTableNames = new HashSet<String>();
+
+    /* True if a statement was executed of which the modified tables are not known */
+    private boolean allTablesModified;
+
+
+    /**
+     * Wraps the given data source, so that the tables that are modified using its connections are recorded by this
+     * tracker.
+     *
+     * @param dataSource The data source to wrap, not null
+     * @return The tracking data source, not null
+     */
+    public DataSource getTrackingDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+        return createProxy(DataSource.class, dataSource);
+    }
+
+
+    /**
+     * Gets the names of the tables that were modified since the previous call and starts tracking from scratch.
+     *
+     * @return The table names, null if it is not known which tables were modified
+     */
+    public synchronized Set<String> getAndResetModifiedTableNames() {
+        Set<String> result = allTablesModified ? null : modifiedTableNames;
+        modifiedTableNames = new HashSet<String>();
+        allTablesModified = false;
+        return result;
+    }
+
+
+    /**
+     * Records the table that is modified by the given statement.
+     *
+     * @param sql The statement, not null
+     */
+    public void recordStatement(String sql) {
+        sql = sql.substring(getEndOfLeadingComments(sql)).trim();
+        if (sql.endsWith(";")) {
+            sql = sql.substring(0, sql.length() - 1);
+        }
+        if (READ_ONLY_STATEMENT_PATTERN.matcher(sql).matches()) {
+            return;
+        }
+        if (sql.indexOf(';') == -1) {
+            for (Pattern pattern : MODIFYING_STATEMENT_PATTERNS) {
+                Matcher matcher = pattern.matcher(sql);
+                if (matcher.matches()) {
+                    recordModifiedTable(normalizeTableName(matcher.group(1)));
+                    return;
+                }
+            }
+        }
+        recordUnknownModification(sql);
+    }
+
+
+    /**
+     * Invalidates the cached metadata of the tracked data source, if the given statement changes the structure of the
+     * database.
+     *
+     * @param sql The executed or prepared statement, not null
+     */
+    protected void invalidateSchemaMetadataIfNeeded(String sql) {
+        if (SchemaMetadataCache.isStructureChange(sql.substring(getEndOfLeadingComments(sql)))) {
+            SchemaMetadataCache.invalidate(dataSource);
+        }
+    }
+
+
+    /**
+     * @param tableName The name of the modified table, not null
+     */
+    protected synchronized void recordModifiedTable(String tableName) {
+        modifiedTableNames.add(tableName);
+    }
+
+
+    /**
+     * Marks all tables as modified.
+     *
+     * @param sql The statement of which the modified tables are not known, not null
+     */
+    protected synchronized void recordUnknownModification(String sql) {
+        if (!allTablesModified) {
+            logger.debug("Unable to determine the tables that are modified by statement " + sql + ". All tables will be cleaned.");
+        }
+        allTablesModified = true;
+    }
+
+
+    /**
+     * Removes the white space around the parts of the given table name and puts all quoted parts between double
+     * quotes.
+     *
+     * @param tableName The table name as found in the statement, not null
+     * @return The normalized name, not null
+     */
+    protected String normalizeTableName(String tableName) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < tableName.length(); i++) {
+            char c = tableName.charAt(i);
+            if (c == '"' || c == '`' || c == '[') {
+                char endQuote = c == '[' ? ']' : c;
+                int end = tableName.indexOf(endQuote, i + 1);
+                result.append('"').append(tableName, i + 1, end).append('"');
+                i = end;
+            } else if (!Character.isWhitespace(c)) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+
+    /**
+     * @param sql The statement, not null
+     * @return The index of the first character after the leading white space and comments
+     */
+    protected int getEndOfLeadingComments(String sql) {
+        Matcher matcher = LEADING_COMMENTS_PATTERN.matcher(sql);
+        return matcher.lookingAt() ? matcher.end() : 0;
+    }
+
+
+    /**
+     * Creates a proxy for the given JDBC object that records the statements and wraps the connections and statements
+     * it returns.
+     *
+     * @param type   The JDBC interface, not null
+     * @param target The object to wrap, not null
+     * @return The proxy, not null
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T createProxy(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, new TrackingInvocationHandler(target));
+    }
+
+
+    /**
+     * Invocation handler that records the SQL statements that are passed to a data source, connection or statement.
+     */
+    protected class TrackingInvocationHandler implements InvocationHandler {
+
+        /* The wrapped data source, connection or statement */
+        private Object target;
+
+
+        public TrackingInvocationHandler(Object target) {
+            this.target = target;
+        }
+
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("equals".equals(methodName) && args != null && args.length == 1) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(methodName) && args == null) {
+                return System.identityHashCode(proxy);
+            }
+            String sql = null;
+            if (args != null && args.length > 0 && args[0] instanceof String && isSqlMethod(methodName)) {
+                sql = (String) args[0];
+                recordStatement(sql);
+            }
+
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (sql != null) {
+                    invalidateSchemaMetadataIfNeeded(sql);
+                }
+            }
+            if (result instanceof Connection && method.getReturnType() == Connection.class) {
+                return createProxy(Connection.class, (Connection) result);
+            }
+            if (result instanceof Statement && method.getReturnType() == Statement.class) {
+                return createProxy(Statement.class, (Statement) result);
+            }
+            return result;
+        }
+
+
+        /**
+         * @param methodName The JDBC method, not null
+         * @return True if the first argument of the method is an SQL statement
+         */
+        protected boolean isSqlMethod(String methodName) {
+            return methodName.startsWith("execute") || methodName.startsWith("prepare") || "addBatch".equals(methodName);
+        }
+    }
+}
@@ -15,10 +15,14 @@
  */
 package org.unitils.dbmaintainer;
 
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.unitils.core.UnitilsException;
+import static org.unitils.core.dbsupport.DbSupportFactory.createDbSupport;
+import org.unitils.core.dbsupport.DbSupport;
 import org.unitils.core.dbsupport.SQLHandler;
+import org.unitils.core.dbsupport.SchemaMetadataCache;
 import org.unitils.core.util.ConfigUtils;
 import org.unitils.dbmaintainer.clean.DBCleaner;
 import org.unitils.dbmaintainer.clean.DBClearer;
@@ -26,16 +30,21 @@ import org.unitils.dbmaintainer.script.ExecutedScript;
 import org.unitils.dbmaintainer.script.Script;
 import org.unitils.dbmaintainer.script.ScriptRunner;
 import org.unitils.dbmaintainer.script.ScriptSource;
+import org.unitils.dbmaintainer.snapshot.SchemaSnapshotter;
 import org.unitils.dbmaintainer.structure.ConstraintsDisabler;
 import org.unitils.dbmaintainer.structure.DataSetStructureGenerator;
 import org.unitils.dbmaintainer.structure.SequenceUpdater;
 
 import static org.unitils.dbmaintainer.util.DatabaseModuleConfigUtils.getConfiguredDatabaseTaskInstance;
+import static org.unitils.dbmaintainer.util.DatabaseTaskExecutor.PROPKEY_NR_OF_THREADS;
+import org.unitils.dbmaintainer.util.DatabaseTaskExecutor;
+import org.unitils.dbmaintainer.util.DatabaseTaskExecutor.DatabaseTask;
 
 import org.unitils.dbmaintainer.version.ExecutedScriptInfoSource;
 import org.unitils.dbmaintainer.version.Version;
 import org.unitils.util.PropertyUtils;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
@@ -60,7 +69,12 @@ import java.util.Set;
  * updated to a value equal to or larger than this treshold</li>
  * <li>A DTD is generated that describes the database's table structure, to use in test data XML
  * files</li>
+ * <li>A snapshot of the database is taken. When the database has to be updated from scratch later on, and
+ * the scripts are still the same, the snapshot is restored instead of executing all scripts again.</li>
  * </ul>
+ * <p/> Post processing scripts that are located in a folder with the configured parallel directory name, are
+ * independent of each other. If more than 1 thread is configured, consecutive independent scripts are executed
+ * concurrently, each thread using a connection of its own. The failures of these scripts are reported together.
  * <p/> To obtain a properly configured <code>DBMaintainer</code>, invoke the constructor
  * {@link #DBMaintainer(Properties,SQLHandler)} with a <code>TestDataSource</code> providing
  * access to the database and a <code>Configuration</code> object containing all necessary
@@ -110,6 +124,17 @@ public class DBMaintainer {
      */
     public static final String PROPKEY_GENERATE_DATA_SET_STRUCTURE_ENABLED = "dbMaintainer.generateDataSetStructure.enabled";
 
+    /**
+     * Property that indicates if a snapshot of the database is taken after updating, to restore it in later from
+     * scratch updates
+     */
+    public static final String PROPKEY_SNAPSHOT_ENABLED = "dbMaintainer.snapshot.enabled";
+
+    /**
+     * Property for the name of the folders containing post processing scripts that do not depend on each other
+     */
+    public static final String PROPKEY_PARALLEL_POST_PROCESSING_DIR_NAME = "dbMaintainer.postProcessingScript.parallelDirectoryName";
+
     /**
      * Provider of the current version of the database, and means to increment it
      */
@@ -150,6 +175,11 @@ public class DBMaintainer {
      */
     protected DataSetStructureGenerator dataSetStructureGenerator;
 
+    /**
+     * Takes and restores snapshots of the database, null if disabled
+     */
+    protected SchemaSnapshotter schemaSnapshotter;
+
     /**
      * Indicates whether updating the database from scratch is enabled. If true, the database is
      * cleared before updating if an already executed script is modified
@@ -171,6 +201,31 @@ public class DBMaintainer {
 
     protected String dialect;
 
+    /**
+     * The name of the folders containing independent post processing scripts, null if there are none
+     */
+    protected String parallelPostProcessingDirName;
+
+    /**
+     * The max nr of threads for executing independent post processing scripts, 1 to execute them one by one
+     */
+    protected int nrOfThreads = 1;
+
+    /**
+     * The configuration, for creating the script runners of the threads
+     */
+    protected Properties configuration;
+
+    /**
+     * The SQL handler, provides the data source for the script runners of the threads
+     */
+    protected SQLHandler sqlHandler;
+
+    /**
+     * The names of the schemas, for creating the script runners of the threads
+     */
+    protected List<String> schemaNames;
+
     /**
      * Default constructor for testing.
      */
@@ -214,11 +269,22 @@ public class DBMaintainer {
             if (generateDtd) {
                 dataSetStructureGenerator = getConfiguredDatabaseTaskInstance(DataSetStructureGenerator.class, configuration, sqlHandler, dialect, schemaNames);
             }
+
+            boolean snapshotEnabled = PropertyUtils.getBoolean(PROPKEY_SNAPSHOT_ENABLED, configuration);
+            if (snapshotEnabled) {
+                schemaSnapshotter = getConfiguredDatabaseTaskInstance(SchemaSnapshotter.class, configuration, sqlHandler, dialect, schemaNames);
+            }
+
+            parallelPostProcessingDirName = PropertyUtils.getString(PROPKEY_PARALLEL_POST_PROCESSING_DIR_NAME, null, configuration);
+            nrOfThreads = PropertyUtils.getInt(PROPKEY_NR_OF_THREADS, 1, configuration);
         } catch (UnitilsException e) {
             logger.error("Error while initializing DbMaintainer", e);
             throw e;
         }
         this.dialect = dialect;
+        this.configuration = configuration;
+        this.sqlHandler = sqlHandler;
+        this.schemaNames = schemaNames;
     }
 
 
@@ -245,13 +311,99 @@ public class DBMaintainer {
             dbClearer.clearSchemas();
             // reset the database version
             versionSource.clearAllExecutedScripts();
+            List<Script> allScripts = scriptSource.getAllUpdateScripts(dialect, databaseName, defaultDatabase);
+            // restore a snapshot of these scripts instead of executing them, if there is one
+            if (schemaSnapshotter != null && restoreSnapshot(allScripts, databaseName, defaultDatabase)) {
+                return;
+            }
             // update database with all scripts
-            updateDatabase(scriptSource.getAllUpdateScripts(dialect, databaseName, defaultDatabase), databaseName, defaultDatabase);
+            updateDatabase(allScripts, databaseName, defaultDatabase);
+            if (schemaSnapshotter != null) {
+                createSnapshot(allScripts, databaseName, defaultDatabase);
+            }
             return;
         }
 
         // perform an incremental update
-        updateDatabase(scriptSource.getNewScripts(highestExecutedScriptVersion, alreadyExecutedScripts, dialect, databaseName, defaultDatabase), databaseName, defaultDatabase);
+        List<Script> newScripts = scriptSource.getNewScripts(highestExecutedScriptVersion, alreadyExecutedScripts, dialect, databaseName, defaultDatabase);
+        updateDatabase(newScripts, databaseName, defaultDatabase);
+        if (schemaSnapshotter != null && !newScripts.isEmpty()) {
+            createSnapshot(scriptSource.getAllUpdateScripts(dialect, databaseName, defaultDatabase), databaseName, defaultDatabase);
+        }
+    }
+
+
+    /**
+     * Restores the snapshot that was taken after executing the given scripts, if there is one. The database must
+     * have been cleared. The scripts are then registered as executed and the steps that follow an update, such as
+     * disabling the constraints, are performed again. If restoring fails, the database is cleared again, so that
+     * the scripts can be executed instead.
+     *
+     * @param scripts         All update scripts, not null
+     * @param databaseName    The name of the database
+     * @param defaultDatabase True for the default database
+     * @return True if the snapshot was restored, false if the scripts should be executed
+     */
+    protected boolean restoreSnapshot(List<Script> scripts, String databaseName, boolean defaultDatabase) {
+        try {
+            if (!schemaSnapshotter.restoreSnapshot(databaseName, getSnapshotScripts(scripts, databaseName, defaultDatabase))) {
+                return false;
+            }
+        } catch (UnitilsException e) {
+            logger.warn("Unable to restore the database snapshot. All scripts will be executed instead.", e);
+            constraintsDisabler.disableConstraints();
+            dbClearer.clearSchemas();
+            versionSource.clearAllExecutedScripts();
+            return false;
+        }
+        invalidateSchemaMetadata();
+
+        // the snapshot also contains the executed scripts, but the scripts are registered again to be sure
+        // the version source is up to date
+        versionSource.clearAllExecutedScripts();
+        versionSource.registerExecutedScripts(toExecutedScripts(scripts));
+        if (disableConstraintsEnabled) {
+            constraintsDisabler.disableConstraints();
+        }
+        if (sequenceUpdater != null) {
+            sequenceUpdater.updateSequences();
+        }
+        if (dataSetStructureGenerator != null) {
+            dataSetStructureGenerator.generateDataSetStructure();
+        }
+        return true;
+    }
+
+
+    /**
+     * Takes a snapshot of the database, which is now up to date with the given scripts. A failure is logged, but it
+     * does not make the update fail: without snapshot the scripts are simply executed again the next time.
+     *
+     * @param scripts         All update scripts, not null
+     * @param databaseName    The name of the database
+     * @param defaultDatabase True for the default database
+     */
+    protected void createSnapshot(List<Script> scripts, String databaseName, boolean defaultDatabase) {
+        try {
+            schemaSnapshotter.createSnapshot(databaseName, getSnapshotScripts(scripts, databaseName, defaultDatabase));
+        } catch (UnitilsException e) {
+            logger.warn("Unable to create a snapshot of the database.", e);
+        }
+    }
+
+
+    /**
+     * Gets the scripts that identify a snapshot: the given update scripts followed by the post processing scripts.
+     *
+     * @param scripts         All update scripts, not null
+     * @param databaseName    The name of the database
+     * @param defaultDatabase True for the default database
+     * @return The scripts, not null
+     */
+    protected List<Script> getSnapshotScripts(List<Script> scripts, String databaseName, boolean defaultDatabase) {
+        List<Script> snapshotScripts = new ArrayList<Script>(scripts);
+        snapshotScripts.addAll(scriptSource.getPostProcessingScripts(dialect, databaseName, defaultDatabase));
+        return snapshotScripts;
     }
 
 
@@ -278,9 +430,23 @@ public class DBMaintainer {
         versionSource.clearAllExecutedScripts();
 
         List<Script> allScripts = scriptSource.getAllUpdateScripts(dialect, databaseName, defaultDatabase);
-        for (Script script : allScripts) {
-            versionSource.registerExecutedScript(new ExecutedScript(script, new Date(), true));
+        versionSource.registerExecutedScripts(toExecutedScripts(allScripts));
+    }
+
+
+    /**
+     * Creates successful executions of the given scripts, so that they can be registered at once.
+     *
+     * @param scripts The scripts, not null
+     * @return The executed scripts, not null
+     */
+    protected List<ExecutedScript> toExecutedScripts(List<Script> scripts) {
+        Date executedAt = new Date();
+        List<ExecutedScript> executedScripts = new ArrayList<ExecutedScript>();
+        for (Script script : scripts) {
+            executedScripts.add(new ExecutedScript(script, executedAt, true));
         }
+        return executedScripts;
     }
 
 
@@ -303,11 +469,16 @@ public class DBMaintainer {
             dbCleaner.cleanSchemas();
         }
 
-        // Excute all of the scripts
-        executeScripts(scripts);
-
-        // Execute postprocessing scripts, if any
-        executePostProcessingScripts(scriptSource.getPostProcessingScripts(dialect, schema, defaultDatabase));
+        try {
+            // Excute all of the scripts
+            executeScripts(scripts);
+
+            // Execute postprocessing scripts, if any
+            executePostProcessingScripts(scriptSource.getPostProcessingScripts(dialect, schema, defaultDatabase));
+        } finally {
+            // the scripts are not executed by the sql handler, so the cached metadata has to be dropped explicitly
+            invalidateSchemaMetadata();
+        }
 
         // Disable FK and not null constraints, if enabled
         if (disableConstraintsEnabled) {
@@ -356,14 +527,33 @@ public class DBMaintainer {
     }
 
 
+    /**
+     * Invalidates the cached metadata of the database, since the scripts could have changed its structure. The
+     * sequence updater and data set structure generator that run after the scripts then see the new structure.
+     */
+    protected void invalidateSchemaMetadata() {
+        SchemaMetadataCache.invalidate(sqlHandler.getDataSource());
+    }
+
+
     /**
      * Executes the given post processing scripts on the database. If not successful, the scripts update
      * is registered as not successful, so that an update from scratch will be triggered the next time.
+     * <p/>
+     * Consecutive independent scripts are executed concurrently if more than 1 thread is configured. The scripts
+     * that follow them are only executed when all of them are finished.
      *
      * @param postProcessingScripts The scripts to execute, not null
      */
     protected void executePostProcessingScripts(List<Script> postProcessingScripts) {
+        List<Script> independentScripts = new ArrayList<Script>();
         for (Script script : postProcessingScripts) {
+            if (nrOfThreads > 1 && isIndependentPostProcessingScript(script)) {
+                independentScripts.add(script);
+                continue;
+            }
+            executeIndependentPostProcessingScripts(independentScripts);
+            independentScripts.clear();
             try {
                 logger.info("Executing post processing script " + script.getFileName());
                 scriptRunner.execute(script.getScriptContentHandle());
@@ -373,6 +563,81 @@ public class DBMaintainer {
                 throw e;
             }
         }
+        executeIndependentPostProcessingScripts(independentScripts);
+    }
+
+
+    /**
+     * Executes the given independent post processing scripts concurrently, as tasks of a
+     * {@link DatabaseTaskExecutor}. Every task executes its script with a script runner and connection of its own. A
+     * failing script does not stop the other scripts. When all scripts are finished, an exception is thrown that
+     * lists all failed scripts.
+     *
+     * @param scripts The scripts to execute, not null
+     */
+    protected void executeIndependentPostProcessingScripts(List<Script> scripts) {
+        if (scripts.isEmpty()) {
+            return;
+        }
+        final List<String> failedScriptNames = new ArrayList<String>();
+        final List<UnitilsException> failures = new ArrayList<UnitilsException>();
+
+        DbSupport dbSupport = createDbSupport(configuration, sqlHandler, CollectionUtils.isEmpty(schemaNames) ? "" : schemaNames.get(0), dialect);
+        List<DatabaseTask> tasks = new ArrayList<DatabaseTask>();
+        for (final Script script : scripts) {
+            tasks.add(new DatabaseTask(dbSupport) {
+                public void execute(DbSupport taskDbSupport) {
+                    try {
+                        logger.info("Executing post processing script " + script.getFileName());
+                        createScriptRunner(taskDbSupport.getSQLHandler()).execute(script.getScriptContentHandle());
+
+                    } catch (UnitilsException e) {
+                        logger.error("Error while executing post processing script " + script.getFileName(), e);
+                        synchronized (failures) {
+                            failedScriptNames.add(script.getFileName());
+                            failures.add(e);
+                        }
+                    }
+                }
+            });
+        }
+        new DatabaseTaskExecutor(configuration, sqlHandler, dialect, nrOfThreads).execute(tasks);
+
+        if (!failures.isEmpty()) {
+            StringBuilder message = new StringBuilder();
+            message.append(failures.size()).append(" of ").append(scripts.size()).append(" post processing scripts failed:");
+            for (int i = 0; i < failures.size(); i++) {
+                message.append("\n").append(failedScriptNames.get(i)).append(": ").append(failures.get(i).getMessage());
+            }
+            throw new UnitilsException(message.toString(), failures.get(0));
+        }
+    }
+
+
+    /**
+     * Checks whether the given post processing script is independent of the other post processing scripts: it should
+     * be located in a folder with the configured parallel directory name.
+     *
+     * @param script The post processing script, not null
+     * @return True if the script can be executed concurrently with other independent scripts
+     */
+    protected boolean isIndependentPostProcessingScript(Script script) {
+        if (parallelPostProcessingDirName == null || parallelPostProcessingDirName.length() == 0) {
+            return false;
+        }
+        String fileName = script.getFileName();
+        return fileName.startsWith(parallelPostProcessingDirName + "/") || fileName.contains("/" + parallelPostProcessingDirName + "/");
+    }
+
+
+    /**
+     * Creates a script runner that executes its statements using the given SQL handler.
+     *
+     * @param workerSqlHandler The SQL handler, not null
+     * @return The script runner, not null
+     */
+    protected ScriptRunner createScriptRunner(SQLHandler workerSqlHandler) {
+        return getConfiguredDatabaseTaskInstance(ScriptRunner.class, configuration, workerSqlHandler, dialect, schemaNames);
     }
 
 
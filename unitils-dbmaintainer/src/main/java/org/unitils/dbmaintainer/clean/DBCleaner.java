@@ -17,6 +17,8 @@ package org.unitils.dbmaintainer.clean;
 
 import org.unitils.dbmaintainer.util.DatabaseAccessing;
 
+import java.util.Set;
+
 /**
  * Defines the contract for implementations that delete data from the database, that could cause problems when performing
  * updates to the database, such as adding not null columns or foreign key constraints.
@@ -32,4 +34,14 @@ public interface DBCleaner extends DatabaseAccessing {
      */
     void cleanSchemas();
 
+
+    /**
+     * Delete data from the given tables only, e.g. the tables that were modified by a test. Tables that should be
+     * preserved are left untouched, as with {@link #cleanSchemas}.
+     *
+     * @param tableNames The names of the tables, optionally prefixed with the schema name. Quoted names are case
+     *                   sensitive. Not null
+     */
+    void cleanTables(Set<String> tableNames);
+
 }
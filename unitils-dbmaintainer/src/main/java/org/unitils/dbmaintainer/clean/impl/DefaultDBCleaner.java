@@ -17,16 +17,31 @@ package org.unitils.dbmaintainer.clean.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
 import org.unitils.core.dbsupport.DbSupport;
 import static org.unitils.core.util.StoredIdentifierCase.MIXED_CASE;
 import org.unitils.dbmaintainer.clean.DBCleaner;
 import static org.unitils.dbmaintainer.clean.impl.DefaultDBClearer.PROPKEY_PRESERVE_SCHEMAS;
+import org.unitils.dbmaintainer.util.DatabaseTaskExecutor;
+import org.unitils.dbmaintainer.util.DatabaseTaskExecutor.DatabaseTask;
+import static org.unitils.dbmaintainer.util.DatabaseTaskExecutor.PROPKEY_NR_OF_THREADS;
+import static org.unitils.util.PropertyUtils.getBoolean;
+import static org.unitils.util.PropertyUtils.getInt;
 import static org.unitils.util.PropertyUtils.getStringList;
+import static org.unitils.util.CollectionUtils.asSet;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.unitils.dbmaintainer.util.BaseDatabaseAccessor;
 /**
@@ -34,6 +49,17 @@ import org.unitils.dbmaintainer.util.BaseDatabaseAccessor;
  * that are configured as tables to preserve. This includes the tables that are listed in the property
  * {@link #PROPKEY_PRESERVE_TABLES}, {@link #PROPKEY_PRESERVE_DATA_TABLES}. and the table that is configured as
  * version table using the property {@link #PROPKEY_VERSION_TABLE_NAME}.
+ * <p/>
+ * If the property {@link #PROPKEY_TRUNCATE_ENABLED} is set to true and the database supports it, the tables of a schema
+ * are emptied all at once using truncate table, see {@link DbSupport#truncateTables}. When truncating fails, the
+ * records are deleted table per table instead.
+ * <p/>
+ * If the property {@link DatabaseTaskExecutor#PROPKEY_NR_OF_THREADS} is set to more than 1 thread, the schemas are
+ * cleaned concurrently, each worker using its own connection. When the tables are not truncated, the tables of a
+ * schema are also split over the workers. Deleting records from a table can then fail because a table that refers
+ * to it is not yet cleaned: these tables are cleaned again, one after the other, when all workers are finished. This
+ * is repeated for the tables that still fail, as long as every pass cleans at least one of them, so that chains of
+ * foreign keys are also cleaned.
  *
  * @author Tim Ducheyne
  * @author Filip Neven
@@ -61,9 +87,18 @@ public class DefaultDBCleaner extends BaseDatabaseAccessor implements DBCleaner
      */
     public static final String PROPKEY_VERSION_TABLE_NAME = "dbMaintainer.executedScriptsTableName";
 
+    /**
+     * Property key that indicates whether tables should be truncated instead of deleting their records, if the
+     * database supports it
+     */
+    public static final String PROPKEY_TRUNCATE_ENABLED = "dbMaintainer.cleanDb.truncate.enabled";
+
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(DefaultDBCleaner.class);
 
+    /* Pattern for the parts of a qualified name, the first group is a quoted part, the second an unquoted part */
+    private static final Pattern IDENTIFIER_PART_PATTERN = Pattern.compile("\"([^\"]*)\"|([^.\"]+)");
+
     /**
      * Names of schemas that should left untouched.
      */
@@ -74,6 +109,16 @@ public class DefaultDBCleaner extends BaseDatabaseAccessor implements DBCleaner
      */
     protected Set<String> tablesToPreserve;
 
+    /**
+     * True if tables should be truncated when the database supports it
+     */
+    protected boolean truncateEnabled;
+
+    /**
+     * The nr of threads for cleaning the schemas
+     */
+    protected int nrOfThreads;
+
 
     /**
      * Configures this object.
@@ -87,6 +132,8 @@ public class DefaultDBCleaner extends BaseDatabaseAccessor implements DBCleaner
         tablesToPreserve = getItemsToPreserve(PROPKEY_VERSION_TABLE_NAME, true);
         tablesToPreserve.addAll(getItemsToPreserve(PROPKEY_PRESERVE_TABLES, true));
         tablesToPreserve.addAll(getItemsToPreserve(PROPKEY_PRESERVE_DATA_TABLES, true));
+        truncateEnabled = getBoolean(PROPKEY_TRUNCATE_ENABLED, false, configuration);
+        nrOfThreads = getInt(PROPKEY_NR_OF_THREADS, 1, configuration);
     }
 
 
@@ -95,6 +142,7 @@ public class DefaultDBCleaner extends BaseDatabaseAccessor implements DBCleaner
      * configured as <i>tablesToPreserve</i> , and the table in which the database version is stored
      */
     public void cleanSchemas() {
+        Map<DbSupport, Set<String>> tableNamesToClean = new LinkedHashMap<DbSupport, Set<String>>();
         for (DbSupport dbSupport : dbSupports) {
             // check whether schema needs to be preserved
             if (isItemToPreserve(dbSupport.getSchemaName(), schemasToPreserve)) {
@@ -102,14 +150,213 @@ public class DefaultDBCleaner extends BaseDatabaseAccessor implements DBCleaner
             }
             logger.info("Cleaning database schema " + dbSupport.getSchemaName());
 
-            Set<String> tableNames = dbSupport.getTableNames();
+            Set<String> tableNames = dbSupport.getCachedTableNames();
+            Set<String> schemaTableNamesToClean = new LinkedHashSet<String>();
             for (String tableName : tableNames) {
                 // check whether table needs to be preserved
-                if (isItemToPreserve(tableName, tablesToPreserve) || isItemToPreserve(dbSupport.getSchemaName() + "." + tableName, tablesToPreserve)) {
+                if (isTableToPreserve(tableName, dbSupport)) {
                     continue;
                 }
-                cleanTable(tableName, dbSupport);
+                schemaTableNamesToClean.add(tableName);
+            }
+            tableNamesToClean.put(dbSupport, schemaTableNamesToClean);
+        }
+        cleanTables(tableNamesToClean);
+    }
+
+
+    /**
+     * Deletes all data from the given tables, except for the tables that have been configured as
+     * <i>tablesToPreserve</i>, and the table in which the database version is stored. Tables that are not in one of
+     * the configured schemas are ignored. If one of the names is not the name of a table of a configured schema, e.g.
+     * because it is the name of a view, it is not known which tables need to be cleaned. All schemas are cleaned
+     * in that case.
+     *
+     * @param tableNames The names of the tables, optionally prefixed with the schema name. Quoted names are case
+     *                   sensitive. Not null
+     */
+    public void cleanTables(Set<String> tableNames) {
+        Map<DbSupport, Set<String>> tableNamesToClean = new LinkedHashMap<DbSupport, Set<String>>();
+        Map<DbSupport, Set<String>> existingTableNames = new HashMap<DbSupport, Set<String>>();
+        for (String qualifiedTableName : tableNames) {
+            String[] schemaAndTableName = getSchemaAndTableName(qualifiedTableName);
+            DbSupport dbSupport = findDbSupport(schemaAndTableName[0]);
+            if (dbSupport == null || isItemToPreserve(dbSupport.getSchemaName(), schemasToPreserve)) {
+                // not a configured schema or schema needs to be preserved
+                continue;
+            }
+            Set<String> schemaTableNames = existingTableNames.get(dbSupport);
+            if (schemaTableNames == null) {
+                schemaTableNames = dbSupport.getCachedTableNames();
+                existingTableNames.put(dbSupport, schemaTableNames);
+            }
+            String tableName = findItem(schemaAndTableName[1], schemaTableNames);
+            if (tableName == null) {
+                logger.info(qualifiedTableName + " is not a table of database schema " + dbSupport.getSchemaName() + ". Unable to determine which tables need to be cleaned, cleaning all schemas instead.");
+                cleanSchemas();
+                return;
             }
+            // check whether table needs to be preserved
+            if (isTableToPreserve(tableName, dbSupport)) {
+                continue;
+            }
+            Set<String> schemaTableNamesToClean = tableNamesToClean.get(dbSupport);
+            if (schemaTableNamesToClean == null) {
+                schemaTableNamesToClean = new LinkedHashSet<String>();
+                tableNamesToClean.put(dbSupport, schemaTableNamesToClean);
+            }
+            schemaTableNamesToClean.add(tableName);
+        }
+        cleanTables(tableNamesToClean);
+    }
+
+
+    /**
+     * Deletes the data in the given tables per schema. Depending on the configured nr of threads, the schemas are
+     * cleaned one after the other or concurrently.
+     *
+     * @param tableNamesToClean The names of the tables to clean per schema, not null
+     */
+    protected void cleanTables(Map<DbSupport, Set<String>> tableNamesToClean) {
+        List<DatabaseTask> tasks = new ArrayList<DatabaseTask>();
+        Map<DbSupport, Set<String>> failedTableNames = new LinkedHashMap<DbSupport, Set<String>>();
+        for (Map.Entry<DbSupport, Set<String>> entry : tableNamesToClean.entrySet()) {
+            if (nrOfThreads <= 1) {
+                cleanTables(entry.getValue(), entry.getKey());
+            } else {
+                tasks.addAll(createCleanTasks(entry.getValue(), entry.getKey(), failedTableNames));
+            }
+        }
+        new DatabaseTaskExecutor(configuration, sqlHandler, dialect, nrOfThreads).execute(tasks);
+
+        // clean the tables that failed again, the tables that referred to them have been cleaned by now
+        cleanFailedTables(failedTableNames);
+    }
+
+
+    /**
+     * Cleans the tables that could not be cleaned by the workers, one after the other. A table can fail again if
+     * a table that refers to it also failed, so this is repeated for the remaining tables until they are all cleaned.
+     * If a pass does not clean any table, the remaining tables cannot be cleaned and an exception is thrown.
+     *
+     * @param failedTableNames The failed table names per db support, not null
+     */
+    protected void cleanFailedTables(Map<DbSupport, Set<String>> failedTableNames) {
+        while (!failedTableNames.isEmpty()) {
+            Map<DbSupport, Set<String>> remainingTableNames = new LinkedHashMap<DbSupport, Set<String>>();
+            List<String> remainingQualifiedTableNames = new ArrayList<String>();
+            UnitilsException lastException = null;
+            boolean tableCleaned = false;
+            for (Map.Entry<DbSupport, Set<String>> entry : failedTableNames.entrySet()) {
+                for (String tableName : entry.getValue()) {
+                    try {
+                        cleanTable(tableName, entry.getKey());
+                        tableCleaned = true;
+                    } catch (UnitilsException e) {
+                        logger.debug("Unable to delete all records from table " + tableName + ". Will try again when the other failed tables are cleaned.", e);
+                        addFailedTableName(tableName, entry.getKey(), remainingTableNames);
+                        remainingQualifiedTableNames.add(entry.getKey().qualified(tableName));
+                        lastException = e;
+                    }
+                }
+            }
+            if (!tableCleaned) {
+                throw new UnitilsException("Unable to delete all records from tables " + remainingQualifiedTableNames, lastException);
+            }
+            failedTableNames = remainingTableNames;
+        }
+    }
+
+
+    /**
+     * Creates the tasks for cleaning the given tables by the workers. If the tables will be truncated, a single task
+     * is created. Otherwise the tables are split over as many tasks as there are workers. A table that could not
+     * be cleaned by a task is added to the failed table names.
+     *
+     * @param tableNames       The names of the tables that need to be cleared, not null
+     * @param dbSupport        The database support, not null
+     * @param failedTableNames The failed table names per db support, not null
+     * @return The tasks, not null
+     */
+    protected List<DatabaseTask> createCleanTasks(final Set<String> tableNames, final DbSupport dbSupport, final Map<DbSupport, Set<String>> failedTableNames) {
+        List<DatabaseTask> tasks = new ArrayList<DatabaseTask>();
+        if (tableNames.isEmpty()) {
+            return tasks;
+        }
+        if (truncateEnabled && dbSupport.supportsTruncate()) {
+            tasks.add(new DatabaseTask(dbSupport) {
+                public void execute(DbSupport taskDbSupport) {
+                    cleanTables(tableNames, taskDbSupport);
+                }
+            });
+            return tasks;
+        }
+
+        int chunkSize = (tableNames.size() + nrOfThreads - 1) / nrOfThreads;
+        Iterator<String> iterator = tableNames.iterator();
+        while (iterator.hasNext()) {
+            final List<String> chunk = new ArrayList<String>();
+            while (iterator.hasNext() && chunk.size() < chunkSize) {
+                chunk.add(iterator.next());
+            }
+            tasks.add(new DatabaseTask(dbSupport) {
+                public void execute(DbSupport taskDbSupport) {
+                    for (String tableName : chunk) {
+                        try {
+                            cleanTable(tableName, taskDbSupport);
+                        } catch (UnitilsException e) {
+                            logger.debug("Unable to delete all records from table " + tableName + ". Will try again when all other tables are cleaned.", e);
+                            addFailedTableName(tableName, dbSupport, failedTableNames);
+                        }
+                    }
+                }
+            });
+        }
+        return tasks;
+    }
+
+
+    /**
+     * Adds the given table to the failed table names. This is called concurrently by the workers.
+     *
+     * @param tableName        The name of the table, not null
+     * @param dbSupport        The database support, not null
+     * @param failedTableNames The failed table names per db support, not null
+     */
+    protected void addFailedTableName(String tableName, DbSupport dbSupport, Map<DbSupport, Set<String>> failedTableNames) {
+        synchronized (failedTableNames) {
+            Set<String> tableNames = failedTableNames.get(dbSupport);
+            if (tableNames == null) {
+                tableNames = new LinkedHashSet<String>();
+                failedTableNames.put(dbSupport, tableNames);
+            }
+            tableNames.add(tableName);
+        }
+    }
+
+
+    /**
+     * Deletes the data in the tables with the given names. If enabled and supported by the database, the tables are
+     * truncated all at once. Otherwise, or if truncating fails, the records are deleted table per table.
+     *
+     * @param tableNames The names of the tables that need to be cleared, not null
+     * @param dbSupport  The database support, not null
+     */
+    protected void cleanTables(Set<String> tableNames, DbSupport dbSupport) {
+        if (tableNames.isEmpty()) {
+            return;
+        }
+        if (truncateEnabled && dbSupport.supportsTruncate()) {
+            logger.debug("Truncating tables " + tableNames + " in database schema " + dbSupport.getSchemaName());
+            try {
+                dbSupport.truncateTables(tableNames);
+                return;
+            } catch (UnitilsException e) {
+                logger.warn("Unable to truncate tables in database schema " + dbSupport.getSchemaName() + ". Deleting all records instead.", e);
+            }
+        }
+        for (String tableName : tableNames) {
+            cleanTable(tableName, dbSupport);
         }
     }
 
@@ -124,7 +371,84 @@ public class DefaultDBCleaner extends BaseDatabaseAccessor implements DBCleaner
      */
     protected void cleanTable(String tableName, DbSupport dbSupport) {
         logger.debug("Deleting all records from table " + tableName + " in database schema " + dbSupport.getSchemaName());
-        sqlHandler.executeUpdate("delete from " + dbSupport.qualified(tableName));
+        dbSupport.getSQLHandler().executeUpdate("delete from " + dbSupport.qualified(tableName));
+    }
+
+
+    /**
+     * Checks whether the given table of the given schema is one of the tables to preserve.
+     *
+     * @param tableName The table, not null
+     * @param dbSupport The database support of the schema, not null
+     * @return True if table to preserve
+     */
+    protected boolean isTableToPreserve(String tableName, DbSupport dbSupport) {
+        return isItemToPreserve(tableName, tablesToPreserve) || isItemToPreserve(dbSupport.getSchemaName() + "." + tableName, tablesToPreserve);
+    }
+
+
+    /**
+     * Splits the given table name in a schema name and a table name, both in the correct case. Quoted names are
+     * case sensitive.
+     *
+     * @param qualifiedTableName The table name, optionally prefixed with a schema name, not null
+     * @return The schema name, null if there is no schema prefix, and the table name, not null
+     */
+    protected String[] getSchemaAndTableName(String qualifiedTableName) {
+        List<String> parts = new ArrayList<String>();
+        Matcher matcher = IDENTIFIER_PART_PATTERN.matcher(qualifiedTableName);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                parts.add(matcher.group(1));
+            } else {
+                parts.add(defaultDbSupport.toCorrectCaseIdentifier(matcher.group(2)));
+            }
+        }
+        String tableName = parts.get(parts.size() - 1);
+        String schemaName = parts.size() > 1 ? parts.get(parts.size() - 2) : null;
+        return new String[]{schemaName, tableName};
+    }
+
+
+    /**
+     * Gets the db support of the given schema.
+     *
+     * @param schemaName The schema name, null for the default schema
+     * @return The db support, null if the schema is not one of the configured schemas
+     */
+    protected DbSupport findDbSupport(String schemaName) {
+        if (schemaName == null) {
+            schemaName = defaultDbSupport.getSchemaName();
+        }
+        for (DbSupport dbSupport : dbSupports) {
+            if (findItem(schemaName, asSet(dbSupport.getSchemaName())) != null) {
+                return dbSupport;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Finds the given item in the given names. This also handles identifiers that are stored in mixed case.
+     *
+     * @param item  The item, not null
+     * @param names The names, not null
+     * @return The name as found in the names, null if not found
+     */
+    protected String findItem(String item, Set<String> names) {
+        if (names.contains(item)) {
+            return item;
+        }
+        // ignore case when stored in mixed casing (e.g MS-Sql)
+        if (defaultDbSupport.getStoredIdentifierCase() == MIXED_CASE) {
+            for (String name : names) {
+                if (name.equalsIgnoreCase(item)) {
+                    return name;
+                }
+            }
+        }
+        return null;
     }
 
 
@@ -18,20 +18,33 @@ package org.unitils.dbmaintainer.clean.impl;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.DbItemType;
+import static org.unitils.core.dbsupport.DbItemType.*;
 import org.unitils.core.dbsupport.DbSupport;
 import static org.unitils.core.util.StoredIdentifierCase.MIXED_CASE;
 import org.unitils.dbmaintainer.clean.DBClearer;
 import org.unitils.dbmaintainer.util.BaseDatabaseAccessor;
+import org.unitils.dbmaintainer.util.DatabaseTaskExecutor;
+import org.unitils.dbmaintainer.util.DatabaseTaskExecutor.DatabaseTask;
+import static org.unitils.dbmaintainer.util.DatabaseTaskExecutor.PROPKEY_NR_OF_THREADS;
+import static org.unitils.util.PropertyUtils.getInt;
 import static org.unitils.util.PropertyUtils.getStringList;
 
 import java.util.*;
 
 /**
- * Implementation of {@link DBClearer}. This implementation individually drops every table, view, constraint, trigger
+ * Implementation of {@link DBClearer}. This implementation drops every table, view, constraint, trigger
  * and sequence in the database. A list of tables, views, ... that should be preserverd can be specified using the
  * property {@link #PROPKEY_PRESERVE_TABLES}. <p/> NOTE: FK constraints give problems in MySQL and Derby The cascade in
  * drop table A cascade; does not work in MySQL-5.0 The DBMaintainer will first remove all constraints before calling
  * the db clearer
+ * <p/>
+ * The items are dropped per type of item, see {@link #dropItems(DbSupport, DbItemType)}. The names of the items of a
+ * type are retrieved right before they are dropped and all drop statements of that type are sent to the database as a
+ * single batch.
+ * <p/>
+ * If the property {@link DatabaseTaskExecutor#PROPKEY_NR_OF_THREADS} is set to more than 1 thread, the schemas are
+ * cleared concurrently, each on its own connection. The items within a schema are always dropped one after the other.
  *
  * @author Tim Ducheyne
  * @author Filip Neven
@@ -128,6 +141,11 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      */
     protected Map<String, Set<String>> typesToPreserve;
 
+    /**
+     * The nr of threads for clearing the schemas
+     */
+    protected int nrOfThreads;
+
 
     /**
      * Initializes the the DBClearer. The list of database items that should be preserved is retrieved from the given
@@ -145,6 +163,7 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
         synonymsToPreserve = getSynonymsToPreserve();
         triggersToPreserve = getTriggersToPreserve();
         typesToPreserve = getTypesToPreserve();
+        nrOfThreads = getInt(PROPKEY_NR_OF_THREADS, 1, configuration);
     }
 
 
@@ -154,22 +173,42 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      * untouched.
      */
     public void clearSchemas() {
+        List<DatabaseTask> tasks = new ArrayList<DatabaseTask>();
         for (DbSupport dbSupport : dbSupports) {
             // check whether schema needs to be preserved
             if (schemasToPreserve.contains(dbSupport.getSchemaName())) {
                 continue;
             }
-            logger.info("Clearing (dropping) database schema " + dbSupport.getSchemaName());
-            dropSynonyms(dbSupport);
-            dropViews(dbSupport);
-            dropMaterializedViews(dbSupport);
-            dropSequences(dbSupport);
-            dropTables(dbSupport);
-
-            dropTriggers(dbSupport);
-            dropTypes(dbSupport);
-            // todo drop functions, stored procedures.
+            if (nrOfThreads <= 1) {
+                clearSchema(dbSupport);
+                continue;
+            }
+            tasks.add(new DatabaseTask(dbSupport) {
+                public void execute(DbSupport taskDbSupport) {
+                    clearSchema(taskDbSupport);
+                }
+            });
         }
+        new DatabaseTaskExecutor(configuration, sqlHandler, dialect, nrOfThreads).execute(tasks);
+    }
+
+
+    /**
+     * Clears the database schema of the given db support.
+     *
+     * @param dbSupport The database support, not null
+     */
+    protected void clearSchema(DbSupport dbSupport) {
+        logger.info("Clearing (dropping) database schema " + dbSupport.getSchemaName());
+        dropSynonyms(dbSupport);
+        dropViews(dbSupport);
+        dropMaterializedViews(dbSupport);
+        dropSequences(dbSupport);
+        dropTables(dbSupport);
+
+        dropTriggers(dbSupport);
+        dropTypes(dbSupport);
+        // todo drop functions, stored procedures.
     }
 
 
@@ -179,16 +218,7 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      * @param dbSupport The database support, not null
      */
     protected void dropTables(DbSupport dbSupport) {
-        Set<String> tableNames = dbSupport.getTableNames();
-        Set<String> schemaTablesToPreserve = tablesToPreserve.get(dbSupport.getSchemaName());
-        for (String tableName : tableNames) {
-            // check whether table needs to be preserved
-            if (isItemToPreserve(tableName, schemaTablesToPreserve)) {
-                continue;
-            }
-            logger.debug("Dropping table " + tableName + " in database schema " + dbSupport.getSchemaName());
-            dbSupport.dropTable(tableName);
-        }
+        dropItems(dbSupport, TABLE);
     }
 
 
@@ -198,16 +228,7 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      * @param dbSupport The database support, not null
      */
     protected void dropViews(DbSupport dbSupport) {
-        Set<String> viewNames = dbSupport.getViewNames();
-        Set<String> schemaViewsToPreserve = viewsToPreserve.get(dbSupport.getSchemaName());
-        for (String viewName : viewNames) {
-            // check whether view needs to be preserved
-            if (isItemToPreserve(viewName, schemaViewsToPreserve)) {
-                continue;
-            }
-            logger.debug("Dropping view " + viewName + " in database schema " + dbSupport.getSchemaName());
-            dbSupport.dropView(viewName);
-        }
+        dropItems(dbSupport, VIEW);
     }
 
 
@@ -217,19 +238,7 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      * @param dbSupport The database support, not null
      */
     protected void dropMaterializedViews(DbSupport dbSupport) {
-        if (!dbSupport.supportsMaterializedViews()) {
-            return;
-        }
-        Set<String> materializedViewNames = dbSupport.getMaterializedViewNames();
-        Set<String> schemaMaterializedViewsToPreserve = materializedViewsToPreserve.get(dbSupport.getSchemaName());
-        for (String materializedViewName : materializedViewNames) {
-            // check whether view needs to be preserved
-            if (isItemToPreserve(materializedViewName, schemaMaterializedViewsToPreserve)) {
-                continue;
-            }
-            logger.debug("Dropping materialized view " + materializedViewName + " in database schema " + dbSupport.getSchemaName());
-            dbSupport.dropMaterializedView(materializedViewName);
-        }
+        dropItems(dbSupport, MATERIALIZED_VIEW);
     }
 
 
@@ -239,19 +248,7 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      * @param dbSupport The database support, not null
      */
     protected void dropSynonyms(DbSupport dbSupport) {
-        if (!dbSupport.supportsSynonyms()) {
-            return;
-        }
-        Set<String> synonymNames = dbSupport.getSynonymNames();
-        Set<String> schemaSynonymsToPreserve = synonymsToPreserve.get(dbSupport.getSchemaName());
-        for (String synonymName : synonymNames) {
-            // check whether table needs to be preserved
-            if (isItemToPreserve(synonymName, schemaSynonymsToPreserve)) {
-                continue;
-            }
-            logger.debug("Dropping synonym " + synonymName + " in database schema " + dbSupport.getSchemaName());
-            dbSupport.dropSynonym(synonymName);
-        }
+        dropItems(dbSupport, SYNONYM);
     }
 
 
@@ -261,19 +258,7 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      * @param dbSupport The database support, not null
      */
     protected void dropSequences(DbSupport dbSupport) {
-        if (!dbSupport.supportsSequences()) {
-            return;
-        }
-        Set<String> sequenceNames = dbSupport.getSequenceNames();
-        Set<String> schemaSequencesToPreserve = sequencesToPreserve.get(dbSupport.getSchemaName());
-        for (String sequenceName : sequenceNames) {
-            // check whether sequence needs to be preserved
-            if (isItemToPreserve(sequenceName, schemaSequencesToPreserve)) {
-                continue;
-            }
-            logger.debug("Dropping sequence " + sequenceName + " in database schema " + dbSupport.getSchemaName());
-            dbSupport.dropSequence(sequenceName);
-        }
+        dropItems(dbSupport, SEQUENCE);
     }
 
 
@@ -283,19 +268,7 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      * @param dbSupport The database support, not null
      */
     protected void dropTriggers(DbSupport dbSupport) {
-        if (!dbSupport.supportsTriggers()) {
-            return;
-        }
-        Set<String> triggerNames = dbSupport.getTriggerNames();
-        Set<String> schemaTriggersToPreserve = triggersToPreserve.get(dbSupport.getSchemaName());
-        for (String triggerName : triggerNames) {
-            // check whether trigger needs to be preserved
-            if (isItemToPreserve(triggerName, schemaTriggersToPreserve)) {
-                continue;
-            }
-            logger.debug("Dropping trigger " + triggerName + " in database schema " + dbSupport.getSchemaName());
-            dbSupport.dropTrigger(triggerName);
-        }
+        dropItems(dbSupport, TRIGGER);
     }
 
 
@@ -305,18 +278,80 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      * @param dbSupport The database support, not null
      */
     protected void dropTypes(DbSupport dbSupport) {
-        if (!dbSupport.supportsTypes()) {
+        dropItems(dbSupport, TYPE);
+    }
+
+
+    /**
+     * Drops all items of the given type that do not have to be preserved. Nothing is done if the type of item is
+     * not supported by the database.
+     * <p/>
+     * The names are retrieved right before dropping, so that items that were already dropped together with
+     * items of another type, e.g. the triggers of a dropped table, are no longer included. The drop statements
+     * of the type are sent to the database as a single batch.
+     *
+     * @param dbSupport The database support, not null
+     * @param itemType  The type of item, not null
+     */
+    protected void dropItems(DbSupport dbSupport, DbItemType itemType) {
+        if (!dbSupport.supports(itemType)) {
+            return;
+        }
+        Set<String> namesToDrop = getItemsToDrop(dbSupport, itemType);
+        if (namesToDrop.isEmpty()) {
             return;
         }
-        Set<String> typeNames = dbSupport.getTypeNames();
-        Set<String> schemaTypesToPreserve = typesToPreserve.get(dbSupport.getSchemaName());
-        for (String typeName : typeNames) {
-            // check whether type needs to be preserved
-            if (isItemToPreserve(typeName, schemaTypesToPreserve)) {
+        Map<DbItemType, Set<String>> itemsToDrop = new EnumMap<DbItemType, Set<String>>(DbItemType.class);
+        itemsToDrop.put(itemType, namesToDrop);
+        dbSupport.dropItems(itemsToDrop);
+    }
+
+
+    /**
+     * Gets the names of the items of the given type in the given schema that should be dropped, the items to
+     * preserve are filtered out.
+     *
+     * @param dbSupport The database support, not null
+     * @param itemType  The type of item, not null
+     * @return The names of the items to drop, not null
+     */
+    protected Set<String> getItemsToDrop(DbSupport dbSupport, DbItemType itemType) {
+        Set<String> schemaItemsToPreserve = getItemsToPreserve(itemType).get(dbSupport.getSchemaName());
+        Set<String> namesToDrop = new HashSet<String>();
+        for (String name : dbSupport.getItemNames(itemType)) {
+            // check whether item needs to be preserved
+            if (isItemToPreserve(name, schemaItemsToPreserve)) {
                 continue;
             }
-            logger.debug("Dropping type " + typeName + " in database schema " + dbSupport.getSchemaName());
-            dbSupport.dropType(typeName);
+            logger.debug("Dropping " + itemType.name().toLowerCase().replace('_', ' ') + " " + name + " in database schema " + dbSupport.getSchemaName());
+            namesToDrop.add(name);
+        }
+        return namesToDrop;
+    }
+
+
+    /**
+     * Gets the names of the items of the given type that should not be dropped.
+     *
+     * @param itemType The type of item, not null
+     * @return The names of the items to preserve per schema, not null
+     */
+    protected Map<String, Set<String>> getItemsToPreserve(DbItemType itemType) {
+        switch (itemType) {
+            case TABLE:
+                return tablesToPreserve;
+            case VIEW:
+                return viewsToPreserve;
+            case MATERIALIZED_VIEW:
+                return materializedViewsToPreserve;
+            case SYNONYM:
+                return synonymsToPreserve;
+            case SEQUENCE:
+                return sequencesToPreserve;
+            case TRIGGER:
+                return triggersToPreserve;
+            default:
+                return typesToPreserve;
         }
     }
 
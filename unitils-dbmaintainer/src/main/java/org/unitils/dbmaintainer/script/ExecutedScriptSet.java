@@ -0,0 +1,136 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Set of executed scripts that is indexed by the file name of the scripts. Executed scripts are equal if they have
+ * the same file name, so looking up, adding and removing a script takes constant time.
+ * <p/>
+ * Adding a script for which the set already contains an equal script leaves the set unchanged, as for any set. Use
+ * {@link #put} to replace the registered execution of a script.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ExecutedScriptSet extends AbstractSet<ExecutedScript> {
+
+    /* The executed scripts per file name, in the order in which they were added */
+    private Map<String, ExecutedScript> executedScripts = new LinkedHashMap<String, ExecutedScript>();
+
+
+    /**
+     * Creates an empty set.
+     */
+    public ExecutedScriptSet() {
+    }
+
+
+    /**
+     * Creates a set containing the given executed scripts.
+     *
+     * @param executedScripts The executed scripts, not null
+     */
+    public ExecutedScriptSet(Collection<ExecutedScript> executedScripts) {
+        addAll(executedScripts);
+    }
+
+
+    /**
+     * Gets the registered execution of the script with the given file name.
+     *
+     * @param fileName The file name of the script, not null
+     * @return The executed script, null if not found
+     */
+    public ExecutedScript get(String fileName) {
+        return executedScripts.get(fileName);
+    }
+
+
+    /**
+     * Gets the script with the given file name.
+     *
+     * @param fileName The file name of the script, not null
+     * @return The script, null if not found
+     */
+    public Script getScript(String fileName) {
+        ExecutedScript executedScript = executedScripts.get(fileName);
+        return executedScript == null ? null : executedScript.getScript();
+    }
+
+
+    /**
+     * Adds the given executed script, replacing the execution of the same script if there is one.
+     *
+     * @param executedScript The executed script, not null
+     * @return The replaced execution, null if the script was not yet in the set
+     */
+    public ExecutedScript put(ExecutedScript executedScript) {
+        return executedScripts.put(executedScript.getScript().getFileName(), executedScript);
+    }
+
+
+    @Override
+    public boolean add(ExecutedScript executedScript) {
+        String fileName = executedScript.getScript().getFileName();
+        if (executedScripts.containsKey(fileName)) {
+            return false;
+        }
+        executedScripts.put(fileName, executedScript);
+        return true;
+    }
+
+
+    @Override
+    public boolean contains(Object object) {
+        if (!(object instanceof ExecutedScript)) {
+            return false;
+        }
+        return executedScripts.containsKey(((ExecutedScript) object).getScript().getFileName());
+    }
+
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof ExecutedScript)) {
+            return false;
+        }
+        return executedScripts.remove(((ExecutedScript) object).getScript().getFileName()) != null;
+    }
+
+
+    @Override
+    public void clear() {
+        executedScripts.clear();
+    }
+
+
+    @Override
+    public Iterator<ExecutedScript> iterator() {
+        return executedScripts.values().iterator();
+    }
+
+
+    @Override
+    public int size() {
+        return executedScripts.size();
+    }
+}
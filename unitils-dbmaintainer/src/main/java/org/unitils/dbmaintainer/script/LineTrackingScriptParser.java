@@ -0,0 +1,36 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script;
+
+/**
+ * A script parser that also knows on which line of the script the returned statements start. This is optional: the
+ * line nrs are only used to report the position of a failing statement. If the parser does not implement this
+ * interface, the line is reported as unknown.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public interface LineTrackingScriptParser extends ScriptParser {
+
+
+    /**
+     * Gets the nr of the line in the script on which the last returned statement started.
+     *
+     * @return the line nr, starting from 1, 0 if no statement was returned yet
+     */
+    int getStatementLineNr();
+
+}
@@ -64,6 +64,22 @@ public class Script implements Comparable<Script> {
         this.fileLastModifiedAt = fileLastModifiedAt;
         this.scriptContentHandle = scriptContentHandle;
     }
+
+
+    /**
+     * Creates a script with the given script fileName, whose content is provided by the given handle and whose
+     * checksum is already known, e.g. because it was stored in a script index. The content then does not need to be
+     * read to calculate the checksum.
+     *
+     * @param fileName The name of the script file, not null
+     * @param fileLastModifiedAt 
+     * @param scriptContentHandle Handle providing access to the contents of the script, not null
+     * @param checkSum Checksum calculated for the content of the script, null if not known
+     */
+    public Script(String fileName, Long fileLastModifiedAt, ScriptContentHandle scriptContentHandle, String checkSum) {
+        this(fileName, fileLastModifiedAt, scriptContentHandle);
+        this.checkSum = checkSum;
+    }
     
     
     /**
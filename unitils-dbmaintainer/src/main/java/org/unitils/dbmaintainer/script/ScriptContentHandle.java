@@ -15,12 +15,17 @@
  */
 package org.unitils.dbmaintainer.script;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -28,7 +33,6 @@ import java.security.NoSuchAlgorithmException;
 import org.hibernate.lob.ReaderInputStream;
 import org.unitils.core.UnitilsException;
 import org.unitils.thirdparty.org.apache.commons.io.IOUtils;
-import org.unitils.thirdparty.org.apache.commons.io.NullWriter;
 
 /**
  * A handle for getting the script content as a stream.
@@ -67,7 +71,7 @@ public abstract class ScriptContentHandle {
 		try {
 			if (scriptDigest == null) {
 				readScript();
-			} else if (scriptReader.ready()) {
+			} else if (scriptReader != null && scriptReader.ready()) {
 				throw new UnitilsException("Cannot obtain checksum, since a script is currently being read");
 			}
 			return getHexPresentation(scriptDigest.digest());
@@ -77,10 +81,34 @@ public abstract class ScriptContentHandle {
     }
 	
 	
+	/**
+	 * Calculates the checksum of the script. Only the raw bytes are digested, the content is not decoded
+	 * into characters, since this is not needed to calculate the checksum.
+	 */
 	protected void readScript() throws IOException {
-		Reader scriptReader = openScriptContentReader();
-		IOUtils.copy(scriptReader, new NullWriter());
-		scriptReader.close();
+		scriptReader = null;
+		scriptDigest = calculateDigest();
+	}
+
+
+	/**
+	 * Digests the raw bytes of the script content.
+	 *
+	 * @return The digest, not null
+	 */
+	protected MessageDigest calculateDigest() throws IOException {
+		MessageDigest digest = getScriptDigest();
+		InputStream inputStream = getScriptInputStream();
+		try {
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = inputStream.read(buffer)) != -1) {
+				digest.update(buffer, 0, count);
+			}
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+		return digest;
 	}
 
 	
@@ -130,6 +158,73 @@ public abstract class ScriptContentHandle {
     }
 
 
+    /**
+     * A handle for getting the content of a script file as a stream. The checksum is calculated by reading the
+     * raw bytes of the file through a file channel.
+     */
+    public static class FileScriptContentHandle extends ScriptContentHandle {
+
+        /* The script file */
+        private File file;
+
+        /**
+         * Creates a content handle.
+         *
+         * @param file The script file, not null
+         */
+        public FileScriptContentHandle(File file) {
+            this.file = file;
+        }
+
+
+        /**
+         * @return The script file, not null
+         */
+        public File getFile() {
+            return file;
+        }
+
+
+        /**
+         * Opens a stream to the content of the script.
+         *
+         * @return The content stream, not null
+         */
+        @Override
+        protected InputStream getScriptInputStream() {
+            try {
+                return new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+                throw new UnitilsException("Error while trying to create reader for file " + file, e);
+            }
+        }
+
+
+        /**
+         * Digests the bytes of the file, read through a file channel.
+         *
+         * @return The digest, not null
+         */
+        @Override
+        protected MessageDigest calculateDigest() throws IOException {
+            MessageDigest digest = getScriptDigest();
+            FileInputStream inputStream = new FileInputStream(file);
+            try {
+                FileChannel channel = inputStream.getChannel();
+                ByteBuffer buffer = ByteBuffer.allocate(8192);
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+            }
+            return digest;
+        }
+    }
+
+
     /**
      * A handle for getting the script content as a stream.
      */
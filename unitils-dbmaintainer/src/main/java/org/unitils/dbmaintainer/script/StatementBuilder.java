@@ -1,7 +1,5 @@
 package org.unitils.dbmaintainer.script;
 
-import static org.apache.commons.lang.StringUtils.isEmpty;
-
 /**
  * A class for building statements.
  *
@@ -82,30 +80,38 @@ public class StatementBuilder {
      * @return The resulting statement, null if no statement is left
      */
     public String createStatement() {
-        // get built statement to return
-        String trimmedStatement = statement.toString().trim();
+        // trim the built statement (NOTE String.trim uses <= ' ' for whitespace), only the result is copied
+        int startIndex = 0;
+        int endIndex = statement.length();
+        while (startIndex < endIndex && statement.charAt(startIndex) <= ' ') {
+            startIndex++;
+        }
+        while (endIndex > startIndex && statement.charAt(endIndex - 1) <= ' ') {
+            endIndex--;
+        }
 
         // ignore empty statements
-        if (isEmpty(trimmedStatement)) {
+        if (startIndex == endIndex) {
             return null;
         }
 
-        // remove trailing separator character (eg ;)
-        int lastIndex = trimmedStatement.length() - 1;
-        char lastChar = trimmedStatement.charAt(lastIndex);
+        // remove trailing separator character (eg ;) and trim again
+        char lastChar = statement.charAt(endIndex - 1);
         for (char trailingChar : getTrailingSeparatorCharsToRemove()) {
             if (lastChar == trailingChar) {
-                trimmedStatement = trimmedStatement.substring(0, lastIndex);
+                endIndex--;
+                while (endIndex > startIndex && statement.charAt(endIndex - 1) <= ' ') {
+                    endIndex--;
+                }
                 break;
             }
         }
 
-        // trim and see if anything is left after removing the trailing separator (eg ;)
-        trimmedStatement = trimmedStatement.trim();
-        if (isEmpty(trimmedStatement)) {
+        // see if anything is left after removing the trailing separator (eg ;)
+        if (startIndex == endIndex) {
             return null;
         }
-        return trimmedStatement;
+        return statement.substring(startIndex, endIndex);
     }
 
 
@@ -16,13 +16,12 @@
 package org.unitils.dbmaintainer.script.impl;
 
 import org.unitils.core.UnitilsException;
-import org.unitils.dbmaintainer.script.ScriptParser;
+import org.unitils.dbmaintainer.script.LineTrackingScriptParser;
 import org.unitils.dbmaintainer.script.StatementBuilder;
 import org.unitils.dbmaintainer.script.parsingstate.ParsingState;
 import org.unitils.dbmaintainer.script.parsingstate.impl.*;
 import org.unitils.util.PropertyUtils;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Arrays;
@@ -36,18 +35,26 @@ import java.util.Properties;
  * <p/>
  * This parser also takes quoted literals, double quoted text and in-line (--comment) and block (/ * comment * /)
  * into account when parsing the statements.
+ * <p/>
+ * The script is read in blocks of characters. The characters are handed one by one to the parsing states straight
+ * from the block, so that no separate read is needed for every character and for looking ahead one character.
  *
  * @author Tim Ducheyne
  * @author Filip Neven
  * @author Stefan Bangels
  */
-public class DefaultScriptParser implements ScriptParser {
+public class DefaultScriptParser implements LineTrackingScriptParser {
 
     /**
      * Property indicating if the characters can be escaped by using backslashes. For example '\'' instead of the standard SQL way ''''.
      */
     public static final String PROPKEY_BACKSLASH_ESCAPING_ENABLED = "org.unitils.dbmaintainer.script.ScriptParser.backSlashEscapingEnabled";
 
+    /**
+     * The nr of characters that is read from the script at once.
+     */
+    protected static final int BUFFER_SIZE = 8192;
+
     /**
      * The starting state.
      */
@@ -59,14 +66,39 @@ public class DefaultScriptParser implements ScriptParser {
     protected ParsingState currentParsingState;
 
     /**
-     * The current parsed character
+     * The reader for the script content stream.
+     */
+    protected Reader scriptReader;
+
+    /**
+     * The block of characters that was read from the script.
      */
-    protected int currentChar;
+    protected char[] buffer = new char[BUFFER_SIZE];
 
     /**
-     * The reader for the script content stream.
+     * The index of the current character in the buffer.
      */
-    protected Reader scriptReader;
+    protected int position;
+
+    /**
+     * The nr of characters in the buffer.
+     */
+    protected int limit;
+
+    /**
+     * True if the end of the script was reached.
+     */
+    protected boolean endOfScript;
+
+    /**
+     * The nr of the line of the current character.
+     */
+    protected int lineNr;
+
+    /**
+     * The nr of the line on which the last statement started.
+     */
+    protected int statementLineNr;
 
 
     /**
@@ -79,7 +111,12 @@ public class DefaultScriptParser implements ScriptParser {
         boolean backSlashEscapingEnabled = PropertyUtils.getBoolean(PROPKEY_BACKSLASH_ESCAPING_ENABLED, configuration);
         this.initialParsingState = createInitialParsingState(backSlashEscapingEnabled);
         this.currentParsingState = initialParsingState;
-        this.scriptReader = new BufferedReader(scriptReader);
+        this.scriptReader = scriptReader;
+        this.position = 0;
+        this.limit = 0;
+        this.endOfScript = false;
+        this.lineNr = 1;
+        this.statementLineNr = 0;
     }
 
 
@@ -103,38 +140,37 @@ public class DefaultScriptParser implements ScriptParser {
      * @return the statements, null if no more statements
      */
     protected String getNextStatementImpl() throws IOException {
-        currentChar = scriptReader.read();
-        if (currentChar == -1) {
-            // nothing more to read
-            return null;
-        }
-
         // set initial state
         char previousChar = 0;
         currentParsingState = initialParsingState;
         StatementBuilder statementBuilder = createStatementBuilder();
 
         // parse script
-        while (currentChar != -1) {
+        while (isCharAvailable(1)) {
+            char currentChar = buffer[position];
+
             // skip leading whitespace (NOTE String.trim uses <= ' ' for whitespace)
-            if (statementBuilder.getLength() == 0 && currentChar <= ' ') {
-                currentChar = scriptReader.read();
+            if (currentChar <= ' ' && statementBuilder.getLength() == 0) {
+                position++;
+                if (currentChar == '\n') {
+                    lineNr++;
+                }
                 continue;
             }
+            if (statementBuilder.getLength() == 0) {
+                statementLineNr = lineNr;
+            }
 
             // peek next char
-            int nextCharInt = scriptReader.read();
-            char nextChar;
-            if (nextCharInt == -1) {
-                nextChar = 0;
-            } else {
-                nextChar = (char) nextCharInt;
-            }
+            char nextChar = isCharAvailable(2) ? buffer[position + 1] : 0;
 
             // handle character
-            currentParsingState = currentParsingState.handleNextChar(previousChar, (char) currentChar, nextChar, statementBuilder);
-            previousChar = (char) currentChar;
-            currentChar = nextCharInt;
+            currentParsingState = currentParsingState.handleNextChar(previousChar, currentChar, nextChar, statementBuilder);
+            previousChar = currentChar;
+            position++;
+            if (currentChar == '\n') {
+                lineNr++;
+            }
 
             // if parsing state null, a statement end is found
             if (currentParsingState == null) {
@@ -164,6 +200,45 @@ public class DefaultScriptParser implements ScriptParser {
     }
 
 
+    /**
+     * Gets the nr of the line in the script on which the last returned statement started.
+     *
+     * @return the line nr, starting from 1, 0 if no statement was returned yet
+     */
+    public int getStatementLineNr() {
+        return statementLineNr;
+    }
+
+
+    /**
+     * Makes sure that the given nr of characters, starting from the current character, are in the buffer. If not,
+     * the next block of the script is read. The characters that were not handled yet are first moved to the start
+     * of the buffer.
+     *
+     * @param count The nr of characters, 1 or 2
+     * @return False if the end of the script is reached before
+     */
+    protected boolean isCharAvailable(int count) throws IOException {
+        while (limit - position < count) {
+            if (endOfScript) {
+                return false;
+            }
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            int nrOfCharsRead = scriptReader.read(buffer, limit, buffer.length - limit);
+            if (nrOfCharsRead == -1) {
+                endOfScript = true;
+                return false;
+            }
+            limit += nrOfCharsRead;
+        }
+        return true;
+    }
+
+
     /**
      * Builds the initial parsing state.
      * This will create a normal, in-line-comment, in-block-comment, in-double-quotes and in-single-quotes state
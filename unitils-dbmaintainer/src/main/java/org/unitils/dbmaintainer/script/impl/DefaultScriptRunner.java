@@ -1,74 +1,358 @@
-/*
- * Copyright 2008,  Unitils.org
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.unitils.dbmaintainer.script.impl;
-
-import static org.unitils.core.util.ConfigUtils.getInstanceOf;
-import static org.unitils.thirdparty.org.apache.commons.io.IOUtils.closeQuietly;
-
-import java.io.Reader;
-
-import org.unitils.dbmaintainer.script.ScriptContentHandle;
-import org.unitils.dbmaintainer.script.ScriptParser;
-import org.unitils.dbmaintainer.script.ScriptRunner;
-import org.unitils.dbmaintainer.util.BaseDatabaseAccessor;
-
-/**
- * Default implementation of a script runner.
- *
- * @author Filip Neven
- * @author Tim Ducheyne
- */
-public class DefaultScriptRunner extends BaseDatabaseAccessor implements ScriptRunner {
-
-    /**
-     * Executes the given script.
-     * <p/>
-     * All statements should be separated with a semicolon (;). The last statement will be
-     * added even if it does not end with a semicolon.
-     *
-     * @param scriptContentHandle The script as a string, not null
-     */
-    public void execute(ScriptContentHandle scriptContentHandle) {
-
-        Reader scriptContentReader = null;
-        try {
-            // get content stream
-            scriptContentReader = scriptContentHandle.openScriptContentReader();
-
-            // create a parser
-            ScriptParser scriptParser = createScriptParser(dialect);
-            scriptParser.init(configuration, scriptContentReader);
-
-            // parse and execute the statements
-            String statement;
-            while ((statement = scriptParser.getNextStatement()) != null) {
-                sqlHandler.executeUpdateAndCommit(statement);
-            }
-        } finally {
-            closeQuietly(scriptContentReader);
-        }
-    }
-
-
-    /**
-     * Creates a script parser.
-     *
-     * @return The parser, not null
-     */
-    protected ScriptParser createScriptParser(String dialect) {
-        return getInstanceOf(ScriptParser.class, configuration, dialect);
-    }
-}
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script.impl;
+
+import static org.unitils.core.util.ConfigUtils.getInstanceOf;
+import static org.unitils.thirdparty.org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.Reader;
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import org.unitils.core.UnitilsException;
+import org.unitils.dbmaintainer.script.LineTrackingScriptParser;
+import org.unitils.dbmaintainer.script.ScriptContentHandle;
+import org.unitils.dbmaintainer.script.ScriptParser;
+import org.unitils.dbmaintainer.script.ScriptRunner;
+import org.unitils.dbmaintainer.util.BaseDatabaseAccessor;
+import org.unitils.util.PropertyUtils;
+
+/**
+ * Default implementation of a script runner.
+ * <p/>
+ * By default, all statements are executed one by one. If a batch size larger than 1 is configured, consecutive
+ * insert, update, delete and merge statements are sent to the database in batches. Other statements, such as DDL
+ * statements or PL/SQL blocks, are still executed one by one. All statements are executed through the SQL handler,
+ * and are committed as they are executed, unless a commit interval is configured. The statements are then executed in
+ * transactions that are committed after every interval.
+ * <p/>
+ * If a pipeline queue size is configured, the script is parsed in a separate thread while the statements are
+ * executed, see {@link PipelinedScriptParser}. Errors report the nr of the failed statement and, if the parser is a
+ * {@link LineTrackingScriptParser}, the line on which it starts in the script.
+ *
+ * @author Filip Neven
+ * @author Tim Ducheyne
+ */
+public class DefaultScriptRunner extends BaseDatabaseAccessor implements ScriptRunner {
+
+    /**
+     * Property for the max nr of statements that are sent to the database in one batch. 0 or 1 disables batching.
+     */
+    public static final String PROPKEY_BATCH_SIZE = "org.unitils.dbmaintainer.script.ScriptRunner.batchSize";
+
+    /**
+     * Property for the nr of statements after which the changes are committed when batching. 0 commits the statements
+     * as they are executed.
+     */
+    public static final String PROPKEY_COMMIT_INTERVAL = "org.unitils.dbmaintainer.script.ScriptRunner.commitInterval";
+
+    /**
+     * Property for the max nr of parsed statements that are waiting to be executed. 0 disables parsing in a separate
+     * thread.
+     */
+    public static final String PROPKEY_PIPELINE_QUEUE_SIZE = "org.unitils.dbmaintainer.script.ScriptRunner.pipelineQueueSize";
+
+    /* Pattern for the statements that can be executed in a batch */
+    private static final Pattern BATCHABLE_STATEMENT_PATTERN = Pattern.compile("(insert|update|delete|merge)\\s.*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * The max nr of statements in one batch, 0 or 1 if batching is disabled
+     */
+    protected int batchSize;
+
+    /**
+     * The nr of statements after which the changes are committed, 0 to commit the statements as they are executed
+     */
+    protected int commitInterval;
+
+    /**
+     * The max nr of parsed statements that are waiting to be executed, 0 if the script is parsed in the same thread
+     */
+    protected int pipelineQueueSize;
+
+
+    /**
+     * Initializes the batch settings.
+     *
+     * @param configuration The configuration, not null
+     */
+    @Override
+    protected void doInit(Properties configuration) {
+        batchSize = PropertyUtils.getInt(PROPKEY_BATCH_SIZE, 0, configuration);
+        commitInterval = PropertyUtils.getInt(PROPKEY_COMMIT_INTERVAL, 0, configuration);
+        pipelineQueueSize = PropertyUtils.getInt(PROPKEY_PIPELINE_QUEUE_SIZE, 0, configuration);
+    }
+
+
+    /**
+     * Executes the given script.
+     * <p/>
+     * All statements should be separated with a semicolon (;). The last statement will be
+     * added even if it does not end with a semicolon.
+     *
+     * @param scriptContentHandle The script as a string, not null
+     */
+    public void execute(ScriptContentHandle scriptContentHandle) {
+
+        Reader scriptContentReader = null;
+        PipelinedScriptParser pipelinedScriptParser = null;
+        try {
+            // get content stream
+            scriptContentReader = scriptContentHandle.openScriptContentReader();
+
+            // create a parser
+            ScriptParser scriptParser = createScriptParser(dialect);
+            if (pipelineQueueSize > 0) {
+                pipelinedScriptParser = new PipelinedScriptParser(scriptParser, pipelineQueueSize);
+                scriptParser = pipelinedScriptParser;
+            }
+            scriptParser.init(configuration, scriptContentReader);
+
+            // parse and execute the statements
+            if (batchSize > 1) {
+                executeStatementsInBatches(scriptParser);
+                return;
+            }
+            String sql;
+            int statementNr = 0;
+            while ((sql = scriptParser.getNextStatement()) != null) {
+                ScriptStatement statement = new ScriptStatement(sql, ++statementNr, getStatementLineNr(scriptParser));
+                try {
+                    sqlHandler.executeUpdateAndCommit(sql);
+                } catch (UnitilsException e) {
+                    throw new UnitilsException(getErrorMessage(statement), e);
+                }
+            }
+        } finally {
+            if (pipelinedScriptParser != null) {
+                pipelinedScriptParser.close();
+            }
+            closeQuietly(scriptContentReader);
+        }
+    }
+
+
+    /**
+     * Executes all statements of the given parser, sending consecutive statements that can be batched to the database
+     * in batches. All statements are executed through the SQL handler.
+     * <p/>
+     * If a commit interval is configured, the statements are executed in a transaction that is committed after every
+     * interval and at the end of the script. If a statement fails, the changes since the last commit are rolled back.
+     * Otherwise, the batches and statements are committed as they are executed, as for statements that are not
+     * batched: on a connection in auto-commit mode, every statement is committed on its own.
+     *
+     * @param scriptParser The parser for the script, not null
+     */
+    protected void executeStatementsInBatches(ScriptParser scriptParser) {
+        boolean inTransaction = commitInterval > 0;
+        if (inTransaction) {
+            getBatchSQLHandler().startTransaction();
+        }
+        try {
+            List<ScriptStatement> batch = new ArrayList<ScriptStatement>(batchSize);
+            int nrOfUncommittedStatements = 0;
+            int statementNr = 0;
+            String sql;
+            while ((sql = scriptParser.getNextStatement()) != null) {
+                ScriptStatement scriptStatement = new ScriptStatement(sql, ++statementNr, getStatementLineNr(scriptParser));
+                if (isBatchable(sql)) {
+                    batch.add(scriptStatement);
+                    if (batch.size() >= batchSize) {
+                        executeBatch(batch, inTransaction);
+                    }
+                } else {
+                    executeBatch(batch, inTransaction);
+                    executeUpdate(scriptStatement, inTransaction);
+                }
+                if (inTransaction && ++nrOfUncommittedStatements >= commitInterval) {
+                    executeBatch(batch, true);
+                    getBatchSQLHandler().commitTransaction();
+                    getBatchSQLHandler().startTransaction();
+                    nrOfUncommittedStatements = 0;
+                }
+            }
+            executeBatch(batch, inTransaction);
+            if (inTransaction) {
+                getBatchSQLHandler().commitTransaction();
+            }
+
+        } catch (RuntimeException e) {
+            if (inTransaction) {
+                getBatchSQLHandler().rollbackTransaction();
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Executes the given statements as a single batch.
+     *
+     * @param batch         The statements in the batch, will be cleared, not null
+     * @param inTransaction True if the statements are part of a transaction, false to commit them
+     */
+    protected void executeBatch(List<ScriptStatement> batch, boolean inTransaction) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<String> sqlStatements = new ArrayList<String>(batch.size());
+        for (ScriptStatement scriptStatement : batch) {
+            sqlStatements.add(scriptStatement.getSql());
+        }
+        try {
+            if (inTransaction) {
+                getBatchSQLHandler().executeUpdates(sqlStatements);
+            } else {
+                getBatchSQLHandler().executeUpdatesAndCommit(sqlStatements);
+            }
+        } catch (UnitilsException e) {
+            ScriptStatement failedStatement = batch.get(0);
+            if (e.getCause() instanceof BatchUpdateException) {
+                failedStatement = getFailedStatement((BatchUpdateException) e.getCause(), batch);
+            }
+            throw new UnitilsException(getErrorMessage(failedStatement), e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+
+    /**
+     * Executes the given statement on its own.
+     *
+     * @param scriptStatement The statement of the script, not null
+     * @param inTransaction   True if the statement is part of a transaction, false to commit it
+     */
+    protected void executeUpdate(ScriptStatement scriptStatement, boolean inTransaction) {
+        try {
+            if (inTransaction) {
+                sqlHandler.executeUpdate(scriptStatement.getSql());
+            } else {
+                sqlHandler.executeUpdateAndCommit(scriptStatement.getSql());
+            }
+        } catch (UnitilsException e) {
+            throw new UnitilsException(getErrorMessage(scriptStatement), e);
+        }
+    }
+
+
+    /**
+     * Determines which statement of the batch failed. Some drivers stop at the first failure, others continue and
+     * mark the failed statements.
+     *
+     * @param e     The exception, not null
+     * @param batch The statements in the batch, not null
+     * @return The failed statement, not null
+     */
+    protected ScriptStatement getFailedStatement(BatchUpdateException e, List<ScriptStatement> batch) {
+        int[] updateCounts = e.getUpdateCounts();
+        if (updateCounts == null) {
+            return batch.get(0);
+        }
+        for (int i = 0; i < updateCounts.length && i < batch.size(); i++) {
+            if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                return batch.get(i);
+            }
+        }
+        return batch.get(Math.min(updateCounts.length, batch.size() - 1));
+    }
+
+
+    /**
+     * Checks whether the given statement can be executed in a batch: only inserts, updates, deletes and merges are
+     * batched.
+     *
+     * @param sql The sql, not null
+     * @return True if the statement can be batched
+     */
+    protected boolean isBatchable(String sql) {
+        return BATCHABLE_STATEMENT_PATTERN.matcher(sql).matches();
+    }
+
+
+    /**
+     * Gets the line on which the last returned statement of the given parser starts.
+     *
+     * @param scriptParser The parser, not null
+     * @return The line nr, 0 if unknown because the parser does not track line nrs
+     */
+    protected int getStatementLineNr(ScriptParser scriptParser) {
+        if (scriptParser instanceof LineTrackingScriptParser) {
+            return ((LineTrackingScriptParser) scriptParser).getStatementLineNr();
+        }
+        return 0;
+    }
+
+
+    /**
+     * Creates the message for a failed statement, containing the nr of the statement and the line on which it starts.
+     *
+     * @param statement The failed statement, not null
+     * @return The message, not null
+     */
+    protected String getErrorMessage(ScriptStatement statement) {
+        String line = statement.getLineNr() > 0 ? "line " + statement.getLineNr() : "unknown line";
+        return "Error while performing database update of statement " + statement.getStatementNr() + " on " + line + ": " + statement.getSql();
+    }
+
+
+    /**
+     * Creates a script parser.
+     *
+     * @return The parser, not null
+     */
+    protected ScriptParser createScriptParser(String dialect) {
+        return getInstanceOf(ScriptParser.class, configuration, dialect);
+    }
+
+
+    /**
+     * A statement of the script, with its position in the script.
+     */
+    protected static class ScriptStatement {
+
+        /* The sql of the statement */
+        private String sql;
+
+        /* The index of the statement in the script, starting from 1 */
+        private int statementNr;
+
+        /* The line on which the statement starts, 0 if unknown */
+        private int lineNr;
+
+        public ScriptStatement(String sql, int statementNr, int lineNr) {
+            this.sql = sql;
+            this.statementNr = statementNr;
+            this.lineNr = lineNr;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public int getStatementNr() {
+            return statementNr;
+        }
+
+        public int getLineNr() {
+            return lineNr;
+        }
+    }
+}
@@ -24,17 +24,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.unitils.core.UnitilsException;
 import org.unitils.core.util.BaseConfigurable;
 import org.unitils.dbmaintainer.script.ExecutedScript;
+import org.unitils.dbmaintainer.script.ExecutedScriptSet;
 import org.unitils.dbmaintainer.script.Script;
 import org.unitils.dbmaintainer.script.ScriptContentHandle;
 import org.unitils.dbmaintainer.script.ScriptSource;
 import org.unitils.dbmaintainer.version.Version;
-import org.unitils.util.FileUtils;
 import org.unitils.util.PropertyUtils;
 
 /**
@@ -42,6 +46,10 @@ import org.unitils.util.PropertyUtils;
  * files should be located in the directory configured by {@link #PROPKEY_SCRIPT_LOCATIONS}.
  * Valid script files start with a version number followed by an underscore, and end with the
  * extension configured by {@link #PROPKEY_SCRIPT_EXTENSIONS}.
+ * <p/> If {@link #PROPKEY_SCRIPT_INDEX_ENABLED} is true, the checksums of the script files are stored in a
+ * {@link ScriptIndex}. Only the files that were changed since the last run are read again, using several
+ * threads. Since the index relies on the last modification dates of the files, it is not used when
+ * {@link #PROPKEY_USESCRIPTFILELASTMODIFICATIONDATES} is false.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
@@ -73,9 +81,25 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
     public static final String PROPKEY_INCLUDE_QUALIFIERS = "dbMaintainer.includedQualifiers";
     
     public static final String PROPKEY_QUALIFIERS = "dbMaintainer.qualifiers";
+
+    /**
+     * Property key that indicates whether the checksums of the scripts are stored in a script index
+     */
+    public static final String PROPKEY_SCRIPT_INDEX_ENABLED = "dbMaintainer.script.index.enabled";
+
+    /**
+     * Property key for the file in which the script index is stored
+     */
+    public static final String PROPKEY_SCRIPT_INDEX_FILENAME = "dbMaintainer.script.index.fileName";
     
     protected List<Script> allUpdateScripts, allPostProcessingScripts;
 
+    /* The index of the script checksums, null if disabled */
+    protected ScriptIndex scriptIndex;
+
+    /* The scripts whose checksum was not found in the index, per script file */
+    protected Map<File, Script> unindexedScripts;
+
 
     /**
      * Gets a list of all available update scripts. These scripts can be used to completely recreate the
@@ -135,13 +159,13 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
      * @return The scripts that have a higher index of timestamp than the start version, not null.
      */
     public List<Script> getNewScripts(Version currentVersion, Set<ExecutedScript> alreadyExecutedScripts, String dialect, String databaseName, boolean defaultDatabase) {
-        Map<String, Script> alreadyExecutedScriptMap = convertToScriptNameScriptMap(alreadyExecutedScripts);
+        ExecutedScriptSet alreadyExecutedScriptSet = toExecutedScriptSet(alreadyExecutedScripts);
 
         List<Script> result = new ArrayList<Script>();
 
         List<Script> allScripts = getAllUpdateScripts(dialect, databaseName, defaultDatabase);
         for (Script script : allScripts) {
-            Script alreadyExecutedScript = alreadyExecutedScriptMap.get(script.getFileName());
+            Script alreadyExecutedScript = alreadyExecutedScriptSet.getScript(script.getFileName());
 
             // If the script is indexed and the version is higher than the highest one currently applied to the database,
             // add it to the list.
@@ -174,7 +198,7 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
      * @return True if an existing script has been modified, false otherwise
      */
     public boolean isExistingIndexedScriptModified(Version currentVersion, Set<ExecutedScript> alreadyExecutedScripts, String dialect, String databaseName, boolean defaultDatabase) {
-        Map<String, Script> alreadyExecutedScriptMap = convertToScriptNameScriptMap(alreadyExecutedScripts);
+        ExecutedScriptSet alreadyExecutedScriptSet = toExecutedScriptSet(alreadyExecutedScripts);
         List<Script> incrementalScripts = getIncrementalScripts(dialect, databaseName, defaultDatabase);
         // Search for indexed scripts that have been executed but don't appear in the current indexed scripts anymore
         for (ExecutedScript alreadyExecutedScript : alreadyExecutedScripts) {
@@ -187,7 +211,7 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
         // Search for indexed scripts whose version < the current version, which are new or whose contents have changed
         for (Script indexedScript : incrementalScripts) {
             if (indexedScript.getVersion().compareTo(currentVersion) <= 0) {
-                Script alreadyExecutedScript = alreadyExecutedScriptMap.get(indexedScript.getFileName());
+                Script alreadyExecutedScript = alreadyExecutedScriptSet.getScript(indexedScript.getFileName());
                 if (alreadyExecutedScript == null) {
                     logger.warn("New index script has been added, with at least one already executed script having an higher index." + indexedScript.getFileName());
                     return true;
@@ -250,6 +274,8 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
      */
     protected List<Script> loadAllScripts(String dialect, String databaseName, boolean defaultDatabase) {
         List<String> scriptLocations = PropertyUtils.getStringList(PROPKEY_SCRIPT_LOCATIONS, configuration);
+        scriptIndex = createScriptIndex(scriptLocations);
+        unindexedScripts = new HashMap<File, Script>();
         List<Script> scripts = new ArrayList<Script>();
         for (String scriptLocation : scriptLocations) {
             if (!new File(scriptLocation).exists()) {
@@ -257,9 +283,86 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
             }
             getScriptsAt(scripts, scriptLocation, "", databaseName, defaultDatabase);
         }
+        if (scriptIndex != null) {
+            indexScripts(unindexedScripts);
+            scriptIndex.save();
+        }
         return scripts;
     }
 
+
+    /**
+     * Creates the script index, if enabled. The index is not used if the last modification dates of the script files
+     * are not used. If no index file is configured, a file in the temp dir is used whose name is derived from the
+     * script locations, see {@link #getDefaultScriptIndexFileName}.
+     *
+     * @param scriptLocations The locations of the scripts, not null
+     * @return The index, null if disabled
+     */
+    protected ScriptIndex createScriptIndex(List<String> scriptLocations) {
+        if (!PropertyUtils.getBoolean(PROPKEY_SCRIPT_INDEX_ENABLED, false, configuration) || !useScriptFileLastModificationDates()) {
+            return null;
+        }
+        String defaultFileName = getDefaultScriptIndexFileName(scriptLocations);
+        return new ScriptIndex(new File(PropertyUtils.getString(PROPKEY_SCRIPT_INDEX_FILENAME, defaultFileName, configuration)));
+    }
+
+
+    /**
+     * Gets the name of the index file that is used if none is configured: the file
+     * unitils-script-index-[hash].properties in the temp dir, with a hash of the absolute paths of the script
+     * locations. This way, projects with different script locations do not share the same index file.
+     *
+     * @param scriptLocations The locations of the scripts, not null
+     * @return The file name, not null
+     */
+    protected String getDefaultScriptIndexFileName(List<String> scriptLocations) {
+        StringBuilder absolutePaths = new StringBuilder();
+        for (String scriptLocation : scriptLocations) {
+            absolutePaths.append(new File(scriptLocation).getAbsolutePath()).append(File.pathSeparatorChar);
+        }
+        String fileName = "unitils-script-index-" + Integer.toHexString(absolutePaths.toString().hashCode()) + ".properties";
+        return new File(System.getProperty("java.io.tmpdir"), fileName).getPath();
+    }
+
+
+    /**
+     * Calculates the checksums of the given scripts and adds them to the script index. The files are read by
+     * several threads, one per available processor.
+     *
+     * @param scripts The scripts per script file, not null
+     */
+    protected void indexScripts(Map<File, Script> scripts) {
+        if (scripts.isEmpty()) {
+            return;
+        }
+        logger.debug("Calculating checksums of " + scripts.size() + " new or changed scripts.");
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(scripts.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final Map.Entry<File, Script> entry : scripts.entrySet()) {
+                futures.add(executorService.submit(new Runnable() {
+                    public void run() {
+                        scriptIndex.putCheckSum(entry.getKey(), entry.getValue().getCheckSum());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UnitilsException("Unable to calculate script checksums.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnitilsException("Interrupted while calculating script checksums.", e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
     
 
     /**
@@ -379,13 +482,23 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
 
 
     /**
-     * Creates a script object for the given script file
+     * Creates a script object for the given script file. If the checksum of the file is found in the script
+     * index, it is set on the script, otherwise the script is remembered to be indexed.
      *
      * @param scriptFile The script file, not null
      * @return The script, not null
      */
     protected Script createScript(File scriptFile, String relativePath) {
-        return new Script(relativePath, scriptFile.lastModified(), new ScriptContentHandle.UrlScriptContentHandle(FileUtils.getUrl(scriptFile)));
+        ScriptContentHandle scriptContentHandle = new ScriptContentHandle.FileScriptContentHandle(scriptFile);
+        if (scriptIndex == null) {
+            return new Script(relativePath, scriptFile.lastModified(), scriptContentHandle);
+        }
+        String checkSum = scriptIndex.getCheckSum(scriptFile);
+        Script script = new Script(relativePath, scriptFile.lastModified(), scriptContentHandle, checkSum);
+        if (checkSum == null) {
+            unindexedScripts.put(scriptFile, script);
+        }
+        return script;
     }
 
 
@@ -411,12 +524,19 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
     }
 
 
-    protected Map<String, Script> convertToScriptNameScriptMap(Set<ExecutedScript> executedScripts) {
-        Map<String, Script> scriptMap = new HashMap<String, Script>();
-        for (ExecutedScript executedScript : executedScripts) {
-            scriptMap.put(executedScript.getScript().getFileName(), executedScript.getScript());
+    /**
+     * Gets the given executed scripts as a set that is indexed by file name. If they already are, e.g. when they
+     * were retrieved from the {@link org.unitils.dbmaintainer.version.impl.DefaultExecutedScriptInfoSource}, the
+     * given set is used as is.
+     *
+     * @param executedScripts The executed scripts, not null
+     * @return The indexed set, not null
+     */
+    protected ExecutedScriptSet toExecutedScriptSet(Set<ExecutedScript> executedScripts) {
+        if (executedScripts instanceof ExecutedScriptSet) {
+            return (ExecutedScriptSet) executedScripts;
         }
-        return scriptMap;
+        return new ExecutedScriptSet(executedScripts);
     }
 
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script.impl;
+
+import org.unitils.core.UnitilsException;
+import org.unitils.dbmaintainer.script.LineTrackingScriptParser;
+import org.unitils.dbmaintainer.script.ScriptParser;
+
+import java.io.Reader;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Script parser that parses the statements of a script in a separate thread, so that the next statements are already
+ * parsed while the current statement is executed.
+ * <p/>
+ * The actual parsing is done by the wrapped parser. Its statements are put in a bounded queue: if the queue is full,
+ * the parsing thread waits until statements are taken out. An error of the wrapped parser is thrown by
+ * getNextStatement once all statements that were parsed before the error have been returned, just like the wrapped
+ * parser would do.
+ * <p/>
+ * The parser should be closed when it is no longer used, to stop the parsing thread.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class PipelinedScriptParser implements LineTrackingScriptParser {
+
+    /* Queue element that marks the end of the script */
+    private static final ParsedStatement END_OF_SCRIPT = new ParsedStatement(null, 0);
+
+    /* The parser that does the actual parsing */
+    private ScriptParser scriptParser;
+
+    /* The max nr of parsed statements that are waiting to be returned */
+    private int queueSize;
+
+    /* The parsed statements */
+    private BlockingQueue<ParsedStatement> parsedStatements;
+
+    /* The error of the wrapped parser, null if there was none. Visible to the caller through the queue */
+    private Throwable parseError;
+
+    /* The parsing thread, null if the parser is closed */
+    private Thread parserThread;
+
+    /* True if the end of the script was returned */
+    private boolean endOfScript;
+
+    /* The line nr of the last returned statement */
+    private int statementLineNr;
+
+
+    /**
+     * Creates a parser that parses the statements of the given parser in a separate thread.
+     *
+     * @param scriptParser The parser that does the actual parsing, not null
+     * @param queueSize    The max nr of parsed statements that are waiting to be returned, at least 1
+     */
+    public PipelinedScriptParser(ScriptParser scriptParser, int queueSize) {
+        this.scriptParser = scriptParser;
+        this.queueSize = queueSize;
+    }
+
+
+    /**
+     * Initializes the wrapped parser and starts parsing the script.
+     *
+     * @param configuration The config, not null
+     * @param scriptReader  The script stream, not null
+     */
+    public void init(Properties configuration, Reader scriptReader) {
+        close();
+        scriptParser.init(configuration, scriptReader);
+        parsedStatements = new ArrayBlockingQueue<ParsedStatement>(queueSize);
+        parseError = null;
+        endOfScript = false;
+        statementLineNr = 0;
+
+        parserThread = new Thread(new Runnable() {
+            public void run() {
+                parseStatements();
+            }
+        }, "unitils-script-parser");
+        parserThread.setDaemon(true);
+        parserThread.start();
+    }
+
+
+    /**
+     * Gets the next parsed statement, waiting for it to be parsed if needed.
+     *
+     * @return the statement, null if no more statements
+     */
+    public String getNextStatement() {
+        if (endOfScript) {
+            return null;
+        }
+        ParsedStatement parsedStatement;
+        try {
+            parsedStatement = parsedStatements.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnitilsException("Interrupted while waiting for the next statement of the script.", e);
+        }
+        if (parsedStatement == END_OF_SCRIPT) {
+            endOfScript = true;
+            throwParseError();
+            return null;
+        }
+        statementLineNr = parsedStatement.lineNr;
+        return parsedStatement.statement;
+    }
+
+
+    /**
+     * Gets the nr of the line in the script on which the last returned statement started.
+     *
+     * @return the line nr, starting from 1, 0 if no statement was returned yet or if the wrapped parser does not
+     *         track line nrs
+     */
+    public int getStatementLineNr() {
+        return statementLineNr;
+    }
+
+
+    /**
+     * Stops the parsing thread and waits for it to finish. The statement that is being parsed is finished first.
+     */
+    public void close() {
+        if (parserThread == null) {
+            return;
+        }
+        parserThread.interrupt();
+        try {
+            parserThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        parserThread = null;
+    }
+
+
+    /**
+     * Parses all statements of the wrapped parser and puts them in the queue, followed by the end of script marker.
+     * This is executed by the parsing thread.
+     */
+    protected void parseStatements() {
+        try {
+            try {
+                String statement;
+                while ((statement = scriptParser.getNextStatement()) != null) {
+                    int lineNr = 0;
+                    if (scriptParser instanceof LineTrackingScriptParser) {
+                        lineNr = ((LineTrackingScriptParser) scriptParser).getStatementLineNr();
+                    }
+                    parsedStatements.put(new ParsedStatement(statement, lineNr));
+                }
+            } catch (RuntimeException e) {
+                parseError = e;
+            } catch (Error e) {
+                parseError = e;
+            }
+            parsedStatements.put(END_OF_SCRIPT);
+        } catch (InterruptedException e) {
+            // parser was closed
+        }
+    }
+
+
+    private void throwParseError() {
+        if (parseError instanceof RuntimeException) {
+            throw (RuntimeException) parseError;
+        }
+        if (parseError instanceof Error) {
+            throw (Error) parseError;
+        }
+    }
+
+
+    /**
+     * A parsed statement with the line nr on which it started.
+     */
+    private static class ParsedStatement {
+
+        private String statement;
+
+        private int lineNr;
+
+        public ParsedStatement(String statement, int lineNr) {
+            this.statement = statement;
+            this.lineNr = lineNr;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.thirdparty.org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Index of the checksums of script files, stored in a file so that it survives between test runs. For every script
+ * file, the absolute path, the size, the last modification time and the checksum of the content are stored. As long
+ * as the size and the modification time of a file did not change, the stored checksum is used instead of reading
+ * the file again.
+ * <p/>
+ * The index can be used by different threads. Failing to read or write the index file is not an error: the
+ * checksums are then simply calculated again.
+ *
+ * @author Filip Neven
+ * @author Tim Ducheyne
+ */
+public class ScriptIndex {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(ScriptIndex.class);
+
+    /* The file in which the index is stored */
+    protected File indexFile;
+
+    /* The entries, size,last modified,checksum per absolute file name */
+    protected Properties entries = new Properties();
+
+    /* True if the entries were changed since they were loaded */
+    protected boolean modified;
+
+
+    /**
+     * Creates an index and loads the entries that are stored in the given file, if it exists.
+     *
+     * @param indexFile The index file, not null
+     */
+    public ScriptIndex(File indexFile) {
+        this.indexFile = indexFile;
+        load();
+    }
+
+
+    /**
+     * Gets the stored checksum of the given script file.
+     *
+     * @param scriptFile The script file, not null
+     * @return The checksum, null if the file is not in the index or if it was changed since it was indexed
+     */
+    public synchronized String getCheckSum(File scriptFile) {
+        String entry = entries.getProperty(scriptFile.getAbsolutePath());
+        if (entry == null) {
+            return null;
+        }
+        String[] parts = entry.split(",", 3);
+        if (parts.length != 3 || !parts[0].equals(String.valueOf(scriptFile.length())) || !parts[1].equals(String.valueOf(scriptFile.lastModified()))) {
+            return null;
+        }
+        return parts[2];
+    }
+
+
+    /**
+     * Stores the checksum of the given script file, together with its current size and modification time.
+     *
+     * @param scriptFile The script file, not null
+     * @param checkSum   The checksum of the content, not null
+     */
+    public synchronized void putCheckSum(File scriptFile, String checkSum) {
+        entries.setProperty(scriptFile.getAbsolutePath(), scriptFile.length() + "," + scriptFile.lastModified() + "," + checkSum);
+        modified = true;
+    }
+
+
+    /**
+     * Writes the index to its file, if it was changed. Entries of files that no longer exist are removed. The index
+     * is first written to a temporary file, so that other processes never read a half written index.
+     */
+    public synchronized void save() {
+        if (!modified) {
+            return;
+        }
+        for (Iterator<Map.Entry<Object, Object>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+            if (!new File((String) iterator.next().getKey()).isFile()) {
+                iterator.remove();
+            }
+        }
+        File tempFile = null;
+        OutputStream outputStream = null;
+        try {
+            File directory = indexFile.getAbsoluteFile().getParentFile();
+            directory.mkdirs();
+            tempFile = File.createTempFile(indexFile.getName(), ".tmp", directory);
+            outputStream = new FileOutputStream(tempFile);
+            entries.store(outputStream, "Unitils script index");
+            outputStream.close();
+            if (!tempFile.renameTo(indexFile) && !(indexFile.delete() && tempFile.renameTo(indexFile))) {
+                tempFile.delete();
+                logger.warn("Unable to write script index " + indexFile);
+                return;
+            }
+            modified = false;
+
+        } catch (IOException e) {
+            logger.warn("Unable to write script index " + indexFile, e);
+            IOUtils.closeQuietly(outputStream);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+    }
+
+
+    /**
+     * Loads the entries from the index file. If the file does not exist or cannot be read, the index is empty.
+     */
+    protected void load() {
+        if (!indexFile.isFile()) {
+            return;
+        }
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(indexFile);
+            entries.load(inputStream);
+
+        } catch (IOException e) {
+            logger.warn("Unable to read script index " + indexFile + ". All checksums will be calculated again.", e);
+            entries.clear();
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+}
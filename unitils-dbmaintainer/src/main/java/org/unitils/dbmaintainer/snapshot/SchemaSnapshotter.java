@@ -0,0 +1,56 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.snapshot;
+
+import org.unitils.dbmaintainer.script.Script;
+import org.unitils.dbmaintainer.util.DatabaseAccessing;
+
+import java.util.List;
+
+/**
+ * Defines the contract for implementation classes that take a snapshot of the database after it was updated, so that
+ * the database can later be brought in the same state in one operation, instead of executing all scripts again.
+ * <p/>
+ * A snapshot is identified by the scripts that were executed to create it: it can only be restored when the scripts,
+ * and the contents of the scripts, are still exactly the same.
+ *
+ * @author Filip Neven
+ * @author Tim Ducheyne
+ */
+public interface SchemaSnapshotter extends DatabaseAccessing {
+
+
+    /**
+     * Restores the snapshot that was taken after executing the given scripts, if there is one. The database should
+     * have been cleared first.
+     *
+     * @param databaseName The name of the database, null for the default database
+     * @param scripts      All scripts of the database, including the post processing scripts, not null
+     * @return True if a snapshot was restored, false if there is no snapshot for these scripts
+     */
+    boolean restoreSnapshot(String databaseName, List<Script> scripts);
+
+
+    /**
+     * Takes a snapshot of the database, which is in the state after executing the given scripts. Older snapshots of
+     * the database are removed.
+     *
+     * @param databaseName The name of the database, null for the default database
+     * @param scripts      All scripts of the database, including the post processing scripts, not null
+     */
+    void createSnapshot(String databaseName, List<Script> scripts);
+
+}
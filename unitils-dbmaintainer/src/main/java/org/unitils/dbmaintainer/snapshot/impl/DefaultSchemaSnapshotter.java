@@ -0,0 +1,249 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.snapshot.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.DbSupport;
+import org.unitils.dbmaintainer.script.Script;
+import org.unitils.dbmaintainer.snapshot.SchemaSnapshotter;
+import org.unitils.dbmaintainer.util.BaseDatabaseAccessor;
+import org.unitils.util.PropertyUtils;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.unitils.dbmaintainer.clean.impl.DefaultDBClearer.*;
+import static org.unitils.util.PropertyUtils.getStringList;
+
+/**
+ * Implementation of {@link SchemaSnapshotter} that uses the native snapshot mechanism of the database, see
+ * {@link org.unitils.core.dbsupport.DbSupport#createSnapshot}. If the database does not support snapshots, nothing
+ * is done and no snapshot is ever restored.
+ * <p/>
+ * The snapshots are stored as files in the directory defined by {@link #PROPKEY_SNAPSHOT_DIR_NAME}. The name of the
+ * file contains an MD5 hash of the names and checksums of all scripts, so a changed, added or removed script
+ * automatically leads to a different snapshot. Only the latest snapshot of every database is kept.
+ * <p/>
+ * A snapshot only contains the configured schemas that are not preserved. Restoring a snapshot would replace the
+ * items that are preserved when clearing the database, see the dbMaintainer.preserve properties. If items of the
+ * snapshot schemas are preserved, no snapshots are taken or restored.
+ *
+ * @author Filip Neven
+ * @author Tim Ducheyne
+ */
+public class DefaultSchemaSnapshotter extends BaseDatabaseAccessor implements SchemaSnapshotter {
+
+    /* Property key for the directory in which the snapshots are stored */
+    public static final String PROPKEY_SNAPSHOT_DIR_NAME = "dbMaintainer.snapshot.dirName";
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(DefaultSchemaSnapshotter.class);
+
+    /* The directory in which the snapshots are stored */
+    protected File snapshotDir;
+
+    /* The names of the schemas that are part of a snapshot, empty if snapshots cannot be used */
+    protected Set<String> snapshotSchemaNames;
+
+    /* The properties that define the items that are preserved when clearing the database */
+    private static final String[] PRESERVE_ITEMS_PROPERTY_NAMES = {PROPKEY_PRESERVE_TABLES, PROPKEY_PRESERVE_VIEWS,
+            PROPKEY_PRESERVE_MATERIALIZED_VIEWS, PROPKEY_PRESERVE_SYNONYMS, PROPKEY_PRESERVE_SEQUENCES,
+            PROPKEY_PRESERVE_TRIGGERS, PROPKEY_PRESERVE_TYPES};
+
+
+    /**
+     * Initializes the snapshot directory. If no directory is configured, a directory in the temp dir is used.
+     *
+     * @param configuration The config, not null
+     */
+    @Override
+    protected void doInit(Properties configuration) {
+        String defaultDirName = new File(System.getProperty("java.io.tmpdir"), "unitils-snapshots").getPath();
+        snapshotDir = new File(PropertyUtils.getString(PROPKEY_SNAPSHOT_DIR_NAME, defaultDirName, configuration));
+        snapshotSchemaNames = getSnapshotSchemaNames();
+    }
+
+
+    /**
+     * Gets the names of the schemas that are part of a snapshot: all configured schemas, except for the preserved
+     * schemas. If items of these schemas are preserved, snapshots cannot be used.
+     *
+     * @return The schema names in the correct case, empty if snapshots cannot be used, not null
+     */
+    protected Set<String> getSnapshotSchemaNames() {
+        Set<String> schemaNames = new LinkedHashSet<String>();
+        Set<String> preservedSchemaNames = getSchemaNamesOfItemsToPreserve(new String[]{PROPKEY_PRESERVE_SCHEMAS}, false);
+        for (DbSupport dbSupport : dbSupports) {
+            if (!preservedSchemaNames.contains(dbSupport.getSchemaName())) {
+                schemaNames.add(dbSupport.getSchemaName());
+            }
+        }
+        for (String schemaName : getSchemaNamesOfItemsToPreserve(PRESERVE_ITEMS_PROPERTY_NAMES, true)) {
+            if (schemaNames.contains(schemaName)) {
+                logger.info("Items of database schema " + schemaName + " are preserved. Database snapshots are not used, because restoring them would replace these items.");
+                schemaNames.clear();
+                break;
+            }
+        }
+        return schemaNames;
+    }
+
+
+    /**
+     * Gets the names of the schemas of the items that are defined by the given properties.
+     *
+     * @param propertyNames The names of the properties, not null
+     * @param qualified     True if the items are optionally prefixed with the schema name, false if they are schemas
+     * @return The schema names in the correct case, not null
+     */
+    protected Set<String> getSchemaNamesOfItemsToPreserve(String[] propertyNames, boolean qualified) {
+        Set<String> result = new LinkedHashSet<String>();
+        for (String propertyName : propertyNames) {
+            for (String itemToPreserve : getStringList(propertyName, configuration)) {
+                if (!qualified) {
+                    result.add(defaultDbSupport.toCorrectCaseIdentifier(itemToPreserve));
+                    continue;
+                }
+                int index = itemToPreserve.indexOf('.');
+                if (index == -1) {
+                    result.add(defaultDbSupport.getSchemaName());
+                } else {
+                    result.add(defaultDbSupport.toCorrectCaseIdentifier(itemToPreserve.substring(0, index)));
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Restores the snapshot that was taken after executing the given scripts, if there is one.
+     *
+     * @param databaseName The name of the database, null for the default database
+     * @param scripts      All scripts of the database, including the post processing scripts, not null
+     * @return True if a snapshot was restored, false if there is no snapshot for these scripts
+     */
+    public boolean restoreSnapshot(String databaseName, List<Script> scripts) {
+        if (!defaultDbSupport.supportsSnapshots() || snapshotSchemaNames.isEmpty()) {
+            return false;
+        }
+        File snapshotFile = new File(snapshotDir, getSnapshotFileName(databaseName, scripts));
+        if (!snapshotFile.isFile()) {
+            logger.info("No database snapshot found for the current scripts.");
+            return false;
+        }
+        logger.info("Restoring database snapshot " + snapshotFile.getPath());
+        defaultDbSupport.restoreSnapshot(snapshotFile.getAbsolutePath());
+        return true;
+    }
+
+
+    /**
+     * Takes a snapshot of the database and removes the older snapshots of the same database. The snapshot is first
+     * written to a temporary file, so that a snapshot that was not completely written is never restored.
+     *
+     * @param databaseName The name of the database, null for the default database
+     * @param scripts      All scripts of the database, including the post processing scripts, not null
+     */
+    public void createSnapshot(String databaseName, List<Script> scripts) {
+        if (!defaultDbSupport.supportsSnapshots() || snapshotSchemaNames.isEmpty()) {
+            return;
+        }
+        if (!snapshotDir.isDirectory() && !snapshotDir.mkdirs()) {
+            throw new UnitilsException("Unable to create database snapshot directory " + snapshotDir.getPath());
+        }
+        String snapshotFileName = getSnapshotFileName(databaseName, scripts);
+        File snapshotFile = new File(snapshotDir, snapshotFileName);
+        File tempFile = new File(snapshotDir, snapshotFileName + ".tmp");
+        tempFile.delete();
+
+        logger.info("Creating database snapshot " + snapshotFile.getPath());
+        defaultDbSupport.createSnapshot(tempFile.getAbsolutePath(), snapshotSchemaNames);
+        if (!tempFile.isFile()) {
+            // updates are not executed
+            return;
+        }
+        deleteSnapshots(databaseName);
+        if (!tempFile.renameTo(snapshotFile)) {
+            throw new UnitilsException("Unable to rename database snapshot " + tempFile.getPath() + " to " + snapshotFile.getPath());
+        }
+    }
+
+
+    /**
+     * Removes all snapshots of the given database.
+     *
+     * @param databaseName The name of the database, null for the default database
+     */
+    protected void deleteSnapshots(String databaseName) {
+        String prefix = getSnapshotFileNamePrefix(databaseName);
+        File[] files = snapshotDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(prefix) && file.getName().endsWith(".sql") && !file.delete()) {
+                logger.warn("Unable to delete old database snapshot " + file.getPath());
+            }
+        }
+    }
+
+
+    /**
+     * Gets the name of the snapshot file for the given scripts: the prefix of the database followed by the MD5 hash
+     * of the snapshot schema names and of the names and checksums of the scripts.
+     *
+     * @param databaseName The name of the database, null for the default database
+     * @param scripts      The scripts, not null
+     * @return The file name, not null
+     */
+    protected String getSnapshotFileName(String databaseName, List<Script> scripts) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            messageDigest.update((snapshotSchemaNames.toString() + '\n').getBytes("UTF-8"));
+            for (Script script : scripts) {
+                messageDigest.update((script.getFileName() + '\n' + script.getCheckSum() + '\n').getBytes("UTF-8"));
+            }
+            StringBuffer result = new StringBuffer(getSnapshotFileNamePrefix(databaseName));
+            for (byte digestByte : messageDigest.digest()) {
+                result.append(Integer.toString((digestByte & 0xff) + 0x100, 16).substring(1));
+            }
+            return result.append(".sql").toString();
+
+        } catch (Exception e) {
+            throw new UnitilsException("Unable to calculate the name of the database snapshot", e);
+        }
+    }
+
+
+    /**
+     * Gets the prefix of the snapshot file names of the given database. It contains the dialect and the database
+     * name, so that the snapshots of different databases can be stored in the same directory.
+     *
+     * @param databaseName The name of the database, null for the default database
+     * @return The prefix, not null
+     */
+    protected String getSnapshotFileNamePrefix(String databaseName) {
+        String name = databaseName == null || databaseName.length() == 0 ? "default" : databaseName;
+        return dialect + '-' + name.replaceAll("[^a-zA-Z0-9_]", "_") + '-';
+    }
+}
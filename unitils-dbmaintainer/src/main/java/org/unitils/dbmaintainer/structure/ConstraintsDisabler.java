@@ -34,4 +34,13 @@ public interface ConstraintsDisabler extends DatabaseAccessing {
      */
     void disableConstraints();
 
+
+    /**
+     * Switches the referential constraints that were disabled by {@link #disableConstraints} back on and validates
+     * the existing data against them. This can be used to load test data quickly without constraints and check it
+     * afterwards in one pass. This is only possible if the DBMS supports switching off the constraints without
+     * dropping them, otherwise nothing is done.
+     */
+    void restoreConstraints();
+
 }
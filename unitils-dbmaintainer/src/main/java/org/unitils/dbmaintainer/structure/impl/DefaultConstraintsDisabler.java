@@ -51,6 +51,22 @@ public class DefaultConstraintsDisabler extends BaseDatabaseAccessor implements
     }
 
 
+    /**
+     * Switches the referential constraints back on and validates the existing data. A warning is logged for the
+     * schemas of which the constraints cannot be restored.
+     */
+    public void restoreConstraints() {
+        for (DbSupport dbSupport : dbSupports) {
+            if (!dbSupport.supportsRestoringReferentialConstraints()) {
+                logger.warn("Unable to restore constraints in database schema " + dbSupport.getSchemaName() + ". Restoring constraints is not supported for " + dbSupport.getDatabaseDialect());
+                continue;
+            }
+            logger.info("Restoring constraints in database schema " + dbSupport.getSchemaName());
+            dbSupport.restoreReferentialConstraints();
+        }
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all tables in the schema
      *
@@ -23,12 +23,17 @@ import org.unitils.dbmaintainer.structure.SequenceUpdater;
 import org.unitils.dbmaintainer.util.BaseDatabaseAccessor;
 import org.unitils.util.PropertyUtils;
 
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
 /**
  * Implementation of {@link SequenceUpdater}. All sequences and identity columns that have a value lower than the value
  * defined by {@link #PROPKEY_LOWEST_ACCEPTABLE_SEQUENCE_VALUE} are set to this value.
+ * <p/>
+ * When the DBMS supports it, the sequences and identity columns with a value that is too low are looked up using a
+ * single catalog query and are then updated in one batch. If nothing has a value that is too low, which is the normal
+ * case when the database was already updated before, no statements are executed at all.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
@@ -74,17 +79,17 @@ public class DefaultSequenceUpdater extends BaseDatabaseAccessor implements Sequ
      *
      * @param dbSupport The database support, not null
      */
-    private void incrementSequencesWithLowValue(DbSupport dbSupport) {
+    protected void incrementSequencesWithLowValue(DbSupport dbSupport) {
         if (!dbSupport.supportsSequences()) {
             return;
         }
-        Set<String> sequenceNames = dbSupport.getSequenceNames();
-        for (String sequenceName : sequenceNames) {
-            if (dbSupport.getSequenceValue(sequenceName) < lowestAcceptableSequenceValue) {
-                logger.debug("Incrementing value for sequence " + sequenceName + " in database schema " + dbSupport.getSchemaName());
-                dbSupport.incrementSequenceToValue(sequenceName, lowestAcceptableSequenceValue);
-            }
+        Set<String> sequenceNames = dbSupport.getSequenceNamesBelowValue(lowestAcceptableSequenceValue);
+        if (sequenceNames.isEmpty()) {
+            logger.debug("No sequences with a value lower than " + lowestAcceptableSequenceValue + " in database schema " + dbSupport.getSchemaName());
+            return;
         }
+        logger.debug("Incrementing value for sequences " + sequenceNames + " in database schema " + dbSupport.getSchemaName());
+        dbSupport.incrementSequencesToValue(sequenceNames, lowestAcceptableSequenceValue);
     }
 
 
@@ -93,13 +98,34 @@ public class DefaultSequenceUpdater extends BaseDatabaseAccessor implements Sequ
      *
      * @param dbSupport The database support, not null
      */
-    private void incrementIdentityColumnsWithLowValue(DbSupport dbSupport) {
+    protected void incrementIdentityColumnsWithLowValue(DbSupport dbSupport) {
         if (!dbSupport.supportsIdentityColumns()) {
             return;
         }
-        Set<String> tableNames = dbSupport.getTableNames();
+        Map<String, Set<String>> identityColumnNames = dbSupport.getIdentityColumnNamesBelowValue(lowestAcceptableSequenceValue);
+        if (identityColumnNames == null) {
+            incrementAllIdentityColumns(dbSupport);
+            return;
+        }
+        if (identityColumnNames.isEmpty()) {
+            logger.debug("No identity columns with a value lower than " + lowestAcceptableSequenceValue + " in database schema " + dbSupport.getSchemaName());
+            return;
+        }
+        logger.debug("Incrementing value for identity columns " + identityColumnNames + " in database schema " + dbSupport.getSchemaName());
+        dbSupport.incrementIdentityColumnsToValue(identityColumnNames, lowestAcceptableSequenceValue);
+    }
+
+
+    /**
+     * Increments the next value of all identity columns one by one. This is used when the current values of the
+     * identity columns cannot be looked up for the DBMS.
+     *
+     * @param dbSupport The database support, not null
+     */
+    protected void incrementAllIdentityColumns(DbSupport dbSupport) {
+        Set<String> tableNames = dbSupport.getCachedTableNames();
         for (String tableName : tableNames) {
-            Set<String> identityColumnNames = dbSupport.getIdentityColumnNames(tableName);
+            Set<String> identityColumnNames = dbSupport.getCachedIdentityColumnNames(tableName);
             for (String identityColumnName : identityColumnNames) {
                 try {
                     dbSupport.incrementIdentityColumnToValue(tableName, identityColumnName, lowestAcceptableSequenceValue);
@@ -120,7 +120,7 @@ public class DtdDataSetStructureGenerator extends BaseDatabaseAccessor implement
 
             // create a dataset for the database content
             // filter out all system table names
-            Set<String> tableNames = defaultDbSupport.getTableNames();
+            Set<String> tableNames = defaultDbSupport.getCachedTableNames();
             IDataSet actualDataSet = dbUnitDatabaseConnection.createDataSet();
             IDataSet filteredActualDataSet = new FilteredDataSet(new IncludeTableFilter(tableNames.toArray(new String[0])), actualDataSet);
 
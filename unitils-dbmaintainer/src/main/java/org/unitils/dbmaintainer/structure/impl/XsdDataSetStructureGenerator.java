@@ -102,7 +102,7 @@ public class XsdDataSetStructureGenerator extends BaseDatabaseAccessor implement
             writer.write("\t\t<xsd:complexType>\n");
             writer.write("\t\t\t<xsd:choice minOccurs=\"0\" maxOccurs=\"unbounded\">\n");
 
-            Set<String> defaultSchemaTableNames = defaultDbSupport.getTableNames();
+            Set<String> defaultSchemaTableNames = defaultDbSupport.getCachedTableNames();
             for (String tableName : defaultSchemaTableNames) {
                 writer.write("\t\t\t\t<xsd:element name=\"" + tableName + "\" type=\"dflt:" + tableName + complexTypeSuffix + "\" />\n");
             }
@@ -135,7 +135,7 @@ public class XsdDataSetStructureGenerator extends BaseDatabaseAccessor implement
             writer.write("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n");
             writer.write("<xsd:schema xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\" elementFormDefault=\"qualified\" xmlns=\"" + dbSupport.getSchemaName() + "\" targetNamespace=\"" + dbSupport.getSchemaName() + "\">\n");
 
-            Set<String> tableNames = dbSupport.getTableNames();
+            Set<String> tableNames = dbSupport.getCachedTableNames();
             for (String tableName : tableNames) {
                 writer.write("\t<xsd:element name=\"" + tableName + "\" type=\"" + tableName + complexTypeSuffix + "\" />\n");
             }
@@ -143,7 +143,7 @@ public class XsdDataSetStructureGenerator extends BaseDatabaseAccessor implement
             for (String tableName : tableNames) {
                 writer.write("\t<xsd:complexType name=\"" + tableName + complexTypeSuffix + "\">\n");
 
-                Set<String> columnNames = dbSupport.getColumnNames(tableName);
+                Set<String> columnNames = dbSupport.getCachedColumnNames(tableName);
                 for (String columnName : columnNames) {
                     writer.write("\t\t<xsd:attribute name=\"" + columnName + "\" use=\"optional\" />\n");
                 }
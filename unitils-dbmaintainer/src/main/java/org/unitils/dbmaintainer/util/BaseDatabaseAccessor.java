@@ -22,6 +22,8 @@ import java.util.List;
 import java.util.Properties;
 import org.apache.commons.collections.CollectionUtils;
 
+import org.unitils.core.dbsupport.BatchSQLHandler;
+import org.unitils.core.dbsupport.BatchSQLHandlerAdapter;
 import org.unitils.core.dbsupport.DbSupport;
 import org.unitils.core.dbsupport.DbSupportFactory;
 import org.unitils.core.dbsupport.SQLHandler;
@@ -93,4 +95,15 @@ abstract public class BaseDatabaseAccessor implements DatabaseAccessing {
         return DbSupportFactory.getDbSupport(configuration, sqlHandler, schemaName, dialect);
     }
 
+
+    /**
+     * Gets the sql handler for executing batches and transactions. If the sql handler does not support these, an
+     * adapter is returned that executes the statements one by one, see {@link BatchSQLHandlerAdapter}.
+     *
+     * @return The batch sql handler, not null
+     */
+    protected BatchSQLHandler getBatchSQLHandler() {
+        return BatchSQLHandlerAdapter.getBatchSQLHandler(sqlHandler);
+    }
+
 }
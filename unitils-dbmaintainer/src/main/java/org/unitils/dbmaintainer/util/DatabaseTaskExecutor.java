@@ -0,0 +1,217 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.DbSupport;
+import org.unitils.core.dbsupport.PinnedConnectionSQLHandler;
+import org.unitils.core.dbsupport.SQLHandler;
+import static org.unitils.core.dbsupport.DbSupportFactory.createDbSupport;
+
+import static java.lang.Math.min;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes database tasks concurrently using a fixed nr of threads.
+ * <p/>
+ * Every task gets its own {@link DbSupport}, using an SQL handler that executes all statements of the task on a
+ * single connection of its own. This way the tasks never share a connection, nor any other state of the db supports
+ * and SQL handler of the caller. The connection is released when the task is finished.
+ * <p/>
+ * The threads are only kept during the execution of a list of tasks.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DatabaseTaskExecutor {
+
+    /**
+     * Property key for the nr of threads that are used to clear and clean schemas and to execute independent post
+     * processing scripts, 1 means everything is done by the calling thread
+     */
+    public static final String PROPKEY_NR_OF_THREADS = "dbMaintainer.nrOfThreads";
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(DatabaseTaskExecutor.class);
+
+    /* The unitils configuration */
+    private Properties configuration;
+
+    /* The SQL handler of the caller, provides the data source */
+    private SQLHandler sqlHandler;
+
+    /* The database dialect */
+    private String dialect;
+
+    /* The max nr of threads */
+    private int nrOfThreads;
+
+
+    /**
+     * Creates an executor.
+     *
+     * @param configuration The configuration, not null
+     * @param sqlHandler    The SQL handler of the caller, not null
+     * @param dialect       The database dialect, not null
+     * @param nrOfThreads   The max nr of threads
+     */
+    public DatabaseTaskExecutor(Properties configuration, SQLHandler sqlHandler, String dialect, int nrOfThreads) {
+        this.configuration = configuration;
+        this.sqlHandler = sqlHandler;
+        this.dialect = dialect;
+        this.nrOfThreads = nrOfThreads;
+    }
+
+
+    /**
+     * Executes the given tasks and waits until all of them are finished. If tasks failed, the exception of the first
+     * failed task is thrown again after all tasks are finished. The others are logged.
+     *
+     * @param tasks The tasks, not null
+     */
+    public void execute(List<DatabaseTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        List<Callable<Void>> callables = new ArrayList<Callable<Void>>();
+        for (final DatabaseTask task : tasks) {
+            callables.add(new Callable<Void>() {
+                public Void call() {
+                    executeTask(task);
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executorService = createExecutorService(min(nrOfThreads, tasks.size()));
+        try {
+            List<Future<Void>> futures = executorService.invokeAll(callables);
+
+            Throwable firstFailure = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (firstFailure == null) {
+                        firstFailure = e.getCause();
+                    } else {
+                        logger.error("Database task failed.", e.getCause());
+                    }
+                }
+            }
+            if (firstFailure instanceof RuntimeException) {
+                throw (RuntimeException) firstFailure;
+            }
+            if (firstFailure instanceof Error) {
+                throw (Error) firstFailure;
+            }
+            if (firstFailure != null) {
+                throw new UnitilsException("Unable to execute database task.", firstFailure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnitilsException("Interrupted while executing database tasks.", e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Executes the given task with its own db support and connection.
+     *
+     * @param task The task, not null
+     */
+    protected void executeTask(DatabaseTask task) {
+        DbSupport dbSupport = task.getDbSupport();
+        PinnedConnectionSQLHandler taskSqlHandler = new PinnedConnectionSQLHandler(sqlHandler.getDataSource(), sqlHandler.isDoExecuteUpdates());
+        try {
+            // quote the schema name, it already has the correct case
+            DbSupport taskDbSupport = createDbSupport(configuration, taskSqlHandler, dbSupport.quoted(dbSupport.getSchemaName()), dialect);
+            task.execute(taskDbSupport);
+        } finally {
+            taskSqlHandler.close();
+        }
+    }
+
+
+    /**
+     * Creates the pool for executing the tasks. Daemon threads are used, so that the pool does not prevent the JVM
+     * from exiting.
+     *
+     * @param nrOfThreads The nr of threads
+     * @return The pool, not null
+     */
+    protected ExecutorService createExecutorService(int nrOfThreads) {
+        return Executors.newFixedThreadPool(nrOfThreads, new ThreadFactory() {
+
+            private AtomicInteger threadNr = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "unitils-database-task-" + threadNr.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+
+    /**
+     * A task that is executed on one of the schemas.
+     */
+    public abstract static class DatabaseTask {
+
+        /* The db support of the schema of the caller */
+        private DbSupport dbSupport;
+
+
+        /**
+         * Creates a task for the schema of the given db support.
+         *
+         * @param dbSupport The db support of the schema of the caller, not null
+         */
+        protected DatabaseTask(DbSupport dbSupport) {
+            this.dbSupport = dbSupport;
+        }
+
+
+        /**
+         * @return The db support of the schema of the caller, not null
+         */
+        public DbSupport getDbSupport() {
+            return dbSupport;
+        }
+
+
+        /**
+         * Executes the task.
+         *
+         * @param taskDbSupport The db support for the same schema that should be used by the task, not null
+         */
+        public abstract void execute(DbSupport taskDbSupport);
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.unitils.dbmaintainer.version;
 
+import java.util.List;
 import java.util.Set;
 
 import org.unitils.dbmaintainer.script.ExecutedScript;
@@ -50,6 +51,15 @@ public interface ExecutedScriptInfoSource extends DatabaseAccessing {
      */
     void registerExecutedScript(ExecutedScript executedScript);
 
+
+    /**
+     * Registers the fact that the given scripts have been executed on the database. This is the same as registering
+     * the scripts one by one, but allows the registrations to be stored in one go.
+     *
+     * @param executedScripts The scripts that were executed on the database, not null
+     */
+    void registerExecutedScripts(List<ExecutedScript> executedScripts);
+
     
     /**
      * Updates the given registered script
@@ -19,21 +19,21 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.unitils.core.UnitilsException;
 import org.unitils.dbmaintainer.script.ExecutedScript;
+import org.unitils.dbmaintainer.script.ExecutedScriptSet;
 import org.unitils.dbmaintainer.script.Script;
 import org.unitils.dbmaintainer.util.BaseDatabaseAccessor;
 import org.unitils.dbmaintainer.version.ExecutedScriptInfoSource;
-import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
 import org.unitils.util.PropertyUtils;
 
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
+import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
@@ -43,6 +43,11 @@ import java.util.Set;
  * defined by {@link #PROPERTY_FILE_NAME_COLUMN_NAME}, the version timestamp colmumn name is defined by
  * {@link #PROPERTY_SCRIPT_VERSION_COLUMN_NAME}. The last updated succeeded column name is defined by
  * {@link #PROPERTY_EXECUTED_AT_COLUMN_NAME}.
+ * <p/>
+ * The executed scripts are kept indexed by file name. They are retrieved again, using a single query, every time they
+ * are requested, so that registrations, updates and deletions made by others are taken into account. Registering
+ * scripts uses the scripts that were retrieved last, so that this does not require an extra query. All statements
+ * are executed as prepared statements.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
@@ -82,7 +87,10 @@ public class DefaultExecutedScriptInfoSource extends BaseDatabaseAccessor implem
 
     public static final String PROPERTY_TIMESTAMP_FORMAT = "dbMaintainer.timestampFormat";
 
-    protected Set<ExecutedScript> executedScripts;
+    /**
+     * The executed scripts indexed by file name, null if not yet retrieved
+     */
+    protected ExecutedScriptSet executedScripts;
 
     /**
      * The name of the database table in which the executed script info is stored
@@ -131,7 +139,12 @@ public class DefaultExecutedScriptInfoSource extends BaseDatabaseAccessor implem
     /**
      * Format of the contents of the executed_at column
      */
-    protected DateFormat timestampFormat;
+    protected String timestampFormat;
+
+    /**
+     * The date format for the executed_at column per thread, since date formats are not thread-safe
+     */
+    protected ThreadLocal<DateFormat> dateFormats;
 
 
     /**
@@ -155,7 +168,15 @@ public class DefaultExecutedScriptInfoSource extends BaseDatabaseAccessor implem
         this.succeededColumnName = defaultDbSupport.toCorrectCaseIdentifier(PropertyUtils.getString(PROPERTY_SUCCEEDED_COLUMN_NAME, configuration));
 
         this.autoCreateExecutedScriptsTable = PropertyUtils.getBoolean(PROPERTY_AUTO_CREATE_EXECUTED_SCRIPTS_TABLE, configuration);
-        this.timestampFormat = new SimpleDateFormat(PropertyUtils.getString(PROPERTY_TIMESTAMP_FORMAT, configuration));
+        this.timestampFormat = PropertyUtils.getString(PROPERTY_TIMESTAMP_FORMAT, configuration);
+        final String pattern = timestampFormat;
+        this.dateFormats = new ThreadLocal<DateFormat>() {
+
+            @Override
+            protected DateFormat initialValue() {
+                return new SimpleDateFormat(pattern);
+            }
+        };
     }
 
 
@@ -194,66 +215,103 @@ public class DefaultExecutedScriptInfoSource extends BaseDatabaseAccessor implem
 
     /**
      * Precondition: The table dbmaintain_scripts must exist
+     * <p/>
+     * All records are retrieved every time, so that the changes made by others are taken into account.
      *
      * @return All scripts that were registered as executed on the database
      */
     protected Set<ExecutedScript> doGetExecutedScripts() {
+        ExecutedScriptSet retrievedExecutedScripts = new ExecutedScriptSet();
+        retrieveExecutedScripts(retrievedExecutedScripts);
+        executedScripts = retrievedExecutedScripts;
+        return executedScripts;
+    }
+
+
+    /**
+     * Gets the executed scripts, without retrieving the records that were registered by others since they were
+     * retrieved. They are only retrieved if this was not done before.
+     * Precondition: The table dbmaintain_scripts must exist
+     *
+     * @return The executed scripts, not null
+     */
+    protected ExecutedScriptSet getCachedExecutedScripts() {
         if (executedScripts == null) {
-            Connection conn = null;
-            Statement st = null;
-            ResultSet rs = null;
-            try {
-                conn = sqlHandler.getDataSource().getConnection();
-                st = conn.createStatement();
-                rs = st.executeQuery("select " + fileNameColumnName + ", " + versionColumnName + ", " + fileLastModifiedAtColumnName + ", " +
-                        checksumColumnName + ", " + executedAtColumnName + ", " + succeededColumnName +
-                        " from " + defaultDbSupport.qualified(executedScriptsTableName));
-                executedScripts = new HashSet<ExecutedScript>();
-                while (rs.next()) {
-                    String fileName = rs.getString(fileNameColumnName);
-                    String checkSum = rs.getString(checksumColumnName);
-                    Long fileLastModifiedAt = rs.getLong(fileLastModifiedAtColumnName);
-                    Date executedAt = null;
-                    try {
-                        executedAt = timestampFormat.parse(rs.getString(executedAtColumnName));
-                    } catch (ParseException e) {
-                        throw new UnitilsException("Error when parsing date " + executedAt + " using format "
-                                + timestampFormat, e);
-                    }
-                    Boolean succeeded = rs.getInt(succeededColumnName) == 1 ? Boolean.TRUE : Boolean.FALSE;
-                    ExecutedScript executedScript = new ExecutedScript(new Script(fileName, fileLastModifiedAt, checkSum), executedAt, succeeded);
-                    executedScripts.add(executedScript);
-                }
-
-            } catch (SQLException e) {
-                throw new UnitilsException(
-                        "Error while retrieving database version", e);
-            } finally {
-                closeQuietly(conn, st, rs);
-            }
+            doGetExecutedScripts();
         }
         return executedScripts;
     }
 
 
+    /**
+     * Retrieves all registered scripts and adds them to the given set.
+     *
+     * @param executedScriptSet The set to add the scripts to, not null
+     */
+    protected void retrieveExecutedScripts(ExecutedScriptSet executedScriptSet) {
+        String sql = "select " + fileNameColumnName + ", " + versionColumnName + ", " + fileLastModifiedAtColumnName + ", " +
+                checksumColumnName + ", " + executedAtColumnName + ", " + succeededColumnName +
+                " from " + defaultDbSupport.qualified(executedScriptsTableName);
+        for (String[] row : getBatchSQLHandler().getItemRows(sql)) {
+            String fileName = row[0];
+            Long fileLastModifiedAt = parseLong(row[2]);
+            String checkSum = row[3];
+            Date executedAt = parseTimestamp(row[4]);
+            Boolean succeeded = parseLong(row[5]) == 1 ? Boolean.TRUE : Boolean.FALSE;
+            ExecutedScript executedScript = new ExecutedScript(new Script(fileName, fileLastModifiedAt, checkSum), executedAt, succeeded);
+            executedScriptSet.put(executedScript);
+        }
+    }
+
+
+    /**
+     * Parses the value of a numeric column. A null value is 0, as for ResultSet.getLong.
+     *
+     * @param value The value, null if the column was null
+     * @return The number
+     */
+    protected long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return new BigDecimal(value.trim()).longValue();
+        } catch (NumberFormatException e) {
+            throw new UnitilsException("Error when parsing number " + value, e);
+        }
+    }
+
+
     /**
      * Registers the fact that the given script has been executed on the database
      *
      * @param executedScript The script that was executed on the database
      */
     public void registerExecutedScript(ExecutedScript executedScript) {
+        registerExecutedScripts(Collections.singletonList(executedScript));
+    }
+
+
+    /**
+     * Registers the fact that the given scripts have been executed on the database. The new registrations are
+     * inserted in one batch and the existing ones are updated in one batch.
+     *
+     * @param executedScripts The scripts that were executed on the database, not null
+     */
+    public void registerExecutedScripts(List<ExecutedScript> executedScripts) {
         try {
-            doRegisterExecutedScript(executedScript);
+            doRegisterExecutedScripts(executedScripts);
 
         } catch (UnitilsException e) {
             if (checkExecutedScriptsTable()) {
                 throw e;
             }
             // try again, version table was not ok
-            doRegisterExecutedScript(executedScript);
+            doRegisterExecutedScripts(executedScripts);
         }
     }
 
+
     /**
      * Registers the fact that the given script has been executed on the database
      * Precondition: The table dbmaintain_scripts must exist
@@ -261,10 +319,34 @@ public class DefaultExecutedScriptInfoSource extends BaseDatabaseAccessor implem
      * @param executedScript The script that was executed on the database
      */
     protected void doRegisterExecutedScript(ExecutedScript executedScript) {
-        if (getExecutedScripts().contains(executedScript)) {
-            doUpdateExecutedScript(executedScript);
-        } else {
-            doSaveExecutedScript(executedScript);
+        doRegisterExecutedScripts(Collections.singletonList(executedScript));
+    }
+
+
+    /**
+     * Registers the fact that the given scripts have been executed on the database
+     * Precondition: The table dbmaintain_scripts must exist
+     *
+     * @param executedScripts The scripts that were executed on the database, not null
+     */
+    protected void doRegisterExecutedScripts(List<ExecutedScript> executedScripts) {
+        ExecutedScriptSet cachedExecutedScripts = getCachedExecutedScripts();
+
+        Set<String> insertedFileNames = new HashSet<String>();
+        List<Object[]> insertParameterValues = new ArrayList<Object[]>();
+        List<Object[]> updateParameterValues = new ArrayList<Object[]>();
+        for (ExecutedScript executedScript : executedScripts) {
+            if (cachedExecutedScripts.contains(executedScript) || !insertedFileNames.add(executedScript.getScript().getFileName())) {
+                updateParameterValues.add(getUpdateParameterValues(executedScript));
+            } else {
+                insertParameterValues.add(getInsertParameterValues(executedScript));
+            }
+        }
+        // inserts first, a script that is registered twice is updated afterwards
+        getBatchSQLHandler().executePreparedUpdatesAndCommit(getInsertExecutedScriptStatement(), insertParameterValues);
+        getBatchSQLHandler().executePreparedUpdatesAndCommit(getUpdateExecutedScriptStatement(), updateParameterValues);
+        for (ExecutedScript executedScript : executedScripts) {
+            cachedExecutedScripts.put(executedScript);
         }
     }
 
@@ -296,15 +378,9 @@ public class DefaultExecutedScriptInfoSource extends BaseDatabaseAccessor implem
      * @param executedScript The script, not null
      */
     protected void doSaveExecutedScript(ExecutedScript executedScript) {
-        executedScripts.add(executedScript);
-
-        String executedAt = timestampFormat.format(executedScript.getExecutedAt());
-        String insertSql = "insert into " + defaultDbSupport.qualified(executedScriptsTableName) +
-                " (" + fileNameColumnName + ", " + versionColumnName + ", " + fileLastModifiedAtColumnName + ", " + checksumColumnName + ", " +
-                executedAtColumnName + ", " + succeededColumnName + ") values ('" + executedScript.getScript().getFileName() +
-                "', '" + executedScript.getScript().getVersion().getIndexesString() + "', " + executedScript.getScript().getFileLastModifiedAt() + ", '" +
-                executedScript.getScript().getCheckSum() + "', '" + executedAt + "', " + (executedScript.isSucceeded() ? "1" : "0") + ")";
-        sqlHandler.executeUpdateAndCommit(insertSql);
+        List<Object[]> parameterValues = Collections.singletonList(getInsertParameterValues(executedScript));
+        getBatchSQLHandler().executePreparedUpdatesAndCommit(getInsertExecutedScriptStatement(), parameterValues);
+        getCachedExecutedScripts().put(executedScript);
     }
 
 
@@ -315,16 +391,78 @@ public class DefaultExecutedScriptInfoSource extends BaseDatabaseAccessor implem
      * @param executedScript The script, not null
      */
     protected void doUpdateExecutedScript(ExecutedScript executedScript) {
-        executedScripts.add(executedScript);
-
-        String executedAt = timestampFormat.format(executedScript.getExecutedAt());
-        String updateSql = "update " + defaultDbSupport.qualified(executedScriptsTableName) +
-                " set " + checksumColumnName + " = '" + executedScript.getScript().getCheckSum() + "', " +
-                fileLastModifiedAtColumnName + " = " + executedScript.getScript().getFileLastModifiedAt() + ", " +
-                executedAtColumnName + " = '" + executedAt + "', " +
-                succeededColumnName + " = " + (executedScript.isSucceeded() ? "1" : "0") +
-                " where " + fileNameColumnName + " = '" + executedScript.getScript().getFileName() + "'";
-        sqlHandler.executeUpdateAndCommit(updateSql);
+        List<Object[]> parameterValues = Collections.singletonList(getUpdateParameterValues(executedScript));
+        getBatchSQLHandler().executePreparedUpdatesAndCommit(getUpdateExecutedScriptStatement(), parameterValues);
+        getCachedExecutedScripts().put(executedScript);
+    }
+
+
+    /**
+     * @return The prepared statement for registering an executed script, not null
+     */
+    protected String getInsertExecutedScriptStatement() {
+        return "insert into " + defaultDbSupport.qualified(executedScriptsTableName) +
+                " (" + fileNameColumnName + ", " + versionColumnName + ", " + fileLastModifiedAtColumnName + ", " + checksumColumnName + ", " +
+                executedAtColumnName + ", " + succeededColumnName + ") values (?, ?, ?, ?, ?, ?)";
+    }
+
+
+    /**
+     * @param executedScript The script, not null
+     * @return The values for the statement of {@link #getInsertExecutedScriptStatement}, not null
+     */
+    protected Object[] getInsertParameterValues(ExecutedScript executedScript) {
+        Script script = executedScript.getScript();
+        return new Object[]{script.getFileName(), script.getVersion().getIndexesString(), script.getFileLastModifiedAt(),
+                script.getCheckSum(), formatTimestamp(executedScript.getExecutedAt()), executedScript.isSucceeded() ? 1 : 0};
+    }
+
+
+    /**
+     * @return The prepared statement for updating a registered script, not null
+     */
+    protected String getUpdateExecutedScriptStatement() {
+        return "update " + defaultDbSupport.qualified(executedScriptsTableName) +
+                " set " + checksumColumnName + " = ?, " + fileLastModifiedAtColumnName + " = ?, " +
+                executedAtColumnName + " = ?, " + succeededColumnName + " = ?" +
+                " where " + fileNameColumnName + " = ?";
+    }
+
+
+    /**
+     * @param executedScript The script, not null
+     * @return The values for the statement of {@link #getUpdateExecutedScriptStatement}, not null
+     */
+    protected Object[] getUpdateParameterValues(ExecutedScript executedScript) {
+        Script script = executedScript.getScript();
+        return new Object[]{script.getCheckSum(), script.getFileLastModifiedAt(), formatTimestamp(executedScript.getExecutedAt()),
+                executedScript.isSucceeded() ? 1 : 0, script.getFileName()};
+    }
+
+
+    /**
+     * Formats the given execution timestamp for the executed_at column.
+     *
+     * @param executedAt The timestamp, not null
+     * @return The formatted timestamp, not null
+     */
+    protected String formatTimestamp(Date executedAt) {
+        return dateFormats.get().format(executedAt);
+    }
+
+
+    /**
+     * Parses the given value of the executed_at column.
+     *
+     * @param executedAtValue The value, not null
+     * @return The timestamp, not null
+     */
+    protected Date parseTimestamp(String executedAtValue) {
+        try {
+            return dateFormats.get().parse(executedAtValue);
+        } catch (ParseException e) {
+            throw new UnitilsException("Error when parsing date " + executedAtValue + " using format " + timestampFormat, e);
+        }
     }
 
 
@@ -348,7 +486,7 @@ public class DefaultExecutedScriptInfoSource extends BaseDatabaseAccessor implem
 
 
     protected void doClearAllExecutedScripts() {
-        executedScripts = new HashSet<ExecutedScript>();
+        executedScripts = new ExecutedScriptSet();
 
         String deleteSql = "delete from " + defaultDbSupport.qualified(executedScriptsTableName);
         sqlHandler.executeUpdateAndCommit(deleteSql);
@@ -419,6 +557,8 @@ public class DefaultExecutedScriptInfoSource extends BaseDatabaseAccessor implem
 
         // Create db version table
         sqlHandler.executeUpdateAndCommit(getCreateExecutedScriptsTableStatement());
+        // the new table is empty, the executed scripts are retrieved again
+        executedScripts = null;
     }
 
 
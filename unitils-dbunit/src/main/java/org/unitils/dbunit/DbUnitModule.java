@@ -151,7 +151,8 @@ public class DbUnitModule implements Module {
 
 
     /**
-     * Gets the DbUnit connection or creates one if it does not exist yet.
+     * Gets the DbUnit connection or creates one if it does not exist yet. The connection is also created again when
+     * the structure of the database has changed, since DbUnit would otherwise use its outdated table metadata.
      * 
      * @param schemaName The schema name, not null
      * @return The DbUnit connection, not null
@@ -159,6 +160,14 @@ public class DbUnitModule implements Module {
     public DbUnitDatabaseConnection getDbUnitDatabaseConnection(String schemaName) {
         String keyInDbUnitConnection = schemaName + databaseName;
         DbUnitDatabaseConnection dbUnitDatabaseConnection = dbUnitDatabaseConnections.get(keyInDbUnitConnection);
+        if (dbUnitDatabaseConnection != null && dbUnitDatabaseConnection.isMetadataOutdated()) {
+            try {
+                dbUnitDatabaseConnection.closeJdbcConnection();
+            } catch (SQLException e) {
+                throw new UnitilsException("Error while closing connection.", e);
+            }
+            dbUnitDatabaseConnection = null;
+        }
         if (dbUnitDatabaseConnection == null) {
             dbUnitDatabaseConnection = createDbUnitConnection(schemaName);
             dbUnitDatabaseConnections.put(keyInDbUnitConnection, dbUnitDatabaseConnection);
@@ -574,6 +583,7 @@ public class DbUnitModule implements Module {
 
         // Create connection
         DbUnitDatabaseConnection connection = new DbUnitDatabaseConnection(dataSource, dbSupport.getSchemaName());
+        connection.setSchemaMetadataCache(dbSupport.getSchemaMetadataCache());
         DatabaseConfig config = connection.getConfig();
 
         // Make sure that dbunit's correct IDataTypeFactory, that handles dbms specific data type issues, is used
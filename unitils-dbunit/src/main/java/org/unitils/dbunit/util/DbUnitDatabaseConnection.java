@@ -23,12 +23,16 @@ import javax.sql.DataSource;
 
 import org.dbunit.database.AbstractDatabaseConnection;
 import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.unitils.core.dbsupport.SchemaMetadataCache;
 import org.unitils.database.DatabaseUnitils;
 
 /**
  * Implementation of DBUnits <code>IDatabaseConnection</code> interface. This implementation returns connections from
  * an underlying <code>DataSource</code>. This implementation stores the <code>Connection</code> that was retrieved last,
  * to enable closing it (or returing it to the pool) using {@link #closeJdbcConnection()}.
+ * <p/>
+ * DbUnit caches the metadata of the tables. If a {@link SchemaMetadataCache} is set, {@link #isMetadataOutdated()}
+ * tells whether the structure of the database changed since this connection was created.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
@@ -45,6 +49,12 @@ public class DbUnitDatabaseConnection extends AbstractDatabaseConnection {
      the DBUnit operation finished */
     private Connection currentlyUsedConnection, currentlyUsedNativeConnection;
 
+    /* The cache that is invalidated when the structure of the database changes, null if not used */
+    private SchemaMetadataCache schemaMetadataCache;
+
+    /* The nr of invalidations of the cache when it was set */
+    private int nrOfInvalidations;
+
 
     /**
      * Creates a new instance that wraps the given <code>DataSource</code>
@@ -67,6 +77,28 @@ public class DbUnitDatabaseConnection extends AbstractDatabaseConnection {
     }
 
 
+    /**
+     * Sets the cache that is used to find out whether the metadata of this connection is outdated.
+     *
+     * @param schemaMetadataCache The cache of the data source, null to never consider the metadata outdated
+     */
+    public void setSchemaMetadataCache(SchemaMetadataCache schemaMetadataCache) {
+        this.schemaMetadataCache = schemaMetadataCache;
+        if (schemaMetadataCache != null) {
+            nrOfInvalidations = schemaMetadataCache.getNrOfInvalidations();
+        }
+    }
+
+
+    /**
+     * @return True if the structure of the database has changed since the cache was set, the connection should
+     *         then no longer be used
+     */
+    public boolean isMetadataOutdated() {
+        return schemaMetadataCache != null && schemaMetadataCache.getNrOfInvalidations() != nrOfInvalidations;
+    }
+
+
     /**
      * @return The database schema name
      */
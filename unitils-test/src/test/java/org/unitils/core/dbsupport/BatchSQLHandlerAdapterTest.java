@@ -0,0 +1,130 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.UnitilsJUnit4;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.SQLUnitils.executeUpdateQuietly;
+import static org.unitils.database.SQLUnitils.getItemAsLong;
+import org.unitils.database.annotations.TestDataSource;
+
+import javax.sql.DataSource;
+import static java.util.Arrays.asList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class for the {@link BatchSQLHandlerAdapter}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class BatchSQLHandlerAdapterTest extends UnitilsJUnit4 {
+
+    /* DataSource for the test database, is injected */
+    @TestDataSource
+    private DataSource dataSource = null;
+
+    /* Tested object */
+    private BatchSQLHandlerAdapter batchSQLHandlerAdapter;
+
+
+    @Before
+    public void setUp() throws Exception {
+        batchSQLHandlerAdapter = new BatchSQLHandlerAdapter(new DefaultSQLHandler(dataSource));
+        cleanupTestDatabase();
+        executeUpdate("create table test_table (col1 varchar(10), col2 varchar(10))", dataSource);
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        cleanupTestDatabase();
+    }
+
+
+    /**
+     * Tests that a handler that already supports batches is not wrapped.
+     */
+    @Test
+    public void testGetBatchSQLHandler() {
+        DefaultSQLHandler defaultSQLHandler = new DefaultSQLHandler(dataSource);
+        assertSame(defaultSQLHandler, BatchSQLHandlerAdapter.getBatchSQLHandler(defaultSQLHandler));
+    }
+
+
+    /**
+     * Tests executing a batch of statements one by one.
+     */
+    @Test
+    public void testExecuteUpdates() {
+        batchSQLHandlerAdapter.executeUpdates(asList("insert into test_table values ('a', '1')", "insert into test_table values ('b', '2')"));
+        assertEquals(2, getItemAsLong("select count(*) from test_table", dataSource));
+    }
+
+
+    /**
+     * Tests executing a prepared statement and retrieving the pairs of values.
+     */
+    @Test
+    public void testExecutePreparedUpdatesAndGetItemPairs() {
+        batchSQLHandlerAdapter.executePreparedUpdatesAndCommit("insert into test_table values (?, ?)", Collections.singletonList(new Object[]{"a", "1"}));
+
+        List<String[]> result = batchSQLHandlerAdapter.getItemPairs("select col1, col2 from test_table");
+        assertEquals(1, result.size());
+        assertEquals("a", result.get(0)[0]);
+        assertEquals("1", result.get(0)[1]);
+    }
+
+
+    /**
+     * Tests retrieving the values of all columns of all records.
+     */
+    @Test
+    public void testGetItemRows() {
+        executeUpdate("insert into test_table values ('a', '1')", dataSource);
+
+        List<String[]> result = batchSQLHandlerAdapter.getItemRows("select col1, col2, col1 from test_table");
+        assertEquals(1, result.size());
+        assertEquals(asList("a", "1", "a"), asList(result.get(0)));
+    }
+
+
+    /**
+     * Tests that prepared statements are not executed if updates are disabled, e.g. for a dry run.
+     */
+    @Test
+    public void testExecutePreparedUpdatesAndCommit_noUpdates() {
+        BatchSQLHandlerAdapter dryRunAdapter = new BatchSQLHandlerAdapter(new DefaultSQLHandler(dataSource, false));
+        dryRunAdapter.executePreparedUpdatesAndCommit("insert into test_table values (?, ?)", Collections.singletonList(new Object[]{"a", "1"}));
+
+        assertTrue(batchSQLHandlerAdapter.getItemPairs("select col1, col2 from test_table").isEmpty());
+    }
+
+
+    /**
+     * Drops the test table
+     */
+    private void cleanupTestDatabase() {
+        executeUpdateQuietly("drop table test_table", dataSource);
+    }
+}
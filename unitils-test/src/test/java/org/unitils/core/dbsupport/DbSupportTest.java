@@ -17,8 +17,10 @@ package org.unitils.core.dbsupport;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.unitils.core.dbsupport.DbItemType.*;
 import static org.unitils.core.dbsupport.DbSupportFactory.getDefaultDbSupport;
 import static org.unitils.core.util.SQLTestUtils.dropTestSequences;
 import static org.unitils.core.util.SQLTestUtils.dropTestSynonyms;
@@ -30,6 +32,8 @@ import static org.unitils.database.SQLUnitils.executeUpdate;
 import static org.unitils.database.SQLUnitils.getItemAsLong;
 import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -287,6 +291,55 @@ public class DbSupportTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests getting the names of all items at once. The result should be the same as for the separate methods.
+     */
+    @Test
+    public void testGetItemNames() throws Exception {
+        Map<DbItemType, Set<String>> result = dbSupport.getItemNames();
+        for (DbItemType itemType : DbItemType.values()) {
+            if (dbSupport.supports(itemType)) {
+                assertLenientEquals(dbSupport.getItemNames(itemType), result.get(itemType));
+            } else {
+                assertFalse(result.containsKey(itemType));
+            }
+        }
+    }
+
+
+    /**
+     * Tests getting the names of all items but no items in db.
+     */
+    @Test
+    public void testGetItemNames_noFound() throws Exception {
+        cleanupTestDatabase();
+        Map<DbItemType, Set<String>> result = dbSupport.getItemNames();
+        for (Set<String> itemNames : result.values()) {
+            assertTrue(itemNames.isEmpty());
+        }
+    }
+
+
+    /**
+     * Tests dropping all items in a single batch.
+     */
+    @Test
+    public void testDropItems() throws Exception {
+        Map<DbItemType, Set<String>> itemNames = dbSupport.getItemNames();
+        Map<DbItemType, Set<String>> itemsToDrop = new LinkedHashMap<DbItemType, Set<String>>();
+        for (DbItemType itemType : asList(SYNONYM, VIEW, MATERIALIZED_VIEW, TRIGGER, SEQUENCE, TABLE, TYPE)) {
+            if (itemNames.containsKey(itemType)) {
+                itemsToDrop.put(itemType, itemNames.get(itemType));
+            }
+        }
+        dbSupport.dropItems(itemsToDrop);
+
+        for (Set<String> result : dbSupport.getItemNames().values()) {
+            assertTrue(result.isEmpty());
+        }
+    }
+
+
     /**
      * Tests getting the primary column names.
      */
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.core.ConfigurationLoader;
+import org.unitils.core.UnitilsException;
+import static org.unitils.core.dbsupport.DbSupportFactory.createDbSupport;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.SQLUnitils.getItemAsLong;
+
+import java.util.LinkedHashSet;
+import java.util.Properties;
+
+/**
+ * Test class for the referential constraints and the truncating of tables of the {@link H2DbSupport}, using an
+ * in-memory H2 database.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class H2DbSupportTest {
+
+    /* DataSource for the H2 test database */
+    private JdbcDataSource dataSource;
+
+    /* Tested object */
+    private DbSupport dbSupport;
+
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:h2dbsupporttest;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+
+        Properties configuration = new ConfigurationLoader().loadConfiguration();
+        dbSupport = createDbSupport(configuration, new DefaultSQLHandler(dataSource), "PUBLIC", "h2");
+
+        executeUpdate("create table PARENT (id int primary key)", dataSource);
+        executeUpdate("create table CHILD (id int, parent_id int, constraint FK_PARENT foreign key (parent_id) references PARENT(id))", dataSource);
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        executeUpdate("drop all objects", dataSource);
+    }
+
+
+    /**
+     * Tests switching the referential constraints off and back on.
+     */
+    @Test
+    public void testRestoreReferentialConstraints() throws Exception {
+        dbSupport.disableReferentialConstraints();
+        executeUpdate("insert into CHILD values (1, 1)", dataSource);
+        executeUpdate("insert into PARENT values (1)", dataSource);
+
+        dbSupport.restoreReferentialConstraints();
+        try {
+            executeUpdate("insert into CHILD values (2, 2)", dataSource);
+            fail("Expected a foreign key violation");
+        } catch (UnitilsException e) {
+            // expected
+        }
+    }
+
+
+    /**
+     * Tests restoring the referential constraints when existing data violates a constraint. The constraints of all
+     * tables should be left disabled.
+     */
+    @Test
+    public void testRestoreReferentialConstraints_failingCheck() throws Exception {
+        dbSupport.disableReferentialConstraints();
+        executeUpdate("insert into CHILD values (1, 1)", dataSource);
+
+        try {
+            dbSupport.restoreReferentialConstraints();
+            fail("Expected a UnitilsException");
+        } catch (UnitilsException e) {
+            // expected
+        }
+        executeUpdate("insert into CHILD values (2, 2)", dataSource);
+        executeUpdate("insert into PARENT values (1)", dataSource);
+        executeUpdate("delete from PARENT", dataSource);
+        assertEquals(2, getItemAsLong("select count(*) from CHILD", dataSource));
+    }
+
+
+    /**
+     * Tests truncating a table that is referenced by a foreign key. The referential constraints should be switched
+     * back on afterwards.
+     */
+    @Test
+    public void testTruncateTables() throws Exception {
+        executeUpdate("insert into PARENT values (1)", dataSource);
+        executeUpdate("insert into CHILD values (1, 1)", dataSource);
+
+        dbSupport.truncateTables(new LinkedHashSet<String>(asList("PARENT", "CHILD")));
+        assertEquals(0, getItemAsLong("select count(*) from PARENT", dataSource));
+        assertEquals(0, getItemAsLong("select count(*) from CHILD", dataSource));
+        try {
+            executeUpdate("insert into CHILD values (2, 2)", dataSource);
+            fail("Expected a foreign key violation");
+        } catch (UnitilsException e) {
+            // expected
+        }
+    }
+
+
+    /**
+     * Tests truncating tables while the referential constraints are disabled. The constraints should stay disabled.
+     */
+    @Test
+    public void testTruncateTables_constraintsDisabled() throws Exception {
+        dbSupport.disableReferentialConstraints();
+        executeUpdate("insert into PARENT values (1)", dataSource);
+        executeUpdate("insert into CHILD values (1, 1)", dataSource);
+
+        dbSupport.truncateTables(new LinkedHashSet<String>(asList("PARENT", "CHILD")));
+        executeUpdate("insert into CHILD values (2, 2)", dataSource);
+        assertEquals(1, getItemAsLong("select count(*) from CHILD", dataSource));
+    }
+}
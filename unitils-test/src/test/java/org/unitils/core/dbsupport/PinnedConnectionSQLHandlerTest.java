@@ -0,0 +1,141 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.UnitilsJUnit4;
+import org.unitils.core.ConfigurationLoader;
+import static org.unitils.core.dbsupport.DbSupportFactory.getDbSupport;
+import static org.unitils.database.SQLUnitils.executeUpdateQuietly;
+import org.unitils.database.annotations.TestDataSource;
+import static org.unitils.util.PropertyUtils.getString;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * Test class for the {@link PinnedConnectionSQLHandler}.
+ *
+ * @author Filip Neven
+ * @author Tim Ducheyne
+ */
+public class PinnedConnectionSQLHandlerTest extends UnitilsJUnit4 {
+
+    /* DataSource for the test database, is injected */
+    @TestDataSource
+    private DataSource dataSource = null;
+
+    /* Tested object */
+    private PinnedConnectionSQLHandler pinnedConnectionSQLHandler;
+
+
+    @Before
+    public void setUp() throws Exception {
+        pinnedConnectionSQLHandler = new PinnedConnectionSQLHandler(dataSource);
+        cleanupTestDatabase();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        pinnedConnectionSQLHandler.close();
+        cleanupTestDatabase();
+    }
+
+
+    /**
+     * Tests executing the same query a number of times. The connection and the prepared statement should be reused.
+     */
+    @Test
+    public void testQueriesOnSameConnection() {
+        pinnedConnectionSQLHandler.executeUpdate("create table test_table (col1 varchar(10))");
+        pinnedConnectionSQLHandler.executeUpdate("insert into test_table values ('value')");
+        for (int i = 0; i < 3; i++) {
+            assertEquals("value", pinnedConnectionSQLHandler.getItemAsString("select col1 from test_table"));
+        }
+        assertEquals(4, pinnedConnectionSQLHandler.getNrOfSavedConnectionRequests());
+        assertEquals(2, pinnedConnectionSQLHandler.getNrOfSavedStatementPreparations());
+        assertEquals(6, pinnedConnectionSQLHandler.getNrOfSavedRoundTrips());
+    }
+
+
+    /**
+     * Tests that prepared statements are not reused after the structure of the database has changed.
+     */
+    @Test
+    public void testStructureChanged() {
+        pinnedConnectionSQLHandler.executeUpdate("create table test_table (col1 varchar(10))");
+        assertTrue(pinnedConnectionSQLHandler.getItemsAsStringSet("select col1 from test_table").isEmpty());
+        pinnedConnectionSQLHandler.executeUpdate("drop table test_table");
+        pinnedConnectionSQLHandler.executeUpdate("create table test_table (col1 varchar(10))");
+        pinnedConnectionSQLHandler.executeUpdate("insert into test_table values ('value')");
+
+        assertTrue(pinnedConnectionSQLHandler.exists("select col1 from test_table"));
+        assertEquals(0, pinnedConnectionSQLHandler.getNrOfSavedStatementPreparations());
+    }
+
+
+    /**
+     * Tests that the handler can still be used after it was closed.
+     */
+    @Test
+    public void testUseAfterClose() {
+        pinnedConnectionSQLHandler.executeUpdate("create table test_table (col1 varchar(10))");
+        pinnedConnectionSQLHandler.close();
+
+        assertEquals(1, pinnedConnectionSQLHandler.executeUpdateAndCommit("insert into test_table values ('value')"));
+        assertEquals(1, pinnedConnectionSQLHandler.getItemAsLong("select count(*) from test_table"));
+    }
+
+
+    /**
+     * Tests that a db support for a pinned handler is not shared with other handlers. A cached db support
+     * would keep using the pinned connection of the first run, or ignore the pinned connection of a later run.
+     */
+    @Test
+    public void testDbSupportNotShared() {
+        Properties configuration = new ConfigurationLoader().loadConfiguration();
+        String dialect = getString("database.dialect", configuration);
+        SQLHandler defaultSQLHandler = new DefaultSQLHandler(dataSource);
+
+        DbSupport pinnedDbSupport = getDbSupport(configuration, pinnedConnectionSQLHandler, "PUBLIC", dialect);
+        DbSupport defaultDbSupport = getDbSupport(configuration, defaultSQLHandler, "PUBLIC", dialect);
+        PinnedConnectionSQLHandler otherPinnedConnectionSQLHandler = new PinnedConnectionSQLHandler(dataSource);
+        try {
+            DbSupport otherPinnedDbSupport = getDbSupport(configuration, otherPinnedConnectionSQLHandler, "PUBLIC", dialect);
+
+            assertSame(pinnedConnectionSQLHandler, pinnedDbSupport.getSQLHandler());
+            assertNotSame(pinnedConnectionSQLHandler, defaultDbSupport.getSQLHandler());
+            assertSame(otherPinnedConnectionSQLHandler, otherPinnedDbSupport.getSQLHandler());
+        } finally {
+            otherPinnedConnectionSQLHandler.close();
+        }
+    }
+
+
+    /**
+     * Drops the test table
+     */
+    private void cleanupTestDatabase() {
+        executeUpdateQuietly("drop table test_table", dataSource);
+    }
+}
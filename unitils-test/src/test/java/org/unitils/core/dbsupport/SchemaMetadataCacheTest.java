@@ -0,0 +1,187 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.UnitilsJUnit4;
+import org.unitils.core.ConfigurationLoader;
+import static org.unitils.core.dbsupport.DbSupport.PROPKEY_METADATA_CACHE_ENABLED;
+import static org.unitils.core.dbsupport.DbSupportFactory.createDbSupport;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.SQLUnitils.executeUpdateQuietly;
+import org.unitils.database.annotations.TestDataSource;
+import static org.unitils.util.PropertyUtils.getString;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Test class for the {@link SchemaMetadataCache}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class SchemaMetadataCacheTest extends UnitilsJUnit4 {
+
+    /* DataSource for the test database, is injected */
+    @TestDataSource
+    private DataSource dataSource = null;
+
+    /* The unitils configuration, with the cache enabled */
+    private Properties configuration;
+
+    /* The db support that uses the tested cache */
+    private DbSupport dbSupport;
+
+    /* Tested object */
+    private SchemaMetadataCache schemaMetadataCache;
+
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = new ConfigurationLoader().loadConfiguration();
+        configuration.setProperty(PROPKEY_METADATA_CACHE_ENABLED, "true");
+        dbSupport = createDbSupport(configuration, new DefaultSQLHandler(dataSource), getString("database.schemaNames", configuration), getString("database.dialect", configuration));
+        schemaMetadataCache = dbSupport.getSchemaMetadataCache();
+
+        cleanupTestDatabase();
+        executeUpdate("create table test_table (col1 varchar(10))", dataSource);
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        cleanupTestDatabase();
+    }
+
+
+    /**
+     * Tests that the table names are only retrieved once.
+     */
+    @Test
+    public void testGetCachedTableNames() {
+        Set<String> tableNames = dbSupport.getCachedTableNames();
+        int nrOfHits = schemaMetadataCache.getNrOfHits();
+        int nrOfMisses = schemaMetadataCache.getNrOfMisses();
+
+        assertSame(tableNames, dbSupport.getCachedTableNames());
+        assertTrue(tableNames.contains(dbSupport.toCorrectCaseIdentifier("test_table")));
+        assertEquals(nrOfHits + 1, schemaMetadataCache.getNrOfHits());
+        assertEquals(nrOfMisses, schemaMetadataCache.getNrOfMisses());
+    }
+
+
+    /**
+     * Tests that the column names of different tables are cached separately.
+     */
+    @Test
+    public void testGetCachedColumnNames() {
+        executeUpdate("create table test_table2 (col2 varchar(10))", dataSource);
+
+        Set<String> columnNames = dbSupport.getCachedColumnNames(dbSupport.toCorrectCaseIdentifier("test_table"));
+        Set<String> columnNames2 = dbSupport.getCachedColumnNames(dbSupport.toCorrectCaseIdentifier("test_table2"));
+
+        assertTrue(columnNames.contains(dbSupport.toCorrectCaseIdentifier("col1")));
+        assertTrue(columnNames2.contains(dbSupport.toCorrectCaseIdentifier("col2")));
+    }
+
+
+    /**
+     * Tests that a DDL statement that is executed by the sql handler invalidates the cache.
+     */
+    @Test
+    public void testInvalidatedByStructureChange() {
+        dbSupport.getCachedTableNames();
+        int nrOfInvalidations = schemaMetadataCache.getNrOfInvalidations();
+
+        dbSupport.getSQLHandler().executeUpdate("create table test_table2 (col2 varchar(10))");
+
+        assertTrue(schemaMetadataCache.getNrOfInvalidations() > nrOfInvalidations);
+        assertTrue(dbSupport.getCachedTableNames().contains(dbSupport.toCorrectCaseIdentifier("test_table2")));
+    }
+
+
+    /**
+     * Tests that data modifications do not invalidate the cache.
+     */
+    @Test
+    public void testNotInvalidatedByDataChange() {
+        dbSupport.getCachedTableNames();
+        int nrOfInvalidations = schemaMetadataCache.getNrOfInvalidations();
+
+        dbSupport.getSQLHandler().executeUpdate("insert into test_table values ('value')");
+        dbSupport.getSQLHandler().executeUpdate("delete from test_table");
+
+        assertEquals(nrOfInvalidations, schemaMetadataCache.getNrOfInvalidations());
+    }
+
+
+    /**
+     * Tests that the cache is disabled by default.
+     */
+    @Test
+    public void testDisabledByDefault() {
+        Properties defaultConfiguration = new ConfigurationLoader().loadConfiguration();
+        DbSupport defaultDbSupport = createDbSupport(defaultConfiguration, new DefaultSQLHandler(dataSource), getString("database.schemaNames", defaultConfiguration), getString("database.dialect", defaultConfiguration));
+
+        assertNull(defaultDbSupport.getSchemaMetadataCache());
+    }
+
+
+    /**
+     * Tests that a new cache is used after the cache of a data source was removed.
+     */
+    @Test
+    public void testRemove() {
+        dbSupport.getCachedTableNames();
+
+        SchemaMetadataCache.remove(dataSource);
+
+        assertNotSame(schemaMetadataCache, SchemaMetadataCache.getInstance(dataSource));
+        assertSame(SchemaMetadataCache.getInstance(dataSource), SchemaMetadataCache.getInstance(dataSource));
+    }
+
+
+    /**
+     * Tests recognizing the statements that change the structure of the database.
+     */
+    @Test
+    public void testIsStructureChange() {
+        assertTrue(SchemaMetadataCache.isStructureChange("create table test_table (col1 varchar(10))"));
+        assertTrue(SchemaMetadataCache.isStructureChange(" DROP\nTABLE test_table"));
+        assertTrue(SchemaMetadataCache.isStructureChange("alter table test_table add col2 int"));
+        assertFalse(SchemaMetadataCache.isStructureChange("truncate table test_table"));
+        assertFalse(SchemaMetadataCache.isStructureChange("insert into created values (1)"));
+    }
+
+
+    /**
+     * Drops the test tables
+     */
+    private void cleanupTestDatabase() {
+        executeUpdateQuietly("drop table test_table", dataSource);
+        executeUpdateQuietly("drop table test_table2", dataSource);
+    }
+}
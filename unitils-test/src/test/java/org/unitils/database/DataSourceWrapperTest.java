@@ -0,0 +1,124 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.SQLUnitils.executeUpdateQuietly;
+import static org.unitils.database.SQLUnitils.isEmpty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.UnitilsJUnit4;
+import org.unitils.core.ConfigurationLoader;
+import org.unitils.core.config.Configuration;
+import org.unitils.database.config.DatabaseConfiguration;
+import org.unitils.database.config.DatabaseConfigurationsFactory;
+import org.unitils.dbmaintainer.clean.DBCleaner;
+import org.unitils.dbmaintainer.clean.impl.DefaultDBCleaner;
+
+/**
+ * Tests for cleaning the modified tables using the {@link DataSourceWrapper}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DataSourceWrapperTest extends UnitilsJUnit4 {
+
+    /* Tested object */
+    private DataSourceWrapper dataSourceWrapper;
+
+    /* The tracking data source of the wrapper */
+    private DataSource dataSource;
+
+
+    /**
+     * Initializes the test fixture. The creation of the test table marks all tables as modified, so all schemas are
+     * cleaned once before the test starts.
+     */
+    @Before
+    public void setUp() throws Exception {
+        Properties configuration = new ConfigurationLoader().loadConfiguration();
+        configuration.setProperty(DatabaseModule.PROPERTY_UPDATEDATABASESCHEMA_ENABLED, "false");
+        configuration.setProperty(DatabaseModule.PROPERTY_TRACK_MODIFIED_TABLES, "true");
+        configuration.setProperty(DBCleaner.class.getName() + ".implClassName", RecordingDBCleaner.class.getName());
+        DatabaseConfiguration databaseConfiguration = new DatabaseConfigurationsFactory(new Configuration(configuration)).create().getDatabaseConfiguration();
+
+        dataSourceWrapper = new DataSourceWrapper(databaseConfiguration, configuration, null);
+        dataSource = dataSourceWrapper.getDataSource();
+        executeUpdateQuietly("drop table TEST_TABLE", dataSource);
+        executeUpdate("create table TEST_TABLE (col1 varchar(10))", dataSource);
+        dataSourceWrapper.cleanModifiedTables();
+        RecordingDBCleaner.cleanedTableNames.clear();
+    }
+
+
+    /**
+     * Removes the test table.
+     */
+    @After
+    public void tearDown() throws Exception {
+        executeUpdateQuietly("drop table TEST_TABLE", dataSource);
+    }
+
+
+    /**
+     * Tests that the deletes of the cleaner itself are not recorded as modifications, so that the second call
+     * does not clean anything.
+     */
+    @Test
+    public void testCleanModifiedTables_twice() throws Exception {
+        executeUpdate("insert into TEST_TABLE values ('test')", dataSource);
+
+        dataSourceWrapper.cleanModifiedTables();
+        assertTrue(isEmpty("TEST_TABLE", dataSource));
+        assertEquals(1, RecordingDBCleaner.cleanedTableNames.size());
+
+        RecordingDBCleaner.cleanedTableNames.clear();
+        dataSourceWrapper.cleanModifiedTables();
+        assertTrue(RecordingDBCleaner.cleanedTableNames.isEmpty());
+    }
+
+
+    /**
+     * Cleaner that records the tables that it is asked to clean. Null is recorded when all schemas are cleaned.
+     */
+    public static class RecordingDBCleaner extends DefaultDBCleaner {
+
+        private static List<Set<String>> cleanedTableNames = new ArrayList<Set<String>>();
+
+        @Override
+        public void cleanSchemas() {
+            cleanedTableNames.add(null);
+            super.cleanSchemas();
+        }
+
+        @Override
+        public void cleanTables(Set<String> tableNames) {
+            cleanedTableNames.add(tableNames);
+            super.cleanTables(tableNames);
+        }
+    }
+}
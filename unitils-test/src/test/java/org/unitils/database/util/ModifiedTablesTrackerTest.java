@@ -0,0 +1,107 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+import static org.unitils.util.CollectionUtils.asSet;
+
+import java.util.HashSet;
+
+/**
+ * Test class for {@link ModifiedTablesTracker}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ModifiedTablesTrackerTest {
+
+    /* Tested object */
+    private ModifiedTablesTracker modifiedTablesTracker;
+
+
+    @Before
+    public void initialize() {
+        modifiedTablesTracker = new ModifiedTablesTracker();
+    }
+
+
+    @Test
+    public void modifyingStatements() {
+        modifiedTablesTracker.recordStatement("insert into table1 values (1)");
+        modifiedTablesTracker.recordStatement("UPDATE table2 set col = 1");
+        modifiedTablesTracker.recordStatement("delete from table3 where col = 1");
+        modifiedTablesTracker.recordStatement("delete table4");
+        modifiedTablesTracker.recordStatement("merge into table5 using table6 on (1 = 1) when matched then update set col = 1");
+        modifiedTablesTracker.recordStatement("truncate table table7");
+
+        assertEquals(asSet("table1", "table2", "table3", "table4", "table5", "table7"), modifiedTablesTracker.getAndResetModifiedTableNames());
+    }
+
+
+    @Test
+    public void qualifiedAndQuotedNames() {
+        modifiedTablesTracker.recordStatement("insert into schema1.table1(col) values (1)");
+        modifiedTablesTracker.recordStatement("insert into \"Schema\" . \"Table\" values (1)");
+        modifiedTablesTracker.recordStatement("insert into `table2` values (1)");
+        modifiedTablesTracker.recordStatement("insert into [dbo].[Table3] values (1)");
+
+        assertEquals(asSet("schema1.table1", "\"Schema\".\"Table\"", "\"table2\"", "\"dbo\".\"Table3\""), modifiedTablesTracker.getAndResetModifiedTableNames());
+    }
+
+
+    @Test
+    public void leadingComments() {
+        modifiedTablesTracker.recordStatement(" /* comment */ -- other comment\n insert into table1 values (1);");
+        assertEquals(asSet("table1"), modifiedTablesTracker.getAndResetModifiedTableNames());
+    }
+
+
+    @Test
+    public void readOnlyStatements() {
+        modifiedTablesTracker.recordStatement("select * from table1");
+        modifiedTablesTracker.recordStatement("commit");
+        assertEquals(new HashSet<String>(), modifiedTablesTracker.getAndResetModifiedTableNames());
+    }
+
+
+    @Test
+    public void unknownModifications() {
+        modifiedTablesTracker.recordStatement("insert into table1 values (1)");
+        modifiedTablesTracker.recordStatement("call my_procedure()");
+        assertNull(modifiedTablesTracker.getAndResetModifiedTableNames());
+    }
+
+
+    @Test
+    public void multipleStatements() {
+        modifiedTablesTracker.recordStatement("insert into table1 values (1); drop table table2");
+        assertNull(modifiedTablesTracker.getAndResetModifiedTableNames());
+    }
+
+
+    @Test
+    public void reset() {
+        modifiedTablesTracker.recordStatement("call my_procedure()");
+        modifiedTablesTracker.getAndResetModifiedTableNames();
+        modifiedTablesTracker.recordStatement("insert into table1 values (1)");
+
+        assertEquals(asSet("table1"), modifiedTablesTracker.getAndResetModifiedTableNames());
+        assertEquals(new HashSet<String>(), modifiedTablesTracker.getAndResetModifiedTableNames());
+    }
+}
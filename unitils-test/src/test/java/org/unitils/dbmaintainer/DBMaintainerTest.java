@@ -15,17 +15,28 @@
  */
 package org.unitils.dbmaintainer;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.Test;
 import org.unitils.UnitilsJUnit4;
 import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.DbSupport;
+import org.unitils.core.dbsupport.DefaultSQLHandler;
+import org.unitils.core.dbsupport.HsqldbDbSupport;
+import org.unitils.core.dbsupport.SQLHandler;
+import static org.unitils.core.dbsupport.DbSupport.PROPKEY_IDENTIFIER_QUOTE_STRING;
+import static org.unitils.core.dbsupport.DbSupport.PROPKEY_METADATA_CACHE_ENABLED;
+import static org.unitils.core.dbsupport.DbSupport.PROPKEY_STORED_IDENTIFIER_CASE;
 import org.unitils.dbmaintainer.clean.DBClearer;
 import org.unitils.dbmaintainer.script.ExecutedScript;
 import org.unitils.dbmaintainer.script.Script;
 import org.unitils.dbmaintainer.script.ScriptContentHandle;
+import org.unitils.dbmaintainer.script.ScriptRunner;
 import org.unitils.dbmaintainer.script.ScriptSource;
 import org.unitils.dbmaintainer.script.impl.DefaultScriptRunner;
+import org.unitils.dbmaintainer.snapshot.SchemaSnapshotter;
 import org.unitils.dbmaintainer.structure.ConstraintsDisabler;
 import org.unitils.dbmaintainer.structure.DataSetStructureGenerator;
 import org.unitils.dbmaintainer.structure.SequenceUpdater;
@@ -37,10 +48,12 @@ import org.unitils.mock.Mock;
 import org.unitils.mock.MockUnitils;
 import static org.unitils.mock.MockUnitils.assertNoMoreInvocations;
 
+import static java.util.Arrays.asList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Properties;
 
 /**
  * Tests the main algorithm of the DBMaintainer, using mocks for all implementation classes.
@@ -71,6 +84,8 @@ public class DBMaintainerTest extends UnitilsJUnit4 {
     @InjectIntoByType
     private Mock<DataSetStructureGenerator> mockDataSetStructureGenerator;
 
+    private Mock<SchemaSnapshotter> mockSchemaSnapshotter;
+
     @TestedObject
     private DBMaintainer dbMaintainer;
 
@@ -165,6 +180,44 @@ public class DBMaintainerTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests updating the database from scratch when a snapshot was taken for the current scripts. The snapshot is
+     * restored instead of executing the scripts.
+     */
+    @Test
+    public void testUpdateDatabase_FromScratch_snapshotRestored() {
+        dbMaintainer.schemaSnapshotter = mockSchemaSnapshotter.getMock();
+        expectExistingScriptModified();
+        expectPostProcessingScripts(postProcessingScripts);
+        mockSchemaSnapshotter.returns(true).restoreSnapshot(schema, null);
+
+        dbMaintainer.updateDatabase(schema, true);
+
+        mockDbClearer.assertInvoked().clearSchemas();
+        mockExecutedScriptInfoSource.assertInvoked().registerExecutedScripts(asList(new ExecutedScript(scripts.get(0), null, true), new ExecutedScript(scripts.get(1), null, true)));
+        mockScriptRunner.assertNotInvoked().execute(null);
+        mockSchemaSnapshotter.assertNotInvoked().createSnapshot(null, null);
+    }
+
+
+    /**
+     * Tests updating the database from scratch when there is no snapshot for the current scripts. The scripts are
+     * executed and a snapshot is taken afterwards.
+     */
+    @Test
+    public void testUpdateDatabase_FromScratch_snapshotCreated() {
+        dbMaintainer.schemaSnapshotter = mockSchemaSnapshotter.getMock();
+        expectExistingScriptModified();
+        expectPostProcessingScripts(postProcessingScripts);
+        mockSchemaSnapshotter.returns(false).restoreSnapshot(schema, null);
+
+        dbMaintainer.updateDatabase(schema, true);
+
+        assertScriptsExecutedAndDbVersionSet();
+        mockSchemaSnapshotter.assertInvoked().createSnapshot(schema, null);
+    }
+
+
     @Test
     public void testUpdateDatabase_LastUpdateFailed() {
         expectLastUpdateFailed();
@@ -216,6 +269,47 @@ public class DBMaintainerTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests executing independent post processing scripts concurrently. All independent scripts should be executed,
+     * also when one of them fails. The failure is reported when they are finished, so the script that follows them
+     * is not executed.
+     */
+    @Test
+    public void testUpdateDatabase_independentPostProcessingScripts() {
+        Properties configuration = new Properties();
+        configuration.setProperty(ScriptRunner.class.getName() + ".implClassName", RecordingScriptRunner.class.getName());
+        // the tasks get a db support of their own, configure it so that it does not need a database
+        configuration.setProperty(DbSupport.class.getName() + ".implClassName." + dialect, HsqldbDbSupport.class.getName());
+        configuration.setProperty(PROPKEY_STORED_IDENTIFIER_CASE + "." + dialect, "upper_case");
+        configuration.setProperty(PROPKEY_IDENTIFIER_QUOTE_STRING + "." + dialect, "\"");
+        configuration.setProperty(PROPKEY_METADATA_CACHE_ENABLED, "false");
+        dbMaintainer.configuration = configuration;
+        dbMaintainer.sqlHandler = new DefaultSQLHandler(null);
+        dbMaintainer.nrOfThreads = 2;
+        dbMaintainer.parallelPostProcessingDirName = "parallel";
+
+        List<Script> independentScripts = new ArrayList<Script>();
+        for (int i = 1; i <= 3; i++) {
+            independentScripts.add(new Script("postprocessing/parallel/0" + i + "_script.sql", 0L, MockUnitils.createDummy(ScriptContentHandle.class)));
+        }
+        List<Script> allPostProcessingScripts = new ArrayList<Script>(independentScripts);
+        allPostProcessingScripts.add(postProcessingScripts.get(0));
+        RecordingScriptRunner.executedScriptContentHandles.clear();
+        RecordingScriptRunner.failingScriptContentHandle = independentScripts.get(1).getScriptContentHandle();
+        expectNewScriptsAdded();
+        expectPostProcessingScripts(allPostProcessingScripts);
+
+        try {
+            dbMaintainer.updateDatabase(schema, true);
+            fail("A UnitilsException should have been thrown");
+        } catch (UnitilsException e) {
+            assertTrue(e.getMessage().startsWith("1 of 3 post processing scripts failed:\npostprocessing/parallel/02_script.sql: "));
+        }
+        assertEquals(3, RecordingScriptRunner.executedScriptContentHandles.size());
+        mockScriptRunner.assertNotInvoked().execute(postProcessingScripts.get(0).getScriptContentHandle());
+    }
+
+
     @Test
     public void testUpdateDatabase_isInitialFromScratchUpdate() {
         expectFromScratchUpdateRecommended();
@@ -301,4 +395,26 @@ public class DBMaintainerTest extends UnitilsJUnit4 {
         mockScriptSource.returns(scripts).getAllUpdateScripts(dialect, schema, true);
     }
 
+
+    /**
+     * Script runner for the threads that execute independent post processing scripts. It records the executed scripts
+     * and fails for one of them.
+     */
+    public static class RecordingScriptRunner implements ScriptRunner {
+
+        private static List<ScriptContentHandle> executedScriptContentHandles = Collections.synchronizedList(new ArrayList<ScriptContentHandle>());
+
+        private static ScriptContentHandle failingScriptContentHandle;
+
+        public void init(Properties configuration, SQLHandler sqlHandler, String dialect, List<String> schemaNames) {
+        }
+
+        public void execute(ScriptContentHandle scriptContentHandle) {
+            executedScriptContentHandles.add(scriptContentHandle);
+            if (scriptContentHandle == failingScriptContentHandle) {
+                throw new UnitilsException("Script failed");
+            }
+        }
+    }
+
 }
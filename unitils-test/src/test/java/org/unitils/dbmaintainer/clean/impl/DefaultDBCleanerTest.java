@@ -15,9 +15,15 @@
  */
 package org.unitils.dbmaintainer.clean.impl;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -39,6 +45,7 @@ import static org.unitils.database.SQLUnitils.isEmpty;
 import org.unitils.database.annotations.TestDataSource;
 
 import static org.unitils.dbmaintainer.clean.impl.DefaultDBCleaner.*;
+import static org.unitils.dbmaintainer.util.DatabaseTaskExecutor.PROPKEY_NR_OF_THREADS;
 
 import javax.sql.DataSource;
 
@@ -71,6 +78,9 @@ public class DefaultDBCleanerTest extends UnitilsJUnit4 {
     
     private List<String> schemas;
 
+    /* The unitils configuration */
+    private Properties configuration;
+
 
     /**
      * Test fixture. The DefaultDBCleaner is instantiated and configured. Test tables are created and filled with test
@@ -78,7 +88,7 @@ public class DefaultDBCleanerTest extends UnitilsJUnit4 {
      */
     @Before
     public void setUp() throws Exception {
-        Properties configuration = new ConfigurationLoader().loadConfiguration();
+        configuration = new ConfigurationLoader().loadConfiguration();
         schemas = PropertyUtils.getStringList("database.schemaNames", configuration);
         SQLHandler sqlHandler = new DefaultSQLHandler(dataSource);
         dbSupport = getDefaultDbSupport(configuration, sqlHandler, dialect, schemas.get(0));
@@ -143,6 +153,144 @@ public class DefaultDBCleanerTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests cleaning a table that is referenced by a foreign key of another table that is cleaned
+     */
+    @Test
+    public void testCleanDatabase_foreignKey() throws Exception {
+        executeUpdate("create table TEST_TABLE_PK(id int primary key)", dataSource);
+        executeUpdate("create table TEST_TABLE_FK(id int references TEST_TABLE_PK(id))", dataSource);
+        executeUpdate("insert into TEST_TABLE_PK values(1)", dataSource);
+        executeUpdate("insert into TEST_TABLE_FK values(1)", dataSource);
+        defaultDbCleaner.cleanSchemas();
+        assertTrue(isEmpty("TEST_TABLE_PK", dataSource));
+        assertTrue(isEmpty("TEST_TABLE_FK", dataSource));
+    }
+
+
+    /**
+     * Tests cleaning the tables by several threads, with and without truncating the tables
+     */
+    @Test
+    public void testCleanDatabase_multipleThreads() throws Exception {
+        configuration.setProperty(PROPKEY_NR_OF_THREADS, "4");
+        configuration.setProperty(PROPKEY_TRUNCATE_ENABLED, "false");
+        defaultDbCleaner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+        defaultDbCleaner.cleanSchemas();
+        assertTrue(isEmpty("TEST_TABLE", dataSource));
+        assertTrue(isEmpty(dbSupport.quoted("Test_CASE_Table"), dataSource));
+        assertFalse(isEmpty("TEST_TABLE_PRESERVE", dataSource));
+        assertFalse(isEmpty(versionTableName, dataSource));
+
+        insertTestData();
+        configuration.setProperty(PROPKEY_TRUNCATE_ENABLED, "true");
+        defaultDbCleaner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+        defaultDbCleaner.cleanSchemas();
+        assertTrue(isEmpty("TEST_TABLE", dataSource));
+        assertTrue(isEmpty(dbSupport.quoted("Test_CASE_Table"), dataSource));
+        assertFalse(isEmpty("TEST_TABLE_PRESERVE", dataSource));
+    }
+
+
+    /**
+     * Tests cleaning a parent and a child table by different workers. The worker of the child table waits until
+     * the delete of the parent table has failed, so that the parent table is only cleaned when it is retried after
+     * all workers are finished.
+     */
+    @Test
+    public void testCleanDatabase_multipleThreadsForeignKey() throws Exception {
+        executeUpdate("create table TEST_TABLE_PK(id int primary key)", dataSource);
+        executeUpdate("create table TEST_TABLE_FK(id int references TEST_TABLE_PK(id))", dataSource);
+        executeUpdate("insert into TEST_TABLE_PK values(1)", dataSource);
+        executeUpdate("insert into TEST_TABLE_FK values(1)", dataSource);
+
+        final CountDownLatch parentTableAttempted = new CountDownLatch(1);
+        final AtomicInteger nrOfParentTableAttempts = new AtomicInteger();
+        DefaultDBCleaner dbCleaner = new DefaultDBCleaner() {
+            @Override
+            protected void cleanTable(String tableName, DbSupport dbSupport) {
+                if ("TEST_TABLE_PK".equalsIgnoreCase(tableName)) {
+                    nrOfParentTableAttempts.incrementAndGet();
+                    try {
+                        super.cleanTable(tableName, dbSupport);
+                    } finally {
+                        parentTableAttempted.countDown();
+                    }
+                    return;
+                }
+                if ("TEST_TABLE_FK".equalsIgnoreCase(tableName)) {
+                    try {
+                        parentTableAttempted.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.cleanTable(tableName, dbSupport);
+            }
+        };
+        configuration.setProperty(PROPKEY_NR_OF_THREADS, "2");
+        configuration.setProperty(PROPKEY_TRUNCATE_ENABLED, "false");
+        dbCleaner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+        dbCleaner.cleanTables(new LinkedHashSet<String>(asList("TEST_TABLE_PK", "TEST_TABLE_FK")));
+
+        assertTrue(isEmpty("TEST_TABLE_PK", dataSource));
+        assertTrue(isEmpty("TEST_TABLE_FK", dataSource));
+        assertEquals(2, nrOfParentTableAttempts.get());
+    }
+
+
+    /**
+     * Tests cleaning a chain of 3 tables, A <- B <- C, by different workers. The worker of table C waits until the
+     * deletes of A and B have failed. When retrying, A fails again because B is not yet cleaned, so A is only
+     * cleaned in a second retry.
+     */
+    @Test
+    public void testCleanDatabase_multipleThreadsForeignKeyChain() throws Exception {
+        executeUpdate("create table TEST_TABLE_A(id int primary key)", dataSource);
+        executeUpdate("create table TEST_TABLE_B(id int primary key references TEST_TABLE_A(id))", dataSource);
+        executeUpdate("create table TEST_TABLE_C(id int references TEST_TABLE_B(id))", dataSource);
+        executeUpdate("insert into TEST_TABLE_A values(1)", dataSource);
+        executeUpdate("insert into TEST_TABLE_B values(1)", dataSource);
+        executeUpdate("insert into TEST_TABLE_C values(1)", dataSource);
+
+        final CountDownLatch tableBAttempted = new CountDownLatch(1);
+        final AtomicInteger nrOfTableAAttempts = new AtomicInteger();
+        DefaultDBCleaner dbCleaner = new DefaultDBCleaner() {
+            @Override
+            protected void cleanTable(String tableName, DbSupport dbSupport) {
+                if ("TEST_TABLE_A".equalsIgnoreCase(tableName)) {
+                    nrOfTableAAttempts.incrementAndGet();
+                }
+                if ("TEST_TABLE_B".equalsIgnoreCase(tableName)) {
+                    try {
+                        super.cleanTable(tableName, dbSupport);
+                    } finally {
+                        tableBAttempted.countDown();
+                    }
+                    return;
+                }
+                if ("TEST_TABLE_C".equalsIgnoreCase(tableName)) {
+                    try {
+                        tableBAttempted.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.cleanTable(tableName, dbSupport);
+            }
+        };
+        configuration.setProperty(PROPKEY_NR_OF_THREADS, "2");
+        configuration.setProperty(PROPKEY_TRUNCATE_ENABLED, "false");
+        dbCleaner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+        dbCleaner.cleanTables(new LinkedHashSet<String>(asList("TEST_TABLE_A", "TEST_TABLE_B", "TEST_TABLE_C")));
+
+        assertTrue(isEmpty("TEST_TABLE_A", dataSource));
+        assertTrue(isEmpty("TEST_TABLE_B", dataSource));
+        assertTrue(isEmpty("TEST_TABLE_C", dataSource));
+        assertEquals(3, nrOfTableAAttempts.get());
+    }
+
+
     /**
      * Creates the test tables
      */
@@ -162,7 +310,7 @@ public class DefaultDBCleanerTest extends UnitilsJUnit4 {
      */
     private void cleanupTestDatabase() {
         dropTestViews(dbSupport, "TEST_VIEW");
-        dropTestTables(dbSupport, "TEST_TABLE", "TEST_TABLE_PRESERVE", dbSupport.quoted("Test_CASE_Table"), dbSupport.quoted("Test_CASE_Table_Preserve"), versionTableName);
+        dropTestTables(dbSupport, "TEST_TABLE_FK", "TEST_TABLE_PK", "TEST_TABLE_C", "TEST_TABLE_B", "TEST_TABLE_A", "TEST_TABLE", "TEST_TABLE_PRESERVE", dbSupport.quoted("Test_CASE_Table"), dbSupport.quoted("Test_CASE_Table_Preserve"), versionTableName);
     }
 
 
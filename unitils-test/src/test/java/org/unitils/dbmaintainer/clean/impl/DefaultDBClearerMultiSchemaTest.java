@@ -23,6 +23,7 @@ import static org.unitils.core.dbsupport.DbSupportFactory.getDbSupport;
 import static org.unitils.database.SQLUnitils.executeUpdate;
 import static org.unitils.database.SQLUnitils.executeUpdateQuietly;
 import static org.unitils.dbmaintainer.util.DatabaseModuleConfigUtils.PROPKEY_DATABASE_DIALECT;
+import static org.unitils.dbmaintainer.util.DatabaseTaskExecutor.PROPKEY_NR_OF_THREADS;
 
 import java.util.Properties;
 
@@ -77,12 +78,16 @@ public class DefaultDBClearerMultiSchemaTest extends UnitilsJUnit4 {
 	private String dialect;
 
         private List<String> schemas;
+
+	/* The unitils configuration */
+	private Properties configuration;
+
 	/**
 	 * Configures the tested object. Creates a test table, index, view and sequence
 	 */
 	@Before
 	public void setUp() throws Exception {
-		Properties configuration = new ConfigurationLoader().loadConfiguration();
+		configuration = new ConfigurationLoader().loadConfiguration();
                 
 		dialect = PropertyUtils.getString(PROPKEY_DATABASE_DIALECT, configuration);
         this.disabled = !"hsqldb".equals(dialect);
@@ -175,6 +180,30 @@ public class DefaultDBClearerMultiSchemaTest extends UnitilsJUnit4 {
 	}
 
 
+	/**
+	 * Tests clearing the schemas concurrently, each schema by a worker with a connection of its own
+	 */
+	@Test
+	public void testClearDatabase_multipleThreads() throws Exception {
+		if (disabled) {
+			logger.warn("Test is not for current dialect. Skipping test.");
+			return;
+		}
+		configuration.setProperty(PROPKEY_NR_OF_THREADS, "3");
+		defaultDbClearer.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+		defaultDbClearer.clearSchemas();
+		assertTrue(dbSupportPublic.getTableNames().isEmpty());
+		assertTrue(dbSupportSchemaA.getTableNames().isEmpty());
+		assertTrue(dbSupportSchemaB.getTableNames().isEmpty());
+		assertTrue(dbSupportPublic.getViewNames().isEmpty());
+		assertTrue(dbSupportSchemaA.getViewNames().isEmpty());
+		assertTrue(dbSupportSchemaB.getViewNames().isEmpty());
+		assertTrue(dbSupportPublic.getSequenceNames().isEmpty());
+		assertTrue(dbSupportSchemaA.getSequenceNames().isEmpty());
+		assertTrue(dbSupportSchemaB.getSequenceNames().isEmpty());
+	}
+
+
 	/**
 	 * Creates all test database structures (view, tables...)
 	 */
@@ -183,6 +183,23 @@ public class DefaultDBClearerTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests if the triggers are correctly dropped. The triggers are dropped after the tables, so the triggers that
+     * were dropped together with their table should no longer be dropped.
+     */
+    @Test
+    public void testClearDatabase_triggers() throws Exception {
+        if (!dbSupport.supportsTriggers()) {
+            logger.warn("Current dialect does not support triggers. Skipping test.");
+            return;
+        }
+        assertEquals(2, dbSupport.getTriggerNames().size());
+        defaultDbClearer.clearSchemas();
+        assertTrue(dbSupport.getTriggerNames().isEmpty());
+        assertTrue(dbSupport.getTableNames().isEmpty());
+    }
+
+
     /**
      * Creates all test database structures (view, tables...)
      */
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script.impl;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Properties;
+
+/**
+ * Micro benchmark for parsing a large script.
+ * <p/>
+ * This is not a unit test: run the main method to generate a script of about 100MB in the temp dir and print the
+ * average time it takes to parse it with the default and the Oracle script parser. The script contains quoted
+ * literals, double quoted identifiers and line and block comments, so that all parsing states are used. Each parser
+ * first parses the script a number of times to warm up the JVM, after which the measured iterations are averaged.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DefaultScriptParserBenchmark {
+
+    /* The nr of warm up iterations per parser */
+    private static final int WARMUP_ITERATIONS = 1;
+
+    /* The nr of measured iterations per parser */
+    private static final int MEASURED_ITERATIONS = 3;
+
+    /* The approximate size of the generated script */
+    private static final long SCRIPT_SIZE = 100L * 1024 * 1024;
+
+
+    public static void main(String[] args) throws IOException {
+        File scriptFile = File.createTempFile("unitils-parser-benchmark", ".sql");
+        try {
+            createScript(scriptFile);
+            run("default parser", new DefaultScriptParser(), scriptFile);
+            run("oracle parser", new OracleScriptParser(), scriptFile);
+        } finally {
+            scriptFile.delete();
+        }
+    }
+
+
+    private static void run(String scenario, DefaultScriptParser scriptParser, File scriptFile) throws IOException {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            parse(scriptParser, scriptFile);
+        }
+        long start = System.nanoTime();
+        int nrOfStatements = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            nrOfStatements = parse(scriptParser, scriptFile);
+        }
+        long averageMillis = (System.nanoTime() - start) / MEASURED_ITERATIONS / 1000000;
+        long megaBytesPerSecond = averageMillis == 0 ? 0 : scriptFile.length() * 1000 / averageMillis / (1024 * 1024);
+        System.out.println(scenario + ", " + nrOfStatements + " statements: " + averageMillis + " ms/op (" + megaBytesPerSecond + " MB/s)");
+    }
+
+
+    private static int parse(DefaultScriptParser scriptParser, File scriptFile) throws IOException {
+        Properties configuration = new Properties();
+        configuration.setProperty(DefaultScriptParser.PROPKEY_BACKSLASH_ESCAPING_ENABLED, "true");
+        Reader scriptReader = new FileReader(scriptFile);
+        try {
+            scriptParser.init(configuration, scriptReader);
+            int nrOfStatements = 0;
+            while (scriptParser.getNextStatement() != null) {
+                nrOfStatements++;
+            }
+            return nrOfStatements;
+        } finally {
+            scriptReader.close();
+        }
+    }
+
+
+    private static void createScript(File scriptFile) throws IOException {
+        Writer writer = new BufferedWriter(new FileWriter(scriptFile));
+        try {
+            writer.write("/* generated script for the parser benchmark */\n");
+            writer.write("create table \"PERSON\" (id integer, name varchar(100), remark varchar(1000));\n");
+            long size = 0;
+            for (int i = 0; size < SCRIPT_SIZE; i++) {
+                String statement = "-- person " + i + "\ninsert into \"PERSON\" (id, name, remark) values (" + i + ", 'name \\'" + i + "\\'', 'a remark; with a separator /* and no comment */');\n";
+                writer.write(statement);
+                size += statement.length();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
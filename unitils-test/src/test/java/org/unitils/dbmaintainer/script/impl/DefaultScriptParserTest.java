@@ -16,6 +16,7 @@
 package org.unitils.dbmaintainer.script.impl;
 
 import org.junit.After;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import org.junit.Before;
@@ -145,4 +146,17 @@ public class DefaultScriptParserTest extends UnitilsJUnit4 {
         defaultScriptParser.init(configuration, emptyScriptReader);
         assertNull(defaultScriptParser.getNextStatement());
     }
+
+
+    /**
+     * Test parsing statements that are on the same line. The character following a separator should not be lost.
+     */
+    @Test
+    public void testParseStatements_statementsOnSameLine() throws Exception {
+        defaultScriptParser.init(configuration, new StringReader("insert into a values(1);insert into b values(2);--comment\ninsert into c values(3);"));
+        assertEquals("insert into a values(1)", defaultScriptParser.getNextStatement());
+        assertEquals("insert into b values(2)", defaultScriptParser.getNextStatement());
+        assertEquals("--comment\ninsert into c values(3)", defaultScriptParser.getNextStatement());
+        assertNull(defaultScriptParser.getNextStatement());
+    }
 }
@@ -15,22 +15,29 @@
  */
 package org.unitils.dbmaintainer.script.impl;
 
+import java.io.Reader;
 import java.util.List;
 import org.junit.After;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.unitils.UnitilsJUnit4;
 import org.unitils.core.ConfigurationLoader;
+import org.unitils.core.UnitilsException;
 import org.unitils.core.dbsupport.DefaultSQLHandler;
 
 import static org.unitils.database.SQLUnitils.executeUpdateQuietly;
+import static org.unitils.database.SQLUnitils.getItemAsLong;
 import static org.unitils.database.SQLUnitils.isEmpty;
 
 import org.unitils.database.annotations.TestDataSource;
 import org.unitils.dbmaintainer.script.Script;
+import org.unitils.dbmaintainer.script.ScriptParser;
+import org.unitils.dbmaintainer.script.ScriptContentHandle.StringScriptContentHandle;
 import org.unitils.dbmaintainer.script.ScriptContentHandle.UrlScriptContentHandle;
 
 import javax.sql.DataSource;
@@ -63,6 +70,8 @@ public class DefaultScriptRunnerTest extends UnitilsJUnit4 {
     
     private List<String> schemas;
 
+    private Properties configuration;
+
 
     /**
      * Test fixture. Configures the ConstraintsDisabler with the implementation that matches the configured database
@@ -70,7 +79,7 @@ public class DefaultScriptRunnerTest extends UnitilsJUnit4 {
      */
     @Before
     public void setUp() throws Exception {
-        Properties configuration = new ConfigurationLoader().loadConfiguration();
+        configuration = new ConfigurationLoader().loadConfiguration();
         schemas = PropertyUtils.getStringList("database.schemaNames", configuration);
         defaultScriptRunner = new DefaultScriptRunner();
         defaultScriptRunner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
@@ -106,6 +115,118 @@ public class DefaultScriptRunnerTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests running a script with inserts in batches of 2 statements, mixed with DDL statements.
+     */
+    @Test
+    public void testExecute_batches() throws Exception {
+        configuration.setProperty(DefaultScriptRunner.PROPKEY_BATCH_SIZE, "2");
+        defaultScriptRunner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+
+        defaultScriptRunner.execute(new StringScriptContentHandle("create table table1 (col1 smallint);\n" +
+                "insert into table1 values (1);\ninsert into table1 values (2);\ninsert into table1 values (3);\n" +
+                "create table table2 (col1 smallint);\ninsert into table2 values (1);\n" +
+                "update table1 set col1 = 4 where col1 = 3;\n"));
+
+        assertEquals(3, getItemAsLong("select count(*) from table1", dataSource));
+        assertEquals(1, getItemAsLong("select count(*) from table1 where col1 = 4", dataSource));
+        assertEquals(1, getItemAsLong("select count(*) from table2", dataSource));
+    }
+
+
+    /**
+     * Tests a failing statement in a batch when a commit interval is set. The failing statement should be reported
+     * and the changes since the last commit should be rolled back.
+     */
+    @Test
+    public void testExecute_failureInBatch() throws Exception {
+        executeUpdateQuietly("create table table1 (col1 smallint primary key)", dataSource);
+        configuration.setProperty(DefaultScriptRunner.PROPKEY_BATCH_SIZE, "10");
+        configuration.setProperty(DefaultScriptRunner.PROPKEY_COMMIT_INTERVAL, "100");
+        defaultScriptRunner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+        try {
+            defaultScriptRunner.execute(new StringScriptContentHandle("insert into table1 values (1);\n" +
+                    "insert into table1 values (2);\ninsert into table1 values (1);\ninsert into table1 values (3);\n"));
+            fail("Expected UnitilsException");
+        } catch (UnitilsException e) {
+            assertEquals("Error while performing database update of statement 3 on line 3: insert into table1 values (1)", e.getMessage());
+        }
+        assertTrue(isEmpty("table1", dataSource));
+    }
+
+
+    /**
+     * Tests a failing statement in a batch without a commit interval. The statements are committed as they are
+     * executed, so the statements before the failing statement should be kept.
+     */
+    @Test
+    public void testExecute_failureInBatchNoCommitInterval() throws Exception {
+        executeUpdateQuietly("create table table1 (col1 smallint primary key)", dataSource);
+        configuration.setProperty(DefaultScriptRunner.PROPKEY_BATCH_SIZE, "10");
+        configuration.setProperty(DefaultScriptRunner.PROPKEY_COMMIT_INTERVAL, "0");
+        defaultScriptRunner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+        try {
+            defaultScriptRunner.execute(new StringScriptContentHandle("insert into table1 values (1);\n" +
+                    "insert into table1 values (2);\ninsert into table1 values (1);\n"));
+            fail("Expected UnitilsException");
+        } catch (UnitilsException e) {
+            assertEquals("Error while performing database update of statement 3 on line 3: insert into table1 values (1)", e.getMessage());
+        }
+        assertEquals(1, getItemAsLong("select count(*) from table1 where col1 = 2", dataSource));
+    }
+
+
+    /**
+     * Tests a failing statement when the script is parsed in the same thread and batching is disabled. The nr of the
+     * failing statement and the line on which it starts should be reported.
+     */
+    @Test
+    public void testExecute_failureNotPipelined() throws Exception {
+        configuration.setProperty(DefaultScriptRunner.PROPKEY_BATCH_SIZE, "0");
+        configuration.setProperty(DefaultScriptRunner.PROPKEY_PIPELINE_QUEUE_SIZE, "0");
+        defaultScriptRunner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+        try {
+            defaultScriptRunner.execute(new StringScriptContentHandle("create table table1 (col1 smallint);\n\n" +
+                    "-- comment\ninsert into table1 values (1);\ninsert into xxxx values (2);\n"));
+            fail("Expected UnitilsException");
+        } catch (UnitilsException e) {
+            assertEquals("Error while performing database update of statement 3 on line 5: insert into xxxx values (2)", e.getMessage());
+        }
+        assertEquals(1, getItemAsLong("select count(*) from table1", dataSource));
+    }
+
+
+    /**
+     * Tests a failing statement when the parser does not track line nrs. The line should be reported as unknown.
+     */
+    @Test
+    public void testExecute_failureUnknownLine() throws Exception {
+        configuration.setProperty("org.unitils.dbmaintainer.script.ScriptParser.implClassName", NonTrackingScriptParser.class.getName());
+        defaultScriptRunner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+        try {
+            defaultScriptRunner.execute(new StringScriptContentHandle("create table table1 (col1 smallint);\ninsert into xxxx values (2);\n"));
+            fail("Expected UnitilsException");
+        } catch (UnitilsException e) {
+            assertEquals("Error while performing database update of statement 2 on unknown line: insert into xxxx values (2)", e.getMessage());
+        }
+    }
+
+
+    /**
+     * Tests running a script that is parsed in a separate thread with a queue of 1 statement.
+     */
+    @Test
+    public void testExecute_pipelined() throws Exception {
+        configuration.setProperty(DefaultScriptRunner.PROPKEY_PIPELINE_QUEUE_SIZE, "1");
+        defaultScriptRunner.init(configuration, new DefaultSQLHandler(dataSource), dialect, schemas);
+
+        defaultScriptRunner.execute(new StringScriptContentHandle("create table table1 (col1 smallint);\n" +
+                "insert into table1 values (1);\ninsert into table1 values (2);\ninsert into table1 values (3);\n"));
+
+        assertEquals(3, getItemAsLong("select count(*) from table1", dataSource));
+    }
+
+
     /**
      * Drops the test tables
      */
@@ -115,4 +236,21 @@ public class DefaultScriptRunnerTest extends UnitilsJUnit4 {
         executeUpdateQuietly("drop table table3", dataSource);
     }
 
+
+    /**
+     * Script parser that does not track the line nrs of the statements.
+     */
+    public static class NonTrackingScriptParser implements ScriptParser {
+
+        private ScriptParser scriptParser = new DefaultScriptParser();
+
+        public void init(Properties configuration, Reader scriptReader) {
+            scriptParser.init(configuration, scriptReader);
+        }
+
+        public String getNextStatement() {
+            return scriptParser.getNextStatement();
+        }
+    }
+
 }
\ No newline at end of file
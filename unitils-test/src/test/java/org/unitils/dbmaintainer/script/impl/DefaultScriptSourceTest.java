@@ -440,4 +440,27 @@ public class DefaultScriptSourceTest extends UnitilsJUnit4 {
         Assert.assertEquals(5, actual.size());
         ReflectionAssert.assertReflectionEquals(expected, actualNames, ReflectionComparatorMode.LENIENT_ORDER);
     }
+
+
+    /**
+     * Tests that the script index is not used when the last modification dates of the scripts are not used.
+     */
+    @Test
+    public void testCreateScriptIndex_lastModificationDatesDisabled() {
+        configuration.setProperty(DefaultScriptSource.PROPKEY_SCRIPT_INDEX_ENABLED, "true");
+        assertNull(scriptSource.createScriptIndex(asList(scriptsDirName + "/test_scripts")));
+    }
+
+
+    /**
+     * Tests that different script locations get a different default index file.
+     */
+    @Test
+    public void testGetDefaultScriptIndexFileName() {
+        String fileName1 = scriptSource.getDefaultScriptIndexFileName(asList(scriptsDirName + "/test_scripts"));
+        String fileName2 = scriptSource.getDefaultScriptIndexFileName(asList(scriptsDirName + "/other_scripts"));
+
+        assertEquals(fileName1, scriptSource.getDefaultScriptIndexFileName(asList(scriptsDirName + "/test_scripts")));
+        assertFalse(fileName1.equals(fileName2));
+    }
 }
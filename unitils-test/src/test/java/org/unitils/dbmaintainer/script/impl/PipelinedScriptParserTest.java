@@ -0,0 +1,123 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.core.UnitilsException;
+
+import java.io.StringReader;
+import java.util.Properties;
+
+/**
+ * Test class for the {@link PipelinedScriptParser}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class PipelinedScriptParserTest {
+
+    /* Tested object */
+    private PipelinedScriptParser pipelinedScriptParser;
+
+    private Properties configuration;
+
+
+    @Before
+    public void setUp() {
+        pipelinedScriptParser = new PipelinedScriptParser(new DefaultScriptParser(), 1);
+        configuration = new Properties();
+        configuration.setProperty(DefaultScriptParser.PROPKEY_BACKSLASH_ESCAPING_ENABLED, "false");
+    }
+
+
+    @After
+    public void tearDown() {
+        pipelinedScriptParser.close();
+    }
+
+
+    @Test
+    public void statementsWithLineNrs() {
+        pipelinedScriptParser.init(configuration, new StringReader("statement 1;\n\nstatement 2;\nstatement\n3;\nstatement 4;"));
+
+        assertStatement("statement 1", 1);
+        assertStatement("statement 2", 3);
+        assertStatement("statement\n3", 4);
+        assertStatement("statement 4", 6);
+        assertNull(pipelinedScriptParser.getNextStatement());
+        assertNull(pipelinedScriptParser.getNextStatement());
+    }
+
+
+    @Test
+    public void emptyScript() {
+        pipelinedScriptParser.init(configuration, new StringReader(""));
+        assertNull(pipelinedScriptParser.getNextStatement());
+    }
+
+
+    @Test
+    public void parseErrorAfterPreviousStatements() {
+        pipelinedScriptParser.init(configuration, new StringReader("statement 1;\nstatement 2;\nstatement 3"));
+
+        assertStatement("statement 1", 1);
+        assertStatement("statement 2", 2);
+        try {
+            pipelinedScriptParser.getNextStatement();
+            fail("Expected UnitilsException");
+        } catch (UnitilsException e) {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void closeBeforeEndOfScript() throws Exception {
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            script.append("statement ").append(i).append(";\n");
+        }
+        pipelinedScriptParser.init(configuration, new StringReader(script.toString()));
+        assertStatement("statement 0", 1);
+
+        pipelinedScriptParser.close();
+        assertFalse(isParserThreadRunning());
+    }
+
+
+    private void assertStatement(String expectedStatement, int expectedLineNr) {
+        assertEquals(expectedStatement, pipelinedScriptParser.getNextStatement());
+        assertEquals(expectedLineNr, pipelinedScriptParser.getStatementLineNr());
+    }
+
+
+    private boolean isParserThreadRunning() {
+        Thread[] threads = new Thread[Thread.activeCount() + 10];
+        int nrOfThreads = Thread.enumerate(threads);
+        for (int i = 0; i < nrOfThreads; i++) {
+            if ("unitils-script-parser".equals(threads[i].getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Test class for {@link ScriptIndex}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ScriptIndexTest {
+
+    /* Tested object */
+    private ScriptIndex scriptIndex;
+
+    private File indexFile;
+
+    private File scriptFile;
+
+
+    @Before
+    public void initialize() throws Exception {
+        indexFile = File.createTempFile("ScriptIndexTest", ".properties");
+        indexFile.delete();
+        scriptFile = File.createTempFile("ScriptIndexTest", ".sql");
+        writeFile(scriptFile, "create table test (id int);");
+        scriptIndex = new ScriptIndex(indexFile);
+    }
+
+
+    @After
+    public void cleanUp() {
+        indexFile.delete();
+        scriptFile.delete();
+    }
+
+
+    @Test
+    public void notIndexed() {
+        assertNull(scriptIndex.getCheckSum(scriptFile));
+    }
+
+
+    @Test
+    public void indexed() {
+        scriptIndex.putCheckSum(scriptFile, "checksum");
+        assertEquals("checksum", scriptIndex.getCheckSum(scriptFile));
+    }
+
+
+    @Test
+    public void savedAndLoaded() {
+        scriptIndex.putCheckSum(scriptFile, "checksum");
+        scriptIndex.save();
+
+        ScriptIndex loadedScriptIndex = new ScriptIndex(indexFile);
+        assertEquals("checksum", loadedScriptIndex.getCheckSum(scriptFile));
+    }
+
+
+    @Test
+    public void fileChanged() throws Exception {
+        scriptIndex.putCheckSum(scriptFile, "checksum");
+        writeFile(scriptFile, "create table test (id int, name varchar(10));");
+
+        assertNull(scriptIndex.getCheckSum(scriptFile));
+    }
+
+
+    @Test
+    public void removedFileNotSaved() throws Exception {
+        scriptIndex.putCheckSum(scriptFile, "checksum");
+        long lastModified = scriptFile.lastModified();
+        scriptFile.delete();
+        scriptIndex.save();
+        writeFile(scriptFile, "create table test (id int);");
+        scriptFile.setLastModified(lastModified);
+
+        ScriptIndex loadedScriptIndex = new ScriptIndex(indexFile);
+        assertNull(loadedScriptIndex.getCheckSum(scriptFile));
+    }
+
+
+    private void writeFile(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+}
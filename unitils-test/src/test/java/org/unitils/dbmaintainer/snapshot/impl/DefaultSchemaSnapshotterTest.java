@@ -0,0 +1,149 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.snapshot.impl;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.SQLUnitils.getItemAsLong;
+import static org.unitils.database.SQLUnitils.getItemAsString;
+import static org.unitils.dbmaintainer.clean.impl.DefaultDBClearer.PROPKEY_PRESERVE_TABLES;
+import static org.unitils.dbmaintainer.snapshot.impl.DefaultSchemaSnapshotter.PROPKEY_SNAPSHOT_DIR_NAME;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.core.ConfigurationLoader;
+import org.unitils.core.dbsupport.PinnedConnectionSQLHandler;
+import org.unitils.dbmaintainer.script.Script;
+
+/**
+ * Test class for the {@link DefaultSchemaSnapshotter}, using an in-memory H2 database.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DefaultSchemaSnapshotterTest {
+
+    /* The scripts of the snapshot */
+    private static final List<Script> SCRIPTS = Collections.<Script>emptyList();
+
+    /* DataSource for the H2 test database */
+    private JdbcDataSource dataSource;
+
+    /* The directory in which the snapshots are stored */
+    private File snapshotDir;
+
+    /* The unitils configuration */
+    private Properties configuration;
+
+    /* The sql handler of the tested object, its db supports are not cached */
+    private PinnedConnectionSQLHandler sqlHandler;
+
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:snapshottest;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        snapshotDir = new File(System.getProperty("java.io.tmpdir"), "unitils-snapshot-test");
+
+        configuration = new ConfigurationLoader().loadConfiguration();
+        configuration.setProperty(PROPKEY_SNAPSHOT_DIR_NAME, snapshotDir.getPath());
+        sqlHandler = new PinnedConnectionSQLHandler(dataSource);
+
+        executeUpdate("create table TEST_TABLE (col1 varchar(10))", dataSource);
+        executeUpdate("insert into TEST_TABLE values ('test')", dataSource);
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        sqlHandler.close();
+        executeUpdate("drop all objects", dataSource);
+        File[] files = snapshotDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+
+    /**
+     * Tests taking a snapshot and restoring it after the table was dropped.
+     */
+    @Test
+    public void testRestoreSnapshot() throws Exception {
+        DefaultSchemaSnapshotter schemaSnapshotter = createSchemaSnapshotter();
+        schemaSnapshotter.createSnapshot(null, SCRIPTS);
+        executeUpdate("drop table TEST_TABLE", dataSource);
+
+        assertTrue(schemaSnapshotter.restoreSnapshot(null, SCRIPTS));
+        assertEquals(1, getItemAsLong("select count(*) from TEST_TABLE", dataSource));
+    }
+
+
+    /**
+     * Tests that the tables of a schema that is not configured are not part of the snapshot.
+     */
+    @Test
+    public void testRestoreSnapshot_otherSchemaUntouched() throws Exception {
+        executeUpdate("create schema OTHER_SCHEMA", dataSource);
+        executeUpdate("create table OTHER_SCHEMA.OTHER_TABLE (col1 varchar(10))", dataSource);
+        executeUpdate("insert into OTHER_SCHEMA.OTHER_TABLE values ('before')", dataSource);
+        DefaultSchemaSnapshotter schemaSnapshotter = createSchemaSnapshotter();
+        schemaSnapshotter.createSnapshot(null, SCRIPTS);
+        executeUpdate("update OTHER_SCHEMA.OTHER_TABLE set col1 = 'after'", dataSource);
+        executeUpdate("drop table TEST_TABLE", dataSource);
+
+        assertTrue(schemaSnapshotter.restoreSnapshot(null, SCRIPTS));
+        assertEquals("after", getItemAsString("select col1 from OTHER_SCHEMA.OTHER_TABLE", dataSource));
+    }
+
+
+    /**
+     * Tests that no snapshot is restored when a table of the schema is preserved, so that its data is kept.
+     */
+    @Test
+    public void testRestoreSnapshot_preservedTable() throws Exception {
+        configuration.setProperty(PROPKEY_PRESERVE_TABLES, "PRESERVED_TABLE");
+        executeUpdate("create table PRESERVED_TABLE (col1 varchar(10))", dataSource);
+        executeUpdate("insert into PRESERVED_TABLE values ('before')", dataSource);
+        DefaultSchemaSnapshotter schemaSnapshotter = createSchemaSnapshotter();
+        schemaSnapshotter.createSnapshot(null, SCRIPTS);
+        executeUpdate("update PRESERVED_TABLE set col1 = 'after'", dataSource);
+        executeUpdate("drop table TEST_TABLE", dataSource);
+
+        assertFalse(schemaSnapshotter.restoreSnapshot(null, SCRIPTS));
+        assertEquals("after", getItemAsString("select col1 from PRESERVED_TABLE", dataSource));
+    }
+
+
+    private DefaultSchemaSnapshotter createSchemaSnapshotter() {
+        DefaultSchemaSnapshotter schemaSnapshotter = new DefaultSchemaSnapshotter();
+        schemaSnapshotter.init(configuration, sqlHandler, "h2", asList("PUBLIC"));
+        return schemaSnapshotter;
+    }
+}
@@ -145,6 +145,44 @@ public class ConstraintsDisablerTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests whether foreign key constraints are enforced again after restoring them
+     */
+    @Test
+    public void testRestoreConstraints_foreignKey() throws Exception {
+        if (!dbSupport.supportsRestoringReferentialConstraints()) {
+            return;
+        }
+        constraintsDisabler.disableConstraints();
+        constraintsDisabler.restoreConstraints();
+        try {
+            executeUpdate("insert into table2 (col1) values ('test')", dataSource);
+            fail("UnitilsException should have been thrown");
+        } catch (UnitilsException e) {
+            // Expected foreign key violation
+        }
+    }
+
+
+    /**
+     * Tests whether the data that was inserted while the constraints were disabled is validated when restoring them
+     */
+    @Test
+    public void testRestoreConstraints_invalidData() throws Exception {
+        if (!dbSupport.supportsRestoringReferentialConstraints()) {
+            return;
+        }
+        constraintsDisabler.disableConstraints();
+        executeUpdate("insert into table2 (col1) values ('test')", dataSource);
+        try {
+            constraintsDisabler.restoreConstraints();
+            fail("UnitilsException should have been thrown");
+        } catch (UnitilsException e) {
+            // Expected foreign key violation
+        }
+    }
+
+
     /**
      * Creates the test tables
      */
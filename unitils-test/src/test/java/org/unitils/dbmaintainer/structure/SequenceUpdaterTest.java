@@ -20,6 +20,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.junit.After;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -138,6 +139,23 @@ public class SequenceUpdaterTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Verifies that only the sequences with a value that is too low are returned, so that nothing needs to be updated
+     * once all sequences have a sufficiently high value.
+     */
+    @Test
+    public void testGetSequenceNamesBelowValue() throws Exception {
+        if (!dbSupport.supportsSequences()) {
+            logger.warn("Current dialect does not support sequences. Skipping test.");
+            return;
+        }
+        String correctCaseSequenceName = dbSupport.toCorrectCaseIdentifier("test_sequence");
+        assertTrue(dbSupport.getSequenceNamesBelowValue(1000).contains(correctCaseSequenceName));
+        sequenceUpdater.updateSequences();
+        assertFalse(dbSupport.getSequenceNamesBelowValue(1000).contains(correctCaseSequenceName));
+    }
+
+
     /**
      * Tests the update identity columns behavior
      */
@@ -131,6 +131,42 @@ public class DefaultExecutedScriptInfoSourceTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests registering several scripts at once, a script that is registered twice is updated
+     */
+    @Test
+    public void testRegisterExecutedScripts() throws Exception {
+        ExecutedScript executedScript1Updated = new ExecutedScript(executedScript1.getScript(), executedScript1.getExecutedAt(), false);
+        dbVersionSource.registerExecutedScripts(asList(executedScript1, executedScript2, executedScript1Updated));
+
+        assertLenientEquals(asList(executedScript1Updated, executedScript2), dbVersionSourceAutoCreate.getExecutedScripts());
+    }
+
+
+    /**
+     * Tests that scripts that were registered by another instance after the executed scripts were retrieved are
+     * also returned.
+     */
+    @Test
+    public void testGetExecutedScripts_registeredByOtherInstance() throws Exception {
+        dbVersionSource.registerExecutedScript(executedScript1);
+        assertLenientEquals(asList(executedScript1), dbVersionSource.getExecutedScripts());
+
+        dbVersionSourceAutoCreate.registerExecutedScript(executedScript2);
+        assertLenientEquals(asList(executedScript1, executedScript2), dbVersionSource.getExecutedScripts());
+
+        // same and earlier execution timestamp than the scripts that are already known
+        ExecutedScript executedScriptSameTime = new ExecutedScript(new Script("2_script3.sql", 30L, "zzz"), executedScript2.getExecutedAt(), true);
+        ExecutedScript executedScriptEarlier = new ExecutedScript(new Script("3_script4.sql", 40L, "www"),
+                DateUtils.parseDate("20/05/2008 10:00:00", new String[]{"dd/MM/yyyy hh:mm:ss"}), true);
+        dbVersionSourceAutoCreate.registerExecutedScripts(asList(executedScriptSameTime, executedScriptEarlier));
+        assertLenientEquals(asList(executedScript1, executedScript2, executedScriptSameTime, executedScriptEarlier), dbVersionSource.getExecutedScripts());
+
+        dbVersionSourceAutoCreate.clearAllExecutedScripts();
+        assertTrue(dbVersionSource.getExecutedScripts().isEmpty());
+    }
+
+
     /**
      * Tests getting the version, but no executed scripts table yet (e.g. first use)
      */
@@ -20,12 +20,15 @@ import static org.unitils.reflectionassert.ReflectionAssert.assertReflectionEqua
 import static org.unitils.reflectionassert.ReflectionComparatorFactory.createRefectionComparator;
 import org.unitils.reflectionassert.difference.CollectionDifference;
 import org.unitils.reflectionassert.difference.Difference;
+import org.unitils.reflectionassert.difference.ObjectDifference;
 import static org.unitils.reflectionassert.util.InnerDifferenceFinder.getInnerDifference;
 
+import static java.util.Arrays.asList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 
 /**
@@ -221,6 +224,62 @@ public class ReflectionComparatorCollectionTest extends TestCase {
     }
 
 
+    /**
+     * Test for comparing the elements in parallel. The result should be the same as for a sequential comparison.
+     */
+    public void testGetAllDifferences_notEqualsParallel() {
+        collectionDifferentValue.iterator().next().string = "YYYYYY";
+        collectionDifferentValue.add(new Element("test 4", null));
+        reflectionComparator.setParallelThreshold(1);
+
+        Difference result = reflectionComparator.getDifference(collectionA, collectionDifferentValue);
+
+        Difference difference1 = getInnerDifference("string", getInnerDifference("0", result));
+        assertEquals("test 1", difference1.getLeftValue());
+        assertEquals("YYYYYY", difference1.getRightValue());
+
+        Difference difference2 = getInnerDifference("string", getInnerDifference("1", result));
+        assertEquals("test 2", difference2.getLeftValue());
+        assertEquals("XXXXXX", difference2.getRightValue());
+
+        assertEquals(2, ((CollectionDifference) result).getElementDifferences().size());
+        assertReflectionEquals(asList(3), ((CollectionDifference) result).getRightMissingIndexes());
+    }
+
+
+    /**
+     * Test for two equal collections that are compared in parallel.
+     */
+    public void testGetAllDifferences_equalsParallel() {
+        reflectionComparator.setParallelThreshold(1);
+
+        Difference result = reflectionComparator.getDifference(collectionInnerA, collectionInnerB);
+        assertNull(result);
+    }
+
+
+    /**
+     * Test for comparing elements that refer back to the collection that contains them in parallel. The pool threads
+     * should stop at the collection that is being compared, as the sequential comparison does.
+     */
+    public void testGetAllDifferences_cyclicElementsParallel() {
+        List<Element> cyclicCollectionA = createCyclicCollection(200);
+        List<Element> cyclicCollectionB = createCyclicCollection(200);
+        cyclicCollectionB.get(10).string = "XXXXXX";
+
+        CollectionDifference sequentialResult = (CollectionDifference) reflectionComparator.getDifference(cyclicCollectionA, cyclicCollectionB);
+        reflectionComparator.setParallelThreshold(10);
+        CollectionDifference parallelResult = (CollectionDifference) reflectionComparator.getDifference(cyclicCollectionA, cyclicCollectionB);
+
+        assertEquals(sequentialResult.getElementDifferences().keySet(), parallelResult.getElementDifferences().keySet());
+        assertEquals(asList(10), new ArrayList<Integer>(parallelResult.getElementDifferences().keySet()));
+        ObjectDifference sequentialElementDifference = (ObjectDifference) sequentialResult.getElementDifferences().get(10);
+        ObjectDifference parallelElementDifference = (ObjectDifference) parallelResult.getElementDifferences().get(10);
+        assertEquals(sequentialElementDifference.getFieldDifferences().keySet(), parallelElementDifference.getFieldDifferences().keySet());
+        assertEquals(asList("string"), new ArrayList<String>(parallelElementDifference.getFieldDifferences().keySet()));
+    }
+
+
     /**
      * Creates a collection.
      *
@@ -237,6 +296,21 @@ public class ReflectionComparatorCollectionTest extends TestCase {
     }
 
 
+    /**
+     * Creates a collection of which all elements have the collection itself as inner collection.
+     *
+     * @param size the nr of elements
+     * @return the test collection
+     */
+    private List<Element> createCyclicCollection(int size) {
+        List<Element> collection = new ArrayList<Element>();
+        for (int i = 0; i < size; i++) {
+            collection.add(new Element("test " + i, collection));
+        }
+        return collection;
+    }
+
+
     /**
      * Test class with failing equals.
      */
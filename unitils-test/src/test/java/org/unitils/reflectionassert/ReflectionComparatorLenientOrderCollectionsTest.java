@@ -16,14 +16,20 @@
 package org.unitils.reflectionassert;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 import static org.unitils.reflectionassert.ReflectionComparatorFactory.createRefectionComparator;
+import static org.unitils.reflectionassert.ReflectionComparatorMode.IGNORE_DEFAULTS;
 import static org.unitils.reflectionassert.ReflectionComparatorMode.LENIENT_ORDER;
 import org.unitils.reflectionassert.difference.UnorderedCollectionDifference;
 
+import static java.util.Arrays.asList;
 import static java.util.Arrays.binarySearch;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -71,6 +77,104 @@ public class ReflectionComparatorLenientOrderCollectionsTest {
     }
 
 
+    @Test
+    public void firstBestMatchIsPickedInParallel() {
+        reflectionComparator.setParallelThreshold(1);
+        String[] expected = {"1", "2", "3"};
+        String[] actual = {"4", "5", "6"};
+
+        UnorderedCollectionDifference difference = (UnorderedCollectionDifference) reflectionComparator.getDifference(expected, actual);
+        assertEquals(3, difference.getBestMatchingIndexes().size());
+        assertBestMatch(expected, "1", actual, "4", difference);
+        assertBestMatch(expected, "2", actual, "4", difference);
+        assertBestMatch(expected, "3", actual, "4", difference);
+    }
+
+
+    /**
+     * Calculating all differences in parallel should give the same result as calculating them sequentially.
+     */
+    @Test
+    public void allDifferencesInParallel() {
+        List<Element> expected = new ArrayList<Element>();
+        List<Element> actual = new ArrayList<Element>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(new Element("value" + i));
+            actual.add(0, new Element("value" + (i + 50)));
+        }
+        UnorderedCollectionDifference sequentialDifference = (UnorderedCollectionDifference) reflectionComparator.getDifference(expected, actual);
+
+        reflectionComparator.setParallelThreshold(10);
+        UnorderedCollectionDifference parallelDifference = (UnorderedCollectionDifference) reflectionComparator.getDifference(expected, actual);
+
+        assertEquals(sequentialDifference.getBestMatchingIndexes(), parallelDifference.getBestMatchingIndexes());
+        assertEquals(sequentialDifference.getBestMatchingScore(), parallelDifference.getBestMatchingScore());
+        assertEquals(50, parallelDifference.getBestMatchingIndexes().size());
+    }
+
+
+    /**
+     * Many equal, but not identical, elements used to make the backtracking search explode.
+     */
+    @Test
+    public void lenientOrderPerformanceManyEqualElements() {
+        List<Element> expected = new ArrayList<Element>();
+        List<Element> actual = new ArrayList<Element>();
+        for (int i = 0; i < 500; i++) {
+            expected.add(new Element("a"));
+            actual.add(new Element("a"));
+        }
+        expected.add(new Element("b"));
+        actual.add(new Element("c"));
+
+        assertFalse(reflectionComparator.isEqual(expected, actual));
+    }
+
+
+    @Test
+    public void lenientOrderLargeCollections() {
+        List<Element> expected = new ArrayList<Element>();
+        List<Element> actual = new ArrayList<Element>();
+        for (int i = 0; i < 10000; i++) {
+            expected.add(new Element("value" + i));
+            actual.add(0, expected.get(i));
+        }
+
+        assertTrue(reflectionComparator.isEqual(expected, actual));
+    }
+
+
+    /**
+     * Equal, but not identical, elements in reversed order. Every element has to be matched by comparing its fields.
+     */
+    @Test
+    public void lenientOrderLargeCollectionsEqualElements() {
+        List<Element> expected = new ArrayList<Element>();
+        List<Element> actual = new ArrayList<Element>();
+        for (int i = 0; i < 10000; i++) {
+            expected.add(new Element("value" + (i % 5000)));
+            actual.add(0, new Element("value" + (i % 5000)));
+        }
+        assertTrue(reflectionComparator.isEqual(expected, actual));
+
+        actual.set(0, new Element("other"));
+        assertFalse(reflectionComparator.isEqual(expected, actual));
+    }
+
+
+    /**
+     * The greedy pairing of the first element with the first match, blocks the match for the second element.
+     */
+    @Test
+    public void matchFoundAfterRepairing() {
+        ReflectionComparator ignoreDefaultsReflectionComparator = createRefectionComparator(LENIENT_ORDER, IGNORE_DEFAULTS);
+        List<Element> expected = asList(new Element(null), new Element("a"));
+        List<Element> actual = asList(new Element("a"), new Element("b"));
+
+        assertTrue(ignoreDefaultsReflectionComparator.isEqual(expected, actual));
+    }
+
+
     @SuppressWarnings({"RedundantCast"})
     private void assertBestMatch(String[] expected, String expectedValue, String[] actual, String actualValue, UnorderedCollectionDifference difference) {
         int expectedIndex = binarySearch(expected, expectedValue);
@@ -80,4 +184,17 @@ public class ReflectionComparatorLenientOrderCollectionsTest {
         assertEquals("Expected (" + expectedValue + "," + actualValue + ") as best match, but found (" + expected[bestMatchingIndex] + "," + actualValue + ").", actualIndex, (int) bestMatchingIndex);
     }
 
+
+    /**
+     * Test class with a single field.
+     */
+    private static class Element {
+
+        private String value;
+
+        public Element(String value) {
+            this.value = value;
+        }
+    }
+
 }
\ No newline at end of file
@@ -217,6 +217,44 @@ public class ReflectionComparatorMapTest extends TestCase {
     }
 
 
+    /**
+     * Tests for equal maps with number keys of a different type. Keys are looked up by their value.
+     */
+    public void testGetDifference_equalsNumberKeysOfDifferentType() {
+        Map<Object, String> mapIntegerKeys = new HashMap<Object, String>();
+        mapIntegerKeys.put(1, "test 1");
+        mapIntegerKeys.put('a', "test 2");
+        Map<Object, String> mapLongKeys = new HashMap<Object, String>();
+        mapLongKeys.put(1L, "test 1");
+        mapLongKeys.put(97L, "test 2");
+
+        Difference result = reflectionComparator.getDifference(mapIntegerKeys, mapLongKeys);
+        assertNull(result);
+    }
+
+
+    /**
+     * Tests for maps with a mix of keys that are looked up directly and keys that are compared using reflection.
+     */
+    public void testGetDifference_notEqualsMixedKeys() {
+        Map<Object, String> mapMixedKeysA = new HashMap<Object, String>();
+        mapMixedKeysA.put(null, "test 1");
+        mapMixedKeysA.put("key 2", "test 2");
+        mapMixedKeysA.put(new Element("key 3", null), "test 3");
+        Map<Object, String> mapMixedKeysB = new HashMap<Object, String>();
+        mapMixedKeysB.put(null, "test 1");
+        mapMixedKeysB.put("key 2", "test 2");
+        mapMixedKeysB.put(new Element("key 3", null), "XXXXXX");
+        mapMixedKeysB.put("key 4", "test 4");
+
+        MapDifference result = (MapDifference) reflectionComparator.getDifference(mapMixedKeysA, mapMixedKeysB);
+        assertEquals(1, result.getValueDifferences().size());
+        assertEquals("XXXXXX", result.getValueDifferences().values().iterator().next().getRightValue());
+        assertTrue(result.getLeftMissingKeys().isEmpty());
+        assertEquals("key 4", result.getRightMissingKeys().get(0));
+    }
+
+
     /**
      * Creates a map.
      *
@@ -17,7 +17,9 @@ package org.unitils.reflectionassert;
 
 import junit.framework.TestCase;
 import static org.unitils.reflectionassert.ReflectionComparatorFactory.createRefectionComparator;
+import static org.unitils.reflectionassert.ReflectionComparatorMode.IGNORE_DEFAULTS;
 import static org.unitils.reflectionassert.ReflectionComparatorMode.LENIENT_ORDER;
+import org.unitils.reflectionassert.difference.CollectionDifference;
 import org.unitils.reflectionassert.difference.Difference;
 import static org.unitils.reflectionassert.util.InnerDifferenceFinder.getInnerDifference;
 
@@ -185,6 +187,57 @@ public class ReflectionComparatorPrimitivesArrayTest extends TestCase {
     }
 
 
+    /**
+     * Test for large byte arrays: only the elements that differ should have a difference.
+     */
+    public void testGetDifference_notEqualsLargeByteArrays() {
+        byte[] left = new byte[1000000];
+        byte[] right = new byte[1000000];
+        left[10] = 1;
+        left[999999] = 2;
+
+        CollectionDifference result = (CollectionDifference) reflectionComparator.getDifference(left, right);
+
+        assertEquals(2, result.getElementDifferences().size());
+        assertEquals((byte) 1, getInnerDifference("10", result).getLeftValue());
+        assertEquals((byte) 2, getInnerDifference("999999", result).getLeftValue());
+        assertEquals((byte) 0, result.getRightList().get(10));
+    }
+
+
+    /**
+     * Test for double arrays: the values are compared as the boxed values would be, so NaN equals NaN.
+     */
+    public void testGetDifference_doubleArrays() {
+        assertNull(reflectionComparator.getDifference(new double[]{1.5, Double.NaN}, new double[]{1.5, Double.NaN}));
+        assertNotNull(reflectionComparator.getDifference(new double[]{1.5, 0.0}, new double[]{1.5, -0.0}));
+        assertNull(reflectionComparatorLenientOrder.getDifference(new double[]{Double.NaN, 1.5, 2.5}, new double[]{2.5, 1.5, Double.NaN}));
+        assertNotNull(reflectionComparatorLenientOrder.getDifference(new double[]{1.5, 2.5}, new double[]{1.5, 1.5}));
+    }
+
+
+    /**
+     * Test for arrays with default values that are ignored.
+     */
+    public void testGetDifference_equalsIgnoreDefaults() {
+        int[] left = {1, 0, 3};
+        int[] right = {1, 2, 3};
+
+        assertNotNull(reflectionComparator.getDifference(left, right));
+        assertNull(createRefectionComparator(IGNORE_DEFAULTS).getDifference(left, right));
+        assertNull(createRefectionComparator(IGNORE_DEFAULTS, LENIENT_ORDER).getDifference(left, new int[]{3, 4, 1}));
+    }
+
+
+    /**
+     * Test for boolean arrays in lenient order.
+     */
+    public void testGetDifference_booleanArraysLenientOrder() {
+        assertNull(reflectionComparatorLenientOrder.getDifference(new boolean[]{true, false, false}, new boolean[]{false, true, false}));
+        assertNotNull(reflectionComparatorLenientOrder.getDifference(new boolean[]{true, false, false}, new boolean[]{false, true, true}));
+    }
+
+
     /**
      * Test class with failing equals.
      */
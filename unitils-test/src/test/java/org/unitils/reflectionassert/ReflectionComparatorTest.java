@@ -18,6 +18,8 @@ package org.unitils.reflectionassert;
 import junit.framework.TestCase;
 import static org.unitils.reflectionassert.ReflectionComparatorFactory.createRefectionComparator;
 import static org.unitils.reflectionassert.ReflectionComparatorMode.IGNORE_DEFAULTS;
+import static org.unitils.reflectionassert.ReflectionComparatorMode.LENIENT_ORDER;
+import org.unitils.reflectionassert.comparator.Comparator;
 import org.unitils.reflectionassert.difference.Difference;
 import static org.unitils.reflectionassert.util.InnerDifferenceFinder.getInnerDifference;
 
@@ -25,7 +27,16 @@ import static java.lang.Boolean.FALSE;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import static java.util.Arrays.asList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
@@ -209,6 +220,110 @@ public class ReflectionComparatorTest extends TestCase {
     }
 
 
+    /**
+     * Test for two objects that contain different values.
+     */
+    public void testIsEqual_notEquals() {
+        assertFalse(reflectionComparator.isEqual(objectsInnerA, objectsInnerDifferentValue));
+        assertFalse(reflectionComparator.isEqual(objectsA, null));
+    }
+
+
+    /**
+     * Test case for 2 equal objects that contain a circular reference. This may not cause an infinite loop.
+     */
+    public void testIsEqual_circularDependency() {
+        assertTrue(reflectionComparator.isEqual(objectsCircularDependencyA, objectsCircularDependencyB));
+    }
+
+
+    /**
+     * Test that the outcome of isEqual is the same as the outcome of getDifference for all kinds of values.
+     */
+    public void testIsEqual_sameOutcomeAsGetDifference() {
+        Map<Object, Object> mapA = new HashMap<Object, Object>();
+        mapA.put("key", objectsA);
+        mapA.put(1, asList(1, 2, 3));
+        Map<Object, Object> mapB = new HashMap<Object, Object>();
+        mapB.put("key", objectsB);
+        mapB.put(1L, asList(3, 2, 1));
+
+        Object[][] pairs = {
+                {asList(objectsA, objectsInnerA), asList(objectsB, objectsInnerB)},
+                {asList(objectsA, objectsInnerA), asList(objectsInnerB, objectsB)},
+                {asList(objectsA, objectsInnerA), asList(objectsInnerB)},
+                {new Objects[]{objectsA, null}, new Objects[]{objectsB, objectsNullValue}},
+                {new int[]{0, 2, 3}, new int[]{3, 2, 1}},
+                {new double[]{1.0, Double.NaN}, new double[]{1.0, Double.NaN}},
+                {mapA, mapB},
+                {mapA, new HashMap<Object, Object>()},
+                {objectsNullValue, objectsA},
+        };
+        ReflectionComparator lenientOrderReflectionComparator = createRefectionComparator(LENIENT_ORDER);
+        for (ReflectionComparator comparator : asList(reflectionComparator, ignoreDefaultReflectionComparator, lenientOrderReflectionComparator)) {
+            for (Object[] pair : pairs) {
+                assertEquals(comparator.getDifference(pair[0], pair[1]) == null, comparator.isEqual(pair[0], pair[1]));
+            }
+        }
+    }
+
+
+    /**
+     * Test for a comparator that can only determine differences. The first difference should then be used.
+     */
+    public void testIsEqual_comparatorWithoutEqualityCheck() {
+        ReflectionComparator comparator = new ReflectionComparator(asList((Comparator) new Comparator() {
+
+            public boolean canCompare(Object left, Object right) {
+                return true;
+            }
+
+            public Difference compare(Object left, Object right, boolean onlyFirstDifference, ReflectionComparator reflectionComparator) {
+                return left.equals(right) ? null : new Difference("Different", left, right);
+            }
+        }));
+        assertTrue(comparator.isEqual("a", "a"));
+        assertFalse(comparator.isEqual("a", "b"));
+    }
+
+
+    /**
+     * Test for reusing a comparator after one of the compared objects was modified. No stale results may be returned.
+     */
+    public void testIsEqual_reusedAfterModification() {
+        assertTrue(reflectionComparator.isEqual(objectsInnerA, objectsInnerB));
+
+        objectsB.string2 = "XXXXXX";
+        assertFalse(reflectionComparator.isEqual(objectsInnerA, objectsInnerB));
+    }
+
+
+    /**
+     * Test for using the same comparator in different threads at the same time.
+     */
+    public void testIsEqual_reusedByMultipleThreads() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 100; i++) {
+                final boolean equal = i % 2 == 0;
+                results.add(executorService.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        Objects left = new Objects("test 1", "test 2", new Objects("test 3", null, null));
+                        Objects right = new Objects("test 1", "test 2", new Objects(equal ? "test 3" : "XXXXXX", null, null));
+                        return reflectionComparator.isEqual(left, right) == equal;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+
     /**
      * Test for ignored default left value and to check that the right value is not being evaluated (causing a lazy
      * loading).
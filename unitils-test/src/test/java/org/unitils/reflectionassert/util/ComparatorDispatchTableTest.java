@@ -0,0 +1,189 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.reflectionassert.ReflectionComparator;
+import org.unitils.reflectionassert.comparator.ClassBasedComparator;
+import org.unitils.reflectionassert.comparator.Comparator;
+import org.unitils.reflectionassert.comparator.impl.IgnoreDefaultsComparator;
+import org.unitils.reflectionassert.comparator.impl.MapComparator;
+import org.unitils.reflectionassert.comparator.impl.ObjectComparator;
+import org.unitils.reflectionassert.comparator.impl.SimpleCasesComparator;
+import org.unitils.reflectionassert.difference.Difference;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import static java.util.Arrays.asList;
+import java.util.HashMap;
+
+/**
+ * Test class for {@link ComparatorDispatchTable}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ComparatorDispatchTableTest {
+
+    /* Tested object */
+    private ComparatorDispatchTable comparatorDispatchTable;
+
+    private Comparator ignoreDefaultsComparator = new IgnoreDefaultsComparator();
+
+    private Comparator simpleCasesComparator = new SimpleCasesComparator();
+
+    private Comparator mapComparator = new MapComparator();
+
+    private CountingComparator countingComparator = new CountingComparator();
+
+    private Comparator objectComparator = new ObjectComparator();
+
+
+    @Before
+    public void initialize() {
+        comparatorDispatchTable = new ComparatorDispatchTable(asList(ignoreDefaultsComparator, simpleCasesComparator, mapComparator, countingComparator, objectComparator));
+    }
+
+
+    @Test
+    public void classBasedComparatorIsRemembered() {
+        assertSame(countingComparator, comparatorDispatchTable.getComparator(new Value(), new Value()));
+        assertSame(countingComparator, comparatorDispatchTable.getComparator(new Value(), new Value()));
+        assertEquals(1, countingComparator.canCompareCount);
+    }
+
+
+    @Test
+    public void differentClasses() {
+        assertSame(mapComparator, comparatorDispatchTable.getComparator(new HashMap<Object, Object>(), new HashMap<Object, Object>()));
+        assertSame(countingComparator, comparatorDispatchTable.getComparator(new Value(), new Value()));
+        assertSame(objectComparator, comparatorDispatchTable.getComparator(new Value(), new OtherValue()));
+    }
+
+
+    @Test
+    public void valueBasedComparatorIsAlwaysAsked() {
+        assertSame(simpleCasesComparator, comparatorDispatchTable.getComparator(1, 2));
+        assertSame(ignoreDefaultsComparator, comparatorDispatchTable.getComparator(0, 2));
+        assertSame(simpleCasesComparator, comparatorDispatchTable.getComparator(3, 2));
+    }
+
+
+    @Test
+    public void nullAndSameInstance() {
+        Object object = new Value();
+        assertSame(ignoreDefaultsComparator, comparatorDispatchTable.getComparator(null, object));
+        assertSame(simpleCasesComparator, comparatorDispatchTable.getComparator(object, null));
+        assertSame(simpleCasesComparator, comparatorDispatchTable.getComparator(object, object));
+        assertEquals(0, countingComparator.canCompareCount);
+    }
+
+
+    @Test
+    public void noComparatorFound() {
+        comparatorDispatchTable = new ComparatorDispatchTable(asList(mapComparator));
+        assertNull(comparatorDispatchTable.getComparator("a", "b"));
+        assertNull(comparatorDispatchTable.getComparator("a", "b"));
+    }
+
+
+    /**
+     * The table should not keep the compared classes, and so their class loaders, from being garbage collected.
+     */
+    @Test
+    public void classLoaderCanBeGarbageCollected() throws Exception {
+        ClassLoader classLoader = new IsolatingClassLoader(OtherValue.class.getName());
+        Constructor<?> constructor = classLoader.loadClass(OtherValue.class.getName()).getDeclaredConstructor();
+        constructor.setAccessible(true);
+        assertSame(objectComparator, comparatorDispatchTable.getComparator(constructor.newInstance(), constructor.newInstance()));
+
+        WeakReference<ClassLoader> classLoaderReference = new WeakReference<ClassLoader>(classLoader);
+        classLoader = null;
+        constructor = null;
+        for (int i = 0; i < 10 && classLoaderReference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(classLoaderReference.get());
+    }
+
+
+    /**
+     * Class based comparator for values that counts the nr of canCompare calls.
+     */
+    private static class CountingComparator implements ClassBasedComparator {
+
+        private int canCompareCount;
+
+        public boolean canCompare(Object left, Object right) {
+            canCompareCount++;
+            return left instanceof Value && right instanceof Value;
+        }
+
+        public Difference compare(Object left, Object right, boolean onlyFirstDifference, ReflectionComparator reflectionComparator) {
+            return null;
+        }
+    }
+
+
+    private static class Value {
+    }
+
+
+    private static class OtherValue {
+    }
+
+
+    /**
+     * Class loader that loads its own copy of a class instead of delegating to its parent.
+     */
+    private static class IsolatingClassLoader extends ClassLoader {
+
+        private String className;
+
+        public IsolatingClassLoader(String className) {
+            super(IsolatingClassLoader.class.getClassLoader());
+            this.className = className;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!className.equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+            try {
+                InputStream inputStream = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int count;
+                while ((count = inputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, count);
+                }
+                inputStream.close();
+                byte[] bytes = outputStream.toByteArray();
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (Exception e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+/**
+ * Test class for {@link ComparedFieldsCache}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ComparedFieldsCacheTest {
+
+    /* Tested object */
+    private ComparedFieldsCache comparedFieldsCache;
+
+
+    @Before
+    public void initialize() {
+        comparedFieldsCache = new ComparedFieldsCache();
+    }
+
+
+    @Test
+    public void fieldsOfClassAndSuperclasses() {
+        Field[] result = comparedFieldsCache.getComparedFields(Child.class);
+
+        assertEquals(3, result.length);
+        assertEquals("childValue", result[0].getName());
+        assertEquals("parentValue", result[1].getName());
+        assertEquals("grandParentValue", result[2].getName());
+    }
+
+
+    @Test
+    public void staticAndTransientFieldsIgnored() {
+        Field[] result = comparedFieldsCache.getComparedFields(GrandParent.class);
+
+        assertEquals(1, result.length);
+        assertEquals("grandParentValue", result[0].getName());
+    }
+
+
+    @Test
+    public void fieldsAreAccessible() {
+        Field[] result = comparedFieldsCache.getComparedFields(Child.class);
+
+        for (Field field : result) {
+            assertTrue(field.isAccessible());
+        }
+    }
+
+
+    @Test
+    public void fieldsLookedUpOnlyOnce() {
+        Field[] result1 = comparedFieldsCache.getComparedFields(Parent.class);
+        Field[] result2 = comparedFieldsCache.getComparedFields(Parent.class);
+
+        assertSame(result1, result2);
+    }
+
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    private static class GrandParent {
+
+        private static String staticValue;
+
+        private transient String transientValue;
+
+        private String grandParentValue;
+    }
+
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    private static class Parent extends GrandParent {
+
+        private String parentValue;
+    }
+
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    private static class Child extends Parent {
+
+        private String childValue;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.reflectionassert.difference.Difference;
+
+/**
+ * Test class for {@link DifferenceCache}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DifferenceCacheTest {
+
+    /* Tested object */
+    private DifferenceCache differenceCache;
+
+    private Object left = "left";
+
+    private Object right = "right";
+
+    private Difference difference = new Difference("message", left, right);
+
+
+    @Before
+    public void initialize() {
+        differenceCache = new DifferenceCache(3);
+    }
+
+
+    @Test
+    public void cachedDifference() {
+        differenceCache.put(left, right, difference);
+
+        assertTrue(differenceCache.contains(left, right));
+        assertSame(difference, differenceCache.get(left, right));
+    }
+
+
+    @Test
+    public void cachedMatch() {
+        differenceCache.put(left, right, null);
+
+        assertTrue(differenceCache.contains(left, right));
+        assertNull(differenceCache.get(left, right));
+    }
+
+
+    @Test
+    public void pairIsKeyedByIdentity() {
+        differenceCache.put(left, right, difference);
+
+        assertFalse(differenceCache.contains(right, left));
+        assertFalse(differenceCache.contains(left, new String("right")));
+    }
+
+
+    @Test
+    public void nullValues() {
+        differenceCache.put(null, right, difference);
+        differenceCache.put(left, null, null);
+
+        assertSame(difference, differenceCache.get(null, right));
+        assertTrue(differenceCache.contains(left, null));
+        assertFalse(differenceCache.contains(null, null));
+    }
+
+
+    @Test
+    public void inProgressReplacedByResult() {
+        differenceCache.putInProgress(left, right);
+        assertTrue(differenceCache.contains(left, right));
+        assertNull(differenceCache.get(left, right));
+
+        differenceCache.put(left, right, difference);
+        assertSame(difference, differenceCache.get(left, right));
+        assertEquals(1, differenceCache.size());
+    }
+
+
+    @Test
+    public void finishedResultsEvictedWhenFull() {
+        differenceCache.putInProgress(left, right);
+        differenceCache.put("1", "1", null);
+        differenceCache.put("2", "2", null);
+        differenceCache.put("3", "3", null);
+
+        assertTrue(differenceCache.contains(left, right));
+        assertFalse(differenceCache.contains("1", "1"));
+        assertFalse(differenceCache.contains("2", "2"));
+        assertTrue(differenceCache.contains("3", "3"));
+        assertEquals(2, differenceCache.size());
+    }
+
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        differenceCache = new DifferenceCache(1000);
+        Object[] values = new Object[500];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new Object();
+            differenceCache.put(values[i], left, null);
+        }
+
+        for (Object value : values) {
+            assertTrue(differenceCache.contains(value, left));
+        }
+        assertEquals(500, differenceCache.size());
+    }
+
+
+    @Test
+    public void clear() {
+        differenceCache.putInProgress(left, right);
+        differenceCache.put(right, left, difference);
+
+        differenceCache.clear();
+        assertFalse(differenceCache.contains(left, right));
+        assertFalse(differenceCache.contains(right, left));
+        assertEquals(0, differenceCache.size());
+    }
+}
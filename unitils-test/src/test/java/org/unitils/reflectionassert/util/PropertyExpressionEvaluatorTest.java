@@ -0,0 +1,178 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.reflectionassert.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.core.UnitilsException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test class for {@link PropertyExpressionEvaluator}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class PropertyExpressionEvaluatorTest {
+
+    /* Tested object */
+    private PropertyExpressionEvaluator propertyExpressionEvaluator;
+
+    private Person person;
+
+
+    @Before
+    public void initialize() {
+        propertyExpressionEvaluator = new PropertyExpressionEvaluator();
+        person = new Person("John", new Address("Main street"));
+    }
+
+
+    @Test
+    public void getterIsUsedBeforeField() {
+        Object result = propertyExpressionEvaluator.getValue(person, "name");
+        assertEquals("John (getter)", result);
+    }
+
+
+    @Test
+    public void fieldWithoutGetter() {
+        Object result = propertyExpressionEvaluator.getValue(person, "address.street");
+        assertEquals("Main street", result);
+    }
+
+
+    @Test
+    public void sameExpressionForDifferentObjects() {
+        Person otherPerson = new Person("Jane", new Address("Other street"));
+
+        assertEquals("Main street", propertyExpressionEvaluator.getValue(person, "address.street"));
+        assertEquals("Other street", propertyExpressionEvaluator.getValue(otherPerson, "address.street"));
+    }
+
+
+    @Test
+    public void nonPublicGetterIsIgnored() {
+        Object result = propertyExpressionEvaluator.getValue(new Account(), "number");
+        assertEquals("field", result);
+    }
+
+
+    @Test
+    public void voidGetterIsIgnored() {
+        Object result = propertyExpressionEvaluator.getValue(new Account(), "code");
+        assertEquals("field", result);
+    }
+
+
+    @Test
+    public void booleanIsGetter() {
+        Object result = propertyExpressionEvaluator.getValue(new Account(), "active");
+        assertEquals(Boolean.TRUE, result);
+    }
+
+
+    @Test
+    public void mapProperty() {
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("key", "value");
+
+        Object result = propertyExpressionEvaluator.getValue(map, "key");
+        assertEquals("value", result);
+    }
+
+
+    @Test
+    public void nullValue() {
+        Object result = propertyExpressionEvaluator.getValue(new Person("John", null), "address");
+        assertNull(result);
+    }
+
+
+    @Test
+    public void nullValueInPath() {
+        try {
+            propertyExpressionEvaluator.getValue(new Person("John", null), "address.street");
+            fail("Expected UnitilsException");
+        } catch (UnitilsException e) {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void unknownProperty() {
+        try {
+            propertyExpressionEvaluator.getValue(person, "xxxx");
+            fail("Expected UnitilsException");
+        } catch (UnitilsException e) {
+            // expected
+        }
+    }
+
+
+    private static class Person {
+
+        private String name;
+
+        private Address address;
+
+        public Person(String name, Address address) {
+            this.name = name;
+            this.address = address;
+        }
+
+        public String getName() {
+            return name + " (getter)";
+        }
+    }
+
+
+    private static class Address {
+
+        private String street;
+
+        public Address(String street) {
+            this.street = street;
+        }
+    }
+
+
+    private static class Account {
+
+        private String number = "field";
+
+        private String code = "field";
+
+        private boolean active = false;
+
+        private String getNumber() {
+            return "private getter";
+        }
+
+        public void getCode() {
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+    }
+}